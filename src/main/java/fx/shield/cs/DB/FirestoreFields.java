@@ -0,0 +1,152 @@
+package fx.shield.cs.DB;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streaming reader for the {@code fields} of a Firestore document.
+ *
+ * <p>Reads straight from the (optionally gzipped) response stream with a {@link JsonReader}:
+ * only the {@code stringValue}/{@code booleanValue} of the wanted fields are materialized,
+ * everything else (other fields, metadata, large scripts nobody asked for) is skipped token by
+ * token. No body string, no JSON tree.
+ */
+final class FirestoreFields {
+
+    private static final int BUFFER_BYTES = 8192;
+
+    /**
+     * What was read from one document.
+     */
+    static final class Doc {
+        /** wanted field name -> value (booleans as "true"/"false"); absent fields are missing */
+        final Map<String, String> fields;
+        /** document {@code updateTime}, changes whenever any field changes; may be null */
+        final String updateTime;
+
+        Doc(Map<String, String> fields, String updateTime) {
+            this.fields = fields;
+            this.updateTime = updateTime;
+        }
+    }
+
+    private FirestoreFields() {}
+
+    /**
+     * @param in     response body, plain or gzipped (detected by its magic bytes, so a wrong or
+     *               missing {@code Content-Encoding} does not matter); closed by the caller
+     * @param wanted field names to extract
+     * @return the document, or null if it has no {@code fields} object (a masked read of
+     *         fields that are all absent has none either)
+     */
+    static Doc read(InputStream in, Set<String> wanted) throws IOException {
+        InputStream src = new BufferedInputStream(in, BUFFER_BYTES);
+        if (isGzip(src)) {
+            src = new BufferedInputStream(new GZIPInputStream(src, BUFFER_BYTES), BUFFER_BYTES);
+        }
+        skipPrefix(src);
+
+        JsonReader reader = new JsonReader(new InputStreamReader(src, StandardCharsets.UTF_8));
+        reader.setLenient(true);
+
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) return null;
+
+        Map<String, String> out = null;
+        String updateTime = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (out == null && "fields".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                out = readFields(reader, wanted);
+            } else if ("updateTime".equals(name) && reader.peek() == JsonToken.STRING) {
+                updateTime = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        return out == null ? null : new Doc(out, updateTime);
+    }
+
+    private static Map<String, String> readFields(JsonReader reader, Set<String> wanted) throws IOException {
+        Map<String, String> out = new HashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (!wanted.contains(name) || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String type = reader.nextName();
+                String v = null;
+                if ("stringValue".equals(type) || "booleanValue".equals(type)) {
+                    v = scalar(reader);
+                } else {
+                    reader.skipValue();
+                }
+                if (v != null) out.put(name, v);
+            }
+            reader.endObject();
+        }
+        reader.endObject();
+        return out;
+    }
+
+    private static String scalar(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case STRING, NUMBER -> {
+                return reader.nextString();
+            }
+            case BOOLEAN -> {
+                return Boolean.toString(reader.nextBoolean());
+            }
+            default -> {
+                reader.skipValue();
+                return null;
+            }
+        }
+    }
+
+    private static boolean isGzip(InputStream in) throws IOException {
+        in.mark(2);
+        int b0 = in.read();
+        int b1 = in.read();
+        in.reset();
+        return b0 == 0x1F && b1 == 0x8B;
+    }
+
+    /**
+     * Skips a UTF-8 BOM, leading whitespace and an XSSI prefix (<code>)]&#125;'</code>) up to the
+     * first '{' or '['.
+     */
+    private static void skipPrefix(InputStream in) throws IOException {
+        boolean xssi = false;
+        while (true) {
+            in.mark(3);
+            int c = in.read();
+            if (c < 0) return;
+            if (c == 0xEF) { // BOM
+                if (in.read() == 0xBB && in.read() == 0xBF) continue;
+                in.reset();
+                return;
+            }
+            if (c == ')') xssi = true;
+            if (c == '{' || c == '[' || (!xssi && !Character.isWhitespace(c))) {
+                in.reset();
+                return;
+            }
+        }
+    }
+}
@@ -4,8 +4,9 @@ import java.io.Serial;
 import java.io.Serializable;
 
 /**
- * Configuration class for remote settings and PowerShell scripts.
- * Used for application updates, maintenance mode, and system optimization scripts.
+ * Configuration class for remote settings.
+ * Used for application updates and maintenance mode; the optimization scripts are fetched
+ * separately, on demand ({@link RemoteScript}).
  */
 public final class RemoteConfig implements Serializable {
 
@@ -20,17 +21,6 @@ public final class RemoteConfig implements Serializable {
     private String updateMessage;
     private boolean forceUpdate;
 
-    //? PowerShell scripts for system optimization
-    private String freeRamScript;
-    private String optimizeDiskScript;
-    private String optimizeNetworkScript;
-    private String scanAndFixScript;
-
-    //? Modes Scriot in the app
-    private String quietModeScript;
-    private String performanceModeScript;
-    private String balancedModeScript;
-
     public RemoteConfig() {
     }
 
@@ -101,67 +91,6 @@ public final class RemoteConfig implements Serializable {
         return appStatus != null && appStatus.equalsIgnoreCase("maintenance") && !appStatus.equalsIgnoreCase("online");
     }
 
-    // =========================================================================
-    // ? Script Accessor Methods
-    // =========================================================================
-
-    public String getFreeRamScript() {
-        return freeRamScript;
-    }
-
-    public void setFreeRamScript(String FreeRamScript) {
-        this.freeRamScript = trimOrNull(FreeRamScript);
-    }
-
-    public String getOptimizeDiskScript() {
-        return optimizeDiskScript;
-    }
-
-    public void setOptimizeDiskScript(String OptimizeDiskScript) {
-        this.optimizeDiskScript = trimOrNull(OptimizeDiskScript);
-    }
-
-    public String getOptimizeNetworkScript() {
-        return optimizeNetworkScript;
-    }
-
-    public void setOptimizeNetworkScript(String OptimizeNetworkScript) {
-        this.optimizeNetworkScript = trimOrNull(OptimizeNetworkScript);
-    }
-
-    public String getScanAndFixScript() {
-        return scanAndFixScript;
-    }
-
-    public void setScanAndFixScript(String ScanAndFixScript) {
-        this.scanAndFixScript = trimOrNull(ScanAndFixScript);
-    }
-
-    public String getBalancedModeScript() {
-        return balancedModeScript;
-    }
-
-    public void setBalancedModeScript(String BalancedModeScript) {
-        this.balancedModeScript = trimOrNull(BalancedModeScript);
-    }
-
-
-    public String getQuietModeScript() {
-        return quietModeScript;
-    }
-
-    public void setQuietModeScript(String QuietModeScript) {
-        this.quietModeScript = trimOrNull(QuietModeScript);
-    }
-
-    public String getPerformanceModeScript() {
-        return performanceModeScript;
-    }
-
-    public void setPerformanceModeScript(String PerformanceModeScript) {
-        this.performanceModeScript = trimOrNull(PerformanceModeScript);
-    }
-
     // =========================================================================
     // Utility Methods
     // =========================================================================
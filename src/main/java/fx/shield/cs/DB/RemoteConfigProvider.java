@@ -0,0 +1,153 @@
+package fx.shield.cs.DB;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * App-wide access to the remote configuration.
+ *
+ * <ul>
+ *   <li>One {@link RemoteConfigService} (one ETag, one on-disk copy) for every window</li>
+ *   <li>{@link #get()} answers from memory; it only waits for the network when there is no
+ *       copy or the copy is older than the hard maximum age</li>
+ *   <li>Single-flight: concurrent refreshes share one HTTP request</li>
+ *   <li>{@link #start()} refreshes in the background on a fixed schedule; a {@link #get()}
+ *       that finds the copy older than the refresh interval also triggers one</li>
+ *   <li>Scripts are fetched on demand ({@link #script}, {@link #scripts}) and re-downloaded
+ *       only after the document changed</li>
+ * </ul>
+ */
+public final class RemoteConfigProvider {
+
+    static final Duration REFRESH_INTERVAL = Duration.ofMinutes(5);
+    static final Duration HARD_MAX_AGE = Duration.ofMinutes(30);
+
+    private static volatile RemoteConfigProvider shared;
+
+    public static RemoteConfigProvider shared() {
+        RemoteConfigProvider p = shared;
+        if (p != null) return p;
+        synchronized (RemoteConfigProvider.class) {
+            if (shared == null) shared = new RemoteConfigProvider(new RemoteConfigService(), REFRESH_INTERVAL, HARD_MAX_AGE);
+            return shared;
+        }
+    }
+
+    private final RemoteConfigService service;
+    private final long refreshMs;
+    private final long maxAgeMs;
+
+    private final AtomicReference<CompletableFuture<RemoteConfig>> inFlight = new AtomicReference<>();
+    private final ScheduledExecutorService worker; // periodic refresh only
+    private boolean started; // guarded by this
+
+    public RemoteConfigProvider(RemoteConfigService service, Duration refreshInterval, Duration maxAge) {
+        this.service = service;
+        this.refreshMs = refreshInterval.toMillis();
+        this.maxAgeMs = Math.max(refreshMs, maxAge.toMillis());
+        this.worker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "fxShield-config");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Starts the periodic background refresh (idempotent).
+     */
+    public synchronized void start() {
+        if (started) return;
+        started = true;
+        worker.scheduleWithFixedDelay(this::refreshAsync, refreshMs, refreshMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the copy in memory (possibly loaded from disk), never touching the network
+     */
+    public RemoteConfig cached() {
+        return service.cachedConfig();
+    }
+
+    /**
+     * Configuration for an action: the copy in memory unless it is missing or older than the
+     * hard maximum age, in which case this waits for a refresh.
+     *
+     * @return the configuration, or null if none could ever be fetched
+     */
+    public RemoteConfig get() {
+        RemoteConfig cfg = service.cachedConfig();
+        long age = service.cachedAgeMs();
+        if (cfg != null && age >= 0 && age < maxAgeMs) {
+            if (age >= refreshMs) refreshAsync();
+            return cfg;
+        }
+        return refresh();
+    }
+
+    /**
+     * Text of one script (blocking: may download it).
+     *
+     * @return the script, or null if it is missing or could never be fetched
+     */
+    public String script(RemoteScript s) {
+        return service.fetchScripts(s).get(s);
+    }
+
+    /**
+     * Several scripts at once; those that need downloading share one request.
+     */
+    public Map<RemoteScript, String> scripts(RemoteScript... wanted) {
+        return service.fetchScripts(wanted);
+    }
+
+    /**
+     * Fetches now (joining a fetch already in flight) and waits for it.
+     *
+     * @return the fresh configuration, or the last known one if the fetch failed
+     */
+    public RemoteConfig refresh() {
+        CompletableFuture<RemoteConfig> f = refreshAsync();
+        try {
+            return f.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return service.cachedConfig();
+        } catch (ExecutionException ee) {
+            return service.cachedConfig();
+        }
+    }
+
+    /**
+     * Starts a fetch unless one is already in flight. Nothing blocks while it runs; the first
+     * call also opens (prewarms) the HTTPS connection that later fetches reuse.
+     *
+     * @return completes with the same value {@link #refresh()} would return
+     */
+    public CompletableFuture<RemoteConfig> refreshAsync() {
+        while (true) {
+            CompletableFuture<RemoteConfig> f = inFlight.get();
+            if (f != null) return f;
+
+            CompletableFuture<RemoteConfig> mine = new CompletableFuture<>();
+            if (!inFlight.compareAndSet(null, mine)) continue;
+
+            CompletableFuture<RemoteConfig> fetch;
+            try {
+                fetch = service.fetchConfigAsync();
+            } catch (Throwable t) {
+                fetch = CompletableFuture.completedFuture(service.cachedConfig());
+            }
+            fetch.whenComplete((cfg, err) -> {
+                mine.complete(err == null ? cfg : service.cachedConfig());
+                inFlight.compareAndSet(mine, null);
+            });
+            return mine;
+        }
+    }
+}
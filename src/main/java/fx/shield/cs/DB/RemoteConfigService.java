@@ -1,40 +1,66 @@
 package fx.shield.cs.DB;
 
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.MalformedJsonException;
 
-import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.StringReader;
+import java.io.InputStream;
 import java.net.URI;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.Duration;
-import java.util.zip.GZIPInputStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 /**
  * Service for fetching remote configuration from Firebase Firestore.
  *
  * <p>This service provides:
  * <ul>
- *   <li>HTTP-based configuration fetching with retry logic</li>
- *   <li>ETag-based caching to minimize network traffic</li>
- *   <li>GZIP decompression support</li>
+ *   <li>HTTP-based configuration fetching with retry logic, blocking or asynchronous
+ *       ({@link #fetchConfigAsync()})</li>
+ *   <li>Field masks and per-script ETags to minimize network traffic</li>
+ *   <li>GZIP decompression support, parsed as a stream ({@link FirestoreFields})</li>
  *   <li>Graceful fallback to cached configuration on errors</li>
+ *   <li>Last good configuration kept on disk, so a cold start can show it at once
+ *       ({@link #cachedConfig()}) and revalidate in the background</li>
  *   <li>Timeout protection for network requests</li>
  * </ul>
  *
  * <p>The service fetches configuration including:
  * <ul>
- *   <li>Application status and version information</li>
- *   <li>PowerShell scripts for system optimization</li>
+ *   <li>Application status and version information ({@link #fetchConfig()}, only those
+ *       fields via {@code mask.fieldPaths})</li>
+ *   <li>PowerShell scripts for system optimization, one at a time on demand
+ *       ({@link #fetchScripts})</li>
  *   <li>Update management settings</li>
  * </ul>
  *
+ * <p>Each script is cached in memory with its own ETag and the document {@code updateTime} it
+ * was read at. While the status fetch reports the same {@code updateTime}, cached scripts are
+ * served without a request. Nothing about scripts is persisted (the app runs elevated and the
+ * cache file is user-writable), so the first use after a restart downloads it again. The
+ * status fetch itself is unconditional: its masked body is a few hundred bytes, and a 304
+ * would hide a new {@code updateTime} caused by a script edit.
+ *
  * <p>Thread-safe: Uses volatile fields for cache management.
  *
  * @see RemoteConfig
@@ -49,29 +75,60 @@ public final class RemoteConfigService {
     private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(8);
     private static final int MAX_RETRIES = 2;
 
+    /** reads response bodies and runs retries; threads exit when idle */
+    private static final AtomicInteger IO_IDS = new AtomicInteger();
+    private static final Executor IO = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "fxShield-config-io-" + IO_IDS.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
     // Firestore fields
-    private static final String F_APP_STATUS = "appStatus";
-    private static final String F_LATEST_VER = "latestVersion";
-    private static final String F_MIN_VER    = "minVersion";
-    private static final String F_DL_URL     = "downloadUrl";
-    private static final String F_UPD_MSG    = "updateMessage";
-    private static final String F_FORCE_UPD  = "forceUpdate";
-
-    // Scripts (your DB naming)
-    private static final String F_FREE_RAM   = "FreeRam_Script";
-    private static final String F_DISK       = "OptimizeDisk_Script";
-    private static final String F_NET        = "OptimizeNetwork_Script";
-    private static final String F_SCAN_FIX   = "ScanAndFix_Script";
-
-    private static final String F_PERF       = "PerformanceMode_Script";
-    private static final String F_BAL        = "BalancedMode_Script";
-    private static final String F_QUIET      = "QuietMode_Script";
+    static final String F_APP_STATUS = "appStatus";
+    static final String F_LATEST_VER = "latestVersion";
+    static final String F_MIN_VER    = "minVersion";
+    static final String F_DL_URL     = "downloadUrl";
+    static final String F_UPD_MSG    = "updateMessage";
+    static final String F_FORCE_UPD  = "forceUpdate";
+
+    private static final List<String> STATUS_FIELDS = List.of(
+            F_APP_STATUS, F_LATEST_VER, F_MIN_VER, F_DL_URL, F_UPD_MSG, F_FORCE_UPD
+    );
+    private static final Set<String> STATUS_FIELD_SET = Set.copyOf(STATUS_FIELDS);
+
+    /**
+     * A cached script.
+     */
+    static final class ScriptEntry {
+        final String value;   // null if the field is absent
+        final String etag;    // of a single-script response, may be null
+        final String version; // document updateTime it was read at, may be null
+
+        ScriptEntry(String value, String etag, String version) {
+            this.value = value;
+            this.etag = etag;
+            this.version = version;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ResponseHandler<T> {
+        /**
+         * Called for 200 and 304; the body is closed afterwards.
+         */
+        T handle(HttpResponse<InputStream> resp, InputStream body) throws IOException;
+    }
 
     private final HttpClient httpClient;
     private final String configUrl;
+    private final String statusUrl;
+    private final RemoteConfigStore store; // null: memory only
 
-    private volatile String cachedEtag;
     private volatile RemoteConfig cachedConfig;
+    private volatile long validatedAtMs; // wall clock of the last successful status fetch, 0 if never
+    private volatile String docVersion;  // document updateTime seen by the last status fetch
+
+    private final Map<RemoteScript, ScriptEntry> scripts = new ConcurrentHashMap<>();
 
     /**
      * Creates a new RemoteConfigService with the default configuration URL.
@@ -96,6 +153,19 @@ public final class RemoteConfigService {
      * @param configUrl the Firebase Firestore document URL (null uses default)
      */
     public RemoteConfigService(HttpClient client, String configUrl) {
+        this(client, configUrl, RemoteConfigStore.defaultStore());
+    }
+
+    /**
+     * Creates a new RemoteConfigService that keeps its on-disk copy in {@code cacheFile}.
+     *
+     * @param cacheFile where the last good configuration is persisted (null keeps it in memory only)
+     */
+    public RemoteConfigService(HttpClient client, String configUrl, Path cacheFile) {
+        this(client, configUrl, cacheFile == null ? null : new RemoteConfigStore(cacheFile));
+    }
+
+    private RemoteConfigService(HttpClient client, String configUrl, RemoteConfigStore store) {
         this.httpClient = (client != null)
                 ? client
                 : HttpClient.newBuilder().connectTimeout(CONNECT_TIMEOUT).build();
@@ -103,203 +173,269 @@ public final class RemoteConfigService {
         this.configUrl = (configUrl == null || configUrl.isBlank())
                 ? DEFAULT_CONFIG_URL
                 : configUrl.trim();
+        this.statusUrl = maskedUrl(STATUS_FIELDS);
+
+        this.store = store;
+        if (store != null) {
+            RemoteConfigStore.Snapshot snap = store.load(this.configUrl);
+            if (snap != null) {
+                this.cachedConfig = snap.config;
+                this.validatedAtMs = snap.validatedAtMs;
+                this.docVersion = snap.docVersion;
+            }
+        }
+    }
+
+    /**
+     * Last known configuration without touching the network: the last fetched one, or the
+     * copy persisted by a previous run.
+     *
+     * @return the cached configuration, or null if none was ever fetched
+     */
+    public RemoteConfig cachedConfig() {
+        return cachedConfig;
+    }
+
+    /**
+     * @return milliseconds since the server last confirmed the cached configuration
+     *         (last successful status fetch), or -1 if there is none
+     */
+    public long cachedAgeMs() {
+        long at = validatedAtMs;
+        if (cachedConfig == null || at <= 0) return -1;
+        return Math.max(0, System.currentTimeMillis() - at);
     }
 
     /**
-     * Fetches the remote configuration from Firebase Firestore.
+     * Fetches the status/version fields of the remote configuration from Firebase Firestore.
      *
      * <p>This method:
      * <ul>
-     *   <li>Uses ETag-based caching to avoid unnecessary downloads</li>
-     *   <li>Retries transient failures (429, 5xx) with exponential backoff</li>
-     *   <li>Returns cached configuration on errors or 304 Not Modified</li>
+     *   <li>Requests only the status/version fields ({@code mask.fieldPaths})</li>
+     *   <li>Records the document {@code updateTime} that decides which cached scripts are current</li>
+     *   <li>Retries transient failures (408, 429, 5xx) with exponential backoff</li>
+     *   <li>Returns cached configuration on errors</li>
      *   <li>Handles GZIP-compressed responses automatically</li>
-     *   <li>Parses Firestore document format into RemoteConfig object</li>
+     *   <li>Streams the Firestore document, keeping only the known fields</li>
      * </ul>
      *
      * @return the fetched configuration, or cached configuration if unavailable, or null if never fetched
      */
     public RemoteConfig fetchConfig() {
-        HttpRequest.Builder rb = HttpRequest.newBuilder()
-                .uri(URI.create(configUrl))
-                .timeout(REQUEST_TIMEOUT)
-                .header("Accept", "application/json")
-                .header("Accept-Encoding", "gzip")
-                .header("User-Agent", "FxShield/1.0 (RemoteConfigService)")
-                .GET();
-
-        String etag = cachedEtag;
-        if (etag != null && !etag.isBlank()) {
-            rb.header("If-None-Match", etag);
-        }
+        return await(fetchConfigAsync(), this::cachedConfig);
+    }
 
-        HttpRequest request = rb.build();
+    /**
+     * Non-blocking {@link #fetchConfig()}: sent with {@code sendAsync}, retries are scheduled
+     * instead of sleeping. Never completes exceptionally.
+     *
+     * @return completes with what {@link #fetchConfig()} would return
+     */
+    public CompletableFuture<RemoteConfig> fetchConfigAsync() {
+        HttpRequest request = request(statusUrl, null);
 
-        for (int attempt = 0; attempt <= MAX_RETRIES; attempt++) {
-            try {
-                HttpResponse<byte[]> resp = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
-                int code = resp.statusCode();
+        return exchangeAsync(request, (resp, body) -> {
+            if (resp.statusCode() != 200) return cachedConfig;
 
-                if (code == 304) {
-                    return cachedConfig; // may be null, that's OK
-                }
+            FirestoreFields.Doc doc = FirestoreFields.read(body, STATUS_FIELD_SET);
+            if (doc == null) return cachedConfig;
 
-                if (code != 200) {
-                    if (attempt < MAX_RETRIES && isTransient(code)) {
-                        sleepBackoff(attempt);
-                        continue;
-                    }
-                    // ✅ fallback to last known config instead of null
-                    return cachedConfig;
-                }
+            RemoteConfig cfg = new RemoteConfig();
 
-                String body = decodeBody(resp);
-                if (body == null || body.isBlank()) return cachedConfig;
+            cfg.setAppStatus(doc.fields.get(F_APP_STATUS));
+            cfg.setLatestVersion(doc.fields.get(F_LATEST_VER));
+            cfg.setMinVersion(doc.fields.get(F_MIN_VER));
+            cfg.setDownloadUrl(doc.fields.get(F_DL_URL));
+            cfg.setUpdateMessage(doc.fields.get(F_UPD_MSG));
+            cfg.setForceUpdate(Boolean.parseBoolean(doc.fields.get(F_FORCE_UPD)));
 
-                JsonObject root = parseJsonLenient(body);
-                JsonObject fields = safeObject(root, "fields");
-                if (fields == null) return cachedConfig;
+            remember(cfg, doc.updateTime);
+            return cfg;
+        }, () -> cachedConfig);
+    }
 
-                RemoteConfig cfg = new RemoteConfig();
+    /**
+     * Returns the requested scripts, downloading only those not known to be current.
+     *
+     * <p>A cached script is current when it was read at the document {@code updateTime} the
+     * last {@link #fetchConfig()} saw. The others are fetched in one masked request (a single
+     * script revalidates with its own ETag). If that fails the cached copy, if any, is returned.
+     *
+     * @return script -> text; scripts missing from the document (or never fetched while
+     *         offline) are absent
+     */
+    public Map<RemoteScript, String> fetchScripts(RemoteScript... wanted) {
+        Map<RemoteScript, String> out = new EnumMap<>(RemoteScript.class);
+        List<RemoteScript> stale = new ArrayList<>();
+        String version = docVersion;
+
+        for (RemoteScript s : wanted) {
+            ScriptEntry e = scripts.get(s);
+            if (e != null && version != null && version.equals(e.version)) {
+                if (e.value != null) out.put(s, e.value);
+            } else if (!stale.contains(s)) {
+                stale.add(s);
+            }
+        }
+        if (stale.isEmpty()) return out;
 
-                cfg.setAppStatus(getString(fields, F_APP_STATUS));
-                cfg.setLatestVersion(getString(fields, F_LATEST_VER));
-                cfg.setMinVersion(getString(fields, F_MIN_VER));
-                cfg.setDownloadUrl(getString(fields, F_DL_URL));
-                cfg.setUpdateMessage(getString(fields, F_UPD_MSG));
-                cfg.setForceUpdate(getBool(fields, F_FORCE_UPD));
+        List<String> paths = new ArrayList<>();
+        for (RemoteScript s : stale) paths.add(s.field());
+        Set<String> fieldSet = new HashSet<>(paths);
 
-                cfg.setFreeRamScript(getString(fields, F_FREE_RAM));
-                cfg.setOptimizeDiskScript(getString(fields, F_DISK));
-                cfg.setOptimizeNetworkScript(getString(fields, F_NET));
-                cfg.setScanAndFixScript(getString(fields, F_SCAN_FIX));
+        // a single cached script revalidates with its ETag (entries only exist with their text)
+        ScriptEntry single = (stale.size() == 1) ? scripts.get(stale.get(0)) : null;
+        String etag = (single != null) ? single.etag : null;
 
-                cfg.setPerformanceModeScript(getString(fields, F_PERF));
-                cfg.setBalancedModeScript(getString(fields, F_BAL));
-                cfg.setQuietModeScript(getString(fields, F_QUIET));
+        CompletableFuture<Boolean> done = exchangeAsync(request(maskedUrl(paths), etag), (resp, body) -> {
+            if (resp.statusCode() == 304) {
+                if (single == null) return false;
+                scripts.put(stale.get(0), new ScriptEntry(single.value, single.etag, version));
+                return true;
+            }
 
-                resp.headers().firstValue("etag").ifPresent(tag -> this.cachedEtag = tag);
-                this.cachedConfig = cfg;
-                return cfg;
+            FirestoreFields.Doc doc = FirestoreFields.read(body, fieldSet);
+            if (doc == null) return false;
 
-            } catch (InterruptedException ie) {
-                Thread.currentThread().interrupt();
-                return cachedConfig;
-            } catch (IOException ioe) {
-                if (attempt < MAX_RETRIES) {
-                    sleepBackoff(attempt);
-                    continue;
-                }
-                return cachedConfig;
-            } catch (Exception ex) {
-                return cachedConfig;
+            String newEtag = (stale.size() == 1) ? resp.headers().firstValue("etag").orElse(null) : null;
+            String readAt = (doc.updateTime != null) ? doc.updateTime : version;
+            for (RemoteScript s : stale) {
+                String v = doc.fields.get(s.field());
+                scripts.put(s, new ScriptEntry(v, newEtag, readAt));
             }
+            return true;
+        }, () -> false);
+        await(done, () -> false);
+
+        for (RemoteScript s : stale) {
+            ScriptEntry e = scripts.get(s);
+            if (e != null && e.value != null) out.put(s, e.value);
         }
+        return out;
+    }
 
-        return cachedConfig;
+    private void remember(RemoteConfig cfg, String version) {
+        this.cachedConfig = cfg;
+        this.validatedAtMs = System.currentTimeMillis();
+        this.docVersion = version;
+        persist();
     }
 
-    private static boolean isTransient(int code) {
-        return code == 429 || (code >= 500 && code < 600);
+    private void persist() {
+        if (store == null) return;
+        store.save(configUrl, cachedConfig, validatedAtMs, docVersion);
     }
 
-    private static void sleepBackoff(int attempt) {
-        long base = 200L;
-        long jitter = (long) (Math.random() * 120);
-        try {
-            Thread.sleep(base * (attempt + 1) + jitter);
-        } catch (InterruptedException ignored) {
-            Thread.currentThread().interrupt();
+    private HttpRequest request(String url, String etag) {
+        HttpRequest.Builder rb = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", "gzip")
+                .header("User-Agent", "FxShield/1.0 (RemoteConfigService)")
+                .GET();
+
+        if (etag != null && !etag.isBlank()) {
+            rb.header("If-None-Match", etag);
         }
+        return rb.build();
     }
 
-    private static JsonObject safeObject(JsonObject parent, String key) {
-        if (parent == null || key == null) return null;
-        JsonElement el = parent.get(key);
-        if (el == null || el.isJsonNull() || !el.isJsonObject()) return null;
-        return el.getAsJsonObject();
+    private String maskedUrl(List<String> fieldPaths) {
+        StringBuilder sb = new StringBuilder(configUrl);
+        char sep = configUrl.indexOf('?') >= 0 ? '&' : '?';
+        for (String f : fieldPaths) {
+            sb.append(sep).append("mask.fieldPaths=").append(URLEncoder.encode(f, StandardCharsets.UTF_8));
+            sep = '&';
+        }
+        return sb.toString();
     }
 
-    private static String getString(JsonObject fields, String name) {
-        JsonObject obj = safeObject(fields, name);
-        if (obj == null) return null;
-        JsonElement s = obj.get("stringValue");
-        return (s != null && !s.isJsonNull()) ? s.getAsString() : null;
+    /**
+     * Sends {@code request}, retrying I/O errors and transient statuses after a delay (no thread
+     * waits in between). The handler runs on {@link #IO}, never on the caller's thread.
+     *
+     * @return completes with what {@code handler} returns for a 200/304, else {@code fallback}
+     */
+    private <T> CompletableFuture<T> exchangeAsync(HttpRequest request, ResponseHandler<T> handler, Supplier<T> fallback) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        attempt(request, handler, fallback, 0, result);
+        return result;
     }
 
-    private static boolean getBool(JsonObject fields, String name) {
-        JsonObject obj = safeObject(fields, name);
-        if (obj == null) return false;
-        JsonElement b = obj.get("booleanValue");
-        return (b != null && !b.isJsonNull()) && b.getAsBoolean();
-    }
+    private <T> void attempt(HttpRequest request, ResponseHandler<T> handler, Supplier<T> fallback,
+                             int attempt, CompletableFuture<T> result) {
+        if (result.isDone()) return; // cancelled by the caller
 
-    private static String firstNonBlank(String a, String b) {
-        if (a != null && !a.isBlank()) return a;
-        if (b != null && !b.isBlank()) return b;
-        return null;
-    }
+        CompletableFuture<HttpResponse<InputStream>> sent;
+        try {
+            sent = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (Exception ex) {
+            result.complete(fallback.get());
+            return;
+        }
 
-    private static String decodeBody(HttpResponse<byte[]> resp) {
-        byte[] bytes = resp.body();
-        if (bytes == null || bytes.length == 0) return "";
+        sent.whenCompleteAsync((resp, err) -> {
+            if (err != null) {
+                Throwable cause = (err instanceof CompletionException && err.getCause() != null) ? err.getCause() : err;
+                if (cause instanceof IOException && attempt < MAX_RETRIES) {
+                    retryLater(request, handler, fallback, attempt, result);
+                } else {
+                    result.complete(fallback.get());
+                }
+                return;
+            }
 
-        boolean gzip = resp.headers().firstValue("Content-Encoding")
-                .map(v -> v.toLowerCase().contains("gzip"))
-                .orElse(false);
+            int code = resp.statusCode();
+            try (InputStream body = resp.body()) {
+                if (code != 200 && code != 304) {
+                    if (attempt < MAX_RETRIES && isTransient(code)) {
+                        retryLater(request, handler, fallback, attempt, result);
+                        return;
+                    }
+                    // ✅ fallback to last known config instead of null
+                    result.complete(fallback.get());
+                    return;
+                }
 
-        // sniff gzip magic in case header is missing
-        if (!gzip && bytes.length >= 2) {
-            int b0 = bytes[0] & 0xFF;
-            int b1 = bytes[1] & 0xFF;
-            gzip = (b0 == 0x1F && b1 == 0x8B);
-        }
+                try {
+                    result.complete(handler.handle(resp, body));
+                } catch (MalformedJsonException | EOFException | IllegalStateException bad) {
+                    result.complete(fallback.get()); // empty or broken document, not a network error
+                }
 
-        try {
-            if (gzip) {
-                try (GZIPInputStream gis = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
-                    return new String(gis.readAllBytes(), StandardCharsets.UTF_8);
+            } catch (IOException ioe) {
+                if (attempt < MAX_RETRIES) {
+                    retryLater(request, handler, fallback, attempt, result);
+                } else {
+                    result.complete(fallback.get());
                 }
+            } catch (Throwable t) {
+                result.complete(fallback.get());
             }
-            return new String(bytes, StandardCharsets.UTF_8);
-        } catch (Exception e) {
-            return new String(bytes, StandardCharsets.UTF_8);
-        }
+        }, IO);
     }
 
-    private static JsonObject parseJsonLenient(String body) {
-        String json = sanitizeJsonBody(body);
-        if (json == null || json.isBlank()) return new JsonObject();
+    private <T> void retryLater(HttpRequest request, ResponseHandler<T> handler, Supplier<T> fallback,
+                                int attempt, CompletableFuture<T> result) {
+        long base = 200L;
+        long jitter = (long) (Math.random() * 120);
+        CompletableFuture.delayedExecutor(base * (attempt + 1) + jitter, TimeUnit.MILLISECONDS, IO)
+                .execute(() -> attempt(request, handler, fallback, attempt + 1, result));
+    }
 
+    private static <T> T await(CompletableFuture<T> f, Supplier<T> fallback) {
         try {
-            JsonReader reader = new JsonReader(new StringReader(json));
-            reader.setLenient(true);
-            return JsonParser.parseReader(reader).getAsJsonObject();
-        } catch (Exception e) {
-            return JsonParser.parseString(json).getAsJsonObject();
+            return f.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return fallback.get();
+        } catch (ExecutionException | CancellationException e) {
+            return fallback.get();
         }
     }
 
-    private static String sanitizeJsonBody(String s) {
-        if (s == null) return "";
-        String out = s;
-
-        // strip BOM
-        if (!out.isEmpty() && out.charAt(0) == '\uFEFF') out = out.substring(1);
-
-        out = out.trim();
-
-        // strip XSSI prefix if present
-        if (out.startsWith(")]}'")) {
-            int idxObj = out.indexOf('{');
-            int idxArr = out.indexOf('[');
-            int idx = -1;
-            if (idxObj >= 0 && idxArr >= 0) idx = Math.min(idxObj, idxArr);
-            else if (idxObj >= 0) idx = idxObj;
-            else if (idxArr >= 0) idx = idxArr;
-            if (idx > 0) out = out.substring(idx);
-        }
-
-        return out;
+    private static boolean isTransient(int code) {
+        return code == 408 || code == 429 || (code >= 500 && code < 600);
     }
 }
@@ -0,0 +1,161 @@
+package fx.shield.cs.DB;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Properties;
+
+/**
+ * On-disk copy of the last good {@link RemoteConfig} and the document {@code updateTime} it was
+ * read at.
+ *
+ * <p>Nothing about scripts is written: the file sits in a user-writable directory and the app
+ * runs elevated, so script text read back from it must not end up being executed, and an ETag
+ * or version without the text cannot spare a download. Scripts are fetched again after a
+ * restart. Script keys left by older versions (text, hash, ETag, version) are removed on load.
+ *
+ * <p>Stored as a {@link Properties} file under the app config directory, stamped with the
+ * config URL so a copy fetched from another document is never reused. Writes are atomic
+ * (temp file + move), same as {@code FxSettings.save}. A missing, unreadable or foreign file
+ * loads as {@code null}.
+ */
+final class RemoteConfigStore {
+
+    private static final String DIR_NAME = "FxShield";
+    private static final String FILE_NAME = "remote-config.properties";
+
+    private static final String KEY_URL = "_url";
+    private static final String KEY_VALIDATED_AT = "_validatedAt";
+    private static final String KEY_VERSION = "_version";
+    private static final String SCRIPT_PREFIX = "script."; // older versions only
+
+    /**
+     * What was loaded from disk.
+     */
+    static final class Snapshot {
+        final RemoteConfig config;  // null if no status fetch was stored
+        final long validatedAtMs;   // last successful status fetch
+        final String docVersion;    // may be null
+
+        Snapshot(RemoteConfig config, long validatedAtMs, String docVersion) {
+            this.config = config;
+            this.validatedAtMs = validatedAtMs;
+            this.docVersion = docVersion;
+        }
+    }
+
+    private final Path file;
+
+    RemoteConfigStore(Path file) {
+        this.file = file;
+    }
+
+    static RemoteConfigStore defaultStore() {
+        String appData = System.getenv("APPDATA");
+        if (appData == null || appData.isBlank()) {
+            appData = System.getProperty("user.home", ".");
+        }
+        return new RemoteConfigStore(Paths.get(appData, DIR_NAME, FILE_NAME));
+    }
+
+    /**
+     * @return the stored copy for {@code url}, or null
+     */
+    synchronized Snapshot load(String url) {
+        if (!Files.exists(file)) return null;
+
+        Properties p = new Properties();
+        try (InputStream in = Files.newInputStream(file);
+             Reader r = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            p.load(r);
+        } catch (Exception e) {
+            return null;
+        }
+
+        if (!url.equals(p.getProperty(KEY_URL))) return null;
+
+        long validatedAt = 0L;
+        try {
+            validatedAt = Long.parseLong(p.getProperty(KEY_VALIDATED_AT, "0"));
+        } catch (NumberFormatException ignored) {
+        }
+
+        RemoteConfig cfg = null;
+        if (validatedAt > 0) {
+            cfg = new RemoteConfig();
+            cfg.setAppStatus(p.getProperty(RemoteConfigService.F_APP_STATUS));
+            cfg.setLatestVersion(p.getProperty(RemoteConfigService.F_LATEST_VER));
+            cfg.setMinVersion(p.getProperty(RemoteConfigService.F_MIN_VER));
+            cfg.setDownloadUrl(p.getProperty(RemoteConfigService.F_DL_URL));
+            cfg.setUpdateMessage(p.getProperty(RemoteConfigService.F_UPD_MSG));
+            cfg.setForceUpdate(Boolean.parseBoolean(p.getProperty(RemoteConfigService.F_FORCE_UPD)));
+        }
+
+        boolean legacy = false;
+        for (String k : p.stringPropertyNames()) {
+            if (k.startsWith(SCRIPT_PREFIX)) {
+                p.remove(k);
+                legacy = true;
+            }
+        }
+        if (legacy) write(p);
+
+        return new Snapshot(cfg, validatedAt, blankToNull(p.getProperty(KEY_VERSION)));
+    }
+
+    /**
+     * Saves the status atomically; failures are ignored (the copy is only an optimization).
+     */
+    synchronized void save(String url, RemoteConfig cfg, long validatedAtMs, String docVersion) {
+        Properties p = new Properties();
+        p.setProperty(KEY_URL, url);
+        put(p, KEY_VERSION, docVersion);
+
+        if (cfg != null) {
+            p.setProperty(KEY_VALIDATED_AT, Long.toString(validatedAtMs));
+
+            put(p, RemoteConfigService.F_APP_STATUS, cfg.getAppStatus());
+            put(p, RemoteConfigService.F_LATEST_VER, cfg.getLatestVersion());
+            put(p, RemoteConfigService.F_MIN_VER, cfg.getMinVersion());
+            put(p, RemoteConfigService.F_DL_URL, cfg.getDownloadUrl());
+            put(p, RemoteConfigService.F_UPD_MSG, cfg.getUpdateMessage());
+            p.setProperty(RemoteConfigService.F_FORCE_UPD, Boolean.toString(cfg.isForceUpdate()));
+        }
+
+        write(p);
+    }
+
+    private void write(Properties p) {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try {
+            Path dir = file.getParent();
+            if (dir != null) Files.createDirectories(dir);
+
+            try (OutputStream out = Files.newOutputStream(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+                 Writer w = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+                p.store(w, "FxShield Remote Config");
+            }
+
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+        } catch (IOException ignored) {
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    private static void put(Properties p, String key, String value) {
+        if (value != null) p.setProperty(key, value);
+    }
+
+    private static String blankToNull(String s) {
+        return (s == null || s.isBlank()) ? null : s;
+    }
+}
@@ -0,0 +1,29 @@
+package fx.shield.cs.DB;
+
+/**
+ * PowerShell scripts stored in the remote config document, fetched on demand
+ * ({@link RemoteConfigProvider#script}).
+ */
+public enum RemoteScript {
+    FREE_RAM("FreeRam_Script"),
+    OPTIMIZE_DISK("OptimizeDisk_Script"),
+    OPTIMIZE_NETWORK("OptimizeNetwork_Script"),
+    SCAN_AND_FIX("ScanAndFix_Script"),
+
+    PERFORMANCE_MODE("PerformanceMode_Script"),
+    BALANCED_MODE("BalancedMode_Script"),
+    QUIET_MODE("QuietMode_Script");
+
+    private final String field;
+
+    RemoteScript(String field) {
+        this.field = field;
+    }
+
+    /**
+     * @return Firestore field name (your DB naming)
+     */
+    public String field() {
+        return field;
+    }
+}
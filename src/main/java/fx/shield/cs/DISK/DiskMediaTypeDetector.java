@@ -0,0 +1,342 @@
+package fx.shield.cs.DISK;
+
+import fx.shield.cs.HW.InventoryStore;
+import fx.shield.cs.WIN.WindowsUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Labels physical disks as SSD / HDD.
+ *
+ * <p>Results are cached on disk keyed by disk serial number, so a known disk is never
+ * queried again; only disks without a cached label go to the platform {@link Backend}
+ * (one batched query for all of them). Only {@linkplain Answer#exact exact} answers are
+ * cached; a guess (e.g. matched by model or size) is shown but asked again next launch.
+ *
+ * <p>Backends:
+ * <ul>
+ *   <li>{@link WindowsBackend} - single {@code Get-PhysicalDisk} PowerShell call</li>
+ *   <li>{@link SysfsBackend} - reads {@code <root>/block/&lt;dev&gt;/queue/rotational}; the
+ *       sysfs root is configurable so matching can be exercised against a fake tree</li>
+ * </ul>
+ *
+ * <p>Labels: {@code "SSD"}, {@code "HDD"}, or {@code "Disk"} when undecided.
+ */
+public final class DiskMediaTypeDetector {
+
+    public static final String SSD = "SSD";
+    public static final String HDD = "HDD";
+    public static final String UNKNOWN = "Disk";
+
+    private static final String CACHE_FILE = "disk-media.properties";
+
+    /**
+     * Disk identity as seen by OSHI.
+     */
+    public static final class Disk {
+        public final int index;
+        public final String name;   // e.g. \\.\PHYSICALDRIVE0 or /dev/sda
+        public final String model;
+        public final String serial;
+        public final long sizeBytes;
+
+        public Disk(int index, String name, String model, String serial, long sizeBytes) {
+            this.index = index;
+            this.name = name == null ? "" : name.trim();
+            this.model = model == null ? "" : model.trim();
+            this.serial = normalizeSerial(serial);
+            this.sizeBytes = sizeBytes;
+        }
+    }
+
+    /**
+     * Label for one disk, and whether it was matched to that disk by identity.
+     */
+    public static final class Answer {
+        public final String label;
+        public final boolean exact; // false: matched by model/size, may belong to another disk
+
+        private Answer(String label, boolean exact) {
+            this.label = label;
+            this.exact = exact;
+        }
+
+        public static Answer exact(String label) {
+            return new Answer(label, true);
+        }
+
+        public static Answer guess(String label) {
+            return new Answer(label, false);
+        }
+    }
+
+    /**
+     * Platform query for disks without a cached label.
+     */
+    public interface Backend {
+        /**
+         * @return answer per disk index; missing entries mean "undecided"
+         */
+        Map<Integer, Answer> query(List<Disk> disks);
+    }
+
+    private final Backend backend;
+    private final String cacheKey;
+
+    /**
+     * @param backend  platform query
+     * @param cacheKey machine identity stamp for the on-disk cache (null disables caching)
+     */
+    public DiskMediaTypeDetector(Backend backend, String cacheKey) {
+        this.backend = Objects.requireNonNull(backend, "backend");
+        this.cacheKey = cacheKey;
+    }
+
+    public static DiskMediaTypeDetector forPlatform(boolean isWindows, String cacheKey) {
+        return new DiskMediaTypeDetector(isWindows ? new WindowsBackend() : new SysfsBackend(), cacheKey);
+    }
+
+    /**
+     * Returns a label per disk, in the same order as {@code disks}.
+     */
+    public String[] detect(List<Disk> disks) {
+        String[] out = new String[disks.size()];
+        Arrays.fill(out, UNKNOWN);
+
+        Properties cache = (cacheKey != null) ? InventoryStore.load(CACHE_FILE, cacheKey) : null;
+        if (cache == null) cache = new Properties();
+
+        List<Disk> unseen = new ArrayList<>();
+        for (int i = 0; i < disks.size(); i++) {
+            Disk d = disks.get(i);
+            String cached = d.serial.isEmpty() ? null : cache.getProperty(d.serial);
+            if (cached != null) out[i] = cached;
+            else unseen.add(d);
+        }
+
+        if (unseen.isEmpty()) return out;
+
+        Map<Integer, Answer> fresh;
+        try {
+            fresh = backend.query(unseen);
+        } catch (Exception e) {
+            fresh = Collections.emptyMap();
+        }
+
+        boolean dirty = false;
+        for (int i = 0; i < disks.size(); i++) {
+            Disk d = disks.get(i);
+            Answer a = fresh.get(d.index);
+            if (a == null || a.label == null) continue;
+            out[i] = a.label;
+
+            // cache only decisive answers for this very disk; guesses and failed/partial
+            // queries are retried next launch
+            if (a.exact && !d.serial.isEmpty() && !UNKNOWN.equals(a.label)) {
+                cache.setProperty(d.serial, a.label);
+                dirty = true;
+            }
+        }
+
+        if (dirty && cacheKey != null) InventoryStore.save(CACHE_FILE, cacheKey, cache);
+        return out;
+    }
+
+    static String normalizeSerial(String s) {
+        if (s == null) return "";
+        String t = s.trim();
+        if (t.equalsIgnoreCase("unknown")) return "";
+        // Properties keys: keep it simple and stable
+        return t.replaceAll("[\\s=:#!]", "");
+    }
+
+    // =========================================================================
+    // Windows: one Get-PhysicalDisk call
+    // =========================================================================
+
+    /**
+     * One PowerShell call listing every physical disk; matched by serial (exact), else by
+     * model, then closest size within 10% (guesses: OSHI and {@code Get-PhysicalDisk} serials
+     * often differ in format, so these are not cached).
+     */
+    public static final class WindowsBackend implements Backend {
+
+        private static final long TIMEOUT_SEC = 8;
+        private static final Duration QUERY_TTL = Duration.ofMinutes(10);
+
+        private static final String SCRIPT =
+                "Get-PhysicalDisk | ForEach-Object { " +
+                        "\"$($_.SerialNumber)|$($_.FriendlyName)|$($_.MediaType)|$($_.SpindleSpeed)|$($_.Size)\" }";
+
+        @Override
+        public Map<Integer, Answer> query(List<Disk> disks) {
+            // shared with any other detector asking within the TTL (e.g. after a disk rescan)
+            String out = WindowsUtils.runPowerShellCaptureCached("disk.physical", SCRIPT, TIMEOUT_SEC, QUERY_TTL);
+            return match(disks, parse(out));
+        }
+
+        static List<WinDisk> parse(String out) {
+            List<WinDisk> list = new ArrayList<>();
+            if (out == null || out.isBlank()) return list;
+
+            for (String line : out.split("\\R")) {
+                String s = line.trim();
+                if (s.isEmpty() || !s.contains("|")) continue;
+
+                String[] parts = s.split("\\|", -1);
+                if (parts.length < 5) continue;
+
+                WinDisk w = new WinDisk();
+                w.serial = normalizeSerial(parts[0]);
+                w.model = parts[1].trim();
+                w.mediaType = parts[2].trim();
+                w.spindle = parseLongOr(parts[3], -1);
+                w.sizeBytes = parseLongOr(parts[4], -1);
+                list.add(w);
+            }
+            return list;
+        }
+
+        static Map<Integer, Answer> match(List<Disk> disks, List<WinDisk> win) {
+            Map<Integer, Answer> result = new HashMap<>();
+            if (win.isEmpty()) return result;
+
+            for (Disk d : disks) {
+                WinDisk best = null;
+
+                if (!d.serial.isEmpty()) {
+                    for (WinDisk w : win) {
+                        if (!w.serial.isEmpty() && w.serial.equalsIgnoreCase(d.serial)) { best = w; break; }
+                    }
+                }
+                if (best != null) {
+                    result.put(d.index, Answer.exact(best.label()));
+                    continue;
+                }
+
+                if (!d.model.isEmpty()) best = findBestByModel(win, d.model);
+                if (best == null) best = matchByClosestSize(win, d.sizeBytes);
+
+                if (best != null) result.put(d.index, Answer.guess(best.label()));
+            }
+            return result;
+        }
+
+        private static WinDisk findBestByModel(List<WinDisk> win, String model) {
+            String key = model.toLowerCase(Locale.ROOT);
+            for (WinDisk w : win) {
+                if (w.model.equalsIgnoreCase(model)) return w;
+            }
+            for (WinDisk w : win) {
+                String m = w.model.toLowerCase(Locale.ROOT);
+                if (m.isEmpty()) continue;
+                if (key.contains(m) || m.contains(key)) return w;
+            }
+            return null;
+        }
+
+        private static WinDisk matchByClosestSize(List<WinDisk> win, long size) {
+            if (size <= 0) return null;
+
+            long bestDiff = Long.MAX_VALUE;
+            WinDisk best = null;
+            for (WinDisk w : win) {
+                if (w.sizeBytes <= 0) continue;
+                long diff = Math.abs(w.sizeBytes - size);
+                if (diff < bestDiff) {
+                    bestDiff = diff;
+                    best = w;
+                }
+            }
+            if (best == null) return null;
+
+            double ratio = (bestDiff * 1.0) / size;
+            return (ratio <= 0.10) ? best : null;
+        }
+
+        static final class WinDisk {
+            String serial = "";
+            String model = "";
+            String mediaType = "";
+            long spindle = -1;
+            long sizeBytes = -1;
+
+            String label() {
+                String media = mediaType.toLowerCase(Locale.ROOT);
+                if (media.contains("ssd") || media.equals("4")) return SSD;
+                if (media.contains("hdd") || media.equals("3")) return HDD;
+                // 0xFFFFFFFF = "unknown" in MSFT_PhysicalDisk
+                if (spindle == 0) return SSD;
+                if (spindle > 0 && spindle != 0xFFFFFFFFL) return HDD;
+                return UNKNOWN;
+            }
+        }
+    }
+
+    // =========================================================================
+    // Linux: /sys/block/<dev>/queue/rotational
+    // =========================================================================
+
+    /**
+     * Reads the kernel's rotational flag. Disk names like {@code /dev/sda} map to
+     * {@code <root>/block/sda}.
+     */
+    public static final class SysfsBackend implements Backend {
+
+        private final Path sysfsRoot;
+
+        public SysfsBackend() {
+            this(Paths.get("/sys"));
+        }
+
+        public SysfsBackend(Path sysfsRoot) {
+            this.sysfsRoot = Objects.requireNonNull(sysfsRoot, "sysfsRoot");
+        }
+
+        @Override
+        public Map<Integer, Answer> query(List<Disk> disks) {
+            Map<Integer, Answer> result = new HashMap<>();
+            for (Disk d : disks) {
+                String dev = deviceName(d.name);
+                if (dev.isEmpty()) continue;
+
+                Path rot = sysfsRoot.resolve("block").resolve(dev).resolve("queue").resolve("rotational");
+                try {
+                    String v = Files.readString(rot, StandardCharsets.US_ASCII).trim();
+                    // read from the device itself, so exact
+                    if ("0".equals(v)) result.put(d.index, Answer.exact(SSD));
+                    else if ("1".equals(v)) result.put(d.index, Answer.exact(HDD));
+                } catch (IOException | RuntimeException ignored) {
+                }
+            }
+            return result;
+        }
+
+        static String deviceName(String name) {
+            if (name == null) return "";
+            String n = name.trim();
+            int slash = n.lastIndexOf('/');
+            if (slash >= 0) n = n.substring(slash + 1);
+            // sysfs names never contain path separators or dots-only segments
+            if (n.isEmpty() || n.equals(".") || n.equals("..")) return "";
+            return n;
+        }
+    }
+
+    private static long parseLongOr(String s, long def) {
+        if (s == null) return def;
+        String t = s.trim();
+        if (t.isEmpty()) return def;
+        try {
+            return Long.parseLong(t);
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+}
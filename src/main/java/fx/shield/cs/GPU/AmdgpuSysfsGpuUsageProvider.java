@@ -0,0 +1,82 @@
+package fx.shield.cs.GPU;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * GPU usage provider for AMD GPUs on Linux (amdgpu driver).
+ *
+ * <p>Reads {@code /sys/class/drm/cardN/device/gpu_busy_percent}, which the driver exposes
+ * as an instantaneous 0..100 busy value. With several cards the highest value wins, same as
+ * the PDH provider's "max engine" behavior.
+ *
+ * <p>Features:
+ * <ul>
+ *   <li>Card discovery once; attribute files kept open and re-read in place</li>
+ *   <li>Configurable sysfs root (fake trees for testing, containers with a bind-mounted /sys)</li>
+ * </ul>
+ *
+ * <p>Thread-safe: reads are synchronized.
+ *
+ * @see GpuUsageProvider
+ * @see IntelSysfsGpuUsageProvider
+ * @since 1.0
+ */
+public final class AmdgpuSysfsGpuUsageProvider implements GpuUsageProvider {
+
+    private static final String BUSY_ATTR = "gpu_busy_percent";
+
+    private final Object lock = new Object();
+    private SysfsCounterFile[] files;
+
+    public AmdgpuSysfsGpuUsageProvider() {
+        this(Paths.get("/sys"));
+    }
+
+    /**
+     * @param sysfsRoot directory that plays the role of {@code /sys}
+     */
+    public AmdgpuSysfsGpuUsageProvider(Path sysfsRoot) {
+        List<SysfsCounterFile> found = new ArrayList<>();
+        for (Path card : SysfsCounterFile.drmCards(sysfsRoot)) {
+            SysfsCounterFile f = SysfsCounterFile.open(card.resolve("device").resolve(BUSY_ATTR));
+            if (f != null) found.add(f);
+        }
+        files = found.toArray(new SysfsCounterFile[0]);
+    }
+
+    @Override
+    public int readGpuUsagePercent() {
+        synchronized (lock) {
+            SysfsCounterFile[] fs = files;
+            if (fs == null || fs.length == 0) return -1;
+
+            long max = -1;
+            for (SysfsCounterFile f : fs) {
+                long v = f.readLong();
+                if (v > max) max = v;
+            }
+
+            if (max < 0) return -1;
+            return (int) Math.min(100, max);
+        }
+    }
+
+    @Override
+    public boolean isAvailable() {
+        synchronized (lock) {
+            return files != null && files.length > 0;
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (lock) {
+            if (files == null) return;
+            for (SysfsCounterFile f : files) f.close();
+            files = null;
+        }
+    }
+}
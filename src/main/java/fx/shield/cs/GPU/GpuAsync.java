@@ -0,0 +1,105 @@
+package fx.shield.cs.GPU;
+
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Adapts blocking {@link GpuUsageProvider#readGpuUsagePercent()} to the async API.
+ *
+ * <ul>
+ *   <li>{@link #readAsync} runs one read on a shared daemon thread</li>
+ *   <li>{@link #poll} reads on a dedicated daemon thread on a fixed grid of ticks, so the
+ *       cadence does not drift with read latency; a read that overruns its tick skips the
+ *       ticks it missed (next read on the next grid tick) instead of running them back to
+ *       back</li>
+ * </ul>
+ */
+final class GpuAsync {
+
+    private static final ExecutorService ASYNC_EXEC = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "fxShield-gpu-async");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private GpuAsync() {}
+
+    static CompletableFuture<GpuReading> readAsync(GpuUsageProvider p) {
+        return CompletableFuture.supplyAsync(() -> readOnce(p), ASYNC_EXEC);
+    }
+
+    static GpuReading readOnce(GpuUsageProvider p) {
+        int v;
+        try {
+            v = p.readGpuUsagePercent();
+            if (v < 0 || v > 100) v = -1;
+        } catch (Throwable t) {
+            v = -1;
+        }
+
+        GpuUsageBreakdown b = null;
+        int mem = -1;
+        if (v >= 0) {
+            try { b = p.readBreakdown(); } catch (Throwable ignored) {}
+            try {
+                mem = p.readMemoryUtilPercent();
+                if (mem < 0 || mem > 100) mem = -1;
+            } catch (Throwable ignored) {}
+        }
+        return new GpuReading(v, mem, System.currentTimeMillis(), b);
+    }
+
+    static GpuUsageSubscription poll(GpuUsageProvider p, long periodMs, Consumer<GpuReading> sink) {
+        ScheduledExecutorService exec = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "fxShield-gpu-poll");
+            t.setDaemon(true);
+            return t;
+        });
+
+        exec.execute(new Poller(exec, p, Math.max(1, periodMs), sink));
+
+        return new GpuUsageSubscription() {
+            @Override
+            public boolean isActive() {
+                return !exec.isShutdown();
+            }
+
+            @Override
+            public void close() {
+                exec.shutdownNow();
+            }
+        };
+    }
+
+    /**
+     * One read per tick, then reschedules itself for the next tick of the grid that started
+     * at creation ({@code scheduleAtFixedRate} would replay missed ticks in a burst).
+     */
+    private static final class Poller implements Runnable {
+        private final ScheduledExecutorService exec;
+        private final GpuUsageProvider provider;
+        private final long periodMs;
+        private final Consumer<GpuReading> sink;
+        private final long startNs = System.nanoTime();
+
+        Poller(ScheduledExecutorService exec, GpuUsageProvider provider, long periodMs, Consumer<GpuReading> sink) {
+            this.exec = exec;
+            this.provider = provider;
+            this.periodMs = periodMs;
+            this.sink = sink;
+        }
+
+        @Override
+        public void run() {
+            GpuReading r = readOnce(provider);
+            try { sink.accept(r); } catch (Throwable ignored) {}
+
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs);
+            try {
+                exec.schedule(this, periodMs - (elapsedMs % periodMs), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ignored) {
+                // subscription closed
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package fx.shield.cs.GPU;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses and interns {@code GPU Engine} counter instance names.
+ *
+ * <p>Windows encodes the owner and engine in the instance name, e.g.
+ * {@code pid_1234_luid_0x00000000_0x0000C2B1_phys_0_eng_3_engtype_VideoDecode}. The name may
+ * also appear inside a full counter path (typeperf headers). Each distinct name is parsed
+ * once with a precompiled pattern; later lookups are a single hash probe. Engines and engine
+ * types are interned to dense int ids so aggregation can use plain arrays.
+ *
+ * <p>Not thread-safe; each provider owns one parser.
+ */
+final class GpuInstanceNameParser {
+
+    private static final Pattern INSTANCE = Pattern.compile(
+            "pid_(\\d+)_(luid_0x[0-9A-Fa-f]+_0x[0-9A-Fa-f]+_phys_\\d+_eng_\\d+)_engtype_([^)\\\\]*)");
+
+    static final String OTHER_TYPE = "Other";
+
+    // cached names are dropped wholesale past this size (process churn); ids are kept
+    private static final int MAX_CACHED_NAMES = 8192;
+
+    /**
+     * One parsed instance. {@code engine} and {@code type} are interned ids.
+     */
+    static final class Instance {
+        final int pid;
+        final int engine;
+        final int type;
+
+        Instance(int pid, int engine, int type) {
+            this.pid = pid;
+            this.engine = engine;
+            this.type = type;
+        }
+    }
+
+    // marker for names that do not match, so they are not re-parsed either
+    private static final Instance UNPARSEABLE = new Instance(-1, -1, -1);
+
+    private final HashMap<String, Instance> byName = new HashMap<>();
+
+    private final HashMap<String, Integer> engineIds = new HashMap<>();
+    private int[] engineType = new int[8];
+
+    private final HashMap<String, Integer> typeIds = new HashMap<>();
+    private final List<String> typeNames = new ArrayList<>();
+
+    /**
+     * @return the parsed instance, or null if the name is not a GPU engine instance
+     */
+    Instance parse(String name) {
+        if (name == null) return null;
+
+        Instance cached = byName.get(name);
+        if (cached != null) return (cached == UNPARSEABLE) ? null : cached;
+
+        if (byName.size() >= MAX_CACHED_NAMES) byName.clear();
+
+        Instance inst = parseUncached(name);
+        byName.put(name, inst == null ? UNPARSEABLE : inst);
+        return inst;
+    }
+
+    private Instance parseUncached(String name) {
+        Matcher m = INSTANCE.matcher(name);
+        if (!m.find()) return null;
+
+        int pid;
+        try {
+            pid = Integer.parseInt(m.group(1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+        String typeName = m.group(3).trim();
+        if (typeName.isEmpty()) typeName = OTHER_TYPE;
+
+        int type = internType(typeName);
+        int engine = internEngine(m.group(2).toLowerCase(), type);
+        return new Instance(pid, engine, type);
+    }
+
+    private int internType(String typeName) {
+        Integer id = typeIds.get(typeName);
+        if (id != null) return id;
+
+        int next = typeNames.size();
+        typeNames.add(typeName);
+        typeIds.put(typeName, next);
+        return next;
+    }
+
+    private int internEngine(String engineKey, int type) {
+        Integer id = engineIds.get(engineKey);
+        if (id != null) return id;
+
+        int next = engineIds.size();
+        engineIds.put(engineKey, next);
+        if (next == engineType.length) {
+            int[] grow = new int[engineType.length * 2];
+            System.arraycopy(engineType, 0, grow, 0, engineType.length);
+            engineType = grow;
+        }
+        engineType[next] = type;
+        return next;
+    }
+
+    int engineCount() {
+        return engineIds.size();
+    }
+
+    int engineTypeOf(int engine) {
+        return engineType[engine];
+    }
+
+    int typeCount() {
+        return typeNames.size();
+    }
+
+    String typeName(int type) {
+        return typeNames.get(type);
+    }
+}
@@ -0,0 +1,114 @@
+package fx.shield.cs.GPU;
+
+import fx.shield.cs.HW.HardwareContext;
+import fx.shield.cs.HW.InventoryStore;
+import oshi.hardware.GraphicsCard;
+
+import java.util.*;
+
+/**
+ * Persists the outcome of {@link HybridGpuUsageProvider}'s provider probe.
+ *
+ * <p>Stored per machine / OS / GPU driver fingerprint:
+ * <ul>
+ *   <li>{@code provider} - candidate that won the probe (empty if none worked)</li>
+ *   <li>{@code latencyMs} - its average read latency at the time</li>
+ *   <li>{@code dead} - candidates that were not present at all (library missing,
+ *       {@code isAvailable()} false), so the next launch does not retry them</li>
+ * </ul>
+ *
+ * <p>A driver update or OS upgrade changes the fingerprint, which makes
+ * {@link InventoryStore#load} return null and forces a full probe.
+ */
+final class GpuProbeCache {
+
+    private static final String FILE_NAME = "gpu-probe.properties";
+    private static final String VERSION = "1";
+
+    /**
+     * Probe result as stored.
+     */
+    static final class Entry {
+        final String provider;       // null if no provider worked
+        final double latencyMs;
+        final Set<String> dead;
+
+        Entry(String provider, double latencyMs, Set<String> dead) {
+            this.provider = provider;
+            this.latencyMs = latencyMs;
+            this.dead = dead;
+        }
+    }
+
+    private final String fingerprint;
+
+    GpuProbeCache(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * @return cache bound to the current machine/OS/driver fingerprint, or null if it cannot be computed
+     */
+    static GpuProbeCache forCurrentSystem() {
+        try {
+            return new GpuProbeCache(currentFingerprint());
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    /**
+     * Machine id + OS name/version/arch + every adapter's name and driver version info.
+     */
+    static String currentFingerprint() {
+        HardwareContext hw = HardwareContext.get();
+
+        StringBuilder sb = new StringBuilder(128);
+        sb.append(VERSION).append('|').append(hw.machineId())
+                .append('|').append(System.getProperty("os.name", ""))
+                .append(' ').append(System.getProperty("os.version", ""))
+                .append(' ').append(System.getProperty("os.arch", ""));
+
+        for (GraphicsCard g : hw.graphicsCards()) {
+            sb.append('|').append(Objects.toString(g.getName(), ""))
+                    .append('/').append(Objects.toString(g.getVersionInfo(), ""));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return stored result for this fingerprint, or null if missing / stale
+     */
+    Entry load() {
+        Properties p = InventoryStore.load(FILE_NAME, fingerprint);
+        if (p == null) return null;
+
+        String provider = p.getProperty("provider", "").trim();
+        double latency;
+        try {
+            latency = Double.parseDouble(p.getProperty("latencyMs", "0"));
+        } catch (NumberFormatException e) {
+            latency = 0;
+        }
+
+        Set<String> dead = new HashSet<>();
+        for (String s : p.getProperty("dead", "").split(",")) {
+            String n = s.trim();
+            if (!n.isEmpty()) dead.add(n);
+        }
+
+        return new Entry(provider.isEmpty() ? null : provider, latency, Collections.unmodifiableSet(dead));
+    }
+
+    void save(String provider, double latencyMs, Collection<String> dead) {
+        Properties p = new Properties();
+        p.setProperty("provider", provider == null ? "" : provider);
+        p.setProperty("latencyMs", String.format(Locale.ROOT, "%.3f", latencyMs));
+        p.setProperty("dead", String.join(",", dead));
+        InventoryStore.save(FILE_NAME, fingerprint, p);
+    }
+
+    void invalidate() {
+        InventoryStore.delete(FILE_NAME);
+    }
+}
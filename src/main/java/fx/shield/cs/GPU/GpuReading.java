@@ -0,0 +1,51 @@
+package fx.shield.cs.GPU;
+
+/**
+ * One timestamped GPU usage reading, as delivered by
+ * {@link GpuUsageProvider#readAsync()} and {@link GpuUsageProvider#subscribe}.
+ *
+ * <p>Failed reads are delivered too ({@code percent == -1}) so consumers such as
+ * {@link GPUStabilizer} can apply their grace logic.
+ *
+ * @since 1.0
+ */
+public final class GpuReading {
+
+    private final int percent;
+    private final long timestampMs;
+    private final GpuUsageBreakdown breakdown;
+    private final int memoryPercent;
+
+    public GpuReading(int percent, long timestampMs, GpuUsageBreakdown breakdown) {
+        this(percent, -1, timestampMs, breakdown);
+    }
+
+    public GpuReading(int percent, int memoryPercent, long timestampMs, GpuUsageBreakdown breakdown) {
+        this.percent = percent;
+        this.memoryPercent = memoryPercent;
+        this.timestampMs = timestampMs;
+        this.breakdown = breakdown;
+    }
+
+    /**
+     * @return GPU usage 0..100, or -1 if the read failed
+     */
+    public int percent() { return percent; }
+
+    public boolean isValid() { return percent >= 0 && percent <= 100; }
+
+    /**
+     * @return memory-controller utilization 0..100, or -1 if the provider does not report it
+     */
+    public int memoryPercent() { return memoryPercent; }
+
+    /**
+     * @return wall-clock time the value was sampled
+     */
+    public long timestampMs() { return timestampMs; }
+
+    /**
+     * @return per-engine / per-process detail, or null if the provider has none
+     */
+    public GpuUsageBreakdown breakdown() { return breakdown; }
+}
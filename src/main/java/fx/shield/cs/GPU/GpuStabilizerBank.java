@@ -0,0 +1,199 @@
+package fx.shield.cs.GPU;
+
+import java.util.Arrays;
+
+/**
+ * Array-backed smoothing for N GPU channels (e.g. core + memory utilization per adapter).
+ *
+ * <p>Each channel runs the same pipeline the monitor used for its single GPU:
+ * <ol>
+ *   <li>{@link GPUStabilizer} logic: hold last good value for a grace period on failures,
+ *       require consecutive zeros before accepting 0, EMA</li>
+ *   <li>median of the last 3 stabilized values</li>
+ *   <li>output EMA</li>
+ * </ol>
+ *
+ * <p>All state lives in primitive arrays indexed by channel: no per-value objects, no
+ * allocation per update.
+ *
+ * <p>Not thread-safe; owned by the monitor loop.
+ *
+ * @see GPUStabilizer
+ * @since 1.0
+ */
+public final class GpuStabilizerBank {
+
+    private static final int WINDOW = 3;
+
+    private final int channels;
+    private final long failGraceMs;
+    private final double alpha;       // stabilizer EMA
+    private final int zeroConfirm;
+    private final int unsupportedValue;
+    private final double outAlpha;    // output EMA after the median
+
+    // stabilizer stage
+    private final int[] stable;
+    private final int[] zeroStreak;
+    private final long[] lastGoodMs;
+
+    // median window (WINDOW values per channel, flattened)
+    private final int[] window;
+    private final int[] winCount;
+    private final int[] winPos;
+
+    // output stage
+    private final int[] out;
+
+    /**
+     * @param channels         number of independent channels
+     * @param failGraceMs      grace period to hold the last good value during failures
+     * @param alpha            stabilizer EMA factor (0.05-0.95)
+     * @param zeroConfirm      consecutive zero readings required to accept 0%
+     * @param unsupportedValue value before any valid sample / after grace expiry
+     * @param outAlpha         output EMA factor applied after the median
+     */
+    public GpuStabilizerBank(int channels, long failGraceMs, double alpha, int zeroConfirm,
+                             int unsupportedValue, double outAlpha) {
+        this.channels = Math.max(0, channels);
+        this.failGraceMs = Math.max(0, failGraceMs);
+        this.alpha = clampDouble(alpha, 0.05, 0.95);
+        this.zeroConfirm = Math.max(1, zeroConfirm);
+        this.unsupportedValue = unsupportedValue;
+        this.outAlpha = clampDouble(outAlpha, 0.05, 1.0);
+
+        stable = new int[this.channels];
+        zeroStreak = new int[this.channels];
+        lastGoodMs = new long[this.channels];
+        window = new int[this.channels * WINDOW];
+        winCount = new int[this.channels];
+        winPos = new int[this.channels];
+        out = new int[this.channels];
+
+        reset();
+    }
+
+    public int channels() {
+        return channels;
+    }
+
+    /**
+     * Feeds one raw reading into a channel.
+     *
+     * @param ch    channel index
+     * @param raw   0..100, or -1 for a failed read
+     * @param nowMs sample time
+     * @return smoothed output, or -1 before the first accepted value
+     */
+    public int update(int ch, int raw, long nowMs) {
+        int s = stabilize(ch, raw, nowMs);
+
+        // stable may still be >=0 during grace window even when raw fails
+        if (s >= 0) {
+            int base = ch * WINDOW;
+            window[base + winPos[ch]] = clampInt(s, 0, 100);
+            winPos[ch] = (winPos[ch] + 1) % WINDOW;
+            if (winCount[ch] < WINDOW) winCount[ch]++;
+
+            int median = median(ch);
+            int prev = out[ch];
+            out[ch] = (prev < 0) ? median : clampInt((int) Math.round(prev + outAlpha * (median - prev)), 0, 100);
+        }
+        return out[ch];
+    }
+
+    /**
+     * @return last smoothed output of a channel, or -1 if none yet
+     */
+    public int output(int ch) {
+        return out[ch];
+    }
+
+    /**
+     * @return current stabilizer-stage value (unsupportedValue once grace has expired)
+     */
+    public int stable(int ch) {
+        return stable[ch];
+    }
+
+    public void reset() {
+        Arrays.fill(stable, unsupportedValue);
+        Arrays.fill(zeroStreak, 0);
+        Arrays.fill(lastGoodMs, 0L);
+        Arrays.fill(window, 0);
+        Arrays.fill(winCount, 0);
+        Arrays.fill(winPos, 0);
+        Arrays.fill(out, -1);
+    }
+
+    // same rules as GPUStabilizer.update
+    private int stabilize(int ch, int raw, long nowMs) {
+        int st = stable[ch];
+
+        // ----- Failed sample -----
+        if (raw < 0) {
+            if (st >= 0 && lastGoodMs[ch] > 0 && (nowMs - lastGoodMs[ch]) <= failGraceMs) {
+                return st;
+            }
+            if (st >= 0 && (nowMs - lastGoodMs[ch]) > failGraceMs) {
+                stable[ch] = unsupportedValue;
+            }
+            return stable[ch];
+        }
+
+        // ----- Valid sample -----
+        raw = clampInt(raw, 0, 100);
+
+        if (raw == 0) {
+            zeroStreak[ch]++;
+
+            if (st == 0) {
+                lastGoodMs[ch] = nowMs;
+                return st;
+            }
+            if (zeroStreak[ch] < zeroConfirm) {
+                return st;
+            }
+
+            lastGoodMs[ch] = nowMs;
+            stable[ch] = smooth(st, 0);
+            return stable[ch];
+        }
+
+        zeroStreak[ch] = 0;
+        lastGoodMs[ch] = nowMs;
+        stable[ch] = smooth(st, raw);
+        return stable[ch];
+    }
+
+    private int median(int ch) {
+        int n = winCount[ch];
+        int base = ch * WINDOW;
+        if (n <= 0) return -1;
+        if (n == 1) return window[base];
+        if (n == 2) return (window[base] + window[base + 1]) / 2;
+
+        int a = window[base];
+        int b = window[base + 1];
+        int c = window[base + 2];
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    private int smooth(int prev, int next) {
+        if (prev < 0) return next;
+        double v = prev + alpha * (next - prev);
+        return clampInt((int) Math.round(v), 0, 100);
+    }
+
+    private static int clampInt(int v, int min, int max) {
+        if (v < min) return min;
+        if (v > max) return max;
+        return v;
+    }
+
+    private static double clampDouble(double v, double min, double max) {
+        if (v < min) return min;
+        if (v > max) return max;
+        return v;
+    }
+}
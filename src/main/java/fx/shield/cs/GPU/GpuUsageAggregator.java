@@ -0,0 +1,218 @@
+package fx.shield.cs.GPU;
+
+import java.util.Arrays;
+
+/**
+ * One-pass aggregation of {@code GPU Engine} instance values into a {@link GpuUsageBreakdown}.
+ *
+ * <p>The headline ({@link GpuUsageBreakdown#overallPercent()}) is the busiest engine after
+ * summing the processes that share it, the number Task Manager shows. Before the breakdown
+ * existed it was the busiest single instance (one process on one engine), which under-reads
+ * whenever several processes load the same engine.
+ *
+ * <p>Usage per sample: {@link #reset()}, {@link #add} for every instance, {@link #finish}.
+ * All working state is primitive arrays / an open-addressing int map reused across samples,
+ * so the per-sample cost stays flat with hundreds of instances.
+ *
+ * <p>Not thread-safe; each provider owns one aggregator.
+ */
+final class GpuUsageAggregator {
+
+    private final GpuInstanceNameParser parser;
+
+    private double[] engineSum = new double[16];
+    private final IntDoubleMap byPid = new IntDoubleMap(64);
+    private double unparsedMax;
+    private boolean any;
+
+    GpuUsageAggregator(GpuInstanceNameParser parser) {
+        this.parser = parser;
+    }
+
+    GpuInstanceNameParser parser() {
+        return parser;
+    }
+
+    void reset() {
+        int n = Math.min(engineSum.length, parser.engineCount());
+        Arrays.fill(engineSum, 0, n, 0.0);
+        byPid.clear();
+        unparsedMax = -1.0;
+        any = false;
+    }
+
+    void add(String instanceName, double value) {
+        add(parser.parse(instanceName), value);
+    }
+
+    /**
+     * @param inst  parsed instance, or null for a value whose name did not parse
+     * @param value utilization percent; negative / NaN values are ignored
+     */
+    void add(GpuInstanceNameParser.Instance inst, double value) {
+        if (!(value >= 0.0) || Double.isInfinite(value)) return;
+        any = true;
+
+        if (inst == null) {
+            if (value > unparsedMax) unparsedMax = value;
+            return;
+        }
+
+        if (inst.engine >= engineSum.length) {
+            engineSum = Arrays.copyOf(engineSum, Math.max(inst.engine + 1, engineSum.length * 2));
+        }
+        engineSum[inst.engine] += value;
+        byPid.putMax(inst.pid, value);
+    }
+
+    /**
+     * @return the breakdown, or null if no valid value was added since {@link #reset()}
+     */
+    GpuUsageBreakdown finish() {
+        if (!any) return null;
+
+        int types = parser.typeCount();
+        double[] typeMax = new double[types];
+        Arrays.fill(typeMax, -1.0);
+
+        double overall = unparsedMax;
+        int engines = Math.min(engineSum.length, parser.engineCount());
+        for (int e = 0; e < engines; e++) {
+            double v = engineSum[e];
+            int t = parser.engineTypeOf(e);
+            if (v > typeMax[t]) typeMax[t] = v;
+            if (v > overall) overall = v;
+        }
+
+        // every engine type known so far (idle engines report 0)
+        int seen = 0;
+        for (double v : typeMax) if (v >= 0) seen++;
+        String[] typeNames = new String[seen];
+        int[] typePct = new int[seen];
+        int k = 0;
+        for (int t = 0; t < types; t++) {
+            if (typeMax[t] < 0) continue;
+            typeNames[k] = parser.typeName(t);
+            typePct[k] = clampPercent(typeMax[t]);
+            k++;
+        }
+
+        // non-idle processes, highest first
+        int[] pids = new int[byPid.size()];
+        int[] pidPct = new int[byPid.size()];
+        int p = byPid.drainNonZero(pids, pidPct);
+        sortDesc(pids, pidPct, p);
+
+        return new GpuUsageBreakdown(
+                clampPercent(overall),
+                typeNames, typePct,
+                Arrays.copyOf(pids, p), Arrays.copyOf(pidPct, p),
+                System.currentTimeMillis());
+    }
+
+    private static int clampPercent(double v) {
+        if (v < 0) return -1;
+        int out = (int) Math.round(v);
+        return Math.min(100, out);
+    }
+
+    private static void sortDesc(int[] keys, int[] vals, int n) {
+        // insertion sort: process lists are short and mostly ordered between samples
+        for (int i = 1; i < n; i++) {
+            int k = keys[i];
+            int v = vals[i];
+            int j = i - 1;
+            while (j >= 0 && vals[j] < v) {
+                keys[j + 1] = keys[j];
+                vals[j + 1] = vals[j];
+                j--;
+            }
+            keys[j + 1] = k;
+            vals[j + 1] = v;
+        }
+    }
+
+    // =========================================================================
+    // int -> double map (open addressing, linear probing), cleared in place
+    // =========================================================================
+
+    private static final class IntDoubleMap {
+        private int[] keys;
+        private double[] vals;
+        private boolean[] used;
+        private int size;
+
+        IntDoubleMap(int expected) {
+            int cap = Integer.highestOneBit(Math.max(4, expected * 2) - 1) << 1;
+            keys = new int[cap];
+            vals = new double[cap];
+            used = new boolean[cap];
+        }
+
+        int size() {
+            return size;
+        }
+
+        void clear() {
+            if (size == 0) return;
+            Arrays.fill(used, false);
+            size = 0;
+        }
+
+        void putMax(int key, double value) {
+            if ((size + 1) * 2 > keys.length) rehash();
+
+            int mask = keys.length - 1;
+            int i = mix(key) & mask;
+            while (used[i]) {
+                if (keys[i] == key) {
+                    if (value > vals[i]) vals[i] = value;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            used[i] = true;
+            keys[i] = key;
+            vals[i] = value;
+            size++;
+        }
+
+        /**
+         * Copies entries whose rounded value is above zero.
+         *
+         * @return number of entries written
+         */
+        int drainNonZero(int[] outKeys, int[] outVals) {
+            int n = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (!used[i]) continue;
+                int pct = clampPercent(vals[i]);
+                if (pct <= 0) continue;
+                outKeys[n] = keys[i];
+                outVals[n] = pct;
+                n++;
+            }
+            return n;
+        }
+
+        private void rehash() {
+            int[] oldKeys = keys;
+            double[] oldVals = vals;
+            boolean[] oldUsed = used;
+
+            keys = new int[oldKeys.length * 2];
+            vals = new double[oldKeys.length * 2];
+            used = new boolean[oldKeys.length * 2];
+            size = 0;
+
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) putMax(oldKeys[i], oldVals[i]);
+            }
+        }
+
+        private static int mix(int x) {
+            int h = x * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
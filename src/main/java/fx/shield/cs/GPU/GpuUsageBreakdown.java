@@ -0,0 +1,69 @@
+package fx.shield.cs.GPU;
+
+/**
+ * Immutable GPU utilization snapshot with per-engine-type and per-process detail.
+ *
+ * <p>Semantics follow Task Manager:
+ * <ul>
+ *   <li>an engine's utilization is the sum over the processes using it</li>
+ *   <li>an engine type (3D, Copy, VideoDecode, ...) reports its busiest engine</li>
+ *   <li>a process reports its busiest engine</li>
+ *   <li>overall is the busiest engine</li>
+ * </ul>
+ *
+ * <p>Processes are sorted by utilization, highest first; idle processes are omitted.
+ *
+ * @see GpuUsageProvider#readBreakdown()
+ * @since 1.0
+ */
+public final class GpuUsageBreakdown {
+
+    private final int overall;
+    private final String[] engineTypes;
+    private final int[] engineTypePercent;
+    private final int[] pids;
+    private final int[] pidPercent;
+    private final long timestampMs;
+
+    GpuUsageBreakdown(int overall, String[] engineTypes, int[] engineTypePercent,
+                      int[] pids, int[] pidPercent, long timestampMs) {
+        this.overall = overall;
+        this.engineTypes = engineTypes;
+        this.engineTypePercent = engineTypePercent;
+        this.pids = pids;
+        this.pidPercent = pidPercent;
+        this.timestampMs = timestampMs;
+    }
+
+    /**
+     * @return overall GPU usage 0..100, or -1 if no valid data
+     */
+    public int overallPercent() { return overall; }
+
+    /**
+     * @return wall-clock time the sample was taken
+     */
+    public long timestampMs() { return timestampMs; }
+
+    public int engineTypeCount() { return engineTypes.length; }
+
+    public String engineType(int i) { return engineTypes[i]; }
+
+    public int engineTypePercent(int i) { return engineTypePercent[i]; }
+
+    /**
+     * @return usage of the given engine type, or -1 if it was not seen in this sample
+     */
+    public int percentFor(String engineType) {
+        for (int i = 0; i < engineTypes.length; i++) {
+            if (engineTypes[i].equalsIgnoreCase(engineType)) return engineTypePercent[i];
+        }
+        return -1;
+    }
+
+    public int processCount() { return pids.length; }
+
+    public int pid(int i) { return pids[i]; }
+
+    public int processPercent(int i) { return pidPercent[i]; }
+}
@@ -1,6 +1,8 @@
 package fx.shield.cs.GPU;
 
 import java.util.OptionalInt;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Provides a snapshot of overall GPU utilization.
@@ -10,6 +12,10 @@ import java.util.OptionalInt;
  * - Implementations should be non-blocking or clearly document latency.
  * - Thread-safety is implementation-defined; callers should assume thread-safe reads if shared.
  *
+ * Async:
+ * - readAsync() / subscribe() deliver timestamped readings without blocking the caller.
+ * - Defaults adapt the blocking read; providers with a natural push rate override subscribe().
+ *
  * Lifecycle:
  * - Implementations may hold native/system resources; always call close().
  */
@@ -29,6 +35,40 @@ public interface GpuUsageProvider extends AutoCloseable {
         return (v >= 0 && v <= 100) ? OptionalInt.of(v) : OptionalInt.empty();
     }
 
+    /**
+     * Per-engine-type / per-process detail of the most recent read.
+     * Default returns null (provider only reports an overall value).
+     */
+    default GpuUsageBreakdown readBreakdown() {
+        return null;
+    }
+
+    /**
+     * Memory-controller utilization captured by the most recent read.
+     * Default returns -1 (provider does not report it).
+     */
+    default int readMemoryUtilPercent() {
+        return -1;
+    }
+
+    /**
+     * One read off the caller's thread.
+     * Default runs {@link #readGpuUsagePercent()} on a shared daemon thread.
+     */
+    default CompletableFuture<GpuReading> readAsync() {
+        return GpuAsync.readAsync(this);
+    }
+
+    /**
+     * Pushes readings (including failures, as -1) to {@code sink} until the subscription is
+     * closed. Default polls {@link #readGpuUsagePercent()} at a fixed rate of
+     * {@code periodMs} on a dedicated daemon thread; push-capable providers deliver at their
+     * own rate instead. The sink runs on a provider thread and must not block.
+     */
+    default GpuUsageSubscription subscribe(long periodMs, Consumer<GpuReading> sink) {
+        return GpuAsync.poll(this, periodMs, sink);
+    }
+
     /**
      * Indicates whether this provider is expected to work on the current platform/runtime.
      * Default returns true; implementations can override (e.g., library presence checks).
@@ -0,0 +1,15 @@
+package fx.shield.cs.GPU;
+
+/**
+ * Handle returned by {@link GpuUsageProvider#subscribe}. Closing it stops delivery;
+ * it does not close the provider.
+ *
+ * @since 1.0
+ */
+public interface GpuUsageSubscription extends AutoCloseable {
+
+    boolean isActive();
+
+    @Override
+    void close();
+}
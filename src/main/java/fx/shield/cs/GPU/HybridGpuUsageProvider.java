@@ -1,198 +1,653 @@
 package fx.shield.cs.GPU;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
 /**
  * Hybrid GPU usage provider that automatically selects the best available monitoring method.
  *
- * <p>This provider implements a fallback chain with the following priority:
+ * <p>Candidates, in tie-break priority order:
  * <ol>
  *   <li><b>NVML</b> - NVIDIA Management Library (fastest, NVIDIA GPUs only)</li>
  *   <li><b>PDH</b> - Windows Performance Data Helper (native Windows counters)</li>
  *   <li><b>TypePerf</b> - Windows typeperf command-line tool (slowest, most compatible)</li>
  * </ol>
  *
- * <p>Features:
+ * <p>On Linux the candidates are NVML, then the sysfs providers (amdgpu, then Intel i915/xe).
+ *
+ * <p>Selection is score based rather than a fixed chain:
  * <ul>
- *   <li>Automatic provider selection based on availability</li>
- *   <li>Caches the working provider for fast subsequent reads</li>
- *   <li>Cooldown period (1.5s) after provider failures to avoid thrashing</li>
- *   <li>Lazy initialization - providers are only created when needed</li>
- *   <li>Automatic failover if the active provider stops working</li>
+ *   <li>Each candidate keeps decaying (EWMA) success-rate and read-latency statistics</li>
+ *   <li>On the first read all present candidates are probed concurrently; the best
+ *       healthy score wins (success first, then latency, then priority)</li>
+ *   <li>The active provider is demoted only when its success rate falls below
+ *       {@link #HEALTHY_SUCCESS}; a single transient failure returns -1 and keeps it</li>
+ *   <li>Every {@link #PROMOTE_CHECK_MS} one other candidate gets a shadow read; it is
+ *       promoted if its score beats the active one by {@link #PROMOTE_MARGIN}. Streaming
+ *       candidates (typeperf: a long-running child process whose first read is always a
+ *       miss) are never shadow-read and are closed whenever they are not active</li>
+ *   <li>Failing candidates back off exponentially (1.5s up to 30s)</li>
  * </ul>
  *
- * <p>Thread-safe: Uses volatile fields and synchronized initialization.
+ * <p>The probe outcome is persisted ({@link GpuProbeCache}). The next launch with the same
+ * machine / OS / driver fingerprint starts directly with the known-good provider and does not
+ * create the others (no {@code typeperf /?} spawn, no NVML/PDH load attempts); the full probe
+ * runs again only when the fingerprint changes or the cached provider fails.
+ *
+ * <p>Thread-safe: Uses volatile fields and per-candidate synchronized initialization.
  *
  * @see GpuUsageProvider
  * @see NvmlGpuUsageProvider
  * @see PdhGpuUsageProvider
  * @see TypeperfGpuUsageProvider
+ * @see AmdgpuSysfsGpuUsageProvider
+ * @see IntelSysfsGpuUsageProvider
  * @since 1.0
  */
 public final class HybridGpuUsageProvider implements GpuUsageProvider {
 
-    // small cooldown to avoid thrashing when a provider transiently fails
-    private static final long COOLDOWN_MS = 1500;
+    private static final Logger logger = LoggerFactory.getLogger(HybridGpuUsageProvider.class);
+
+    // failure backoff: doubles per consecutive failure
+    private static final long COOLDOWN_BASE_MS = 1500;
+    private static final long COOLDOWN_MAX_MS = 30_000;
+
+    // EWMA weight of the newest sample
+    private static final double ALPHA = 0.2;
 
-    private final boolean isWindows;
+    // below this success rate a provider is not trusted
+    private static final double HEALTHY_SUCCESS = 0.6;
+
+    // latency above this adds no further penalty
+    private static final double LATENCY_CAP_MS = 200.0;
+
+    // startup probe: total window, and spacing between retries of a warming-up provider
+    private static final long PROBE_WINDOW_MS = 2500;
+    private static final long PROBE_RETRY_MS = 250;
+    private static final int PROBE_SUCCESSES = 3;
+
+    private static final long PROMOTE_CHECK_MS = 15_000;
+    private static final double PROMOTE_MARGIN = 10.0;
+    private static final int PROMOTE_MIN_SAMPLES = 3;
+
+    /**
+     * One selectable provider with its statistics.
+     */
+    static final class Candidate {
+        final String name;
+        final int priority;                 // higher wins ties
+        final boolean streaming;            // keeps a child process running while open
+        private final BooleanSupplier present;   // cheap presence check (library, OS)
+        private final Supplier<GpuUsageProvider> factory;
+
+        private GpuUsageProvider provider;  // guarded by this
+        private boolean unavailable;        // guarded by this: not present, or isAvailable() was false
+        private boolean trusted;            // guarded by this: known-good from the probe cache, skip isAvailable()
+        private boolean closed;             // guarded by this
+
+        // decaying stats (guarded by this)
+        private double successEwma = 0;
+        private double latencyEwmaMs = 0;
+        private int samples = 0;
+        private int consecutiveFailures = 0;
+        private volatile long nextTryMs = 0;
+
+        Candidate(String name, int priority, BooleanSupplier present, Supplier<GpuUsageProvider> factory) {
+            this(name, priority, false, present, factory);
+        }
+
+        Candidate(String name, int priority, boolean streaming,
+                  BooleanSupplier present, Supplier<GpuUsageProvider> factory) {
+            this.name = name;
+            this.priority = priority;
+            this.streaming = streaming;
+            this.present = present;
+            this.factory = factory;
+        }
+
+        synchronized GpuUsageProvider ensure() {
+            if (closed || unavailable) return null;
+
+            boolean here;
+            try { here = present.getAsBoolean(); } catch (Throwable t) { here = false; }
+            if (!here) {
+                // library / OS presence does not change while running: don't retry after cooldowns
+                safeClose(provider);
+                provider = null;
+                unavailable = true;
+                return null;
+            }
+
+            if (provider == null) {
+                try {
+                    GpuUsageProvider p = factory.get();
+                    if (p != null && !trusted && !p.isAvailable()) {
+                        safeClose(p);
+                        unavailable = true;
+                        return null;
+                    }
+                    provider = p;
+                } catch (Throwable t) {
+                    provider = null;
+                }
+            }
+            return provider;
+        }
+
+        /**
+         * Reads once, timing the call and recording the outcome.
+         */
+        int timedRead() {
+            return timedRead(true);
+        }
+
+        /**
+         * @param recordFailure false while a provider is still warming up (e.g. PDH's first
+         *                      rate sample), so the miss does not count against it
+         */
+        int timedRead(boolean recordFailure) {
+            GpuUsageProvider p = ensure();
+            if (p == null) {
+                if (recordFailure) record(false, 0, System.currentTimeMillis());
+                return -1;
+            }
+
+            long t0 = System.nanoTime();
+            int v = safeRead(p);
+            double ms = (System.nanoTime() - t0) / 1_000_000.0;
+
+            if (v >= 0 || recordFailure) record(v >= 0, ms, System.currentTimeMillis());
+            return v;
+        }
+
+        synchronized void record(boolean ok, double latencyMs, long nowMs) {
+            if (samples == 0) {
+                successEwma = ok ? 1.0 : 0.0;
+                latencyEwmaMs = latencyMs;
+            } else {
+                successEwma += ALPHA * ((ok ? 1.0 : 0.0) - successEwma);
+                if (ok) latencyEwmaMs += ALPHA * (latencyMs - latencyEwmaMs);
+            }
+            samples++;
+
+            if (ok) {
+                consecutiveFailures = 0;
+                nextTryMs = 0;
+            } else {
+                consecutiveFailures++;
+                int shift = Math.min(consecutiveFailures - 1, 5);
+                nextTryMs = nowMs + Math.min(COOLDOWN_MAX_MS, COOLDOWN_BASE_MS << shift);
+            }
+        }
+
+        synchronized boolean isUnavailable() {
+            return unavailable;
+        }
+
+        synchronized void markUnavailable() {
+            unavailable = true;
+            safeClose(provider);
+            provider = null;
+        }
+
+        synchronized void setTrusted(boolean trusted) {
+            this.trusted = trusted;
+        }
+
+        synchronized double latencyMs() {
+            return latencyEwmaMs;
+        }
+
+        synchronized boolean isHealthy() {
+            return samples > 0 && successEwma >= HEALTHY_SUCCESS;
+        }
+
+        synchronized int samples() {
+            return samples;
+        }
+
+        /**
+         * Success dominates (0..100), latency subtracts up to 50, priority breaks ties.
+         * Candidates never sampled score by priority alone, below any sampled healthy one.
+         */
+        synchronized double score() {
+            if (samples == 0) return -100.0 + priority;
+            double latencyPenalty = Math.min(latencyEwmaMs, LATENCY_CAP_MS) / LATENCY_CAP_MS * 50.0;
+            return successEwma * 100.0 - latencyPenalty + priority;
+        }
+
+        boolean canTry(long nowMs) {
+            return nowMs >= nextTryMs;
+        }
+
+        /**
+         * Frees the provider (process, native query) but allows re-creation later.
+         */
+        synchronized void release() {
+            safeClose(provider);
+            provider = null;
+        }
+
+        synchronized void close() {
+            closed = true;
+            safeClose(provider);
+            provider = null;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format("%s(success=%.2f, latency=%.2fms, n=%d)", name, successEwma, latencyEwmaMs, samples);
+        }
+    }
+
+    private final List<Candidate> candidates;
+    private final GpuProbeCache cache;        // null: nothing persisted
+    private final long promoteCheckMs;
+
+    // probe result loaded from the cache (once)
+    private final Object cacheLock = new Object();
+    private boolean cacheLoaded = false;       // guarded by cacheLock
+    private GpuProbeCache.Entry cachedEntry;   // guarded by cacheLock
+
+    // active provider came from the cache: no shadow reads (they would create the others)
+    private volatile boolean fromCache = false;
 
     // cached winner (fast path)
-    private volatile GpuUsageProvider active;
+    private volatile Candidate active;
 
-    // lazy providers
-    private GpuUsageProvider nvml;
-    private GpuUsageProvider pdh;
-    private GpuUsageProvider typeperf;
+    private final Object probeLock = new Object();
+    private volatile boolean probed = false;
 
-    // backoff per provider
-    private volatile long nvmlNextTryMs = 0;
-    private volatile long pdhNextTryMs = 0;
-    private volatile long typeperfNextTryMs = 0;
+    private volatile long nextPromoteCheckMs = 0;
+    private int shadowCursor = 0; // guarded by probeLock
 
     private volatile boolean closed = false;
 
     /**
      * Creates a new hybrid GPU usage provider.
      *
-     * @param isWindows true if running on Windows (required for GPU monitoring)
+     * @param isWindows true if running on Windows; otherwise the Linux candidates are used
      */
     public HybridGpuUsageProvider(boolean isWindows) {
-        this.isWindows = isWindows;
+        this(defaultCandidates(isWindows, Paths.get("/sys")), GpuProbeCache.forCurrentSystem());
+    }
+
+    /**
+     * @param isWindows true if running on Windows; otherwise the Linux candidates are used
+     * @param sysfsRoot directory that plays the role of {@code /sys} for the Linux providers;
+     *                  the probe result is not persisted
+     */
+    public HybridGpuUsageProvider(boolean isWindows, Path sysfsRoot) {
+        this(defaultCandidates(isWindows, sysfsRoot), null);
+    }
+
+    /**
+     * Custom candidate set (e.g. fakes with scripted latency and failures).
+     */
+    HybridGpuUsageProvider(List<Candidate> candidates) {
+        this(candidates, null);
+    }
+
+    /**
+     * @param cache probe result store, or null to always run the full probe
+     */
+    HybridGpuUsageProvider(List<Candidate> candidates, GpuProbeCache cache) {
+        this(candidates, cache, PROMOTE_CHECK_MS);
+    }
+
+    /**
+     * @param promoteCheckMs spacing of shadow reads (tests use a short one)
+     */
+    HybridGpuUsageProvider(List<Candidate> candidates, GpuProbeCache cache, long promoteCheckMs) {
+        this.candidates = Collections.unmodifiableList(new ArrayList<>(candidates));
+        this.cache = cache;
+        this.promoteCheckMs = promoteCheckMs;
+    }
+
+    private static List<Candidate> defaultCandidates(boolean isWindows, Path sysfsRoot) {
+        List<Candidate> list = new ArrayList<>();
+        list.add(new Candidate("nvml", 3,
+                NvmlGpuUsageProvider::isNvmlLibraryPresent, NvmlGpuUsageProvider::new));
+
+        if (isWindows) {
+            list.add(new Candidate("pdh", 2,
+                    PdhGpuUsageProvider::isAvailableStatic, PdhGpuUsageProvider::new));
+            list.add(new Candidate("typeperf", 0, true,
+                    () -> true, TypeperfGpuUsageProvider::new));
+        } else {
+            list.add(new Candidate("amdgpu", 2,
+                    () -> true, () -> new AmdgpuSysfsGpuUsageProvider(sysfsRoot)));
+            list.add(new Candidate("intel", 1,
+                    () -> true, () -> new IntelSysfsGpuUsageProvider(sysfsRoot)));
+        }
+        return list;
     }
 
     /**
-     * Reads the current GPU usage percentage using the best available provider.
+     * Reads the current GPU usage percentage using the best-scoring provider.
      *
      * <p>This method:
      * <ul>
-     *   <li>First tries the cached active provider (fast path)</li>
-     *   <li>Falls back through the provider chain if the active provider fails</li>
-     *   <li>Respects cooldown periods to avoid repeated failed attempts</li>
-     *   <li>Caches the first successful provider for future reads</li>
+     *   <li>Runs the concurrent startup probe on first use</li>
+     *   <li>Reads the active provider and records latency / success</li>
+     *   <li>Demotes the active provider once it is no longer healthy, then tries the
+     *       others in score order (respecting their backoff)</li>
+     *   <li>Periodically shadow-reads one other candidate and promotes it if it scores better</li>
      * </ul>
      *
-     * @return GPU usage 0-100, or -1 if unavailable or not on Windows
+     * @return GPU usage 0-100, or -1 if unavailable
      */
     @Override
     public int readGpuUsagePercent() {
-        if (closed || !isWindows) return -1;
+        if (closed) return -1;
+        if (!probed) probe();
 
         long now = System.currentTimeMillis();
 
-        // 1) try cached winner first
-        GpuUsageProvider a = active;
+        // 1) active provider (fast path)
+        Candidate a = active;
         if (a != null) {
-            int v = safeRead(a);
-            if (v >= 0) return v;
-            active = null; // demote on failure
+            int v = a.timedRead();
+            if (v >= 0) {
+                if (!fromCache && now >= nextPromoteCheckMs) maybePromote(a, now);
+                return v;
+            }
+            if (a.isHealthy()) return -1; // transient: let GPUStabilizer hold the last value
+
+            logger.debug("GPU provider demoted: {}", a);
+            active = null;
+            if (fromCache) {
+                // cached provider failed: forget it, the next winner is stored instead
+                fromCache = false;
+                a.setTrusted(false);
+                if (cache != null) cache.invalidate();
+            }
         }
 
-        // 2) NVML (NVIDIA) first
-        if (now >= nvmlNextTryMs) {
-            GpuUsageProvider p = ensureNvml();
-            int v = (p != null) ? safeRead(p) : -1;
-            if (v >= 0) { active = p; return v; }
-            nvmlNextTryMs = now + COOLDOWN_MS;
+        // 2) others in score order
+        for (Candidate c : byScore()) {
+            if (c == a || !c.canTry(now)) continue;
+            int v = c.timedRead();
+            if (v >= 0) {
+                active = c;
+                releaseStreamingExcept(c);
+                nextPromoteCheckMs = now + promoteCheckMs;
+                logger.debug("GPU provider selected: {}", c);
+                remember(c);
+                return v;
+            }
         }
 
-        // 3) PDH (Windows counter) second
-        if (now >= pdhNextTryMs) {
-            GpuUsageProvider p = ensurePdh();
-            int v = (p != null) ? safeRead(p) : -1;
-            if (v >= 0) { active = p; return v; }
-            pdhNextTryMs = now + COOLDOWN_MS;
-        }
+        return -1;
+    }
 
-        // 4) typeperf (process fallback) last
-        if (now >= typeperfNextTryMs) {
-            GpuUsageProvider p = ensureTypeperf();
-            int v = (p != null) ? safeRead(p) : -1;
-            if (v >= 0) { active = p; return v; }
-            typeperfNextTryMs = now + COOLDOWN_MS;
+    /**
+     * Startup probe: every present candidate is created and read on its own thread until it
+     * delivers {@link #PROBE_SUCCESSES} values or {@link #PROBE_WINDOW_MS} elapses.
+     */
+    private void probe() {
+        synchronized (probeLock) {
+            if (probed || closed) return;
+
+            if (probeFromCache()) {
+                probed = true;
+                return;
+            }
+
+            long deadline = System.currentTimeMillis() + PROBE_WINDOW_MS;
+            CountDownLatch done = new CountDownLatch(candidates.size());
+
+            for (Candidate c : candidates) {
+                Thread t = new Thread(() -> {
+                    try {
+                        probeReads(c, deadline);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                    } catch (Throwable ignored) {
+                    } finally {
+                        done.countDown();
+                    }
+                }, "fxShield-gpu-probe-" + c.name);
+                t.setDaemon(true);
+                t.start();
+            }
+
+            try {
+                done.await(PROBE_WINDOW_MS + 500, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+
+            Candidate best = null;
+            for (Candidate c : byScore()) {
+                if (c.isHealthy()) { best = c; break; }
+            }
+            active = best;
+
+            // candidates that failed the probe should not keep processes / queries open; nor
+            // should streaming ones that lost (they are not shadow-read afterwards)
+            for (Candidate c : candidates) {
+                if (c != best && (!c.isHealthy() || c.streaming)) c.release();
+            }
+
+            nextPromoteCheckMs = System.currentTimeMillis() + promoteCheckMs;
+            probed = true;
+
+            if (logger.isDebugEnabled()) {
+                logger.debug("GPU provider probe: {} -> {}", candidates, best == null ? "none" : best.name);
+            }
+            remember(best);
         }
+    }
 
-        return -1;
+    /**
+     * Reads {@code c} until it delivers {@link #PROBE_SUCCESSES} values or the deadline passes.
+     *
+     * @return number of successful reads
+     */
+    private int probeReads(Candidate c, long deadline) throws InterruptedException {
+        int ok = 0;
+        while (ok < PROBE_SUCCESSES && System.currentTimeMillis() < deadline && !closed) {
+            if (c.ensure() == null) break;
+            // misses before the first value are warm-up, not failures
+            if (c.timedRead(ok > 0) >= 0) ok++;
+            else Thread.sleep(PROBE_RETRY_MS);
+        }
+        if (ok == 0) c.record(false, 0, System.currentTimeMillis());
+        return ok;
     }
 
-    private static int safeRead(GpuUsageProvider p) {
+    /**
+     * Fast start from the persisted probe result: only the cached provider is created and read.
+     *
+     * @return true if it is healthy and now active; false to run the full probe
+     */
+    private boolean probeFromCache() {
+        GpuProbeCache.Entry e = cachedEntry();
+        if (e == null) return false;
+
+        Candidate hint = find(e.provider);
+        if (hint == null) {
+            // nothing worked last time: skip the ones that were not even present
+            markDead(e.dead);
+            return false;
+        }
+
+        hint.setTrusted(true);
         try {
-            int v = p.readGpuUsagePercent();
-            return (v >= 0 && v <= 100) ? v : -1;
-        } catch (Throwable t) {
-            return -1;
+            probeReads(hint, System.currentTimeMillis() + PROBE_WINDOW_MS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
         }
-    }
 
-    // ---- lazy init with safe “presence” checks قبل الإنشاء ----
+        if (!hint.isHealthy()) {
+            logger.debug("Cached GPU provider failed, re-probing: {}", hint);
+            hint.setTrusted(false);
+            hint.release();
+            if (cache != null) cache.invalidate();
+            return false;
+        }
 
-    private synchronized GpuUsageProvider ensureNvml() {
-        if (closed) return null;
+        markDead(e.dead);
+        active = hint;
+        fromCache = true;
+        nextPromoteCheckMs = System.currentTimeMillis() + promoteCheckMs;
+        logger.debug("GPU provider from cache: {} (stored latency {}ms)", hint, e.latencyMs);
+        return true;
+    }
 
-        // don’t even instantiate if NVML library isn’t present
-        if (!NvmlGpuUsageProvider.isNvmlLibraryPresent()) {
-            if (nvml != null) { safeClose(nvml); nvml = null; }
-            return null;
+    private GpuProbeCache.Entry cachedEntry() {
+        if (cache == null) return null;
+        synchronized (cacheLock) {
+            if (!cacheLoaded) {
+                cacheLoaded = true;
+                try { cachedEntry = cache.load(); } catch (Throwable ignored) {}
+            }
+            return cachedEntry;
         }
+    }
 
-        if (nvml == null) {
-            try { nvml = new NvmlGpuUsageProvider(); }
-            catch (Throwable t) { nvml = null; }
+    private void markDead(Set<String> names) {
+        for (Candidate c : candidates) {
+            if (names.contains(c.name)) c.markUnavailable();
         }
+    }
 
-        if (nvml != null && nvml.isAvailable()) return nvml;
+    private Candidate find(String name) {
+        if (name == null) return null;
+        for (Candidate c : candidates) {
+            if (c.name.equals(name)) return c;
+        }
         return null;
     }
 
-    private synchronized GpuUsageProvider ensurePdh() {
-        if (closed) return null;
+    /**
+     * Persists the current winner (or that there is none) with the candidates that are not present.
+     */
+    private void remember(Candidate best) {
+        if (cache == null || closed) return;
 
-        // avoid instantiating if PDH library isn’t present
-        if (!PdhGpuUsageProvider.isAvailableStatic()) {
-            if (pdh != null) { safeClose(pdh); pdh = null; }
-            return null;
+        List<String> dead = new ArrayList<>();
+        for (Candidate c : candidates) {
+            if (c != best && c.isUnavailable()) dead.add(c.name);
         }
+        try {
+            cache.save(best == null ? null : best.name, best == null ? 0 : best.latencyMs(), dead);
+        } catch (Throwable ignored) {}
+    }
 
-        if (pdh == null) {
-            try { pdh = new PdhGpuUsageProvider(); }
-            catch (Throwable t) { pdh = null; }
+    /**
+     * Shadow-reads one other candidate (round robin) and switches if it clearly scores better.
+     * Streaming candidates are skipped: a one-off read would start a session that nothing
+     * closes, and its first value only arrives on the next read.
+     */
+    private void maybePromote(Candidate a, long now) {
+        Candidate other = null;
+        synchronized (probeLock) {
+            nextPromoteCheckMs = now + promoteCheckMs;
+            for (int i = 0; i < candidates.size(); i++) {
+                Candidate c = candidates.get((shadowCursor + i) % candidates.size());
+                if (c != a && !c.streaming && c.canTry(now)) {
+                    other = c;
+                    shadowCursor = (shadowCursor + i + 1) % candidates.size();
+                    break;
+                }
+            }
         }
+        if (other == null) return;
+
+        other.timedRead();
+        if (other.isHealthy()
+                && other.samples() >= PROMOTE_MIN_SAMPLES
+                && other.score() > a.score() + PROMOTE_MARGIN) {
+            logger.debug("GPU provider promoted: {} over {}", other, a);
+            active = other;
+            releaseStreamingExcept(other);
+            remember(other);
+        }
+    }
 
-        if (pdh != null && pdh.isAvailable()) return pdh;
-        return null;
+    /**
+     * Stops the sessions of streaming candidates other than {@code keep} (the new active one).
+     */
+    private void releaseStreamingExcept(Candidate keep) {
+        for (Candidate c : candidates) {
+            if (c != keep && c.streaming) c.release();
+        }
     }
 
-    private synchronized GpuUsageProvider ensureTypeperf() {
-        if (closed) return null;
+    private List<Candidate> byScore() {
+        List<Candidate> sorted = new ArrayList<>(candidates);
+        sorted.sort((x, y) -> Double.compare(y.score(), x.score()));
+        return sorted;
+    }
 
-        if (typeperf == null) {
-            try { typeperf = new TypeperfGpuUsageProvider(); }
-            catch (Throwable t) { typeperf = null; }
+    /**
+     * Breakdown from the currently active provider, if it offers one.
+     */
+    @Override
+    public GpuUsageBreakdown readBreakdown() {
+        Candidate a = active;
+        if (closed || a == null) return null;
+        GpuUsageProvider p = a.ensure();
+        if (p == null) return null;
+        try {
+            return p.readBreakdown();
+        } catch (Throwable t) {
+            return null;
         }
+    }
 
-        if (typeperf != null && typeperf.isAvailable()) return typeperf;
-        return null;
+    private static int safeRead(GpuUsageProvider p) {
+        try {
+            int v = p.readGpuUsagePercent();
+            return (v >= 0 && v <= 100) ? v : -1;
+        } catch (Throwable t) {
+            return -1;
+        }
     }
 
     @Override
     public boolean isAvailable() {
-        if (closed || !isWindows) return false;
+        if (closed) return false;
 
-        if (NvmlGpuUsageProvider.isNvmlLibraryPresent()) return true;
-        if (PdhGpuUsageProvider.isAvailableStatic()) return true;
+        Candidate a = active;
+        if (a != null && a.ensure() != null) return true;
+
+        // known-good provider first: avoids creating the others (typeperf spawns a process to check)
+        GpuProbeCache.Entry e = cachedEntry();
+        Candidate hint = (e != null) ? find(e.provider) : null;
+        if (hint != null) {
+            hint.setTrusted(true);
+            if (hint.ensure() != null) return true;
+        }
 
-        // typeperf check is heavier (process). keep it last.
-        try { return new TypeperfGpuUsageProvider().isAvailable(); }
-        catch (Throwable t) { return false; }
+        // creates providers lazily; the first read would do the same
+        for (Candidate c : candidates) {
+            if (c.ensure() != null) return true;
+        }
+        return false;
     }
 
     @Override
-    public synchronized void close() {
-        if (closed) return;
-        closed = true;
-
-        active = null;
-
-        safeClose(nvml); nvml = null;
-        safeClose(pdh); pdh = null;
-        safeClose(typeperf); typeperf = null;
+    public void close() {
+        synchronized (probeLock) {
+            if (closed) return;
+            closed = true;
+            active = null;
+        }
+        for (Candidate c : candidates) c.close();
     }
 
     private static void safeClose(GpuUsageProvider p) {
@@ -0,0 +1,151 @@
+package fx.shield.cs.GPU;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * GPU usage provider for Intel GPUs on Linux (i915 / xe drivers).
+ *
+ * <p>Intel drivers do not expose a busy percentage in sysfs. They do expose a monotonic
+ * idle-residency counter in milliseconds (RC6 on i915, gtidle on xe), so busy is derived
+ * from two samples: {@code busy = 100 - idleDelta / wallDelta * 100}. With several GTs /
+ * cards the highest value wins.
+ *
+ * <p>Counters probed per {@code /sys/class/drm/cardN}:
+ * <ul>
+ *   <li>{@code gt/gtX/rc6_residency_ms} (i915, per GT)</li>
+ *   <li>{@code power/rc6_residency_ms} (i915, older kernels)</li>
+ *   <li>{@code device/tileX/gtY/gtidle/idle_residency_ms} (xe)</li>
+ * </ul>
+ *
+ * <p>The first sample is taken at construction; reads closer than
+ * {@link #MIN_INTERVAL_MS} to the previous one return the last value.
+ *
+ * <p>Thread-safe: reads are synchronized.
+ *
+ * @see GpuUsageProvider
+ * @see AmdgpuSysfsGpuUsageProvider
+ * @since 1.0
+ */
+public final class IntelSysfsGpuUsageProvider implements GpuUsageProvider {
+
+    // residency counters have 1 ms resolution; shorter windows are mostly noise
+    private static final long MIN_INTERVAL_MS = 100;
+
+    private final Object lock = new Object();
+
+    private SysfsCounterFile[] files;
+    private final long[] prevIdleMs;
+    private long prevNanos;
+    private int lastPercent = -1;
+
+    public IntelSysfsGpuUsageProvider() {
+        this(Paths.get("/sys"));
+    }
+
+    /**
+     * @param sysfsRoot directory that plays the role of {@code /sys}
+     */
+    public IntelSysfsGpuUsageProvider(Path sysfsRoot) {
+        List<SysfsCounterFile> found = new ArrayList<>();
+        for (Path card : SysfsCounterFile.drmCards(sysfsRoot)) {
+            collectCounters(card, found);
+        }
+        files = found.toArray(new SysfsCounterFile[0]);
+
+        prevIdleMs = new long[files.length];
+        for (int i = 0; i < files.length; i++) prevIdleMs[i] = files[i].readLong();
+        prevNanos = System.nanoTime();
+    }
+
+    private static void collectCounters(Path card, List<SysfsCounterFile> out) {
+        int before = out.size();
+
+        // i915 with per-GT directories
+        for (Path gt : children(card.resolve("gt"), "gt")) {
+            add(out, gt.resolve("rc6_residency_ms"));
+        }
+        // older i915: one card-wide counter
+        if (out.size() == before) {
+            add(out, card.resolve("power").resolve("rc6_residency_ms"));
+        }
+        // xe
+        for (Path tile : children(card.resolve("device"), "tile")) {
+            for (Path gt : children(tile, "gt")) {
+                add(out, gt.resolve("gtidle").resolve("idle_residency_ms"));
+            }
+        }
+    }
+
+    private static void add(List<SysfsCounterFile> out, Path p) {
+        SysfsCounterFile f = SysfsCounterFile.open(p);
+        if (f != null) out.add(f);
+    }
+
+    private static List<Path> children(Path dir, String prefix) {
+        List<Path> out = new ArrayList<>();
+        if (!Files.isDirectory(dir)) return out;
+        try (var ds = Files.newDirectoryStream(dir, prefix + "[0-9]*")) {
+            for (Path p : ds) out.add(p);
+        } catch (IOException | RuntimeException ignored) {
+        }
+        out.sort(null);
+        return out;
+    }
+
+    @Override
+    public int readGpuUsagePercent() {
+        synchronized (lock) {
+            SysfsCounterFile[] fs = files;
+            if (fs == null || fs.length == 0) return -1;
+
+            long now = System.nanoTime();
+            long wallMs = (now - prevNanos) / 1_000_000L;
+            if (wallMs < MIN_INTERVAL_MS) return lastPercent;
+
+            boolean any = false;
+            double maxBusy = 0;
+            for (int i = 0; i < fs.length; i++) {
+                long idle = fs[i].readLong();
+                long prev = prevIdleMs[i];
+                prevIdleMs[i] = idle;
+                if (idle < 0 || prev < 0 || idle < prev) continue; // error or counter reset
+
+                // idle can run slightly ahead of wall clock; clamped below
+                double busy = 100.0 - ((idle - prev) * 100.0 / wallMs);
+                if (!any || busy > maxBusy) maxBusy = busy;
+                any = true;
+            }
+            prevNanos = now;
+
+            if (!any) return lastPercent;
+
+            int out = (int) Math.round(maxBusy);
+            if (out < 0) out = 0;
+            if (out > 100) out = 100;
+            lastPercent = out;
+            return out;
+        }
+    }
+
+    @Override
+    public boolean isAvailable() {
+        synchronized (lock) {
+            return files != null && files.length > 0;
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (lock) {
+            if (files == null) return;
+            for (SysfsCounterFile f : files) f.close();
+            files = null;
+            lastPercent = -1;
+        }
+    }
+}
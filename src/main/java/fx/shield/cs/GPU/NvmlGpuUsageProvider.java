@@ -1,8 +1,13 @@
 package fx.shield.cs.GPU;
 
 import com.sun.jna.*;
+import com.sun.jna.ptr.IntByReference;
 import com.sun.jna.ptr.PointerByReference;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * GPU usage provider using NVIDIA Management Library (NVML).
  *
@@ -15,7 +20,9 @@ import com.sun.jna.ptr.PointerByReference;
  *   <li>Direct access to NVIDIA GPU metrics via native library</li>
  *   <li>Shared NVML initialization across multiple instances (reference counting)</li>
  *   <li>Automatic cleanup when all instances are closed</li>
- *   <li>Reads from first GPU (index 0) by default</li>
+ *   <li>Reads from first GPU (index 0) by default; {@link #openAll()} returns one
+ *       instance per device, all sharing the same NVML reference count</li>
+ *   <li>GPU and memory-controller utilization come from the same NVML call</li>
  * </ul>
  *
  * <p>Requirements:
@@ -31,13 +38,19 @@ import com.sun.jna.ptr.PointerByReference;
  */
 public final class NvmlGpuUsageProvider implements GpuUsageProvider {
 
-    private interface Nvml extends Library {
+    // package-private so a fake binding can be installed via useBinding()
+    interface Nvml extends Library {
         int nvmlInit_v2();
         int nvmlShutdown();
+        int nvmlDeviceGetCount_v2(IntByReference count);
         int nvmlDeviceGetHandleByIndex_v2(int index, PointerByReference device);
+        int nvmlDeviceGetName(Pointer device, byte[] name, int length);
         int nvmlDeviceGetUtilizationRates(Pointer device, NvmlUtilization utilization);
     }
 
+    // NVML_DEVICE_NAME_V2_BUFFER_SIZE
+    private static final int NAME_BUFFER_SIZE = 96;
+
     @Structure.FieldOrder({"gpu", "memory"})
     public static final class NvmlUtilization extends Structure {
         public int gpu;    // percent (NVML uses unsigned int; we clamp)
@@ -47,9 +60,24 @@ public final class NvmlGpuUsageProvider implements GpuUsageProvider {
     // ---------- Lazy NVML loading + global lifecycle ----------
     private static final Object NVML_LOCK = new Object();
     private static volatile Nvml NVML;                 // lazy-loaded instance
+    private static volatile boolean NVML_INJECTED = false;
     private static boolean NVML_INITIALIZED = false;
     private static int NVML_REFCOUNT = 0;
 
+    /**
+     * Replaces the native binding (e.g. with a fake in tests) and resets the shared
+     * init/refcount state. Pass null to go back to lazy native loading.
+     * Instances opened against the previous binding must be closed first.
+     */
+    static void useBinding(Nvml binding) {
+        synchronized (NVML_LOCK) {
+            NVML = binding;
+            NVML_INJECTED = binding != null;
+            NVML_INITIALIZED = false;
+            NVML_REFCOUNT = 0;
+        }
+    }
+
     private static Nvml nvml() {
         Nvml inst = NVML;
         if (inst != null) return inst;
@@ -104,12 +132,58 @@ public final class NvmlGpuUsageProvider implements GpuUsageProvider {
         }
     }
 
+    /**
+     * @return number of NVML devices, or 0 if NVML is unavailable
+     */
+    public static int deviceCount() {
+        if (!ensureNvmlInitialized()) return 0;
+        try {
+            Nvml inst = nvml();
+            if (inst == null) return 0;
+
+            IntByReference count = new IntByReference();
+            int r = inst.nvmlDeviceGetCount_v2(count);
+            return (r == 0) ? Math.max(0, count.getValue()) : 0;
+        } catch (Throwable t) {
+            return 0;
+        } finally {
+            shutdownNvmlIfIdle();
+        }
+    }
+
+    /**
+     * Opens one provider per NVML device. Devices whose handle cannot be obtained are skipped.
+     * Each returned instance holds one NVML reference; NVML is shut down when the last one
+     * is closed.
+     *
+     * @return providers in device index order (empty if NVML is unavailable)
+     */
+    public static List<NvmlGpuUsageProvider> openAll() {
+        List<NvmlGpuUsageProvider> out = new ArrayList<>();
+        if (!isNvmlLibraryPresent()) return out;
+
+        // hold a reference while enumerating so counting does not init and shut down NVML once more
+        if (!ensureNvmlInitialized()) return out;
+        try {
+            int n = deviceCount();
+            for (int i = 0; i < n; i++) {
+                NvmlGpuUsageProvider p = new NvmlGpuUsageProvider(i);
+                if (p.ready) out.add(p);
+            }
+        } finally {
+            shutdownNvmlIfIdle();
+        }
+        return out;
+    }
+
     // ---------- Instance state ----------
     private final int deviceIndex;
     private final Object ioLock = new Object(); // protects device + util
 
     private volatile boolean ready = false;
     private volatile Pointer device;
+    private volatile String name;
+    private volatile int lastMemory = -1;
 
     private final NvmlUtilization util = new NvmlUtilization();
 
@@ -144,6 +218,7 @@ public final class NvmlGpuUsageProvider implements GpuUsageProvider {
             Pointer p = (r == 0) ? ref.getValue() : null;
             if (p != null) {
                 device = p;
+                name = readName(inst, p);
                 ready = true;
             } else {
                 ready = false;
@@ -157,11 +232,37 @@ public final class NvmlGpuUsageProvider implements GpuUsageProvider {
         }
     }
 
+    private static String readName(Nvml inst, Pointer dev) {
+        try {
+            byte[] buf = new byte[NAME_BUFFER_SIZE];
+            if (inst.nvmlDeviceGetName(dev, buf, buf.length) != 0) return null;
+
+            int len = 0;
+            while (len < buf.length && buf[len] != 0) len++;
+            String s = new String(buf, 0, len, StandardCharsets.UTF_8).trim();
+            return s.isEmpty() ? null : s;
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    public int getDeviceIndex() {
+        return deviceIndex;
+    }
+
+    /**
+     * @return device name reported by NVML, or null if unknown
+     */
+    public String getName() {
+        return name;
+    }
+
     @Override
     public int readGpuUsagePercent() {
         if (!ready || device == null) return -1;
 
         synchronized (ioLock) {
+            lastMemory = -1;
             if (!ready || device == null) return -1;
 
             try {
@@ -178,16 +279,30 @@ public final class NvmlGpuUsageProvider implements GpuUsageProvider {
                 // Make sure the native-filled fields are visible
                 try { util.read(); } catch (Throwable ignored) {}
 
-                int v = util.gpu;
-                if (v < 0) v = 0;
-                if (v > 100) v = 100;
-                return v;
+                lastMemory = clampPercent(util.memory);
+                return clampPercent(util.gpu);
             } catch (Throwable t) {
                 return -1;
             }
         }
     }
 
+    /**
+     * @return memory-controller utilization from the last successful
+     *         {@link #readGpuUsagePercent()}, or -1
+     */
+    @Override
+    public int readMemoryUtilPercent() {
+        return lastMemory;
+    }
+
+    private static int clampPercent(int v) {
+        // NVML uses unsigned int
+        if (v < 0) return 0;
+        if (v > 100) return 100;
+        return v;
+    }
+
     @Override
     public void close() {
         synchronized (ioLock) {
@@ -204,6 +319,7 @@ public final class NvmlGpuUsageProvider implements GpuUsageProvider {
     }
 
     public static boolean isNvmlLibraryPresent() {
+        if (NVML_INJECTED) return true;
         try {
             NativeLibrary.getInstance("nvml");
             return true;
@@ -0,0 +1,55 @@
+package fx.shield.cs.GPU;
+
+/**
+ * Minimal view of a PDH query holding one wildcard counter.
+ *
+ * <p>{@link PdhGpuUsageProvider} only talks to this interface; the JNA binding lives in the
+ * provider, and tests can substitute recorded counter arrays.
+ *
+ * <p>Not thread-safe; the provider serializes access.
+ */
+interface PdhCounterSource extends AutoCloseable {
+
+    /**
+     * Opens a query and adds {@code wildcardPath}. Calling it again rebuilds the query,
+     * which re-expands the instance list.
+     *
+     * @return true if the counter was added
+     */
+    boolean open(String wildcardPath);
+
+    /**
+     * Collects one sample for the query.
+     */
+    boolean collect();
+
+    /**
+     * Reads every instance of the counter in one call.
+     *
+     * @param out       reused destination (grown as needed)
+     * @param withNames also fill {@link CounterArray#names}
+     * @return true on success ({@code out.count} may be 0)
+     */
+    boolean readArray(CounterArray out, boolean withNames);
+
+    @Override
+    void close();
+
+    /**
+     * Reusable result of {@link #readArray}: parallel arrays, valid up to {@link #count}.
+     */
+    final class CounterArray {
+        public int count;
+        public String[] names = new String[0];
+        public double[] values = new double[0];
+        public int[] status = new int[0];
+
+        public void ensureCapacity(int n) {
+            if (values.length >= n) return;
+            int cap = Math.max(n, values.length * 2);
+            names = new String[cap];
+            values = new double[cap];
+            status = new int[cap];
+        }
+    }
+}
@@ -14,13 +14,23 @@ import com.sun.jna.ptr.PointerByReference;
  * <ul>
  *   <li>Uses native Windows performance counters</li>
  *   <li>Supports all GPU vendors (NVIDIA, AMD, Intel)</li>
- *   <li>Expands wildcard counters to monitor all GPU engines</li>
- *   <li>Aggregates utilization across all GPU engines</li>
+ *   <li>One wildcard counter read with a single {@code PdhGetFormattedCounterArrayW}
+ *       call into a reused native buffer</li>
+ *   <li>Query rebuilt every {@link #REEXPAND_MS} so per-process engine instances that come
+ *       and go do not go stale</li>
+ *   <li>Instance names fetched and parsed only after a (re)expand or when the instance count
+ *       changes; other samples read values and statuses only and reuse the parsed instances
+ *       by index</li>
+ *   <li>Aggregates per engine, engine type and process from the instance names
+ *       ({@link #readBreakdown()}); overall = busiest engine</li>
  *   <li>Requires warmup period for accurate rate-based counters</li>
  * </ul>
  *
  * <p>Counter path: {@code \\GPU Engine(*)\\Utilization Percentage}
  *
+ * <p>The PDH binding is behind {@link PdhCounterSource}; the package-private constructor
+ * accepts a substitute (e.g. recorded counter arrays).
+ *
  * <p>Thread-safe: Uses synchronized blocks for query operations.
  *
  * @see GpuUsageProvider
@@ -28,148 +38,79 @@ import com.sun.jna.ptr.PointerByReference;
  */
 public final class PdhGpuUsageProvider implements GpuUsageProvider {
 
-    private interface Pdh extends Library {
-        int PdhOpenQueryW(WString dataSource, Pointer userData, PointerByReference query);
-        int PdhCloseQuery(Pointer query);
-
-        int PdhAddEnglishCounterW(Pointer query, WString fullCounterPath, Pointer userData, PointerByReference counter);
-
-        int PdhCollectQueryData(Pointer query);
-
-        int PdhGetFormattedCounterValue(Pointer counter, int format, IntByReference type, PDH_FMT_COUNTERVALUE value);
-
-        // Expand wildcard to a MULTI-SZ list of full counter paths
-        int PdhExpandWildCardPathW(WString dataSource, WString wildCardPath, Pointer expandedPathList,
-                                   IntByReference pathListLength, int flags);
-    }
-
-    @Structure.FieldOrder({"CStatus", "doubleValue"})
-    public static final class PDH_FMT_COUNTERVALUE extends Structure {
-        public int CStatus;
-        public double doubleValue;
-    }
-
-    private static final int PDH_FMT_DOUBLE = 0x00000200;
-
-    private static final int ERROR_SUCCESS = 0;
-    private static final int PDH_MORE_DATA = 0x800007D2;
-
     private static final int PDH_CSTATUS_VALID_DATA = 0x00000000;
     private static final int PDH_CSTATUS_NEW_DATA   = 0x00000001;
 
-    // Wildcard counter (we will EXPAND it, then add each expanded path as its own counter)
-    private static final String COUNTER_WILDCARD = "\\\\GPU Engine(*)\\\\Utilization Percentage";
+    // Wildcard counter, added as-is; PDH returns all instances through the array call
+    private static final String COUNTER_WILDCARD = "\\GPU Engine(*)\\Utilization Percentage";
 
     // Minimum time between the first and second sample for rate-based counters
     private static final long MIN_WARMUP_INTERVAL_MS = 220;
 
-    // ---------- Lazy PDH loading ----------
-    private static volatile Pdh PDH;
+    // Engine instances are per process; rebuild the query to pick up new / drop dead ones
+    private static final long REEXPAND_MS = 30_000;
 
-    private static Pdh pdh() {
-        Pdh inst = PDH;
-        if (inst != null) return inst;
-        try {
-            // Make sure pdh.dll exists
-            NativeLibrary.getInstance("pdh");
-        } catch (Throwable t) {
-            return null;
-        }
-        synchronized (PdhGpuUsageProvider.class) {
-            if (PDH != null) return PDH;
-            try {
-                PDH = Native.load("pdh", Pdh.class);
-                return PDH;
-            } catch (Throwable t) {
-                return null;
-            }
-        }
-    }
+    private final long reexpandMs;
 
     // ---------- State ----------
     private final Object lock = new Object();
 
-    private volatile boolean ready = false;
+    private final PdhCounterSource source;
+    private final PdhCounterSource.CounterArray array = new PdhCounterSource.CounterArray();
+    private final GpuUsageAggregator aggregator = new GpuUsageAggregator(new GpuInstanceNameParser());
 
-    private Pointer query;
-    private Pointer[] counters = new Pointer[0];
+    // parsed instance per array index, valid until the instance count changes or the query is rebuilt
+    private GpuInstanceNameParser.Instance[] instances = new GpuInstanceNameParser.Instance[0];
+    private boolean namesStale = true;
 
-    private final PDH_FMT_COUNTERVALUE value = new PDH_FMT_COUNTERVALUE();
-    private final IntByReference typeOut = new IntByReference();
+    private volatile GpuUsageBreakdown latestBreakdown;
+
+    private volatile boolean ready = false;
 
     private boolean warmedUp = false;
     private long lastCollectMs = 0;
+    private long openedAtMs = 0;
+
+    // served while a rebuilt query warms up
+    private int lastValue = -1;
 
     public PdhGpuUsageProvider() {
+        this(new NativeSource());
         // Lazy init on first read
     }
 
+    PdhGpuUsageProvider(PdhCounterSource source) {
+        this(source, REEXPAND_MS);
+    }
+
+    PdhGpuUsageProvider(PdhCounterSource source, long reexpandMs) {
+        this.source = source;
+        this.reexpandMs = reexpandMs;
+    }
+
     private void ensureReady() {
         synchronized (lock) {
             if (ready) return;
+            openQuery(System.currentTimeMillis());
+        }
+    }
 
-            Pdh api = pdh();
-            if (api == null) {
-                ready = false;
-                return;
-            }
-
-            PointerByReference qRef = new PointerByReference();
-            int r = api.PdhOpenQueryW(null, null, qRef);
-            if (r != ERROR_SUCCESS) {
-                ready = false;
-                return;
-            }
-
-            query = qRef.getValue();
-            if (query == null) {
-                safeCloseQuery();
-                ready = false;
-                return;
-            }
-
-            String[] paths = expandWildcardPaths(api, COUNTER_WILDCARD);
-
-            // Fallback: try adding the wildcard directly if expansion failed
-            if (paths.length == 0) {
-                PointerByReference cRef = new PointerByReference();
-                r = api.PdhAddEnglishCounterW(query, new WString(COUNTER_WILDCARD), null, cRef);
-                if (r == ERROR_SUCCESS && cRef.getValue() != null) {
-                    counters = new Pointer[]{ cRef.getValue() };
-                } else {
-                    safeCloseQuery();
-                    ready = false;
-                    return;
-                }
-            } else {
-                // Add each expanded counter
-                Pointer[] tmp = new Pointer[paths.length];
-                int added = 0;
-
-                for (int i = 0; i < paths.length; i++) {
-                    PointerByReference cRef = new PointerByReference();
-                    r = api.PdhAddEnglishCounterW(query, new WString(paths[i]), null, cRef);
-                    Pointer cPtr = (r == ERROR_SUCCESS) ? cRef.getValue() : null;
-                    if (cPtr != null) tmp[added++] = cPtr;
-                }
-
-                if (added <= 0) {
-                    safeCloseQuery();
-                    ready = false;
-                    return;
-                }
-
-                counters = new Pointer[added];
-                System.arraycopy(tmp, 0, counters, 0, added);
-            }
+    // caller holds lock
+    private void openQuery(long now) {
+        if (!source.open(COUNTER_WILDCARD)) {
+            source.close();
+            ready = false;
+            return;
+        }
 
-            // First collect = warmup sample
-            api.PdhCollectQueryData(query);
-            lastCollectMs = System.currentTimeMillis();
-            warmedUp = false;
+        // First collect = warmup sample
+        source.collect();
+        lastCollectMs = now;
+        openedAtMs = now;
+        warmedUp = false;
+        namesStale = true;
 
-            ready = true;
-        }
+        ready = true;
     }
 
     @Override
@@ -178,57 +119,86 @@ public final class PdhGpuUsageProvider implements GpuUsageProvider {
         if (!ready) return -1;
 
         synchronized (lock) {
-            if (!ready || query == null || counters.length == 0) return -1;
-
-            Pdh api = pdh();
-            if (api == null) return -1;
+            if (!ready) return -1;
 
             long now = System.currentTimeMillis();
 
+            if (warmedUp && now - openedAtMs >= reexpandMs) {
+                openQuery(now);
+                if (!ready) return -1;
+            }
+
             // Warm-up: rate counters often need two samples separated by a small interval
             if (!warmedUp) {
                 if (now - lastCollectMs < MIN_WARMUP_INTERVAL_MS) {
-                    return -1; // let your GPUStabilizer hold last good value
+                    return lastValue; // -1 on first open: let GPUStabilizer hold last good value
                 }
             }
 
-            int r = api.PdhCollectQueryData(query);
-            if (r != ERROR_SUCCESS) {
-                r = api.PdhCollectQueryData(query);
-                if (r != ERROR_SUCCESS) return -1;
+            if (!source.collect()) {
+                if (!source.collect()) return -1;
             }
 
             lastCollectMs = now;
             warmedUp = true;
 
-            // Read all counters and take MAX (closest to Task Manager "overall" behavior)
-            double max = -1.0;
-
-            for (int i = 0; i < counters.length; i++) {
-                Pointer c = counters[i];
-                if (c == null) continue;
-
-                r = api.PdhGetFormattedCounterValue(c, PDH_FMT_DOUBLE, typeOut, value);
-                if (r != ERROR_SUCCESS) continue;
+            boolean withNames = namesStale;
+            if (!source.readArray(array, withNames)) return -1;
+            if (!withNames && array.count != instances.length) {
+                // instances came or went since the names were read: re-key this sample
+                withNames = true;
+                if (!source.readArray(array, true)) return -1;
+            }
+            if (withNames) {
+                instances = parseInstances(aggregator.parser(), array, instances);
+                namesStale = false;
+            }
 
-                try { value.read(); } catch (Throwable ignored) {}
+            GpuUsageBreakdown b = aggregate(aggregator, array, instances);
+            if (b == null || b.overallPercent() < 0) return -1;
 
-                if (value.CStatus != PDH_CSTATUS_VALID_DATA && value.CStatus != PDH_CSTATUS_NEW_DATA) {
-                    continue;
-                }
+            latestBreakdown = b;
+            lastValue = b.overallPercent();
+            return lastValue;
+        }
+    }
 
-                double d = value.doubleValue;
-                if (Double.isNaN(d) || Double.isInfinite(d)) continue;
-                if (d > max) max = d;
-            }
+    @Override
+    public GpuUsageBreakdown readBreakdown() {
+        return latestBreakdown;
+    }
 
-            if (max < 0) return -1;
+    /**
+     * Parses the names of a counter array read with names, one entry per index.
+     */
+    static GpuInstanceNameParser.Instance[] parseInstances(GpuInstanceNameParser parser,
+                                                           PdhCounterSource.CounterArray a,
+                                                           GpuInstanceNameParser.Instance[] reuse) {
+        GpuInstanceNameParser.Instance[] out = (reuse.length == a.count)
+                ? reuse
+                : new GpuInstanceNameParser.Instance[a.count];
+        for (int i = 0; i < a.count; i++) out[i] = parser.parse(a.names[i]);
+        return out;
+    }
 
-            int out = (int) Math.round(max);
-            if (out < 0) out = 0;
-            if (out > 100) out = 100;
-            return out;
+    /**
+     * One pass over a counter array: valid instances go to the aggregator under the instance
+     * parsed for their index.
+     *
+     * @return the breakdown, or null if no instance has valid data
+     */
+    static GpuUsageBreakdown aggregate(GpuUsageAggregator agg, PdhCounterSource.CounterArray a,
+                                       GpuInstanceNameParser.Instance[] instances) {
+        agg.reset();
+
+        for (int i = 0; i < a.count; i++) {
+            int st = a.status[i];
+            if (st != PDH_CSTATUS_VALID_DATA && st != PDH_CSTATUS_NEW_DATA) continue;
+
+            agg.add(instances[i], a.values[i]);
         }
+
+        return agg.finish();
     }
 
     @Override
@@ -236,23 +206,16 @@ public final class PdhGpuUsageProvider implements GpuUsageProvider {
         synchronized (lock) {
             if (!ready) return;
 
-            safeCloseQuery();
+            source.close();
             ready = false;
             warmedUp = false;
             lastCollectMs = 0;
-
-            query = null;
-            counters = new Pointer[0];
+            lastValue = -1;
+            namesStale = true;
+            latestBreakdown = null;
         }
     }
 
-    private void safeCloseQuery() {
-        try {
-            Pdh api = pdh();
-            if (api != null && query != null) api.PdhCloseQuery(query);
-        } catch (Throwable ignored) {}
-    }
-
     @Override
     public boolean isAvailable() { return isAvailableStatic(); }
 
@@ -265,51 +228,161 @@ public final class PdhGpuUsageProvider implements GpuUsageProvider {
         }
     }
 
-    private static String[] expandWildcardPaths(Pdh api, String wildcardPath) {
-        try {
-            IntByReference chars = new IntByReference(0);
-            int r = api.PdhExpandWildCardPathW(null, new WString(wildcardPath), Pointer.NULL, chars, 0);
+    // =========================================================================
+    // JNA binding
+    // =========================================================================
 
-            if (r != PDH_MORE_DATA || chars.getValue() <= 0) {
-                return new String[0];
-            }
+    private interface Pdh extends Library {
+        int PdhOpenQueryW(WString dataSource, Pointer userData, PointerByReference query);
+        int PdhCloseQuery(Pointer query);
 
-            long bytes = (long) chars.getValue() * Native.WCHAR_SIZE;
-            Memory mem = new Memory(bytes);
+        int PdhAddEnglishCounterW(Pointer query, WString fullCounterPath, Pointer userData, PointerByReference counter);
 
-            r = api.PdhExpandWildCardPathW(null, new WString(wildcardPath), mem, chars, 0);
-            if (r != ERROR_SUCCESS) {
-                return new String[0];
+        int PdhCollectQueryData(Pointer query);
+
+        // Fills an array of PDH_FMT_COUNTERVALUE_ITEM_W for every instance of a wildcard counter
+        int PdhGetFormattedCounterArrayW(Pointer counter, int format, IntByReference bufferSize,
+                                         IntByReference itemCount, Pointer itemBuffer);
+    }
+
+    private static final int PDH_FMT_DOUBLE = 0x00000200;
+
+    private static final int ERROR_SUCCESS = 0;
+    private static final int PDH_MORE_DATA = 0x800007D2;
+
+    // PDH_FMT_COUNTERVALUE_ITEM_W { LPWSTR szName; PDH_FMT_COUNTERVALUE FmtValue; }
+    // FmtValue = { DWORD CStatus; union (8 bytes, 8-aligned) } -> starts 8-aligned on x86 and x64
+    private static final int ITEM_FMT_OFFSET = 8;
+    private static final int ITEM_VALUE_OFFSET = ITEM_FMT_OFFSET + 8;
+    private static final int ITEM_SIZE = ITEM_FMT_OFFSET + 16;
+
+    // ---------- Lazy PDH loading ----------
+    private static volatile Pdh PDH;
+
+    private static Pdh pdh() {
+        Pdh inst = PDH;
+        if (inst != null) return inst;
+        try {
+            // Make sure pdh.dll exists
+            NativeLibrary.getInstance("pdh");
+        } catch (Throwable t) {
+            return null;
+        }
+        synchronized (PdhGpuUsageProvider.class) {
+            if (PDH != null) return PDH;
+            try {
+                PDH = Native.load("pdh", Pdh.class);
+                return PDH;
+            } catch (Throwable t) {
+                return null;
             }
+        }
+    }
+
+    /**
+     * Real PDH query. The item buffer is kept across reads and only grown on
+     * {@code PDH_MORE_DATA}.
+     */
+    private static final class NativeSource implements PdhCounterSource {
+
+        private Pointer query;
+        private Pointer counter;
+
+        private Memory buffer;
+        private final IntByReference bufferSize = new IntByReference();
+        private final IntByReference itemCount = new IntByReference();
 
-            // MULTI-SZ parse (wide strings separated by '\0', ends with "\0\0")
-            int cap = 256;
-            String[] tmp = new String[cap];
-            int count = 0;
+        @Override
+        public boolean open(String wildcardPath) {
+            close();
 
-            long off = 0;
-            while (off < mem.size()) {
-                String s = mem.getWideString(off);
-                if (s == null || s.isEmpty()) break;
+            Pdh api = pdh();
+            if (api == null) return false;
+
+            try {
+                PointerByReference qRef = new PointerByReference();
+                if (api.PdhOpenQueryW(null, null, qRef) != ERROR_SUCCESS || qRef.getValue() == null) {
+                    return false;
+                }
+                query = qRef.getValue();
 
-                if (count == tmp.length) {
-                    String[] grow = new String[tmp.length * 2];
-                    System.arraycopy(tmp, 0, grow, 0, tmp.length);
-                    tmp = grow;
+                PointerByReference cRef = new PointerByReference();
+                int r = api.PdhAddEnglishCounterW(query, new WString(wildcardPath), null, cRef);
+                if (r != ERROR_SUCCESS || cRef.getValue() == null) {
+                    close();
+                    return false;
                 }
+                counter = cRef.getValue();
+                return true;
+            } catch (Throwable t) {
+                close();
+                return false;
+            }
+        }
 
-                tmp[count++] = s;
-                off += (long) (s.length() + 1) * Native.WCHAR_SIZE;
+        @Override
+        public boolean collect() {
+            Pdh api = pdh();
+            if (api == null || query == null) return false;
+            try {
+                return api.PdhCollectQueryData(query) == ERROR_SUCCESS;
+            } catch (Throwable t) {
+                return false;
             }
+        }
 
-            if (count == 0) return new String[0];
+        @Override
+        public boolean readArray(CounterArray out, boolean withNames) {
+            out.count = 0;
 
-            String[] out = new String[count];
-            System.arraycopy(tmp, 0, out, 0, count);
-            return out;
+            Pdh api = pdh();
+            if (api == null || counter == null) return false;
 
-        } catch (Throwable t) {
-            return new String[0];
+            try {
+                int r = PDH_MORE_DATA;
+                // instances can appear between the size query and the read; retry a couple of times
+                for (int attempt = 0; attempt < 3 && r == PDH_MORE_DATA; attempt++) {
+                    bufferSize.setValue(buffer == null ? 0 : (int) buffer.size());
+                    itemCount.setValue(0);
+
+                    r = api.PdhGetFormattedCounterArrayW(counter, PDH_FMT_DOUBLE, bufferSize, itemCount,
+                            buffer == null ? Pointer.NULL : buffer);
+
+                    if (r == PDH_MORE_DATA) {
+                        long need = Math.max(bufferSize.getValue(), (long) itemCount.getValue() * ITEM_SIZE);
+                        // headroom so a few new instances do not force another grow
+                        buffer = new Memory(Math.max(need + need / 4, 4096));
+                    }
+                }
+                if (r != ERROR_SUCCESS) return false;
+
+                int n = itemCount.getValue();
+                out.ensureCapacity(n);
+                for (int i = 0; i < n; i++) {
+                    long base = (long) i * ITEM_SIZE;
+                    out.status[i] = buffer.getInt(base + ITEM_FMT_OFFSET);
+                    out.values[i] = buffer.getDouble(base + ITEM_VALUE_OFFSET);
+                    if (withNames) {
+                        Pointer name = buffer.getPointer(base);
+                        out.names[i] = (name != null) ? name.getWideString(0) : "";
+                    }
+                }
+                out.count = n;
+                return true;
+            } catch (Throwable t) {
+                out.count = 0;
+                return false;
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                Pdh api = pdh();
+                if (api != null && query != null) api.PdhCloseQuery(query);
+            } catch (Throwable ignored) {}
+            query = null;
+            counter = null;
         }
     }
 }
@@ -0,0 +1,124 @@
+package fx.shield.cs.GPU;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * A single numeric sysfs attribute kept open for repeated reads.
+ *
+ * <p>sysfs regenerates an attribute's contents on every read at offset 0, so the channel is
+ * opened once and re-read with a positional read into a reused buffer: no open/close and no
+ * allocation per sample.
+ *
+ * <p>Not thread-safe; owners serialize access.
+ */
+final class SysfsCounterFile implements AutoCloseable {
+
+    // sysfs numeric attributes are short ("42\n", "123456789\n")
+    private static final int BUF_SIZE = 32;
+
+    private static final Pattern CARD_DIR = Pattern.compile("card\\d+");
+
+    private final Path path;
+    private final ByteBuffer buf = ByteBuffer.allocateDirect(BUF_SIZE);
+    private FileChannel ch;
+
+    private SysfsCounterFile(Path path, FileChannel ch) {
+        this.path = path;
+        this.ch = ch;
+    }
+
+    /**
+     * Opens {@code path} if it is a readable file.
+     *
+     * @return the open counter, or null if missing / unreadable
+     */
+    static SysfsCounterFile open(Path path) {
+        if (path == null || !Files.isRegularFile(path)) return null;
+        try {
+            FileChannel ch = FileChannel.open(path, StandardOpenOption.READ);
+            SysfsCounterFile f = new SysfsCounterFile(path, ch);
+            if (f.readLong() < 0) {
+                f.close();
+                return null;
+            }
+            return f;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Lists {@code <root>/class/drm/cardN} directories (connector entries such as
+     * {@code card0-DP-1} are skipped), sorted by name.
+     */
+    static List<Path> drmCards(Path sysfsRoot) {
+        List<Path> out = new ArrayList<>();
+        Path drm = sysfsRoot.resolve("class").resolve("drm");
+        if (!Files.isDirectory(drm)) return out;
+
+        try (var ds = Files.newDirectoryStream(drm)) {
+            for (Path p : ds) {
+                if (CARD_DIR.matcher(p.getFileName().toString()).matches()) out.add(p);
+            }
+        } catch (IOException | RuntimeException ignored) {
+        }
+
+        out.sort(null);
+        return out;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    /**
+     * @return the attribute's value as a non-negative long, or -1 on error
+     */
+    long readLong() {
+        FileChannel c = ch;
+        if (c == null) return -1;
+
+        buf.clear();
+        try {
+            long pos = 0;
+            while (buf.hasRemaining()) {
+                int n = c.read(buf, pos);
+                if (n <= 0) break;
+                pos += n;
+            }
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+        buf.flip();
+
+        long v = 0;
+        int digits = 0;
+        while (buf.hasRemaining()) {
+            byte b = buf.get();
+            if (b >= '0' && b <= '9') {
+                v = v * 10 + (b - '0');
+                digits++;
+            } else if (digits > 0 || (b != ' ' && b != '\t')) {
+                break;
+            }
+        }
+        return (digits > 0) ? v : -1;
+    }
+
+    @Override
+    public void close() {
+        FileChannel c = ch;
+        ch = null;
+        if (c != null) {
+            try { c.close(); } catch (IOException ignored) {}
+        }
+    }
+}
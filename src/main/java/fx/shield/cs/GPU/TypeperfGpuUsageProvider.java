@@ -1,48 +1,119 @@
 package fx.shield.cs.GPU;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import fx.shield.cs.WIN.PipeReader;
+
+import java.io.IOException;
 import java.nio.charset.Charset;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  * GPU usage provider using Windows typeperf command-line tool.
  *
- * <p>This provider executes the Windows {@code typeperf} command to read GPU
+ * <p>This provider runs the Windows {@code typeperf} command to read GPU
  * utilization from performance counters. It is the slowest method but works
  * as a fallback when native libraries are unavailable.
  *
  * <p>Features:
  * <ul>
- *   <li>Process-based monitoring using typeperf.exe</li>
+ *   <li>One long-running {@code typeperf -si 1} session per provider</li>
  *   <li>Works with all GPU vendors on Windows</li>
  *   <li>No native library dependencies</li>
- *   <li>Parses CSV output to aggregate GPU engine utilization</li>
- *   <li>Requires 2 samples for rate-based counters</li>
+ *   <li>CSV output parsed incrementally as it arrives on its {@link PipeReader} thread</li>
+ *   <li>Value-column indices and parsed instance names cached per header; recomputed only
+ *       when the header changes</li>
+ *   <li>Per-engine-type / per-process breakdown ({@link #readBreakdown()}); overall = busiest engine</li>
+ *   <li>{@link #subscribe} pushes each parsed sample as it arrives (about 1 Hz)</li>
  * </ul>
  *
- * <p>Performance considerations:
+ * <p>Session lifecycle:
  * <ul>
- *   <li>Spawns a new process for each read (slow)</li>
- *   <li>5-second timeout per read</li>
- *   <li>Best used as a last-resort fallback</li>
+ *   <li>Started lazily on the first read; reads return the latest parsed value instantly</li>
+ *   <li>Restarted (with backoff) if the process exits</li>
+ *   <li>Recycled every {@link #RECYCLE_MS} so new per-process engine instances are picked up;
+ *       the old session keeps publishing until the new one delivers its first value</li>
  * </ul>
  *
- * <p>Counter path: {@code \\GPU Engine(*)\\Utilization Percentage}
+ * <p>Counter path: {@code \GPU Engine(*)\Utilization Percentage} (local machine; a leading
+ * {@code \\} would name a remote one)
  *
  * @see GpuUsageProvider
  * @since 1.0
  */
 public final class TypeperfGpuUsageProvider implements GpuUsageProvider {
 
-    private static final String COUNTER = "\\\\GPU Engine(*)\\\\Utilization Percentage";
+    private static final String COUNTER = "\\GPU Engine(*)\\Utilization Percentage";
+
+    // sample interval (seconds) of the streaming session
+    private static final int INTERVAL_SEC = 1;
+
+    // a value older than this is treated as "no data"
+    private static final long STALE_MS = 4000;
+
+    // wait before restarting a session that exited
+    private static final long RESTART_BACKOFF_MS = 2000;
+
+    // typeperf expands the wildcard once at start; restart to see new engine instances
+    private static final long RECYCLE_MS = 60_000;
+
+    /**
+     * Starts the process that streams typeperf-style CSV. Replaced in tests by a process
+     * replaying recorded output.
+     */
+    @FunctionalInterface
+    interface Launcher {
+        Process start() throws IOException;
+    }
+
+    private final Launcher launcher;
+    private final boolean requireWindows;
+    private final long recycleMs;
+    private final long restartBackoffMs;
+
+    private final Object lock = new Object();
+    private Session current;
+    private Session retiring;
+    private long nextStartMs = 0;
+    private boolean closed = false;
+
+    // latest published reading (written by the session's pipe reader thread)
+    private volatile int latest = -1;
+    private volatile long latestAtMs = 0;
+    private volatile GpuUsageBreakdown latestBreakdown;
+
+    // push subscribers; sessions are kept alive (restart / recycle) while any exist
+    private final CopyOnWriteArrayList<Consumer<GpuReading>> sinks = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService keepAlive; // guarded by lock
+    private ScheduledFuture<?> keepAliveTask;   // guarded by lock
+
+    public TypeperfGpuUsageProvider() {
+        this(TypeperfGpuUsageProvider::startTypeperf, true);
+    }
 
-    // typeperf rate-based counters need at least 2 samples
-    private static final int SAMPLES = 2;
+    TypeperfGpuUsageProvider(Launcher launcher, boolean requireWindows) {
+        this(launcher, requireWindows, RECYCLE_MS, RESTART_BACKOFF_MS);
+    }
+
+    TypeperfGpuUsageProvider(Launcher launcher, boolean requireWindows, long recycleMs, long restartBackoffMs) {
+        this.launcher = launcher;
+        this.requireWindows = requireWindows;
+        this.recycleMs = recycleMs;
+        this.restartBackoffMs = restartBackoffMs;
+    }
 
-    // typeperf default interval is 1s; leave enough headroom (wildcards may output many columns)
-    private static final long TIMEOUT_SECONDS = 5;
+    private static Process startTypeperf() throws IOException {
+        ProcessBuilder pb = new ProcessBuilder(
+                "typeperf",
+                COUNTER,
+                "-si", String.valueOf(INTERVAL_SEC)
+        );
+        pb.redirectErrorStream(true);
+        return pb.start();
+    }
 
     private static boolean isWindows() {
         String os = System.getProperty("os.name");
@@ -51,82 +122,162 @@ public final class TypeperfGpuUsageProvider implements GpuUsageProvider {
 
     @Override
     public int readGpuUsagePercent() {
-        if (!isWindows()) return -1;
-
-        Process p = null;
-        Thread drain = null;
+        if (requireWindows && !isWindows()) return -1;
 
-        try {
-            ProcessBuilder pb = new ProcessBuilder(
-                    "typeperf",
-                    COUNTER,
-                    "-sc", String.valueOf(SAMPLES)
-            );
-            pb.redirectErrorStream(true);
+        ensureSession();
 
-            p = pb.start();
-
-            AtomicReference<String> lastDataLine = new AtomicReference<>(null);
-
-            Process finalP = p;
-            drain = new Thread(() -> {
-                try (BufferedReader br = new BufferedReader(
-                        new InputStreamReader(finalP.getInputStream(), Charset.defaultCharset())
-                )) {
-                    String line;
-                    while ((line = br.readLine()) != null) {
-                        String trimmed = line.trim();
-                        if (!looksLikeCsv(trimmed)) continue;
+        int v = latest;
+        if (v < 0) return -1;
+        if (System.currentTimeMillis() - latestAtMs > STALE_MS) return -1;
+        return v;
+    }
 
-                        String first = firstQuotedToken(trimmed);
-                        if (first == null) continue;
+    private void ensureSession() {
+        synchronized (lock) {
+            if (closed) return;
 
-                        // Skip typeperf header lines
-                        if ("Time".equalsIgnoreCase(first)) continue;
-                        if (first.startsWith("(PDH-CSV")) continue;
+            long now = System.currentTimeMillis();
+            Session s = current;
 
-                        // Data line (timestamp + values)
-                        lastDataLine.set(trimmed);
+            if (s != null && s.alive) {
+                // recycle: start the replacement, keep the old one until the new one reports
+                if (retiring == null && now - s.startedMs >= recycleMs) {
+                    Session next = startSession(now);
+                    if (next != null) {
+                        retiring = s;
+                        current = next;
                     }
-                } catch (Throwable ignored) {
                 }
-            }, "fxShield-typeperf-drain");
+                return;
+            }
 
-            drain.setDaemon(true);
-            drain.start();
+            if (now < nextStartMs) return;
+            current = startSession(now);
+            if (current == null) nextStartMs = now + restartBackoffMs;
+        }
+    }
 
-            boolean finished = p.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS);
-            if (!finished) {
-                p.destroyForcibly();
-                return -1;
+    private Session startSession(long now) {
+        try {
+            Process p = launcher.start();
+            Session s = new Session(p, now);
+            s.start();
+            return s;
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    /**
+     * Called by a session's reader when it publishes its first value: the session it
+     * replaced is no longer needed.
+     */
+    private void onFirstValue(Session s) {
+        Session old = null;
+        synchronized (lock) {
+            if (current == s && retiring != null) {
+                old = retiring;
+                retiring = null;
+            }
+        }
+        if (old != null) old.destroy();
+    }
+
+    private void onExit(Session s) {
+        synchronized (lock) {
+            if (retiring == s) {
+                retiring = null;
+            } else if (current == s) {
+                // if a retiring session is still alive, fall back to it for now
+                if (retiring != null && retiring.alive) {
+                    current = retiring;
+                    current.startedMs = System.currentTimeMillis();
+                    retiring = null;
+                } else {
+                    current = null;
+                    nextStartMs = System.currentTimeMillis() + restartBackoffMs;
+                }
             }
+        }
+    }
 
-            // ensure drain finishes quickly
-            try { drain.join(300); } catch (InterruptedException ignored) { Thread.currentThread().interrupt(); }
+    private void publish(Session s, int value, GpuUsageBreakdown breakdown) {
+        synchronized (lock) {
+            // a retiring session only publishes until its replacement has data
+            if (s != current && s != retiring) return;
+            latest = value;
+            latestAtMs = System.currentTimeMillis();
+            latestBreakdown = breakdown;
+        }
 
-            if (p.exitValue() != 0) return -1;
+        if (!sinks.isEmpty()) {
+            GpuReading r = new GpuReading(value, latestAtMs, breakdown);
+            for (Consumer<GpuReading> sink : sinks) {
+                try { sink.accept(r); } catch (Throwable ignored) {}
+            }
+        }
+        if (!s.published) {
+            s.published = true;
+            onFirstValue(s);
+        }
+    }
 
-            String line = lastDataLine.get();
-            if (line == null) return -1;
+    /**
+     * Pushes every parsed sample at typeperf's own rate; {@code periodMs} is ignored.
+     * Session restarts and recycling continue while subscribed, without reads.
+     */
+    @Override
+    public GpuUsageSubscription subscribe(long periodMs, Consumer<GpuReading> sink) {
+        if (requireWindows && !isWindows()) return GpuAsync.poll(this, periodMs, sink);
+
+        sinks.add(sink);
+        synchronized (lock) {
+            if (!closed && keepAliveTask == null) {
+                if (keepAlive == null) {
+                    keepAlive = Executors.newSingleThreadScheduledExecutor(r -> {
+                        Thread t = new Thread(r, "fxShield-typeperf-keepalive");
+                        t.setDaemon(true);
+                        return t;
+                    });
+                }
+                keepAliveTask = keepAlive.scheduleWithFixedDelay(
+                        this::ensureSession, 0, INTERVAL_SEC * 1000L, TimeUnit.MILLISECONDS);
+            }
+        }
 
-            double max = parseMaxValueFromQuotedCsvLine(line);
-            if (!(max >= 0.0)) return -1;
+        return new GpuUsageSubscription() {
+            private volatile boolean active = true;
 
-            int v = (int) Math.round(max);
-            if (v < 0) v = 0;
-            if (v > 100) v = 100;
-            return v;
+            @Override
+            public boolean isActive() {
+                return active;
+            }
 
-        } catch (Throwable t) {
-            if (p != null) {
-                try { p.destroyForcibly(); } catch (Throwable ignored) {}
+            @Override
+            public void close() {
+                if (!active) return;
+                active = false;
+                sinks.remove(sink);
+                synchronized (lock) {
+                    if (sinks.isEmpty() && keepAliveTask != null) {
+                        keepAliveTask.cancel(false);
+                        keepAliveTask = null;
+                    }
+                }
             }
-            return -1;
-        }
+        };
+    }
+
+    @Override
+    public GpuUsageBreakdown readBreakdown() {
+        GpuUsageBreakdown b = latestBreakdown;
+        if (b == null || System.currentTimeMillis() - latestAtMs > STALE_MS) return null;
+        return b;
     }
 
     @Override
     public boolean isAvailable() {
+        if (!requireWindows) return true;
         if (!isWindows()) return false;
 
         // Fast + safe: don't use "-qx" (it prints huge output and can hang if not drained)
@@ -144,7 +295,122 @@ public final class TypeperfGpuUsageProvider implements GpuUsageProvider {
         }
     }
 
-    // ---------- parsing helpers ----------
+    @Override
+    public void close() {
+        Session a;
+        Session b;
+        synchronized (lock) {
+            if (closed) return;
+            closed = true;
+            a = current;
+            b = retiring;
+            current = null;
+            retiring = null;
+
+            if (keepAlive != null) keepAlive.shutdownNow();
+            keepAlive = null;
+            keepAliveTask = null;
+        }
+        sinks.clear();
+        if (a != null) a.destroy();
+        if (b != null) b.destroy();
+        latest = -1;
+        latestBreakdown = null;
+    }
+
+    // =========================================================================
+    // Session: one typeperf process + its reader
+    // =========================================================================
+
+    private final class Session {
+        final Process process;
+        volatile long startedMs;
+        volatile boolean alive = true;
+        boolean published = false; // its pipe reader thread only
+
+        private final CsvState csv = new CsvState();
+
+        Session(Process process, long startedMs) {
+            this.process = process;
+            this.startedMs = startedMs;
+        }
+
+        void start() {
+            PipeReader.shared().register(process.getInputStream(), process, Charset.defaultCharset(),
+                    this::onLine, () -> {
+                        alive = false;
+                        onExit(this);
+                    });
+        }
+
+        private void onLine(String line) {
+            int v = csv.accept(line);
+            if (v >= 0) publish(this, v, csv.lastBreakdown());
+        }
+
+        void destroy() {
+            alive = false;
+            try {
+                process.descendants().forEach(ProcessHandle::destroyForcibly);
+                process.destroyForcibly();
+            } catch (Throwable ignored) {}
+        }
+    }
+
+    // =========================================================================
+    // Incremental CSV parsing
+    // =========================================================================
+
+    /**
+     * Per-session parser state. Feed lines in order; header lines update the cached
+     * value columns and their parsed instance names, data lines are aggregated in one pass.
+     */
+    static final class CsvState {
+        private final GpuUsageAggregator aggregator = new GpuUsageAggregator(new GpuInstanceNameParser());
+
+        private String header;
+        private int[] valueCols = new int[0];
+        private GpuInstanceNameParser.Instance[] colInstances = new GpuInstanceNameParser.Instance[0];
+        private GpuUsageBreakdown lastBreakdown;
+
+        /**
+         * @return 0..100 for a data line with at least one numeric value, else -1
+         */
+        int accept(String rawLine) {
+            if (rawLine == null) return -1;
+            String line = rawLine.trim();
+            if (!looksLikeCsv(line)) return -1;
+
+            String first = firstQuotedToken(line);
+            if (first == null) return -1;
+
+            // header: "(PDH-CSV 4.0)","\\HOST\GPU Engine(...)\Utilization Percentage",...
+            if (first.startsWith("(PDH-CSV") || "Time".equalsIgnoreCase(first)) {
+                if (!line.equals(header)) {
+                    header = line;
+                    valueCols = computeValueColumns(line);
+                    colInstances = parseColumnInstances(line, valueCols, aggregator.parser());
+                }
+                return -1;
+            }
+
+            if (header == null) return -1;
+
+            GpuUsageBreakdown b = aggregateColumns(line, valueCols, colInstances, aggregator);
+            if (b == null || b.overallPercent() < 0) return -1;
+
+            lastBreakdown = b;
+            return b.overallPercent();
+        }
+
+        GpuUsageBreakdown lastBreakdown() {
+            return lastBreakdown;
+        }
+
+        int[] valueColumns() {
+            return valueCols;
+        }
+    }
 
     private static boolean looksLikeCsv(String line) {
         return line != null && line.indexOf('"') >= 0 && line.indexOf(',') >= 0;
@@ -160,54 +426,97 @@ public final class TypeperfGpuUsageProvider implements GpuUsageProvider {
     }
 
     /**
-     * Parses a typeperf CSV line:
-     * "timestamp","v1","v2",...
-     * Returns MAX(v1..vn), ignoring non-numeric values like "N/A".
+     * Indices of the value columns in a header line (column 0 is the timestamp). Only one
+     * counter path is requested, so every other column is an engine instance; names are
+     * not matched because typeperf prints them localized.
      */
-    private static double parseMaxValueFromQuotedCsvLine(String line) {
-        if (line == null) return -1;
-
-        int n = line.length();
+    static int[] computeValueColumns(String headerLine) {
+        int cols = 0;
         int i = 0;
+        while (true) {
+            int open = headerLine.indexOf('"', i);
+            if (open < 0) break;
+            int close = headerLine.indexOf('"', open + 1);
+            if (close < 0) break;
+            cols++;
+            i = close + 1;
+        }
 
-        int tokenIndex = 0;   // 0 = timestamp, 1.. = values
-        double max = -1.0;
-
-        while (i < n) {
-            char c = line.charAt(i);
-            if (c != '"') { i++; continue; }
-
-            // read quoted token
-            int j = i + 1;
-            StringBuilder sb = new StringBuilder(32);
-            while (j < n) {
-                char cj = line.charAt(j);
-                if (cj == '"') { j++; break; }
-                sb.append(cj);
-                j++;
-            }
+        int[] out = new int[Math.max(0, cols - 1)];
+        for (int k = 0; k < out.length; k++) out[k] = k + 1;
+        return out;
+    }
+
+    /**
+     * Parses the instance name of each value column once per header.
+     */
+    static GpuInstanceNameParser.Instance[] parseColumnInstances(String headerLine, int[] cols,
+                                                                 GpuInstanceNameParser parser) {
+        GpuInstanceNameParser.Instance[] out = new GpuInstanceNameParser.Instance[cols.length];
 
-            String token = sb.toString();
-            if (tokenIndex >= 1) {
-                double d = parseDoubleSafe(token);
-                if (d >= 0.0 && d > max) max = d;
+        int i = 0;
+        int col = 0;
+        int k = 0;
+        while (k < cols.length) {
+            int open = headerLine.indexOf('"', i);
+            if (open < 0) break;
+            int close = headerLine.indexOf('"', open + 1);
+            if (close < 0) break;
+
+            if (col == cols[k]) {
+                out[k] = parser.parse(headerLine.substring(open + 1, close));
+                k++;
             }
 
-            tokenIndex++;
+            col++;
+            i = close + 1;
+        }
+        return out;
+    }
+
+    /**
+     * Aggregates a typeperf CSV data line ("timestamp","v1","v2",...) over the given columns,
+     * ignoring non-numeric values like "N/A" or " ".
+     *
+     * @return the breakdown, or null if no column had a numeric value
+     */
+    static GpuUsageBreakdown aggregateColumns(String line, int[] cols,
+                                              GpuInstanceNameParser.Instance[] instances,
+                                              GpuUsageAggregator agg) {
+        if (line == null || cols.length == 0) return null;
+
+        agg.reset();
 
-            // move to next token (skip until comma then one char)
-            while (j < n && line.charAt(j) != ',') j++;
-            if (j < n && line.charAt(j) == ',') j++;
-            i = j;
+        int n = line.length();
+        int i = 0;
+        int col = 0;
+        int k = 0; // next wanted column in cols (ascending)
+
+        while (i < n && k < cols.length) {
+            int open = line.indexOf('"', i);
+            if (open < 0) break;
+            int close = line.indexOf('"', open + 1);
+            if (close < 0) break;
+
+            if (col == cols[k]) {
+                double d = parseDoubleSafe(line, open + 1, close);
+                if (d >= 0.0) agg.add(instances[k], d);
+                k++;
+            }
+
+            col++;
+            i = close + 1;
         }
 
-        return max;
+        return agg.finish();
     }
 
-    private static double parseDoubleSafe(String s) {
-        if (s == null) return -1;
-        String t = s.trim();
-        if (t.isEmpty()) return -1;
+    private static double parseDoubleSafe(String s, int from, int to) {
+        while (from < to && s.charAt(from) == ' ') from++;
+        while (to > from && s.charAt(to - 1) == ' ') to--;
+        if (from >= to) return -1;
+
+        String t = s.substring(from, to);
 
         // common non-numeric
         if ("N/A".equalsIgnoreCase(t)) return -1;
@@ -217,9 +526,6 @@ public final class TypeperfGpuUsageProvider implements GpuUsageProvider {
             t = t.replace(',', '.');
         }
 
-        // strip spaces
-        t = t.replace(" ", "");
-
         try {
             double d = Double.parseDouble(t);
             if (Double.isNaN(d) || Double.isInfinite(d)) return -1;
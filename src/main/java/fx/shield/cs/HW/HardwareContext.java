@@ -0,0 +1,196 @@
+package fx.shield.cs.HW;
+
+import oshi.SystemInfo;
+import oshi.hardware.CentralProcessor;
+import oshi.hardware.ComputerSystem;
+import oshi.hardware.GlobalMemory;
+import oshi.hardware.GraphicsCard;
+import oshi.hardware.HardwareAbstractionLayer;
+import oshi.hardware.NetworkIF;
+import oshi.hardware.PhysicalMemory;
+import oshi.software.os.OperatingSystem;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide OSHI hardware context.
+ *
+ * <p>Owns the single {@link SystemInfo} / {@link HardwareAbstractionLayer} pair used by the
+ * monitor, the dialogs and any future data source, so platform detection and hardware
+ * enumeration run once per process instead of once per consumer.
+ *
+ * <p>Static inventory (CPU identifier, caches, memory modules, GPUs, NICs) is memoized
+ * lazily on first access. Live values (load ticks, available memory, NIC counters) are
+ * still read through the shared objects and stay current.
+ *
+ * <p>Thread-safe: lazy holders use double-checked locking.
+ *
+ * @since 1.0
+ */
+public final class HardwareContext {
+
+    private static volatile HardwareContext INSTANCE;
+
+    private final SystemInfo si;
+    private final HardwareAbstractionLayer hal;
+    private final OperatingSystem os;
+    private final boolean isWindows;
+
+    // ---- memoized static inventory ----
+    private final Lazy<CentralProcessor.ProcessorIdentifier> cpuId;
+    private final Lazy<List<CentralProcessor.ProcessorCache>> cpuCaches;
+    private final Lazy<List<PhysicalMemory>> memoryModules;
+    private final Lazy<List<GraphicsCard>> gpus;
+    private final Lazy<List<NetworkIF>> nics;
+    private final Lazy<String> machineId;
+
+    private HardwareContext() {
+        si = new SystemInfo();
+        hal = si.getHardware();
+        os = si.getOperatingSystem();
+
+        String fam = Optional.ofNullable(os.getFamily()).orElse("").toLowerCase();
+        isWindows = fam.contains("windows");
+
+        cpuId = new Lazy<>(() -> hal.getProcessor().getProcessorIdentifier());
+        cpuCaches = new Lazy<>(() -> safeList(hal.getProcessor().getProcessorCaches()));
+        memoryModules = new Lazy<>(() -> safeList(hal.getMemory().getPhysicalMemory()));
+        gpus = new Lazy<>(() -> safeList(hal.getGraphicsCards()));
+        nics = new Lazy<>(() -> safeList(hal.getNetworkIFs()));
+        machineId = new Lazy<>(this::readMachineId);
+    }
+
+    /**
+     * Returns the shared context, creating it on first use.
+     */
+    public static HardwareContext get() {
+        HardwareContext c = INSTANCE;
+        if (c != null) return c;
+        synchronized (HardwareContext.class) {
+            if (INSTANCE == null) INSTANCE = new HardwareContext();
+            return INSTANCE;
+        }
+    }
+
+    // =========================================================================
+    // Shared OSHI handles
+    // =========================================================================
+
+    public SystemInfo systemInfo() { return si; }
+
+    public HardwareAbstractionLayer hal() { return hal; }
+
+    public OperatingSystem os() { return os; }
+
+    public CentralProcessor processor() { return hal.getProcessor(); }
+
+    public GlobalMemory memory() { return hal.getMemory(); }
+
+    public boolean isWindows() { return isWindows; }
+
+    // =========================================================================
+    // Static inventory (memoized)
+    // =========================================================================
+
+    public CentralProcessor.ProcessorIdentifier processorIdentifier() {
+        return cpuId.get();
+    }
+
+    public List<CentralProcessor.ProcessorCache> processorCaches() {
+        return cpuCaches.get();
+    }
+
+    public List<PhysicalMemory> physicalMemory() {
+        return memoryModules.get();
+    }
+
+    public List<GraphicsCard> graphicsCards() {
+        return gpus.get();
+    }
+
+    /**
+     * NIC list is enumerated once; callers refresh counters/addresses via
+     * {@link NetworkIF#updateAttributes()} on the shared instances.
+     */
+    public List<NetworkIF> networkIFs() {
+        return nics.get();
+    }
+
+    // =========================================================================
+    // Identity (cache keys)
+    // =========================================================================
+
+    /**
+     * Stable identity of this machine: hardware UUID, falling back to board/system
+     * serial, then host name. Never null.
+     */
+    public String machineId() {
+        return machineId.get();
+    }
+
+    /**
+     * OS boot time in epoch seconds (changes on every reboot), or 0 if unknown.
+     */
+    public long bootTime() {
+        try {
+            return Math.max(0L, os.getSystemBootTime());
+        } catch (Throwable t) {
+            return 0L;
+        }
+    }
+
+    private String readMachineId() {
+        try {
+            ComputerSystem cs = hal.getComputerSystem();
+            String id = usable(cs.getHardwareUUID());
+            if (id == null) id = usable(cs.getSerialNumber());
+            if (id == null) id = usable(cs.getBaseboard().getSerialNumber());
+            if (id != null) return id;
+        } catch (Throwable ignored) {
+        }
+        try {
+            return os.getNetworkParams().getHostName();
+        } catch (Throwable t) {
+            return "unknown";
+        }
+    }
+
+    private static String usable(String s) {
+        if (s == null) return null;
+        String t = s.trim();
+        if (t.isEmpty() || "unknown".equalsIgnoreCase(t)) return null;
+        return t;
+    }
+
+    // =========================================================================
+    // Helpers
+    // =========================================================================
+
+    private static <T> List<T> safeList(List<T> x) {
+        return (x == null) ? Collections.emptyList() : Collections.unmodifiableList(x);
+    }
+
+    /**
+     * Minimal memoizing holder. A failed load is not cached, so the next call retries.
+     */
+    private static final class Lazy<T> {
+        private final Supplier<T> loader;
+        private volatile T value;
+
+        Lazy(Supplier<T> loader) {
+            this.loader = loader;
+        }
+
+        T get() {
+            T v = value;
+            if (v != null) return v;
+            synchronized (this) {
+                if (value == null) value = loader.get();
+                return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package fx.shield.cs.HW;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Properties;
+
+/**
+ * Small on-disk store for hardware inventory snapshots.
+ *
+ * <p>Each snapshot is a {@link Properties} file under the app config directory, stamped
+ * with a caller-supplied key (e.g. machine identity + boot time). {@link #load} returns
+ * {@code null} when the file is missing, unreadable, or stamped with a different key, so
+ * callers simply recollect and {@link #save} again.
+ *
+ * <p>Writes are atomic (temp file + move), same as {@code FxSettings.save}.
+ */
+public final class InventoryStore {
+
+    private static final String DIR_NAME = "FxShield";
+    private static final String KEY_PROP = "_key";
+
+    private InventoryStore() {}
+
+    private static Path storeDir() {
+        String appData = System.getenv("APPDATA");
+        if (appData == null || appData.isBlank()) {
+            appData = System.getProperty("user.home", ".");
+        }
+        return Paths.get(appData, DIR_NAME);
+    }
+
+    /**
+     * Loads a snapshot.
+     *
+     * @return the stored properties (without the key stamp), or null if missing / stale
+     */
+    public static synchronized Properties load(String fileName, String key) {
+        Path file = storeDir().resolve(fileName);
+        if (!Files.exists(file)) return null;
+
+        Properties p = new Properties();
+        try (InputStream in = Files.newInputStream(file);
+             Reader r = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            p.load(r);
+        } catch (Exception e) {
+            return null;
+        }
+
+        String stored = p.getProperty(KEY_PROP);
+        if (stored == null || !stored.equals(key)) return null;
+
+        p.remove(KEY_PROP);
+        return p;
+    }
+
+    /**
+     * Saves a snapshot atomically, stamped with {@code key}.
+     */
+    public static synchronized void save(String fileName, String key, Properties data) {
+        if (data == null) return;
+
+        Properties p = new Properties();
+        p.putAll(data);
+        p.setProperty(KEY_PROP, key == null ? "" : key);
+
+        Path dir = storeDir();
+        Path file = dir.resolve(fileName);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try {
+            Files.createDirectories(dir);
+
+            try (OutputStream out = Files.newOutputStream(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+                 Writer w = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+                p.store(w, null);
+            }
+
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+        } catch (IOException ignored) {
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    /**
+     * Deletes a snapshot.
+     */
+    public static synchronized void delete(String fileName) {
+        try {
+            Files.deleteIfExists(storeDir().resolve(fileName));
+        } catch (IOException ignored) {
+        }
+    }
+}
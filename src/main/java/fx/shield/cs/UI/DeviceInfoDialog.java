@@ -7,7 +7,6 @@ import javafx.beans.property.SimpleBooleanProperty;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.geometry.Rectangle2D;
-import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
@@ -21,17 +20,28 @@ import javafx.stage.Stage;
 import javafx.stage.StageStyle;
 import javafx.util.Duration;
 
-import oshi.SystemInfo;
+import fx.shield.cs.HW.HardwareContext;
+import fx.shield.cs.HW.InventoryStore;
 import oshi.hardware.*;
 import oshi.software.os.OperatingSystem;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Properties;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public final class DeviceInfoDialog {
 
+    private static final Logger logger = LoggerFactory.getLogger(DeviceInfoDialog.class);
+
     private DeviceInfoDialog() {}
 
     // ===== iOS-glass / smooth =====
@@ -115,17 +125,20 @@ public final class DeviceInfoDialog {
     private static final DecimalFormat PCT_1D  = new DecimalFormat("0.0");
     private static final DecimalFormat DPI_0D  = new DecimalFormat("0");
 
-    // Background executor (daemon) بدل ForkJoinPool
+    // Background pool (daemon) بدل ForkJoinPool — one task per section, so slow sections don't block fast ones
+    private static final int INFO_THREADS = 4;
+    private static final AtomicInteger INFO_THREAD_SEQ = new AtomicInteger();
     private static final ExecutorService INFO_EXEC =
-            Executors.newSingleThreadExecutor(r -> {
-                Thread t = new Thread(r, "fxShield-device-info");
+            Executors.newFixedThreadPool(INFO_THREADS, r -> {
+                Thread t = new Thread(r, "fxShield-device-info-" + INFO_THREAD_SEQ.incrementAndGet());
                 t.setDaemon(true);
                 return t;
             });
 
-    // Simple cache TTL
-    private static volatile Info cached;
-    private static volatile long cachedAtMs;
+    private static final long CACHE_TTL_MS = 20_000;
+
+    // Simple cache TTL (also shares an in-flight collection between dialogs)
+    private static volatile InfoCollection cached;
 
     public static void show(Stage owner) {
         Stage dialog = new Stage();
@@ -192,17 +205,6 @@ public final class DeviceInfoDialog {
         content.setPadding(new Insets(16, 0, 0, 0));
         content.setFillWidth(true);
 
-        VBox loading = new VBox(10);
-        loading.setAlignment(Pos.CENTER);
-        ProgressIndicator pi = new ProgressIndicator();
-        pi.setPrefSize(44, 44);
-
-        Label loadingLbl = new Label("Collecting system information...");
-        loadingLbl.setTextFill(Color.web("#a7b0bf"));
-        loadingLbl.setFont(Font.font("Segoe UI", FontWeight.NORMAL, 12));
-        loading.getChildren().addAll(pi, loadingLbl);
-        content.getChildren().add(loading);
-
         ScrollPane sp = new ScrollPane(content);
         sp.setFitToWidth(true);
         sp.setHbarPolicy(ScrollPane.ScrollBarPolicy.NEVER);
@@ -236,40 +238,33 @@ public final class DeviceInfoDialog {
         popIn.setInterpolator(Interpolator.EASE_OUT);
         popIn.play();
 
-        CompletableFuture
-                .supplyAsync(DeviceInfoDialog::getInfoCached, INFO_EXEC)
-                .whenComplete((info, err) -> Platform.runLater(() -> {
-                    content.getChildren().clear();
-
-                    if (err != null || info == null) {
-                        content.getChildren().add(collapsibleSimple("Error",
-                                new VBox(10, row("Details", "Failed to read system info")),
-                                new VBox(10, miniCardText("No additional info"))
-                        ));
-                        animateSections(content);
-                        return;
-                    }
-
-                    // نفس ترتيبك + Display
-                    content.getChildren().add(osCollapsible(info));
-                    content.getChildren().add(displayCollapsible(info.displays));
-                    content.getChildren().add(cpuCollapsible(info));
-                    content.getChildren().add(ramCollapsible(info));
-                    content.getChildren().add(gpuCollapsible(info.gpus));
-                    content.getChildren().add(networkCollapsible(info.nics));
-                    content.getChildren().add(batteryCollapsible(info.batteries));
-
-                    animateSections(content);
-                }));
+        // One placeholder per section (fixed order); each is swapped in as soon as its data arrives
+        InfoCollection run = getInfoCollectionCached();
+        for (Section section : Section.values()) {
+            VBox placeholder = pendingSection(section.title);
+            content.getChildren().add(placeholder);
+
+            run.future(section).whenComplete((info, err) -> Platform.runLater(() -> {
+                int idx = content.getChildren().indexOf(placeholder);
+                if (idx < 0) return;
+
+                VBox box = (err != null || info == null)
+                        ? failedSection(section.title)
+                        : section.render(info);
+                content.getChildren().set(idx, box);
+                animateSection(box);
+            }));
+        }
     }
 
-    private static Info getInfoCached() {
+    private static InfoCollection getInfoCollectionCached() {
         long now = System.currentTimeMillis();
-        Info c = cached;
-        if (c != null && (now - cachedAtMs) < 20_000) return c;
-        Info fresh = collectInfo();
+        InfoCollection c = cached;
+        if (c != null && (now - c.startedAtMs) < CACHE_TTL_MS) return c;
+
+        InfoCollection fresh = new InfoCollection(now);
+        fresh.start();
         cached = fresh;
-        cachedAtMs = now;
         return fresh;
     }
 
@@ -561,193 +556,200 @@ public final class DeviceInfoDialog {
 
     /* =================== Data collection =================== */
 
-    private static Info collectInfo() {
+    private static void collectOs(Info info) {
+        OperatingSystem os = HardwareContext.get().os();
+
+        info.osString = os.toString();
+        info.arch = System.getProperty("os.arch");
+        info.osVersion = System.getProperty("os.version");
+        info.kernel = safe(System.getProperty("os.name")) + " / " + safe(System.getProperty("os.version"));
+
+        info.username = System.getProperty("user.name");
+
         try {
-            SystemInfo si = new SystemInfo();
-            HardwareAbstractionLayer hal = si.getHardware();
-            OperatingSystem os = si.getOperatingSystem();
+            long bootMs = os.getSystemBootTime() * 1000L;
+            info.bootTime = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm").format(new java.util.Date(bootMs));
+        } catch (Throwable t) {
+            info.bootTime = "N/A";
+        }
+    }
 
-            CentralProcessor cpu = hal.getProcessor();
-            GlobalMemory mem = hal.getMemory();
-            List<GraphicsCard> cards = hal.getGraphicsCards();
+    private static void refreshOs(Info info) {
+        // can change without a reboot (rename, DHCP/VPN DNS suffix, region settings), so never persisted
+        try { info.hostname = java.net.InetAddress.getLocalHost().getHostName(); }
+        catch (Throwable t) { info.hostname = "N/A"; }
 
-            Info info = new Info();
+        try { info.timezone = java.util.TimeZone.getDefault().getID(); }
+        catch (Throwable t) { info.timezone = "N/A"; }
 
-            // RAM Type / Speed
-            try {
-                List<PhysicalMemory> pm = mem.getPhysicalMemory();
-                if (pm != null && !pm.isEmpty()) {
-                    PhysicalMemory first = pm.get(0);
-                    info.ramType = safe(first.getMemoryType());
-                    long hz = first.getClockSpeed();
-                    info.ramSpeed = (hz > 0) ? ((hz / 1_000_000) + " MHz") : "N/A";
-                } else {
-                    info.ramType = "N/A";
-                    info.ramSpeed = "N/A";
-                }
-            } catch (Throwable t) {
-                info.ramType = "N/A";
-                info.ramSpeed = "N/A";
+        try { info.locale = java.util.Locale.getDefault().toString(); }
+        catch (Throwable t) { info.locale = "N/A"; }
+
+        try { info.uptime = formatUptime(HardwareContext.get().os().getSystemUptime()); }
+        catch (Throwable t) { info.uptime = "N/A"; }
+    }
+
+    private static void collectDisplays(Info info) {
+        // Displays (JavaFX Screen)
+        try {
+            List<Screen> screens = Screen.getScreens();
+            for (int i = 0; i < screens.size(); i++) {
+                Screen s = screens.get(i);
+                Rectangle2D b = s.getBounds();
+                DisplaySpec ds = new DisplaySpec();
+                ds.name = "Display " + (i + 1);
+                ds.resolution = ((int) b.getWidth()) + " × " + ((int) b.getHeight());
+                ds.refresh = "N/A";
+                ds.scale = "x" + String.format("%.2f", s.getOutputScaleX());
+                ds.dpi = DPI_0D.format(s.getDpi());
+                info.displays.add(ds);
             }
+        } catch (Throwable ignored) {}
+    }
 
-            // OS basics
-            info.osString = os.toString();
-            info.arch = System.getProperty("os.arch");
+    private static void collectCpu(Info info) {
+        HardwareContext hw = HardwareContext.get();
+        CentralProcessor cpu = hw.processor();
 
-            // CPU basics
-            var id = cpu.getProcessorIdentifier();
-            info.cpuName = safe(id.getName());
-            info.physCores = cpu.getPhysicalProcessorCount();
-            info.logCores = cpu.getLogicalProcessorCount();
-            info.maxHz = cpu.getMaxFreq();
+        // CPU basics
+        var id = hw.processorIdentifier();
+        info.cpuName = safe(id.getName());
+        info.physCores = cpu.getPhysicalProcessorCount();
+        info.logCores = cpu.getLogicalProcessorCount();
+        info.maxHz = cpu.getMaxFreq();
 
-            // CPU extended
-            info.cpuVendor = safe(id.getVendor());
-            info.cpuFamily = safe(id.getFamily());
-            info.cpuModel = safe(id.getModel());
-            info.cpuStepping = safe(id.getStepping());
+        // CPU extended
+        info.cpuVendor = safe(id.getVendor());
+        info.cpuFamily = safe(id.getFamily());
+        info.cpuModel = safe(id.getModel());
+        info.cpuStepping = safe(id.getStepping());
 
-            // ✅ FIX: caches start at -1 so this works
-            try {
-                List<CentralProcessor.ProcessorCache> caches = cpu.getProcessorCaches();
-                for (CentralProcessor.ProcessorCache cache : caches) {
-                    long size = cache.getCacheSize();
-                    int level = cache.getLevel();
-                    if (level == 1 && info.l1Cache < 0) info.l1Cache = size;
-                    else if (level == 2 && info.l2Cache < 0) info.l2Cache = size;
-                    else if (level == 3 && info.l3Cache < 0) info.l3Cache = size;
-                }
-            } catch (Throwable ignored) {}
+        // ✅ FIX: caches start at -1 so this works
+        try {
+            List<CentralProcessor.ProcessorCache> caches = hw.processorCaches();
+            for (CentralProcessor.ProcessorCache cache : caches) {
+                long size = cache.getCacheSize();
+                int level = cache.getLevel();
+                if (level == 1 && info.l1Cache < 0) info.l1Cache = size;
+                else if (level == 2 && info.l2Cache < 0) info.l2Cache = size;
+                else if (level == 3 && info.l3Cache < 0) info.l3Cache = size;
+            }
+        } catch (Throwable ignored) {}
 
-            info.cpuLoad = -1; // Snapshot load N/A (pure OSHI)
+        info.cpuLoad = -1; // Snapshot load N/A (pure OSHI)
+    }
 
-            // RAM totals
-            info.memTotal = mem.getTotal();
-            info.memAvail = mem.getAvailable();
+    private static void collectRam(Info info) {
+        HardwareContext hw = HardwareContext.get();
+        GlobalMemory mem = hw.memory();
 
-            // Swap
-            try {
-                VirtualMemory vm = mem.getVirtualMemory();
-                info.swapTotal = vm.getSwapTotal();
-                info.swapUsed = vm.getSwapUsed();
-                info.swapFree = info.swapTotal - info.swapUsed;
-            } catch (Throwable t) {
-                info.swapTotal = info.swapUsed = info.swapFree = -1;
+        // RAM Type / Speed
+        try {
+            List<PhysicalMemory> pm = hw.physicalMemory();
+            if (pm != null && !pm.isEmpty()) {
+                PhysicalMemory first = pm.get(0);
+                info.ramType = safe(first.getMemoryType());
+                long hz = first.getClockSpeed();
+                info.ramSpeed = (hz > 0) ? ((hz / 1_000_000) + " MHz") : "N/A";
+            } else {
+                info.ramType = "N/A";
+                info.ramSpeed = "N/A";
             }
+        } catch (Throwable t) {
+            info.ramType = "N/A";
+            info.ramSpeed = "N/A";
+        }
 
-            // GPU list
-            if (cards != null) {
-                for (GraphicsCard c : cards) {
-                    GpuSpec g = new GpuSpec();
-                    g.name = safe(c.getName());
-                    g.vendor = safe(c.getVendor());
-                    g.vram = c.getVRam();
-                    info.gpus.add(g);
-                }
-            }
-            for (GpuSpec g : info.gpus) {
-                g.coreClock = "N/A";
-                g.memClock = "N/A";
-            }
+        // RAM total
+        info.memTotal = mem.getTotal();
+    }
 
-            // OS details
-            info.osVersion = System.getProperty("os.version");
-            info.kernel = safe(System.getProperty("os.name")) + " / " + safe(System.getProperty("os.version"));
+    private static void refreshRam(Info info) {
+        GlobalMemory mem = HardwareContext.get().memory();
 
-            try { info.hostname = java.net.InetAddress.getLocalHost().getHostName(); }
-            catch (Throwable t) { info.hostname = "N/A"; }
+        info.memAvail = mem.getAvailable();
 
-            info.username = System.getProperty("user.name");
+        // Swap
+        try {
+            VirtualMemory vm = mem.getVirtualMemory();
+            info.swapTotal = vm.getSwapTotal();
+            info.swapUsed = vm.getSwapUsed();
+            info.swapFree = info.swapTotal - info.swapUsed;
+        } catch (Throwable t) {
+            info.swapTotal = info.swapUsed = info.swapFree = -1;
+        }
+    }
 
-            try {
-                long bootMs = si.getOperatingSystem().getSystemBootTime() * 1000L;
-                info.bootTime = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm").format(new java.util.Date(bootMs));
-                long upSec = si.getOperatingSystem().getSystemUptime();
-                info.uptime = formatUptime(upSec);
-            } catch (Throwable t) {
-                info.bootTime = "N/A";
-                info.uptime = "N/A";
+    private static void collectGpus(Info info) {
+        List<GraphicsCard> cards = HardwareContext.get().graphicsCards();
+        if (cards != null) {
+            for (GraphicsCard c : cards) {
+                GpuSpec g = new GpuSpec();
+                g.name = safe(c.getName());
+                g.vendor = safe(c.getVendor());
+                g.vram = c.getVRam();
+                info.gpus.add(g);
             }
+        }
+        for (GpuSpec g : info.gpus) {
+            g.coreClock = "N/A";
+            g.memClock = "N/A";
+        }
+    }
 
-            try { info.timezone = java.util.TimeZone.getDefault().getID(); }
-            catch (Throwable t) { info.timezone = "N/A"; }
-
-            try { info.locale = java.util.Locale.getDefault().toString(); }
-            catch (Throwable t) { info.locale = "N/A"; }
-
-            // Network
-            try {
-                List<NetworkIF> nifs = hal.getNetworkIFs();
-                if (nifs != null) {
-                    for (NetworkIF n : nifs) {
-                        try { n.updateAttributes(); } catch (Throwable ignored) {}
+    private static void collectNetwork(Info info) {
+        try {
+            List<NetworkIF> nifs = HardwareContext.get().networkIFs();
+            if (nifs != null) {
+                for (NetworkIF n : nifs) {
+                    try { n.updateAttributes(); } catch (Throwable ignored) {}
 
-                        NicSpec ns = new NicSpec();
-                        ns.name = safe(n.getDisplayName());
-                        ns.mac = safe(n.getMacaddr());
-                        ns.ipv4 = join(n.getIPv4addr());
-                        ns.ipv6 = join(n.getIPv6addr());
+                    NicSpec ns = new NicSpec();
+                    ns.name = safe(n.getDisplayName());
+                    ns.mac = safe(n.getMacaddr());
+                    ns.ipv4 = join(n.getIPv4addr());
+                    ns.ipv6 = join(n.getIPv6addr());
 
-                        long spd = 0;
-                        try { spd = n.getSpeed(); } catch (Throwable ignored) {}
-                        ns.speed = (spd > 0) ? (MBPS_0D.format(spd / 1_000_000.0) + " Mbps") : "N/A";
+                    long spd = 0;
+                    try { spd = n.getSpeed(); } catch (Throwable ignored) {}
+                    ns.speed = (spd > 0) ? (MBPS_0D.format(spd / 1_000_000.0) + " Mbps") : "N/A";
 
-                        try { ns.mtu = String.valueOf(n.getMTU()); } catch (Throwable t) { ns.mtu = "N/A"; }
+                    try { ns.mtu = String.valueOf(n.getMTU()); } catch (Throwable t) { ns.mtu = "N/A"; }
 
-                        info.nics.add(ns);
-                    }
+                    info.nics.add(ns);
                 }
-            } catch (Throwable ignored) {}
-
-            // Battery
-            try {
-                List<PowerSource> powerSources = hal.getPowerSources();
-                for (PowerSource ps : powerSources) {
-                    BatterySpec bs = new BatterySpec();
-                    bs.name = safe(ps.getName());
+            }
+        } catch (Throwable ignored) {}
+    }
 
-                    double rem = ps.getRemainingCapacityPercent();
-                    if (rem >= 0 && rem <= 1.0) bs.remaining = PCT_1D.format(rem * 100.0) + " %";
-                    else bs.remaining = "N/A";
+    private static void collectBatteries(Info info) {
+        try {
+            List<PowerSource> powerSources = HardwareContext.get().hal().getPowerSources();
+            for (PowerSource ps : powerSources) {
+                BatterySpec bs = new BatterySpec();
+                bs.name = safe(ps.getName());
 
-                    bs.state = ps.isCharging() ? "Charging" : "Discharging";
+                double rem = ps.getRemainingCapacityPercent();
+                if (rem >= 0 && rem <= 1.0) bs.remaining = PCT_1D.format(rem * 100.0) + " %";
+                else bs.remaining = "N/A";
 
-                    double timeRemaining = ps.getTimeRemainingEstimated();
-                    if (timeRemaining >= 0) bs.timeRemaining = formatUptime((long) timeRemaining);
-                    else bs.timeRemaining = ps.isCharging() ? "Charging" : "N/A";
+                bs.state = ps.isCharging() ? "Charging" : "Discharging";
 
-                    info.batteries.add(bs);
-                }
-            } catch (Throwable ignored) {}
+                double timeRemaining = ps.getTimeRemainingEstimated();
+                if (timeRemaining >= 0) bs.timeRemaining = formatUptime((long) timeRemaining);
+                else bs.timeRemaining = ps.isCharging() ? "Charging" : "N/A";
 
-            if (info.batteries.isEmpty()) {
-                BatterySpec bs = new BatterySpec();
-                bs.name = "Desktop PC";
-                bs.remaining = "N/A";
-                bs.state = "N/A";
-                bs.timeRemaining = "N/A";
                 info.batteries.add(bs);
             }
-
-            // Displays (JavaFX Screen)
-            try {
-                List<Screen> screens = Screen.getScreens();
-                for (int i = 0; i < screens.size(); i++) {
-                    Screen s = screens.get(i);
-                    Rectangle2D b = s.getBounds();
-                    DisplaySpec ds = new DisplaySpec();
-                    ds.name = "Display " + (i + 1);
-                    ds.resolution = ((int) b.getWidth()) + " × " + ((int) b.getHeight());
-                    ds.refresh = "N/A";
-                    ds.scale = "x" + String.format("%.2f", s.getOutputScaleX());
-                    ds.dpi = DPI_0D.format(s.getDpi());
-                    info.displays.add(ds);
-                }
-            } catch (Throwable ignored) {}
-
-            return info;
-        } catch (Throwable t) {
-            return null;
+        } catch (Throwable ignored) {}
+
+        if (info.batteries.isEmpty()) {
+            BatterySpec bs = new BatterySpec();
+            bs.name = "Desktop PC";
+            bs.remaining = "N/A";
+            bs.state = "N/A";
+            bs.timeRemaining = "N/A";
+            info.batteries.add(bs);
         }
     }
 
@@ -792,24 +794,48 @@ public final class DeviceInfoDialog {
         return box;
     }
 
-    private static void animateSections(VBox content) {
-        int idx = 0;
-        for (Node n : content.getChildren()) {
-            if (!(n instanceof Region r)) continue;
-            int delay = 35 + idx * 35;
-
-            PauseTransition p = new PauseTransition(Duration.millis(delay));
-            p.setOnFinished(_ -> {
-                ParallelTransition pt = new ParallelTransition(
-                        fade(r, 0, 1, 220),
-                        moveY(r, 10, 0, 220)
-                );
-                pt.setInterpolator(Interpolator.EASE_OUT);
-                pt.play();
-            });
-            p.play();
-            idx++;
-        }
+    private static VBox pendingSection(String title) {
+        Label t = new Label(title);
+        t.setFont(Font.font("Segoe UI", FontWeight.EXTRA_BOLD, 14)); // ✅ no CSS font-weight
+        t.setTextFill(Color.web("#f3f4f6"));
+
+        ProgressIndicator pi = new ProgressIndicator();
+        pi.setPrefSize(18, 18);
+        pi.setMaxSize(18, 18);
+
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
+
+        HBox header = new HBox(10, t, spacer, pi);
+        header.setAlignment(Pos.CENTER_LEFT);
+
+        Label lbl = new Label("Collecting...");
+        lbl.setTextFill(Color.web("#a7b0bf"));
+        lbl.setFont(Font.font("Segoe UI", FontWeight.NORMAL, 12));
+
+        VBox box = new VBox(10, header, lbl);
+        box.setStyle(SECTION_STYLE);
+        return box;
+    }
+
+    private static VBox failedSection(String title) {
+        return collapsibleSimple(title,
+                new VBox(10, row("Details", "Failed to read system info")),
+                new VBox(10, miniCardText("No additional info"))
+        );
+    }
+
+    private static void animateSection(Region r) {
+        PauseTransition p = new PauseTransition(Duration.millis(35));
+        p.setOnFinished(_ -> {
+            ParallelTransition pt = new ParallelTransition(
+                    fade(r, 0, 1, 220),
+                    moveY(r, 10, 0, 220)
+            );
+            pt.setInterpolator(Interpolator.EASE_OUT);
+            pt.play();
+        });
+        p.play();
     }
 
     /* =================== Formatting =================== */
@@ -903,6 +929,233 @@ public final class DeviceInfoDialog {
         return s == null || s.isBlank() || "N/A".equalsIgnoreCase(s.trim());
     }
 
+    /* =================== Sections =================== */
+
+    /**
+     * A dialog section. {@code inventory} fills static fields (persisted across launches,
+     * null for live-only sections); {@code live} fills volatile fields and always runs.
+     */
+    private enum Section {
+        OS("Operating System", DeviceInfoDialog::collectOs, DeviceInfoDialog::refreshOs, DeviceInfoDialog::osCollapsible),
+        DISPLAY("Display", null, DeviceInfoDialog::collectDisplays, i -> displayCollapsible(i.displays)),
+        CPU("CPU", DeviceInfoDialog::collectCpu, null, DeviceInfoDialog::cpuCollapsible),
+        RAM("Memory (RAM)", DeviceInfoDialog::collectRam, DeviceInfoDialog::refreshRam, DeviceInfoDialog::ramCollapsible),
+        GPU("GPU", DeviceInfoDialog::collectGpus, null, i -> gpuCollapsible(i.gpus)),
+        NETWORK("Network", null, DeviceInfoDialog::collectNetwork, i -> networkCollapsible(i.nics)),
+        BATTERY("Battery", null, DeviceInfoDialog::collectBatteries, i -> batteryCollapsible(i.batteries));
+
+        final String title;
+        private final Consumer<Info> inventory;
+        private final Consumer<Info> live;
+        private final Function<Info, VBox> renderer;
+
+        Section(String title, Consumer<Info> inventory, Consumer<Info> live, Function<Info, VBox> renderer) {
+            this.title = title;
+            this.inventory = inventory;
+            this.live = live;
+            this.renderer = renderer;
+        }
+
+        boolean isInventory() {
+            return inventory != null;
+        }
+
+        void collect(Info info, boolean inventoryRestored) {
+            if (inventory != null && !inventoryRestored) inventory.accept(info);
+            if (live != null) live.accept(info);
+        }
+
+        VBox render(Info info) {
+            return renderer.apply(info);
+        }
+    }
+
+    /**
+     * One collection run: every section is its own task on {@link #INFO_EXEC}, writing only
+     * its own fields of the shared {@link Info}. Completion of a section's future publishes
+     * those fields to whoever observes it.
+     */
+    private static final class InfoCollection {
+        final long startedAtMs;
+        final Info info = new Info();
+        private final EnumMap<Section, CompletableFuture<Info>> futures = new EnumMap<>(Section.class);
+
+        InfoCollection(long startedAtMs) {
+            this.startedAtMs = startedAtMs;
+        }
+
+        void start() {
+            // Inventory sections wait for the (fast) on-disk snapshot; live-only sections don't
+            CompletableFuture<Boolean> restored =
+                    CompletableFuture.supplyAsync(() -> InventoryCache.restore(info), INFO_EXEC);
+            CompletableFuture<Boolean> none = CompletableFuture.completedFuture(false);
+
+            List<CompletableFuture<Info>> inventoryFutures = new ArrayList<>();
+            for (Section section : Section.values()) {
+                CompletableFuture<Boolean> gate = section.isInventory() ? restored : none;
+                CompletableFuture<Info> f = gate.thenApplyAsync(fromDisk -> {
+                    long t0 = System.nanoTime();
+                    try {
+                        section.collect(info, fromDisk);
+                        return info;
+                    } finally {
+                        long took = System.nanoTime() - t0;
+                        logger.debug("Device info section {} collected in {} ms (inventory from disk: {})",
+                                section, TimeUnit.NANOSECONDS.toMillis(took), fromDisk);
+                    }
+                }, INFO_EXEC);
+                futures.put(section, f);
+                if (section.isInventory()) inventoryFutures.add(f);
+            }
+
+            // Persist only a complete, freshly collected inventory
+            restored.thenCombine(
+                    CompletableFuture.allOf(inventoryFutures.toArray(new CompletableFuture[0])),
+                    (fromDisk, ignored) -> fromDisk
+            ).thenAcceptAsync(fromDisk -> {
+                if (!fromDisk) InventoryCache.persist(info);
+            }, INFO_EXEC);
+        }
+
+        CompletableFuture<Info> future(Section section) {
+            return futures.get(section);
+        }
+    }
+
+    /* =================== Persisted inventory =================== */
+
+    /**
+     * Static part of {@link Info} persisted across launches. Keyed by machine identity;
+     * a reboot (different OSHI boot time) invalidates it, so hardware changes made while
+     * the machine was off are always picked up. Host name, time zone, locale and NIC addresses
+     * can change within a boot (DHCP, Wi-Fi, VPN, region settings), so they are always
+     * collected live and never stored here.
+     */
+    private static final class InventoryCache {
+        private static final String FILE_NAME = "device-inventory.properties";
+        private static final String VERSION = "2";
+        // Windows derives boot time from uptime, so it can drift by a second between processes
+        private static final long BOOT_TOLERANCE_SEC = 5;
+
+        private static String key() {
+            return VERSION + "|" + HardwareContext.get().machineId();
+        }
+
+        static boolean restore(Info info) {
+            try {
+                Properties p = InventoryStore.load(FILE_NAME, key());
+                if (p == null) return false;
+
+                long storedBoot = parseLong(p.getProperty("bootEpoch"), -1);
+                long boot = HardwareContext.get().bootTime();
+                if (storedBoot <= 0 || boot <= 0 || Math.abs(storedBoot - boot) > BOOT_TOLERANCE_SEC) return false;
+
+                // OS
+                info.osString = p.getProperty("os.string");
+                info.arch = p.getProperty("os.arch");
+                info.osVersion = p.getProperty("os.version");
+                info.kernel = p.getProperty("os.kernel");
+                info.username = p.getProperty("os.username");
+                info.bootTime = p.getProperty("os.bootTime");
+
+                // CPU
+                info.cpuName = p.getProperty("cpu.name");
+                info.cpuVendor = p.getProperty("cpu.vendor");
+                info.cpuFamily = p.getProperty("cpu.family");
+                info.cpuModel = p.getProperty("cpu.model");
+                info.cpuStepping = p.getProperty("cpu.stepping");
+                info.physCores = (int) parseLong(p.getProperty("cpu.physCores"), 0);
+                info.logCores = (int) parseLong(p.getProperty("cpu.logCores"), 0);
+                info.maxHz = parseLong(p.getProperty("cpu.maxHz"), 0);
+                info.l1Cache = parseLong(p.getProperty("cpu.l1"), -1);
+                info.l2Cache = parseLong(p.getProperty("cpu.l2"), -1);
+                info.l3Cache = parseLong(p.getProperty("cpu.l3"), -1);
+                info.cpuLoad = -1;
+
+                // RAM
+                info.ramType = p.getProperty("ram.type");
+                info.ramSpeed = p.getProperty("ram.speed");
+                info.memTotal = parseLong(p.getProperty("ram.total"), 0);
+
+                // GPU
+                int gpuCount = (int) parseLong(p.getProperty("gpu.count"), 0);
+                for (int i = 0; i < gpuCount; i++) {
+                    String k = "gpu." + i + ".";
+                    GpuSpec g = new GpuSpec();
+                    g.name = p.getProperty(k + "name");
+                    g.vendor = p.getProperty(k + "vendor");
+                    g.vram = parseLong(p.getProperty(k + "vram"), 0);
+                    g.coreClock = p.getProperty(k + "coreClock", "N/A");
+                    g.memClock = p.getProperty(k + "memClock", "N/A");
+                    info.gpus.add(g);
+                }
+
+                return true;
+            } catch (Throwable t) {
+                // partial restore: the full collection refills everything
+                info.gpus.clear();
+                return false;
+            }
+        }
+
+        static void persist(Info info) {
+            try {
+                Properties p = new Properties();
+                p.setProperty("bootEpoch", Long.toString(HardwareContext.get().bootTime()));
+
+                put(p, "os.string", info.osString);
+                put(p, "os.arch", info.arch);
+                put(p, "os.version", info.osVersion);
+                put(p, "os.kernel", info.kernel);
+                put(p, "os.username", info.username);
+                put(p, "os.bootTime", info.bootTime);
+
+                put(p, "cpu.name", info.cpuName);
+                put(p, "cpu.vendor", info.cpuVendor);
+                put(p, "cpu.family", info.cpuFamily);
+                put(p, "cpu.model", info.cpuModel);
+                put(p, "cpu.stepping", info.cpuStepping);
+                p.setProperty("cpu.physCores", Integer.toString(info.physCores));
+                p.setProperty("cpu.logCores", Integer.toString(info.logCores));
+                p.setProperty("cpu.maxHz", Long.toString(info.maxHz));
+                p.setProperty("cpu.l1", Long.toString(info.l1Cache));
+                p.setProperty("cpu.l2", Long.toString(info.l2Cache));
+                p.setProperty("cpu.l3", Long.toString(info.l3Cache));
+
+                put(p, "ram.type", info.ramType);
+                put(p, "ram.speed", info.ramSpeed);
+                p.setProperty("ram.total", Long.toString(info.memTotal));
+
+                p.setProperty("gpu.count", Integer.toString(info.gpus.size()));
+                for (int i = 0; i < info.gpus.size(); i++) {
+                    String k = "gpu." + i + ".";
+                    GpuSpec g = info.gpus.get(i);
+                    put(p, k + "name", g.name);
+                    put(p, k + "vendor", g.vendor);
+                    p.setProperty(k + "vram", Long.toString(g.vram));
+                    put(p, k + "coreClock", g.coreClock);
+                    put(p, k + "memClock", g.memClock);
+                }
+
+                InventoryStore.save(FILE_NAME, key(), p);
+            } catch (Throwable ignored) {
+            }
+        }
+
+        private static void put(Properties p, String k, String v) {
+            if (v != null) p.setProperty(k, v);
+        }
+
+        private static long parseLong(String s, long def) {
+            if (s == null) return def;
+            try {
+                return Long.parseLong(s.trim());
+            } catch (NumberFormatException e) {
+                return def;
+            }
+        }
+    }
+
     /* =================== DTOs =================== */
 
     private static final class Info {
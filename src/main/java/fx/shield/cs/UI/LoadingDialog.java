@@ -13,12 +13,15 @@ import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.OverrunStyle;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.effect.Effect;
 import javafx.scene.effect.GaussianBlur;
 import javafx.scene.input.KeyCode;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Pane;
+import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
@@ -29,14 +32,25 @@ import javafx.stage.StageStyle;
 import javafx.stage.WindowEvent;
 import javafx.util.Duration;
 
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
 /**
  * Unified loading dialog with animated dots, completion states, and base dialog logic.
  * Merged from BaseDialog and LoadingDialog.
+ *
+ * <p>Script output fed to {@link #outputSink()} shows up as a single "latest line" under the
+ * dots; {@code PROGRESS:NN} lines switch the dots to a real progress bar. Multi-step runs
+ * ({@link #setSteps}) get one status row per step instead, and the bar tracks finished steps.
  */
 public final class LoadingDialog {
 
     private static final double DEFAULT_WIDTH = 380;
-    private static final double DEFAULT_HEIGHT = 180;
+    private static final double DEFAULT_HEIGHT = 196;
     private static final double DEFAULT_BLUR_RADIUS = 18.0;
 
     private static final Duration DOTS_INTERVAL = Duration.millis(260);
@@ -48,6 +62,10 @@ public final class LoadingDialog {
     private static final Font FONT_MESSAGE = StyleConstants.FONT_DIALOG_SUBTITLE;
     private static final Font FONT_BUTTON = StyleConstants.FONT_DIALOG_BUTTON;
     private static final Font FONT_DOTS = Font.font(StyleConstants.FONT_FAMILY, 20);
+    private static final Font FONT_OUTPUT = StyleConstants.FONT_BODY_11;
+
+    private static final int OUTPUT_MAX_CHARS = 160;
+    private static final double STEP_ROW_HEIGHT = 20;
 
     // Reference counter for stacked dialogs blur.
     private static int blurReferenceCount = 0;
@@ -69,6 +87,21 @@ public final class LoadingDialog {
     private final Label titleLabel;
     private final Label messageLabel;
     private final Label dotsLabel;
+    private final ProgressBar progressBar;
+    private final Label outputLabel;
+
+    // written by a pipe reader thread, applied on the FX thread; at most one update queued at a time
+    private final AtomicReference<String> pendingLine = new AtomicReference<>();
+    private final AtomicInteger pendingProgress = new AtomicInteger(-1);
+    private final AtomicBoolean outputUpdateQueued = new AtomicBoolean(false);
+    private volatile boolean finished;
+    private Runnable onCancel;            // FX thread only
+
+    private final VBox stepsBox;
+    private Label[] stepRows;             // FX thread only
+    private String[] stepNames;           // FX thread only
+    private int stepsFinished;            // FX thread only
+    private volatile boolean stepsMode;   // PROGRESS:NN lines are ignored once steps drive the bar
 
     private final Label rebootNoteLabel;
     private final HBox buttonsRow;
@@ -136,6 +169,24 @@ public final class LoadingDialog {
         dotsLabel.setFont(FONT_DOTS);
         dotsLabel.setTextFill(Color.web(StyleConstants.COLOR_LIGHT_BLUE));
 
+        progressBar = new ProgressBar(0);
+        progressBar.setMaxWidth(Double.MAX_VALUE);
+        progressBar.setStyle(StyleConstants.progressBarStyle(StyleConstants.COLOR_LIGHT_BLUE));
+        progressBar.setVisible(false);
+
+        outputLabel = new Label();
+        outputLabel.setFont(FONT_OUTPUT);
+        outputLabel.setTextFill(Color.web(StyleConstants.COLOR_TEXT_SECONDARY));
+        outputLabel.setTextOverrun(OverrunStyle.ELLIPSIS);
+        outputLabel.setMinWidth(0);
+        outputLabel.setMaxWidth(Double.MAX_VALUE);
+        outputLabel.setVisible(false);
+        outputLabel.setManaged(false);
+
+        stepsBox = new VBox(2);
+        stepsBox.setVisible(false);
+        stepsBox.setManaged(false);
+
         rebootNoteLabel = new Label("Restart is required to apply changes.");
         rebootNoteLabel.setFont(StyleConstants.FONT_BODY_12);
         rebootNoteLabel.setTextFill(Color.web(StyleConstants.COLOR_AMBER));
@@ -171,14 +222,18 @@ public final class LoadingDialog {
         clip.heightProperty().bind(pane.heightProperty());
         pane.setClip(clip);
 
+        // the progress bar takes the dots' place once the script reports progress
+        StackPane statusBox = new StackPane(dotsLabel, progressBar);
+        statusBox.setAlignment(supportsReboot ? Pos.CENTER : Pos.CENTER_LEFT);
+
         VBox contentBox;
         if (supportsReboot) {
-            contentBox = new VBox(14, titleLabel, messageLabel, dotsLabel, rebootNoteLabel, buttonsRow);
+            contentBox = new VBox(14, titleLabel, messageLabel, stepsBox, statusBox, outputLabel, rebootNoteLabel, buttonsRow);
             contentBox.setAlignment(Pos.CENTER);
         } else {
             VBox textBox = new VBox(6, titleLabel, messageLabel);
             textBox.setAlignment(Pos.CENTER_LEFT);
-            contentBox = new VBox(12, textBox, dotsLabel);
+            contentBox = new VBox(12, textBox, stepsBox, statusBox, outputLabel);
             contentBox.setAlignment(Pos.CENTER_LEFT);
         }
 
@@ -215,10 +270,23 @@ public final class LoadingDialog {
         stage.show();
     }
 
+    /**
+     * Called when the user closes the dialog (Esc, window close) before a result was shown.
+     */
+    public void setOnCancel(Runnable action) {
+        runOnFxThread(() -> onCancel = action);
+    }
+
     public void close() {
         if (closing) return;
         closing = true;
 
+        Runnable cancel = onCancel;
+        onCancel = null;
+        if (cancel != null && !finished) {
+            try { cancel.run(); } catch (Exception ignored) {}
+        }
+
         if (root == null || !stage.isShowing()) {
             stage.hide();
             return;
@@ -269,9 +337,153 @@ public final class LoadingDialog {
         runOnFxThread(() -> messageLabel.setText(safe(message)));
     }
 
+    /**
+     * Sink for script stdout lines; safe to call from any thread at any rate. Updates are
+     * coalesced: only the latest line and the latest {@code PROGRESS:NN} value reach the FX
+     * thread, at most one pending update at a time.
+     */
+    public Consumer<String> outputSink() {
+        return this::offerOutputLine;
+    }
+
+    private void offerOutputLine(String line) {
+        if (line == null || finished) return;
+
+        int progress = ProgressLine.parse(line);
+        if (progress == ProgressLine.REJECTED) return;
+        if (progress >= 0) {
+            if (stepsMode) return; // steps running in parallel would fight over the bar
+            pendingProgress.set(progress);
+        } else {
+            String t = line.strip();
+            if (t.isEmpty()) return;
+            if (t.length() > OUTPUT_MAX_CHARS) t = t.substring(0, OUTPUT_MAX_CHARS);
+            pendingLine.set(t);
+        }
+
+        if (outputUpdateQueued.compareAndSet(false, true)) {
+            Platform.runLater(this::applyPendingOutput);
+        }
+    }
+
+    private void applyPendingOutput() {
+        outputUpdateQueued.set(false);
+        if (finished) return;
+
+        String line = pendingLine.getAndSet(null);
+        if (line != null) {
+            outputLabel.setText(line);
+            if (!outputLabel.isVisible()) {
+                outputLabel.setVisible(true);
+                outputLabel.setManaged(true);
+            }
+        }
+
+        int p = pendingProgress.getAndSet(-1);
+        if (p >= 0) {
+            if (!progressBar.isVisible()) {
+                stopDotsAnimation();
+                dotsLabel.setVisible(false);
+                progressBar.setVisible(true);
+            }
+            progressBar.setProgress(p / 100.0);
+        }
+    }
+
+    /**
+     * Shows one pending row per step (the dialog grows to fit) and switches the progress bar
+     * to finished/total steps.
+     */
+    public void setSteps(List<String> names) {
+        if (names == null || names.isEmpty()) return;
+        stepsMode = true;
+        String[] copy = names.toArray(new String[0]);
+
+        runOnFxThread(() -> {
+            stepNames = copy;
+            stepRows = new Label[copy.length];
+            stepsFinished = 0;
+            stepsBox.getChildren().clear();
+            for (int i = 0; i < copy.length; i++) {
+                Label row = new Label();
+                row.setFont(FONT_OUTPUT);
+                row.setMinWidth(0);
+                row.setTextOverrun(OverrunStyle.ELLIPSIS);
+                stepRows[i] = row;
+                stepsBox.getChildren().add(row);
+                paintStep(i, "○", safe(copy[i]), StyleConstants.COLOR_TEXT_SECONDARY);
+            }
+            stepsBox.setVisible(true);
+            stepsBox.setManaged(true);
+
+            double grow = copy.length * STEP_ROW_HEIGHT + 12;
+            if (stage.isShowing()) {
+                stage.setY(stage.getY() - grow / 2.0);
+                stage.setHeight(stage.getHeight() + grow);
+            }
+
+            stopDotsAnimation();
+            dotsLabel.setVisible(false);
+            progressBar.setVisible(true);
+            progressBar.setProgress(0);
+        });
+    }
+
+    public void setStepRunning(int index) {
+        runOnFxThread(() -> {
+            if (!hasStep(index)) return;
+            paintStep(index, "●", stepNames[index] + "...", StyleConstants.COLOR_LIGHT_BLUE);
+        });
+    }
+
+    public void setStepFinished(int index, boolean ok, long durationMs) {
+        runOnFxThread(() -> {
+            if (!hasStep(index)) return;
+            String time = String.format(Locale.ROOT, "%.1f s", durationMs / 1000.0);
+            if (ok) paintStep(index, "✓", stepNames[index] + "  ·  " + time, StyleConstants.COLOR_SUCCESS);
+            else paintStep(index, "✕", stepNames[index] + "  ·  failed after " + time, StyleConstants.COLOR_DANGER);
+            stepDone();
+        });
+    }
+
+    public void setStepSkipped(int index) {
+        runOnFxThread(() -> {
+            if (!hasStep(index)) return;
+            paintStep(index, "–", stepNames[index] + "  ·  skipped", StyleConstants.COLOR_TEXT_SECONDARY);
+            stepDone();
+        });
+    }
+
+    private boolean hasStep(int index) {
+        return stepRows != null && index >= 0 && index < stepRows.length;
+    }
+
+    private void paintStep(int index, String icon, String text, String color) {
+        Label row = stepRows[index];
+        row.setText(icon + "  " + text);
+        row.setTextFill(Color.web(color));
+    }
+
+    private void stepDone() {
+        stepsFinished++;
+        if (!finished) progressBar.setProgress(stepsFinished / (double) stepRows.length);
+    }
+
+    /**
+     * Back to the result icon: hides script output and the progress bar.
+     */
+    private void finishOutput() {
+        finished = true;
+        outputLabel.setVisible(false);
+        outputLabel.setManaged(false);
+        progressBar.setVisible(false);
+        dotsLabel.setVisible(true);
+    }
+
     public void setDone(String doneMessage) {
         runOnFxThread(() -> {
             stopDotsAnimation();
+            finishOutput();
             messageLabel.setText(safe(doneMessage));
             dotsLabel.setText("✓");
             dotsLabel.setTextFill(Color.web(StyleConstants.COLOR_SUCCESS));
@@ -284,6 +496,7 @@ public final class LoadingDialog {
     public void setFailed(String failMessage) {
         runOnFxThread(() -> {
             stopDotsAnimation();
+            finishOutput();
             messageLabel.setText(safe(failMessage));
             dotsLabel.setText("✕");
             dotsLabel.setTextFill(Color.web(StyleConstants.COLOR_DANGER));
@@ -301,6 +514,7 @@ public final class LoadingDialog {
 
         runOnFxThread(() -> {
             stopDotsAnimation();
+            finishOutput();
             dotsLabel.setText("✓");
             dotsLabel.setTextFill(Color.web(StyleConstants.COLOR_SUCCESS));
             messageLabel.setText(safe(doneMessage));
@@ -1,8 +1,10 @@
 package fx.shield.cs.UI;
 
 import fx.shield.cs.DB.RemoteConfig;
-import fx.shield.cs.DB.RemoteConfigService;
+import fx.shield.cs.DB.RemoteConfigProvider;
+import fx.shield.cs.DB.RemoteScript;
 import fx.shield.cs.UX.DashBoardPage;
+import fx.shield.cs.WIN.ActionJob;
 import javafx.animation.FadeTransition;
 import javafx.animation.Interpolator;
 import javafx.animation.ParallelTransition;
@@ -37,7 +39,7 @@ public final class PowerModeDialog {
     private static final Pattern EAP_BAD =
             Pattern.compile("(?im)^\\s*\\$ErrorActionPreference\\s*=\\s*(SilentlyContinue|Continue|Stop|Inquire)\\s*;?\\s*$");
 
-    private final RemoteConfigService configService = new RemoteConfigService();
+    private final RemoteConfigProvider configProvider = RemoteConfigProvider.shared();
 
     private enum PowerMode { PERFORMANCE, BALANCED, QUIET }
 
@@ -445,12 +447,12 @@ public final class PowerModeDialog {
     private String getScriptFromConfig(RemoteConfig cfg, PowerMode mode) {
         if (cfg == null || mode == null) return null;
 
-        String s = switch (mode) {
-            case PERFORMANCE -> cfg.getPerformanceModeScript();
-            case BALANCED -> cfg.getBalancedModeScript();
-            case QUIET -> cfg.getQuietModeScript();
+        RemoteScript key = switch (mode) {
+            case PERFORMANCE -> RemoteScript.PERFORMANCE_MODE;
+            case BALANCED -> RemoteScript.BALANCED_MODE;
+            case QUIET -> RemoteScript.QUIET_MODE;
         };
-        return normalizeScript(s);
+        return normalizeScript(configProvider.script(key));
     }
 
     private String normalizeScript(String s) {
@@ -479,6 +481,9 @@ public final class PowerModeDialog {
                 false
         );
 
+        ActionJob job = ActionJob.start("power-" + mode.name());
+        loading.setOnCancel(job::cancel);
+
         Thread t = new Thread(() -> {
             boolean ok = false;
 
@@ -493,7 +498,7 @@ public final class PowerModeDialog {
                 if (cfg.isMaintenance()) {
                     loading.setFailed("Service is under maintenance.");
                     Platform.runLater(() ->
-                            MaintenanceDialog.show(primaryStage, cfg, configService::fetchConfig, okCfg -> {})
+                            MaintenanceDialog.show(primaryStage, cfg, configProvider::refresh, okCfg -> {})
                     );
                     finish(onFinished, false);
                     return;
@@ -508,14 +513,17 @@ public final class PowerModeDialog {
 
                 loading.setMessageText("Applying " + mode.name().toLowerCase(Locale.ROOT) + " mode...");
 
-                ok = DashBoardPage.runPowerShellSync(script, logTag);
+                ok = DashBoardPage.runPowerShellSync(script, logTag, loading.outputSink(), job);
 
-                if (ok) loading.setDone("Power mode applied successfully.");
+                if (job.isCancelled()) ok = false;
+                else if (ok) loading.setDone("Power mode applied successfully.");
                 else loading.setFailed("Failed to apply power mode.");
 
             } catch (Exception ex) {
                 loading.setFailed("Unexpected error: " + ex.getMessage());
                 ok = false;
+            } finally {
+                job.finish();
             }
 
             finish(onFinished, ok);
@@ -534,7 +542,7 @@ public final class PowerModeDialog {
 
     private RemoteConfig fetchLatestConfigSafe() {
         try {
-            return configService.fetchConfig();
+            return configProvider.get();
         } catch (Exception ignored) {
             return null;
         }
@@ -0,0 +1,42 @@
+package fx.shield.cs.UI;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Recognizes the {@code PROGRESS:NN} lines scripts print for {@link LoadingDialog}.
+ *
+ * <p>A progress line never becomes an output line: values above 100 are rejected outright
+ * instead of falling through as text.
+ */
+final class ProgressLine {
+
+    /** Not a progress line; show it as output. */
+    static final int NONE = -1;
+    /** A progress line whose value is out of range; drop it. */
+    static final int REJECTED = -2;
+
+    private static final Pattern PATTERN = Pattern.compile("^\\s*PROGRESS\\s*:\\s*(\\d+)\\b");
+
+    private ProgressLine() {
+    }
+
+    /**
+     * @return the percentage (0..100), {@link #NONE} or {@link #REJECTED}
+     */
+    static int parse(String line) {
+        if (line == null) return NONE;
+
+        Matcher m = PATTERN.matcher(line);
+        if (!m.find()) return NONE;
+
+        // digit by digit: a long run of digits must not overflow into a valid value
+        String digits = m.group(1);
+        int value = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            value = value * 10 + (digits.charAt(i) - '0');
+            if (value > 100) return REJECTED;
+        }
+        return value;
+    }
+}
@@ -1,12 +1,15 @@
 package fx.shield.cs.UX;
 
 import fx.shield.cs.DB.RemoteConfig;
-import fx.shield.cs.DB.RemoteConfigService;
+import fx.shield.cs.DB.RemoteConfigProvider;
+import fx.shield.cs.DB.RemoteScript;
 import fx.shield.cs.DISK.PhysicalDiskCard;
 import fx.shield.cs.DISK.PhysicalDiskSwitcher;
 import fx.shield.cs.UI.*;
+import fx.shield.cs.WIN.ActionJob;
 import fx.shield.cs.WIN.AutomationService;
 import fx.shield.cs.WIN.FxSettings;
+import fx.shield.cs.WIN.JobGraph;
 import fx.shield.cs.WIN.WindowsUtils;
 import javafx.animation.FadeTransition;
 import javafx.animation.PauseTransition;
@@ -23,14 +26,15 @@ import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.stage.Stage;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
 import java.text.DecimalFormat;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 public final class DashBoardPage extends Application {
@@ -65,7 +69,9 @@ public final class DashBoardPage extends Application {
                 }
                 .scroll-bar .increment-arrow, .scroll-bar .decrement-arrow { -fx-shape: ""; -fx-padding: 0; }
             """;
-    private final RemoteConfigService configService = new RemoteConfigService();
+    // fetch started in main() (before JavaFX boots); consumed once by start()
+    private static volatile CompletableFuture<RemoteConfig> startupFetch;
+    private final RemoteConfigProvider configProvider = RemoteConfigProvider.shared();
     private final DecimalFormat percentFormat = new DecimalFormat("0.0");
     private final DecimalFormat gbFormat = new DecimalFormat("0.0");
     // ---------- Responsive ----------
@@ -81,6 +87,8 @@ public final class DashBoardPage extends Application {
     private MeterCard cpuCard;
     private MeterCard ramCard;
     private MeterCard gpuCard;
+    private MeterCard[] gpuCards;   // gpuCards[0] == gpuCard; extra adapters go to gpusRow
+    private HBox gpusRow;
     private PhysicalDiskCard[] physicalCards;
     private SystemMonitorService monitor;
     private HBox disksRow;
@@ -106,6 +114,8 @@ public final class DashBoardPage extends Application {
                 WindowsUtils.requestAdminAndExit();
                 return;
             }
+            // TLS handshake + status fetch overlap JavaFX startup and the splash
+            startupFetch = RemoteConfigProvider.shared().refreshAsync();
             launch(args);
         } catch (Throwable t) {
             t.printStackTrace();
@@ -138,6 +148,14 @@ public final class DashBoardPage extends Application {
         // ✅ Show Splash in separate Stage (owned -> no extra taskbar icon)
         showSplashStage(stage);
 
+        // ✅ Config from the previous run: show the dashboard now, revalidate in background
+        RemoteConfig cached = configProvider.cached();
+        if (cached != null && !cached.isMaintenance()) {
+            showDashboardAndCloseSplash(cached, startMinimized);
+            revalidateConfigInBackground();
+            return;
+        }
+
         // ✅ Fetch config in background and ALWAYS continue
         AtomicBoolean launched = new AtomicBoolean(false);
 
@@ -150,16 +168,10 @@ public final class DashBoardPage extends Application {
         });
         failsafe.playFromStart();
 
-        Thread t = new Thread(() -> {
-            RemoteConfig cfg = null;
-            try {
-                setSplashStatus("Connecting to server...");
-                cfg = configService.fetchConfig();
-            } catch (Exception ignored) {
-                setSplashStatus("Starting offline...");
-            }
+        setSplashStatus("Connecting to server...");
+        startupConfig().thenAccept(finalCfg -> {
+            if (finalCfg == null) setSplashStatus("Starting offline...");
 
-            RemoteConfig finalCfg = cfg;
             Platform.runLater(() -> {
                 if (!launched.compareAndSet(false, true)) return;
                 failsafe.stop();
@@ -169,7 +181,7 @@ public final class DashBoardPage extends Application {
                     MaintenanceDialog.show(
                             splashStage != null ? splashStage : primaryStage,
                             finalCfg,
-                            configService::fetchConfig,
+                            configProvider::refresh,
                             okCfg -> {
                                 if (okCfg != null && !okCfg.isMaintenance()) {
                                     Platform.runLater(() -> showDashboardAndCloseSplash(okCfg, startMinimized));
@@ -181,10 +193,30 @@ public final class DashBoardPage extends Application {
 
                 showDashboardAndCloseSplash(finalCfg, startMinimized);
             });
-        }, "fx.shield.cs-startup-config");
+        });
+    }
 
-        t.setDaemon(true);
-        t.start();
+    /**
+     * Re-fetches the status after a start from the cached copy (the status fetch is always a
+     * full, masked request); if the service went into maintenance meanwhile, tells the user the
+     * same way the actions do.
+     */
+    private void revalidateConfigInBackground() {
+        startupConfig().thenAccept(fresh -> {
+            if (fresh == null || !fresh.isMaintenance()) return;
+            Platform.runLater(() ->
+                    MaintenanceDialog.show(primaryStage, fresh, configProvider::refresh, okCfg -> {})
+            );
+        });
+    }
+
+    /**
+     * The fetch prewarmed in {@link #main} (already done or still in flight), else a new one.
+     */
+    private CompletableFuture<RemoteConfig> startupConfig() {
+        CompletableFuture<RemoteConfig> f = startupFetch;
+        startupFetch = null;
+        return (f != null) ? f : configProvider.refreshAsync();
     }
 
     private void setSplashStatus(String text) {
@@ -263,6 +295,9 @@ public final class DashBoardPage extends Application {
         // close splash AFTER dashboard is visible
         closeSplashStage();
 
+        // keep the config warm so action buttons don't wait for the network
+        configProvider.start();
+
         if (startMinimized && isTraySupported) {
             Platform.runLater(() -> primaryStage.setIconified(true));
         }
@@ -318,7 +353,13 @@ public final class DashBoardPage extends Application {
 
             if (cpuCard != null) cpuCard.setCompact(compactState);
             if (ramCard != null) ramCard.setCompact(compactState);
-            if (gpuCard != null) gpuCard.setCompact(compactState);
+            if (gpuCards != null) {
+                for (MeterCard c : gpuCards) {
+                    if (c != null) c.setCompact(compactState);
+                }
+            } else if (gpuCard != null) {
+                gpuCard.setCompact(compactState);
+            }
 
             if (physicalCards != null) {
                 for (PhysicalDiskCard c : physicalCards) {
@@ -384,6 +425,11 @@ public final class DashBoardPage extends Application {
         HBox.setHgrow(ramCard.getRoot(), Priority.ALWAYS);
         HBox.setHgrow(gpuCard.getRoot(), Priority.ALWAYS);
 
+        gpusRow = new HBox(18);
+        gpusRow.setAlignment(Pos.CENTER);
+        gpusRow.setManaged(false);
+        gpusRow.setVisible(false);
+
         disksRow = new HBox(18);
         disksRow.setAlignment(Pos.CENTER);
 
@@ -400,9 +446,9 @@ public final class DashBoardPage extends Application {
         };
 
         actionCards[0].getButton().setOnAction(e -> runFreeRamFromDb());
-        actionCards[1].getButton().setOnAction(e -> runDbScript(ScriptKey.OPTIMIZE_DISK, "Optimizing Disk", "Fetching latest script from server...", "[DiskOpt]", false));
-        actionCards[2].getButton().setOnAction(e -> runDbScript(ScriptKey.OPTIMIZE_NETWORK, "Optimizing Network", "Fetching latest script from server...", "[NetOpt]", true));
-        actionCards[3].getButton().setOnAction(e -> runDbScript(ScriptKey.SCAN_AND_FIX, "System File Scan", "Fetching latest script from server... (may take a few minutes)", "[SFC]", false));
+        actionCards[1].getButton().setOnAction(e -> runDbScript(RemoteScript.OPTIMIZE_DISK, "Optimizing Disk", "Fetching latest script from server...", "[DiskOpt]", false));
+        actionCards[2].getButton().setOnAction(e -> runDbScript(RemoteScript.OPTIMIZE_NETWORK, "Optimizing Network", "Fetching latest script from server...", "[NetOpt]", true));
+        actionCards[3].getButton().setOnAction(e -> runDbScript(RemoteScript.SCAN_AND_FIX, "System File Scan", "Fetching latest script from server... (may take a few minutes)", "[SFC]", false));
         actionCards[4].getButton().setOnAction(e -> PowerModeDialog.show(primaryStage));
         actionCards[5].getButton().setOnAction(e -> runAllInOneFromDb());
 
@@ -433,7 +479,7 @@ public final class DashBoardPage extends Application {
         VBox centerBox = new VBox(32);
         centerBox.setFillWidth(true);
         centerBox.setPadding(new Insets(15, 32, 40, 32));
-        centerBox.getChildren().addAll(mainRow, disksRow, actionsWrapper);
+        centerBox.getChildren().addAll(mainRow, gpusRow, disksRow, actionsWrapper);
 
         mainScroll = new ScrollPane(centerBox);
         mainScroll.setFitToWidth(true);
@@ -485,13 +531,13 @@ public final class DashBoardPage extends Application {
 
                 SystemMonitorService m = new SystemMonitorService();
                 SystemMonitorService.PhysicalDiskSnapshot[] initialDisks = m.sampleDisksOnce();
-                String gpuName = m.getGpuName();
+                String[] gpuNames = m.getGpuNames();
 
-                m.setListener((cpuPercent, ramSnap, diskSnaps, gpuUsage) -> {
+                m.setListener((cpuPercent, cpuStats, ramSnap, diskSnaps, gpuSnaps) -> {
                     Platform.runLater(() -> {
                         updateCpuUI(cpuPercent);
                         updateRamUI(ramSnap);
-                        updateGpuUI(gpuUsage);
+                        updateGpuUI(gpuSnaps);
                         if (diskSnaps != null && physicalCards != null && physicalCards.length > 0) {
                             updatePhysicalDisksUI(diskSnaps);
                         }
@@ -501,7 +547,7 @@ public final class DashBoardPage extends Application {
                 Platform.runLater(() -> {
                     this.monitor = m;
 
-                    gpuCard.getTitleLabel().setText("GPU - " + shortenGpuName(gpuName));
+                    buildGpuCards(gpuNames);
 
                     if (initialDisks != null && initialDisks.length > 0) {
                         physicalCards = new PhysicalDiskCard[initialDisks.length];
@@ -617,12 +663,46 @@ public final class DashBoardPage extends Application {
         ramCard.setValuePercent(snap.percent, gbFormat.format(snap.usedGb) + " / " + gbFormat.format(snap.totalGb) + " GB");
     }
 
-    private void updateGpuUI(int usage) {
-        double percent = Math.max(0, usage);
-        String extra = (monitor == null || !monitor.isGpuUsageSupported())
-                ? "GPU usage not supported on this system"
-                : "GPU utilization";
-        gpuCard.setValuePercent(percent, extra);
+    private void buildGpuCards(String[] names) {
+        int n = Math.max(1, names.length);
+        gpuCards = new MeterCard[n];
+        gpuCards[0] = gpuCard;
+        gpusRow.getChildren().clear();
+
+        for (int i = 0; i < n; i++) {
+            String title = (n == 1) ? "GPU" : "GPU " + (i + 1);
+            if (i > 0) {
+                MeterCard card = new MeterCard(title);
+                card.setCompact(compactState);
+                gpuCards[i] = card;
+                gpusRow.getChildren().add(card.getRoot());
+                HBox.setHgrow(card.getRoot(), Priority.ALWAYS);
+            }
+            String name = (i < names.length) ? names[i] : null;
+            gpuCards[i].getTitleLabel().setText(title + " - " + shortenGpuName(name));
+        }
+
+        boolean extra = n > 1;
+        gpusRow.setManaged(extra);
+        gpusRow.setVisible(extra);
+    }
+
+    private void updateGpuUI(SystemMonitorService.GpuSnapshot[] snaps) {
+        if (snaps == null || gpuCards == null) return;
+        int len = Math.min(snaps.length, gpuCards.length);
+
+        for (int i = 0; i < len; i++) {
+            SystemMonitorService.GpuSnapshot snap = snaps[i];
+            MeterCard card = gpuCards[i];
+            if (card == null || snap == null) continue;
+
+            double percent = Math.max(0, snap.usagePercent);
+            String extra;
+            if (!snap.supported) extra = "GPU usage not supported on this system";
+            else if (snap.memoryPercent >= 0) extra = "Memory controller: " + snap.memoryPercent + " %";
+            else extra = "GPU utilization";
+            card.setValuePercent(percent, extra);
+        }
     }
 
     // ================== DB scripts ==================
@@ -659,24 +739,15 @@ public final class DashBoardPage extends Application {
 
     private RemoteConfig fetchLatestConfigSafe() {
         try {
-            return configService.fetchConfig();
+            return configProvider.get();
         } catch (Exception ignored) {
         }
         return null;
     }
 
-    private String getScriptFromConfig(RemoteConfig cfg, ScriptKey key) {
+    private String getScriptFromConfig(RemoteConfig cfg, RemoteScript key) {
         if (cfg == null || key == null) return null;
-
-        String s;
-        switch (key) {
-            case FREE_RAM -> s = cfg.getFreeRamScript();
-            case OPTIMIZE_DISK -> s = cfg.getOptimizeDiskScript();
-            case OPTIMIZE_NETWORK -> s = cfg.getOptimizeNetworkScript();
-            case SCAN_AND_FIX -> s = cfg.getScanAndFixScript();
-            default -> s = null;
-        }
-        return normalizeScript(s);
+        return normalizeScript(configProvider.script(key));
     }
 
     private String normalizeScript(String s) {
@@ -693,167 +764,193 @@ public final class DashBoardPage extends Application {
         return t;
     }
 
-    private void runDbScript(ScriptKey key, String title, String loadingMsg, String logTag, boolean supportsReboot) {
+    private void runDbScript(RemoteScript key, String title, String loadingMsg, String logTag, boolean supportsReboot) {
         LoadingDialog dialog = LoadingDialog.show(primaryStage, title, loadingMsg, supportsReboot);
+        ActionJob job = ActionJob.start("db-" + key.name());
+        dialog.setOnCancel(job::cancel);
 
         new Thread(() -> {
-            RemoteConfig cfg = fetchLatestConfigSafe();
+            try {
+                RemoteConfig cfg = fetchLatestConfigSafe();
 
-            if (cfg != null && cfg.isMaintenance()) {
-                Platform.runLater(() -> {
-                    dialog.setFailed("Service is under maintenance.");
-                    MaintenanceDialog.show(primaryStage, cfg, configService::fetchConfig, okCfg -> {
+                if (cfg != null && cfg.isMaintenance()) {
+                    Platform.runLater(() -> {
+                        dialog.setFailed("Service is under maintenance.");
+                        MaintenanceDialog.show(primaryStage, cfg, configProvider::refresh, okCfg -> {
+                        });
                     });
-                });
-                return;
-            }
-
-            String script = getScriptFromConfig(cfg, key);
-            if (script == null) {
-                Platform.runLater(() -> dialog.setFailed("No script found in database."));
-                return;
-            }
-
-            boolean ok = runPowerShellSync(script, logTag);
+                    return;
+                }
 
-            Platform.runLater(() -> {
-                if (ok) {
-                    if (supportsReboot) dialog.setDoneRequiresReboot("Completed successfully.");
-                    else dialog.setDone("Completed successfully.");
-                } else {
-                    dialog.setFailed("Command failed.");
+                String script = getScriptFromConfig(cfg, key);
+                if (script == null) {
+                    Platform.runLater(() -> dialog.setFailed("No script found in database."));
+                    return;
                 }
-            });
 
+                boolean ok = runPowerShellSync(script, logTag, dialog.outputSink(), job);
+                if (job.isCancelled()) return;
+
+                Platform.runLater(() -> {
+                    if (ok) {
+                        if (supportsReboot) dialog.setDoneRequiresReboot("Completed successfully.");
+                        else dialog.setDone("Completed successfully.");
+                    } else {
+                        dialog.setFailed("Command failed.");
+                    }
+                });
+            } finally {
+                job.finish();
+            }
         }, "fx.shield.cs-db-" + key.name()).start();
     }
 
     private void runFreeRamFromDb() {
         SystemMonitorService.RamSnapshot before = (monitor != null ? monitor.readRamOnce() : null);
         LoadingDialog dialog = LoadingDialog.show(primaryStage, "Cleaning RAM", "Fetching latest script from server...", false);
+        ActionJob job = ActionJob.start("db-FreeRAM");
+        dialog.setOnCancel(job::cancel);
 
         new Thread(() -> {
-            RemoteConfig cfg = fetchLatestConfigSafe();
-
-            if (cfg != null && cfg.isMaintenance()) {
-                Platform.runLater(() -> {
-                    dialog.setFailed("Service is under maintenance.");
-                    MaintenanceDialog.show(primaryStage, cfg, configService::fetchConfig, okCfg -> {
-                    });
-                });
-                return;
-            }
-
-            String script = getScriptFromConfig(cfg, ScriptKey.FREE_RAM);
-            if (script == null) {
-                Platform.runLater(() -> dialog.setFailed("No Free RAM script found in database."));
-                return;
-            }
-
-            boolean ok = runPowerShellSync(script, "[FreeRAM]");
-
             try {
-                Thread.sleep(900);
-            } catch (Exception ignored) {
-            }
+                RemoteConfig cfg = fetchLatestConfigSafe();
 
-            SystemMonitorService.RamSnapshot after = (monitor != null ? monitor.readRamOnce() : null);
-
-            Platform.runLater(() -> {
-                if (!ok) {
-                    dialog.setFailed("Cleanup failed.");
+                if (cfg != null && cfg.isMaintenance()) {
+                    Platform.runLater(() -> {
+                        dialog.setFailed("Service is under maintenance.");
+                        MaintenanceDialog.show(primaryStage, cfg, configProvider::refresh, okCfg -> {
+                        });
+                    });
                     return;
                 }
-                if (before == null || after == null) {
-                    dialog.setDone("Cleanup completed.\n\n(Unable to detect RAM difference)");
+
+                String script = getScriptFromConfig(cfg, RemoteScript.FREE_RAM);
+                if (script == null) {
+                    Platform.runLater(() -> dialog.setFailed("No Free RAM script found in database."));
                     return;
                 }
 
-                double diffGb = before.usedGb - after.usedGb;
-                String done =
-                        "Before: " + gbFormat.format(before.usedGb) + " / " + gbFormat.format(before.totalGb) + " GB\n" +
-                                "After:  " + gbFormat.format(after.usedGb) + " / " + gbFormat.format(after.totalGb) + " GB\n\n" +
-                                "Freed:  " + gbFormat.format(diffGb) + " GB";
+                boolean ok = runPowerShellSync(script, "[FreeRAM]", dialog.outputSink(), job);
+                if (job.isCancelled()) return;
 
-                dialog.setDone(done);
-            });
+                try {
+                    Thread.sleep(900);
+                } catch (Exception ignored) {
+                }
+
+                SystemMonitorService.RamSnapshot after = (monitor != null ? monitor.readRamOnce() : null);
+
+                Platform.runLater(() -> {
+                    if (!ok) {
+                        dialog.setFailed("Cleanup failed.");
+                        return;
+                    }
+                    if (before == null || after == null) {
+                        dialog.setDone("Cleanup completed.\n\n(Unable to detect RAM difference)");
+                        return;
+                    }
+
+                    double diffGb = before.usedGb - after.usedGb;
+                    String done =
+                            "Before: " + gbFormat.format(before.usedGb) + " / " + gbFormat.format(before.totalGb) + " GB\n" +
+                                    "After:  " + gbFormat.format(after.usedGb) + " / " + gbFormat.format(after.totalGb) + " GB\n\n" +
+                                    "Freed:  " + gbFormat.format(diffGb) + " GB";
 
+                    dialog.setDone(done);
+                });
+            } finally {
+                job.finish();
+            }
         }, "fx.shield.cs-db-FreeRAM").start();
     }
 
     private void runAllInOneFromDb() {
         LoadingDialog dialog = LoadingDialog.show(primaryStage, "Full Optimization", "Fetching latest scripts from server...", false);
+        ActionJob job = ActionJob.start("db-allInOne");
+        dialog.setOnCancel(job::cancel);
 
         new Thread(() -> {
-            RemoteConfig cfg = fetchLatestConfigSafe();
+            try {
+                RemoteConfig cfg = fetchLatestConfigSafe();
 
-            if (cfg != null && cfg.isMaintenance()) {
-                Platform.runLater(() -> {
-                    dialog.setFailed("Service is under maintenance.");
-                    MaintenanceDialog.show(primaryStage, cfg, configService::fetchConfig, okCfg -> {
+                if (cfg != null && cfg.isMaintenance()) {
+                    Platform.runLater(() -> {
+                        dialog.setFailed("Service is under maintenance.");
+                        MaintenanceDialog.show(primaryStage, cfg, configProvider::refresh, okCfg -> {
+                        });
                     });
-                });
-                return;
-            }
-
-            String s1 = getScriptFromConfig(cfg, ScriptKey.FREE_RAM);
-            String s2 = getScriptFromConfig(cfg, ScriptKey.OPTIMIZE_DISK);
-            String s3 = getScriptFromConfig(cfg, ScriptKey.OPTIMIZE_NETWORK);
-
-            if (s1 == null || s2 == null || s3 == null) {
-                Platform.runLater(() -> dialog.setFailed("Missing one or more scripts in database."));
-                return;
-            }
+                    return;
+                }
 
-            try {
-                Platform.runLater(() -> dialog.setMessageText("Step 1/3: Cleaning memory and junk files..."));
-                runPowerShellSync(s1, "[All-RAM]");
+                // one request for whichever of the three changed since last time
+                Map<RemoteScript, String> scripts = (cfg == null) ? Map.of()
+                        : configProvider.scripts(RemoteScript.FREE_RAM, RemoteScript.OPTIMIZE_DISK, RemoteScript.OPTIMIZE_NETWORK);
+                String s1 = normalizeScript(scripts.get(RemoteScript.FREE_RAM));
+                String s2 = normalizeScript(scripts.get(RemoteScript.OPTIMIZE_DISK));
+                String s3 = normalizeScript(scripts.get(RemoteScript.OPTIMIZE_NETWORK));
 
-                Platform.runLater(() -> dialog.setMessageText("Step 2/3: Optimizing disk drives..."));
-                runPowerShellSync(s2, "[All-Disk]");
+                if (s1 == null || s2 == null || s3 == null) {
+                    Platform.runLater(() -> dialog.setFailed("Missing one or more scripts in database."));
+                    return;
+                }
 
-                Platform.runLater(() -> dialog.setMessageText("Step 3/3: Optimizing network stack..."));
-                runPowerShellSync(s3, "[All-Net]");
+                // memory and network are independent; disk optimization runs after junk files are gone
+                Consumer<String> out = dialog.outputSink();
+                JobGraph graph = new JobGraph(2)
+                        .add("ram", "Cleaning memory and junk files", JobGraph.Resource.CPU,
+                                () -> runPowerShellSync(s1, "[All-RAM]", out, job))
+                        .add("net", "Optimizing network stack", JobGraph.Resource.NETWORK,
+                                () -> runPowerShellSync(s3, "[All-Net]", out, job))
+                        .add("disk", "Optimizing disk drives", JobGraph.Resource.DISK,
+                                () -> runPowerShellSync(s2, "[All-Disk]", out, job), "ram");
+
+                List<String> names = new ArrayList<>();
+                for (JobGraph.Step st : graph.steps()) names.add(st.label);
+                dialog.setMessageText("Running optimizations...");
+                dialog.setSteps(names);
+                job.onCancel(graph::cancel);
+
+                boolean allOk = graph.run(st -> {
+                    switch (st.status()) {
+                        case RUNNING -> dialog.setStepRunning(st.index);
+                        case OK -> dialog.setStepFinished(st.index, true, st.durationMs());
+                        case FAILED -> dialog.setStepFinished(st.index, false, st.durationMs());
+                        case SKIPPED, CANCELLED -> dialog.setStepSkipped(st.index);
+                        default -> { }
+                    }
+                });
 
-                Platform.runLater(() -> dialog.setDone("All optimizations completed successfully."));
-            } catch (Exception ex) {
-                ex.printStackTrace();
-                Platform.runLater(() -> dialog.setFailed("Optimization package failed."));
+                if (job.isCancelled()) return;
+                if (allOk) {
+                    dialog.setDone("All optimizations completed successfully.");
+                } else {
+                    int ok = 0;
+                    for (JobGraph.Step st : graph.steps()) if (st.status() == JobGraph.Status.OK) ok++;
+                    dialog.setFailed(ok + " of " + names.size() + " optimizations completed.");
+                }
+            } finally {
+                job.finish();
             }
-
         }, "fx.shield.cs-db-allInOne").start();
     }
 
     public static boolean runPowerShellSync(String psScript, String tag) {
-        Process p = null;
-        try {
-            ProcessBuilder pb = new ProcessBuilder(
-                    "powershell", "-NoProfile", "-ExecutionPolicy", "Bypass", "-Command", psScript
-            );
-            pb.redirectErrorStream(true);
-            p = pb.start();
-
-            try (BufferedReader r = new BufferedReader(
-                    new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
-                while (r.readLine() != null) {
-                }
-            }
+        return runPowerShellSync(psScript, tag, null);
+    }
 
-            boolean finished = p.waitFor(PS_TIMEOUT.toSeconds(), TimeUnit.SECONDS);
-            if (!finished) {
-                p.destroyForcibly();
-                return false;
-            }
-            return p.exitValue() == 0;
+    /**
+     * @param onLine optional sink for the script's stdout lines (e.g. {@link LoadingDialog#outputSink()})
+     */
+    public static boolean runPowerShellSync(String psScript, String tag, Consumer<String> onLine) {
+        return runPowerShellSync(psScript, tag, onLine, null);
+    }
 
-        } catch (Exception ex) {
-            if (p != null) try {
-                p.destroyForcibly();
-            } catch (Exception ignored) {
-            }
-            ex.printStackTrace();
-            return false;
-        }
+    /**
+     * @param job optional; cancelling it kills the script and everything it started
+     */
+    public static boolean runPowerShellSync(String psScript, String tag, Consumer<String> onLine, ActionJob job) {
+        // pooled PowerShell host (falls back to a fresh process when busy)
+        return WindowsUtils.runPowerShellLogged(psScript, tag, PS_TIMEOUT, onLine, job).success;
     }
 
     private void reconfigureToolsGrid(int cols) {
@@ -916,17 +1013,19 @@ public final class DashBoardPage extends Application {
             AutomationService.get().stop();
         } catch (Exception ignored) {
         }
+        try {
+            // running scripts and everything they started (sfc, dism, cleanmgr...)
+            ActionJob.cancelAll();
+        } catch (Exception ignored) {
+        }
+        try {
+            WindowsUtils.shutdownPowerShellHosts();
+        } catch (Exception ignored) {
+        }
         try {
             Platform.exit();
         } catch (Exception ignored) {
         }
         System.exit(0);
     }
-
-    private enum ScriptKey {
-        FREE_RAM,
-        OPTIMIZE_DISK,
-        OPTIMIZE_NETWORK,
-        SCAN_AND_FIX
-    }
 }
\ No newline at end of file
@@ -0,0 +1,127 @@
+package fx.shield.cs.UX;
+
+import fx.shield.cs.GPU.GpuReading;
+import fx.shield.cs.GPU.GpuStabilizerBank;
+import fx.shield.cs.GPU.GpuUsageProvider;
+import fx.shield.cs.GPU.GpuUsageSubscription;
+import fx.shield.cs.UX.SystemMonitorService.GpuSnapshot;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The monitor's GPU slots, one per provider (one per NVML device, else a single hybrid one).
+ *
+ * <p>Providers push readings from their own threads; the sink only stores the newest reading
+ * of its slot. The monitor loop feeds those through the stabilizer bank with {@link #consume},
+ * which never blocks on a provider.
+ */
+final class GpuSlots {
+
+    // poll period for providers without a push rate of their own
+    private static final long GPU_MS = 200;
+    // no reading for this long counts as a failed read (provider stalled)
+    private static final long GPU_STALE_MS = 2500;
+
+    private final GpuUsageProvider[] providers;
+    private final String[] names;
+    // channel 2*i = utilization, 2*i+1 = memory controller (stabilizer + median-of-3 + EMA)
+    private final GpuStabilizerBank bank;
+    private final GpuUsageSubscription[] subscriptions;
+    // latest pushed reading per slot; consumed (without blocking) by the monitor loop
+    private final AtomicReferenceArray<GpuReading> latest;
+    private final GpuReading[] lastConsumed;
+    // raw utilization between two publications, fed from provider threads
+    private final SystemMonitorService.MetricAccumulator[] peaks;
+
+    GpuSlots(GpuUsageProvider[] providers, String[] names) {
+        this.providers = providers.clone();
+        this.names = names.clone();
+
+        int n = providers.length;
+        bank = new GpuStabilizerBank(n * 2, 2000, 0.30, 4, -1, 0.30);
+        subscriptions = new GpuUsageSubscription[n];
+        peaks = new SystemMonitorService.MetricAccumulator[n];
+        for (int i = 0; i < n; i++) peaks[i] = new SystemMonitorService.MetricAccumulator();
+        latest = new AtomicReferenceArray<>(n);
+        lastConsumed = new GpuReading[n];
+    }
+
+    int size() {
+        return providers.length;
+    }
+
+    String name(int slot) {
+        return names[slot];
+    }
+
+    String[] names() {
+        return names.clone();
+    }
+
+    void start() {
+        for (int i = 0; i < providers.length; i++) {
+            if (subscriptions[i] != null) continue;
+
+            // provider pushes at its own rate (sync providers are polled every GPU_MS);
+            // the sink only stores the reading, smoothing happens in the monitor loop
+            final int slot = i;
+            subscriptions[i] = providers[i].subscribe(GPU_MS, r -> {
+                latest.set(slot, r);
+                if (r.isValid()) peaks[slot].add(r.percent());
+            });
+        }
+    }
+
+    /**
+     * Feeds the newest pushed reading of every slot (if any) through the stabilizer bank.
+     * A stalled provider is treated as failing reads.
+     */
+    GpuSnapshot[] consume(long now) {
+        GpuSnapshot[] out = new GpuSnapshot[providers.length];
+
+        for (int i = 0; i < out.length; i++) {
+            GpuReading r = latest.get(i);
+            int usageCh = 2 * i;
+            int memCh = usageCh + 1;
+
+            if (r != null && r != lastConsumed[i]) {
+                lastConsumed[i] = r;
+                bank.update(usageCh, r.percent(), r.timestampMs());
+                bank.update(memCh, r.memoryPercent(), r.timestampMs());
+            } else if (r == null || now - r.timestampMs() > GPU_STALE_MS) {
+                bank.update(usageCh, -1, now);
+                bank.update(memCh, -1, now);
+            }
+            // else: nothing new yet, keep last output
+
+            GpuSnapshot g = new GpuSnapshot();
+            g.index = i;
+            g.name = names[i];
+            g.usagePercent = bank.output(usageCh);
+            g.memoryPercent = bank.output(memCh);
+            g.supported = g.usagePercent >= 0;
+            g.usageStats = peaks[i].drain();
+            out[i] = g;
+        }
+        return out;
+    }
+
+    /**
+     * Stops delivery first, then closes the providers.
+     */
+    void stop() {
+        for (int i = 0; i < subscriptions.length; i++) {
+            if (subscriptions[i] != null) {
+                subscriptions[i].close();
+                subscriptions[i] = null;
+            }
+        }
+
+        for (GpuUsageProvider p : providers) {
+            try {
+                p.close();
+            } catch (Exception ignored) {
+            }
+        }
+    }
+}
@@ -1,19 +1,16 @@
 // FILE: src/fx.shield.cs/UX/SystemMonitorService.java
 package fx.shield.cs.UX;
 
-import fx.shield.cs.GPU.GPUStabilizer;
+import fx.shield.cs.DISK.DiskMediaTypeDetector;
 import fx.shield.cs.GPU.GpuUsageProvider;
 import fx.shield.cs.GPU.HybridGpuUsageProvider;
-import oshi.SystemInfo;
+import fx.shield.cs.GPU.NvmlGpuUsageProvider;
+import fx.shield.cs.HW.HardwareContext;
 import oshi.hardware.*;
 import oshi.software.os.FileSystem;
 import oshi.software.os.OSFileStore;
 import oshi.software.os.OperatingSystem;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
-import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
@@ -24,8 +21,10 @@ import java.util.concurrent.TimeUnit;
  * High-frequency system monitor with low GC and stable readings.
  * Features:
  * - Single daemon scheduler for UI loop
- * - Dedicated GPU sampler thread with stabilizer + median/EMA smoothing
+ * - GPU readings pushed by the provider (sync providers polled off-thread), smoothed in the monitor loop
+ * - One GPU slot per NVML device (core + memory-controller utilization), else one hybrid slot
  * - CPU dual-EMA + median filter + deadband to reduce jitter
+ * - Raw CPU/GPU min/max/avg between publications, from the samples already taken (no extra polling)
  * - Bounded PowerShell calls with timeouts and defensive OSHI usage
  * - Clamped outputs 0..100; no blocking in UI loop
  */
@@ -37,13 +36,11 @@ public final class SystemMonitorService {
 
     private static final long LOOP_MS = 250;
     private static final long CPU_MS = 500;
-    private static final long GPU_MS = 200;
-    private static final Duration POWERSHELL_TIMEOUT = Duration.ofSeconds(5);
 
     // =========================================================================
     // Data Structures
     // =========================================================================
-    private final SystemInfo si;
+    private final HardwareContext hw;
     private final HardwareAbstractionLayer hal;
     private final CentralProcessor cpu;
     private final GlobalMemory mem;
@@ -72,13 +69,9 @@ public final class SystemMonitorService {
     private final double[] diskBusyEma;
     // Disk type cache (must be thread-safe; filled in background thread)
     private final Map<Integer, String> diskTypeByIndex = new ConcurrentHashMap<>();
-    // GPU monitoring
     private final boolean isWindows;
-    private final GpuUsageProvider gpuProvider;
-    private final GPUStabilizer gpuStabilizer = new GPUStabilizer(2000, 0.30, 4, -1);
-    // GPU smoothing (median-of-3 + EMA) with fixed buffers
-    private final int[] gpuWindow = new int[3];
-    private final double gpuAlpha = 0.30;
+    // GPU monitoring: one slot per adapter
+    private final GpuSlots gpuSlots;
     private volatile Listener listener;
     private ScheduledExecutorService exec;
     // CPU sampling state
@@ -91,28 +84,23 @@ public final class SystemMonitorService {
     private int cpuWinCount = 0;
     private int cpuWinPos = 0;
     private volatile boolean disksWarmedUp = false;
-    private volatile boolean gpuThreadRunning = false;
-    private Thread gpuThread;
-    private volatile int lastGpuStableForUi = -1;
-    private int gpuWinCount = 0;
-    private int gpuWinPos = 0;
-    private int gpuEma = -1;
+    private volatile boolean gpuUsageSupported = false;
+    // raw tick-delta loads between two publications
+    private final MetricAccumulator cpuPeaks = new MetricAccumulator();
     public SystemMonitorService() {
-        si = new SystemInfo();
-        hal = si.getHardware();
-        cpu = hal.getProcessor();
-        mem = hal.getMemory();
-        os = si.getOperatingSystem();
+        hw = HardwareContext.get();
+        hal = hw.hal();
+        cpu = hw.processor();
+        mem = hw.memory();
+        os = hw.os();
         fs = os.getFileSystem();
 
-        String fam = Optional.ofNullable(os.getFamily()).orElse("").toLowerCase();
-        isWindows = fam.contains("windows");
+        isWindows = hw.isWindows();
 
         List<HWDiskStore> disks = safeList(hal.getDiskStores());
         diskStores = disks.toArray(new HWDiskStore[0]);
 
-        List<GraphicsCard> gpuList = safeList(hal.getGraphicsCards());
-        gpus = gpuList.toArray(new GraphicsCard[0]);
+        gpus = hw.graphicsCards().toArray(new GraphicsCard[0]);
 
         prevCpuTicks = cpu.getSystemCpuLoadTicks();
 
@@ -131,50 +119,19 @@ public final class SystemMonitorService {
             diskBusyEma[i] = 0.0;
         }
 
-        gpuProvider = new HybridGpuUsageProvider(isWindows);
-    }
-
-    private static DiskWinInfo findBestByModel(Map<String, DiskWinInfo> map, String oshiModel) {
-        String key = oshiModel.toLowerCase();
-        DiskWinInfo exact = map.get(key);
-        if (exact != null) return exact;
-
-        for (Map.Entry<String, DiskWinInfo> e : map.entrySet()) {
-            String m = e.getKey();
-            if (m.isEmpty()) continue;
-            if (key.contains(m) || m.contains(key)) return e.getValue();
-        }
-        return null;
-    }
-
-    private static DiskWinInfo matchByClosestSize(long size, Map<Long, DiskWinInfo> map) {
-        if (map.isEmpty() || size <= 0) return null;
-
-        long bestDiff = Long.MAX_VALUE;
-        DiskWinInfo best = null;
-
-        for (Map.Entry<Long, DiskWinInfo> e : map.entrySet()) {
-            long s = e.getKey();
-            long diff = Math.abs(s - size);
-            if (diff < bestDiff) {
-                bestDiff = diff;
-                best = e.getValue();
+        // NVML sees every NVIDIA adapter; otherwise fall back to the hybrid chain (first adapter only)
+        List<NvmlGpuUsageProvider> nvml = NvmlGpuUsageProvider.openAll();
+        if (!nvml.isEmpty()) {
+            String[] names = new String[nvml.size()];
+            for (int i = 0; i < names.length; i++) {
+                String n = nvml.get(i).getName();
+                names[i] = (n != null) ? n : oshiGpuName(i);
             }
+            gpuSlots = new GpuSlots(nvml.toArray(new GpuUsageProvider[0]), names);
+        } else {
+            gpuSlots = new GpuSlots(new GpuUsageProvider[]{new HybridGpuUsageProvider(isWindows)},
+                    new String[]{oshiGpuName(0)});
         }
-
-        double ratio = (bestDiff * 1.0) / size;
-        return (ratio <= 0.10) ? best : null;
-    }
-
-    private static String decideDiskLabel(DiskWinInfo info) {
-        String media = Optional.ofNullable(info.mediaType).orElse("").toLowerCase();
-        if (media.contains("ssd")) return "SSD";
-        if (media.contains("hdd")) return "HDD";
-        if (info.rotationRate != null) {
-            if (info.rotationRate == 0) return "SSD";
-            if (info.rotationRate > 0) return "HDD";
-        }
-        return "Disk";
     }
 
     // =========================================================================
@@ -205,12 +162,6 @@ public final class SystemMonitorService {
         return v;
     }
 
-    private static int clampInt(int v, int min, int max) {
-        if (v < min) return min;
-        if (v > max) return max;
-        return v;
-    }
-
     private static <T> List<T> safeList(List<T> x) {
         return (x == null) ? Collections.emptyList() : x;
     }
@@ -222,9 +173,9 @@ public final class SystemMonitorService {
     public void start() {
         if (exec != null) return;
 
-        if (isWindows) {
-            new Thread(this::loadDiskMediaTypesWindows, "fx.shield.cs-disk-detect").start();
-        }
+        Thread detect = new Thread(this::loadDiskMediaTypes, "fx.shield.cs-disk-detect");
+        detect.setDaemon(true);
+        detect.start();
 
         exec = Executors.newSingleThreadScheduledExecutor(r -> {
             Thread t = new Thread(r, "fx.shield.cs-monitor");
@@ -233,7 +184,7 @@ public final class SystemMonitorService {
         });
 
         exec.schedule(() -> disksWarmedUp = true, 900, TimeUnit.MILLISECONDS);
-        startGpuThread();
+        gpuSlots.start();
 
         exec.scheduleAtFixedRate(() -> {
             try {
@@ -244,18 +195,12 @@ public final class SystemMonitorService {
     }
 
     // =========================================================================
-    // GPU Monitoring Thread
+    // GPU Monitoring
     // =========================================================================
 
     public void stop() {
-        // stop GPU thread first
-        gpuThreadRunning = false;
-        if (gpuThread != null) gpuThread.interrupt();
-
-        try {
-            gpuProvider.close();
-        } catch (Exception ignored) {
-        }
+        // stop GPU delivery first
+        gpuSlots.stop();
 
         if (exec != null) {
             exec.shutdownNow();
@@ -264,12 +209,24 @@ public final class SystemMonitorService {
     }
 
     public boolean isGpuUsageSupported() {
-        return lastGpuStableForUi >= 0;
+        return gpuUsageSupported;
     }
 
     public String getGpuName() {
-        if (gpus.length == 0) return "Unknown";
-        GraphicsCard g = gpus[0];
+        return gpuSlots.name(0);
+    }
+
+    public int getGpuCount() {
+        return gpuSlots.size();
+    }
+
+    public String[] getGpuNames() {
+        return gpuSlots.names();
+    }
+
+    private String oshiGpuName(int index) {
+        if (index < 0 || index >= gpus.length) return "Unknown";
+        GraphicsCard g = gpus[index];
         String vendor = Optional.ofNullable(g.getVendor()).orElse("");
         String name = Optional.ofNullable(g.getName()).orElse("");
         String combined = (vendor + " " + name).trim();
@@ -293,95 +250,18 @@ public final class SystemMonitorService {
         return readPhysicalSnapshots(lu, System.currentTimeMillis());
     }
 
-    private void startGpuThread() {
-        if (gpuThreadRunning) return;
-        gpuThreadRunning = true;
-
-        gpuThread = new Thread(() -> {
-            while (gpuThreadRunning) {
-                long now = System.currentTimeMillis();
-
-                int raw = -1;
-                try {
-                    raw = gpuProvider.readGpuUsagePercent();
-                } catch (Throwable ignored) {
-                }
-
-                int stable = gpuStabilizer.update(raw, now);
-
-                // stable may still be >=0 during grace window even when raw fails
-                if (stable >= 0) {
-                    pushGpuSample(stable);
-                    int median = computeGpuMedian();
-                    gpuEma = (gpuEma < 0) ? median : clampInt((int) Math.round(gpuEma + gpuAlpha * (median - gpuEma)), 0, 100);
-                    lastGpuStableForUi = gpuEma;
-                }
-
-                try {
-                    Thread.sleep(GPU_MS);
-                } catch (InterruptedException ie) {
-                    break; // ✅ do not keep interrupt-flag + busy-loop
-                }
-            }
-        }, "fx.shield.cs-gpu");
-
-        gpuThread.setDaemon(true);
-        gpuThread.start();
-    }
-
     // =========================================================================
     // RAM Monitoring
     // =========================================================================
 
-    private void pushGpuSample(int v) {
-        gpuWindow[gpuWinPos] = clampInt(v, 0, 100);
-        gpuWinPos++;
-        if (gpuWinPos == gpuWindow.length) gpuWinPos = 0;
-        if (gpuWinCount < gpuWindow.length) gpuWinCount++;
-    }
-
-    // =========================================================================
-    // Disk Monitoring
-    // =========================================================================
-
-    private int computeGpuMedian() {
-        if (gpuWinCount <= 0) return -1;
-        if (gpuWinCount == 1) return gpuWindow[0];
-
-        if (gpuWinCount == 2) {
-            int a = gpuWindow[0];
-            int b = gpuWindow[1];
-            return (a + b) / 2;
-        }
-
-        // median of 3
-        int a = gpuWindow[0];
-        int b = gpuWindow[1];
-        int c = gpuWindow[2];
-        if (a > b) {
-            int t = a;
-            a = b;
-            b = t;
-        }
-        if (b > c) {
-            int t = b;
-            b = c;
-            c = t;
-        }
-        if (a > b) {
-            int t = a;
-            a = b;
-            b = t;
-        }
-        return b;
-    }
-
     private void sampleAndNotify() {
+        long now = System.currentTimeMillis();
+        GpuSnapshot[] gpuSnaps = gpuSlots.consume(now);
+        gpuUsageSupported = gpuSnaps[0].supported;
+
         Listener l = this.listener;
         if (l == null) return;
 
-        long now = System.currentTimeMillis();
-
         double cpuPct = lastCpuPercent;
         if (lastCpuSampleMs == 0 || now - lastCpuSampleMs >= CPU_MS) {
             double m = readCpuPercent();
@@ -392,6 +272,7 @@ public final class SystemMonitorService {
             cpuPct = lastCpuPercent;
         }
 
+        MetricStats cpuStats = cpuPeaks.drain();
         RamSnapshot ram = readRamSnapshot();
 
         PhysicalDiskSnapshot[] disks;
@@ -403,8 +284,7 @@ public final class SystemMonitorService {
             for (PhysicalDiskSnapshot d : disks) d.activePercent = 0;
         }
 
-        int gpuToUi = (lastGpuStableForUi < 0) ? 0 : lastGpuStableForUi;
-        l.onUpdate(cpuPct, ram, disks, gpuToUi);
+        l.onUpdate(cpuPct, cpuStats, ram, disks, gpuSnaps);
     }
 
     // =========================================================================
@@ -419,6 +299,7 @@ public final class SystemMonitorService {
         if (load < 0) return -1;
 
         double pct = clamp01_100(load * 100.0);
+        cpuPeaks.add(pct);
 
         // push to median window (size 5)
         cpuWindow[cpuWinPos] = pct;
@@ -560,139 +441,94 @@ public final class SystemMonitorService {
         return snaps;
     }
 
-    private void loadDiskMediaTypesWindows() {
+    /**
+     * Labels disks SSD/HDD via {@link DiskMediaTypeDetector}: cached per serial on disk,
+     * one batched platform query for disks not seen before.
+     */
+    private void loadDiskMediaTypes() {
         try {
-            Map<String, DiskWinInfo> winByModel = new HashMap<>();
-            Map<Long, DiskWinInfo> winBySize = new HashMap<>();
-
-            String ps1 = "Get-PhysicalDisk | " +
-                    "Select-Object FriendlyName, MediaType, Size | " +
-                    "ForEach-Object { \"$($_.FriendlyName)|$($_.MediaType)|$($_.Size)\" }";
-            parsePsDiskLines(runPowerShellAll(ps1), winByModel, winBySize, true);
-
-            String ps2 = "Get-CimInstance Win32_DiskDrive | " +
-                    "Select-Object Model, MediaType, Size, RotationRate | " +
-                    "ForEach-Object { \"$($_.Model)|$($_.MediaType)|$($_.Size)|$($_.RotationRate)\" }";
-            parsePsDiskLines(runPowerShellAll(ps2), winByModel, winBySize, false);
-
+            List<DiskMediaTypeDetector.Disk> disks = new ArrayList<>(diskStores.length);
             for (int i = 0; i < diskStores.length; i++) {
                 HWDiskStore d = diskStores[i];
-                String model = safe(d.getModel(), "");
-                long size = d.getSize();
-
-                DiskWinInfo best = null;
-                if (!model.isBlank()) best = findBestByModel(winByModel, model);
-                if (best == null) best = matchByClosestSize(size, winBySize);
+                disks.add(new DiskMediaTypeDetector.Disk(i, d.getName(), d.getModel(), d.getSerial(), d.getSize()));
+            }
 
-                String label = (best != null) ? decideDiskLabel(best) : "Disk";
-                diskTypeByIndex.put(i, label);
+            String[] labels = DiskMediaTypeDetector.forPlatform(isWindows, hw.machineId()).detect(disks);
+            for (int i = 0; i < labels.length; i++) {
+                diskTypeByIndex.put(i, labels[i]);
             }
         } catch (Exception ignored) {
         }
     }
 
-    // =========================================================================
-    // Utility Methods
-    // =========================================================================
-
-    private void parsePsDiskLines(String out,
-                                  Map<String, DiskWinInfo> winByModel,
-                                  Map<Long, DiskWinInfo> winBySize,
-                                  boolean pmStyle) {
-        if (out == null || out.isBlank()) return;
-
-        for (String line : out.split("\\R")) {
-            String s = line.trim();
-            if (s.isEmpty() || !s.contains("|")) continue;
-
-            String[] parts = s.split("\\|", -1);
-            try {
-                if (pmStyle) {
-                    if (parts.length < 3) continue;
-                    String name = parts[0].trim();
-                    String media = parts[1].trim();
-                    String sizeStr = parts[2].trim();
-                    if (name.isEmpty() || sizeStr.isEmpty()) continue;
-
-                    long size = Long.parseLong(sizeStr);
-
-                    DiskWinInfo info = new DiskWinInfo();
-                    info.model = name;
-                    info.mediaType = media;
-                    info.sizeBytes = size;
-
-                    winByModel.put(name.toLowerCase(), info);
-                    winBySize.put(size, info);
-                } else {
-                    if (parts.length < 4) continue;
-                    String model = parts[0].trim();
-                    String mediaType = parts[1].trim();
-                    String sizeStr = parts[2].trim();
-                    String rotStr = parts[3].trim();
-
-                    if (model.isEmpty() || sizeStr.isEmpty()) continue;
-
-                    long size = Long.parseLong(sizeStr);
-                    Integer rot = rotStr.isEmpty() ? null : Integer.parseInt(rotStr);
-
-                    DiskWinInfo info = winByModel.getOrDefault(model.toLowerCase(), new DiskWinInfo());
-                    info.model = model;
-                    info.sizeBytes = size;
-                    if (info.mediaType == null || info.mediaType.isBlank()) info.mediaType = mediaType;
-                    info.rotationRate = rot;
-
-                    winByModel.put(model.toLowerCase(), info);
-                    winBySize.put(size, info);
-                }
-            } catch (Exception ignored) {
+    public interface Listener {
+        /**
+         * @param cpuPercent smoothed CPU usage
+         * @param cpuStats   raw CPU min/max/avg since the previous update; one tick-delta load per
+         *                   CPU sample, so {@code count} is 0 on updates that took none
+         */
+        void onUpdate(double cpuPercent, MetricStats cpuStats, RamSnapshot ram,
+                      PhysicalDiskSnapshot[] disks, GpuSnapshot[] gpus);
+    }
+
+    /**
+     * Raw samples seen between two publications. With {@code count == 0} min/max/avg are -1.
+     */
+    public static class MetricStats {
+        public double min;
+        public double max;
+        public double avg;
+        public int count;
+    }
+
+    public static class GpuSnapshot {
+        public int index;
+        public String name;
+        public int usagePercent;   // -1 = not supported / no reading yet
+        public int memoryPercent;  // -1 = not reported by the provider
+        public boolean supported;
+        public MetricStats usageStats;  // raw utilization since the previous update
+    }
+
+    /**
+     * min/max/sum/count in primitives; drained once per publication.
+     */
+    static final class MetricAccumulator {
+        private double min;
+        private double max;
+        private double sum;
+        private int count;
+
+        synchronized void add(double v) {
+            if (count == 0) {
+                min = v;
+                max = v;
+            } else {
+                if (v < min) min = v;
+                if (v > max) max = v;
             }
+            sum += v;
+            count++;
         }
-    }
-
-    private String runPowerShellAll(String psCommand) {
-        if (!isWindows) return null;
-
-        Process p = null;
-        try {
-            ProcessBuilder pb = new ProcessBuilder(
-                    "powershell",
-                    "-NoProfile",
-                    "-ExecutionPolicy", "Bypass",
-                    "-Command", psCommand
-            );
-            pb.redirectErrorStream(true);
-            p = pb.start();
-
-            StringBuilder sb = new StringBuilder();
-            try (BufferedReader br = new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
-                String line;
-                while ((line = br.readLine()) != null) sb.append(line).append('\n');
-            }
 
-            boolean finished = p.waitFor(POWERSHELL_TIMEOUT.toSeconds(), TimeUnit.SECONDS);
-            if (!finished) {
-                p.destroyForcibly();
-                return null;
-            }
-
-            String res = sb.toString();
-            return res.isBlank() ? null : res;
-
-        } catch (Exception e) {
-            if (p != null) {
-                try {
-                    p.destroyForcibly();
-                } catch (Exception ignored) {
-                }
+        synchronized MetricStats drain() {
+            MetricStats s = new MetricStats();
+            s.count = count;
+            if (count == 0) {
+                s.min = -1;
+                s.max = -1;
+                s.avg = -1;
+            } else {
+                s.min = min;
+                s.max = max;
+                s.avg = sum / count;
             }
-            return null;
+            count = 0;
+            sum = 0;
+            return s;
         }
     }
 
-    public interface Listener {
-        void onUpdate(double cpuPercent, RamSnapshot ram, PhysicalDiskSnapshot[] disks, int gpuUsage);
-    }
-
     public static class RamSnapshot {
         public double totalGb;
         public double usedGb;
@@ -715,11 +551,4 @@ public final class SystemMonitorService {
         double totalGb;
         double usedGb;
     }
-
-    private static final class DiskWinInfo {
-        String model;
-        String mediaType;
-        Long sizeBytes;
-        Integer rotationRate;
-    }
 }
@@ -0,0 +1,113 @@
+package fx.shield.cs.WIN;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Handle of one user action (a dashboard button, a power mode change) that may run several
+ * scripts.
+ *
+ * <p>Whatever the action starts registers a cancel hook while it runs: a one-shot process
+ * kills its process tree, a pooled PowerShell host kills itself and its children (the host is
+ * then discarded), a job graph stops starting steps. {@link #cancel()} runs all hooks; hooks
+ * registered after that run immediately. Active handles are tracked so the app can cancel
+ * everything on exit ({@link #cancelAll()}).
+ */
+public final class ActionJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(ActionJob.class);
+
+    public enum State { RUNNING, DONE, CANCELLED }
+
+    private static final Set<ActionJob> ACTIVE = ConcurrentHashMap.newKeySet();
+
+    private final String name;
+    private final long startedNs = System.nanoTime();
+    private final List<Runnable> hooks = new ArrayList<>(); // guarded by this
+    private volatile State state = State.RUNNING;
+
+    private ActionJob(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Creates and tracks a new handle; call {@link #finish()} when the action is over.
+     */
+    public static ActionJob start(String name) {
+        ActionJob job = new ActionJob(name == null ? "" : name);
+        ACTIVE.add(job);
+        return job;
+    }
+
+    /**
+     * Cancels every running action (app exit).
+     */
+    public static void cancelAll() {
+        for (ActionJob job : ACTIVE.toArray(new ActionJob[0])) job.cancel();
+    }
+
+    public static List<ActionJob> active() {
+        return List.copyOf(ACTIVE);
+    }
+
+    public String name() { return name; }
+
+    public State state() { return state; }
+
+    public boolean isCancelled() { return state == State.CANCELLED; }
+
+    /**
+     * Registers {@code hook} to run on cancel (at most once). If the job is already cancelled
+     * the hook runs now.
+     *
+     * @return unregisters the hook; call it once the hooked work is over
+     */
+    public Runnable onCancel(Runnable hook) {
+        synchronized (this) {
+            if (state != State.CANCELLED) {
+                hooks.add(hook);
+                return () -> {
+                    synchronized (ActionJob.this) { hooks.remove(hook); }
+                };
+            }
+        }
+        runHook(hook);
+        return () -> {};
+    }
+
+    /**
+     * Idempotent; no effect once the job has finished.
+     */
+    public void cancel() {
+        Runnable[] toRun;
+        synchronized (this) {
+            if (state != State.RUNNING) return;
+            state = State.CANCELLED;
+            toRun = hooks.toArray(new Runnable[0]);
+            hooks.clear();
+        }
+        logger.info("Action cancelled: {} after {} ms", name, (System.nanoTime() - startedNs) / 1_000_000L);
+        for (Runnable r : toRun) runHook(r);
+        ACTIVE.remove(this);
+    }
+
+    /**
+     * Marks the action as over (keeps {@link State#CANCELLED} if it was cancelled).
+     */
+    public void finish() {
+        synchronized (this) {
+            if (state == State.RUNNING) state = State.DONE;
+            hooks.clear();
+        }
+        ACTIVE.remove(this);
+    }
+
+    private void runHook(Runnable r) {
+        try { r.run(); } catch (Throwable t) { logger.debug("Cancel hook failed: {}", name, t); }
+    }
+}
@@ -0,0 +1,241 @@
+package fx.shield.cs.WIN;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Small dependency-aware step runner (One Click optimization).
+ *
+ * <ul>
+ *   <li>Each step declares the steps it depends on and its {@link Resource} class</li>
+ *   <li>Ready steps run concurrently, at most {@code maxParallel} at once and one per resource
+ *       class (two disk-heavy steps never overlap)</li>
+ *   <li>A failed step skips its dependents (transitively); independent steps still run</li>
+ *   <li>State changes and per-step timings are reported to a {@link Listener}</li>
+ *   <li>{@link #cancel()} stops starting steps; pending steps and steps that end after the
+ *       cancel are reported as {@link Status#CANCELLED}</li>
+ * </ul>
+ *
+ * <p>{@link #run} blocks the calling thread until every step has finished or been skipped.
+ */
+public final class JobGraph {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobGraph.class);
+
+    public enum Resource { CPU, DISK, NETWORK }
+
+    public enum Status { PENDING, RUNNING, OK, FAILED, SKIPPED, CANCELLED }
+
+    public interface Listener {
+        /**
+         * Called on every status change, from the runner or a worker thread.
+         */
+        void onStep(Step step);
+    }
+
+    public static final class Step {
+        public final String id;
+        public final String label;
+        public final Resource resource;
+        public final int index; // order of add()
+
+        private final List<String> deps;
+        private final BooleanSupplier work;
+
+        private volatile Status status = Status.PENDING;
+        private volatile long durationMs;
+
+        private Step(String id, String label, Resource resource, int index, List<String> deps, BooleanSupplier work) {
+            this.id = id;
+            this.label = label;
+            this.resource = resource;
+            this.index = index;
+            this.deps = deps;
+            this.work = work;
+        }
+
+        public Status status() { return status; }
+
+        /**
+         * @return run time once the step has finished, 0 before
+         */
+        public long durationMs() { return durationMs; }
+
+        public List<String> dependencies() { return deps; }
+    }
+
+    private final int maxParallel;
+    private final Map<String, Step> steps = new LinkedHashMap<>();
+    private volatile boolean cancelled;
+
+    public JobGraph(int maxParallel) {
+        this.maxParallel = Math.max(1, maxParallel);
+    }
+
+    /**
+     * Adds a step. Dependencies must have been added before.
+     *
+     * @param work returns true on success; an exception counts as failure
+     */
+    public JobGraph add(String id, String label, Resource resource, BooleanSupplier work, String... dependsOn) {
+        if (steps.containsKey(id)) throw new IllegalArgumentException("Duplicate step: " + id);
+        List<String> deps = new ArrayList<>();
+        if (dependsOn != null) {
+            for (String d : dependsOn) {
+                if (!steps.containsKey(d)) throw new IllegalArgumentException("Unknown dependency of " + id + ": " + d);
+                deps.add(d);
+            }
+        }
+        steps.put(id, new Step(id, label, resource, steps.size(), List.copyOf(deps), work));
+        return this;
+    }
+
+    public List<Step> steps() {
+        return List.copyOf(steps.values());
+    }
+
+    /**
+     * Stops starting new steps; running steps are not interrupted (cancel their work separately,
+     * e.g. through an {@link ActionJob}).
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Runs every step and waits.
+     *
+     * @param listener may be null
+     * @return true if every step succeeded
+     */
+    public boolean run(Listener listener) {
+        if (steps.isEmpty()) return true;
+
+        AtomicInteger ids = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(Math.min(maxParallel, steps.size()), r -> {
+            Thread t = new Thread(r, "fxShield-job-" + ids.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        LinkedBlockingQueue<Step> finished = new LinkedBlockingQueue<>();
+        Map<Resource, Boolean> busy = new EnumMap<>(Resource.class);
+        int running = 0;
+        int open = steps.size();
+
+        try {
+            while (open > 0) {
+                if (cancelled) {
+                    for (Step s : steps.values()) {
+                        if (s.status == Status.PENDING) {
+                            s.status = Status.CANCELLED;
+                            notify(listener, s);
+                            open--;
+                        }
+                    }
+                    if (open == 0) break;
+                }
+
+                // start whatever is ready, in add() order
+                for (Step s : steps.values()) {
+                    if (cancelled) break;
+                    if (running >= maxParallel) break;
+                    if (s.status != Status.PENDING || busy.getOrDefault(s.resource, false)) continue;
+                    if (!depsSucceeded(s)) continue;
+
+                    busy.put(s.resource, true);
+                    running++;
+                    s.status = Status.RUNNING;
+                    notify(listener, s);
+                    workers.execute(() -> {
+                        long t0 = System.nanoTime();
+                        boolean ok;
+                        try {
+                            ok = s.work.getAsBoolean();
+                        } catch (Throwable t) {
+                            logger.error("Step failed: {}", s.id, t);
+                            ok = false;
+                        }
+                        s.durationMs = (System.nanoTime() - t0) / 1_000_000L;
+                        s.status = ok ? Status.OK : (cancelled ? Status.CANCELLED : Status.FAILED);
+                        finished.add(s);
+                    });
+                }
+
+                if (running == 0) {
+                    // nothing runnable (cannot happen with add()-time validation); don't hang
+                    for (Step s : steps.values()) {
+                        if (s.status == Status.PENDING) {
+                            s.status = Status.SKIPPED;
+                            notify(listener, s);
+                            open--;
+                        }
+                    }
+                    break;
+                }
+
+                Step done = finished.take();
+                running--;
+                open--;
+                busy.put(done.resource, false);
+                logger.info("Step {} {} in {} ms", done.id, done.status, done.durationMs);
+                notify(listener, done);
+
+                if (done.status == Status.FAILED) open -= skipDependents(done.id, listener);
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            workers.shutdown();
+        }
+
+        for (Step s : steps.values()) {
+            if (s.status != Status.OK) return false;
+        }
+        return true;
+    }
+
+    private boolean depsSucceeded(Step s) {
+        for (String d : s.deps) {
+            if (steps.get(d).status != Status.OK) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return number of steps newly skipped
+     */
+    private int skipDependents(String failedId, Listener listener) {
+        int n = 0;
+        for (Step s : steps.values()) { // add() order: dependents come after their dependencies
+            if (s.status != Status.PENDING) continue;
+            for (String d : s.deps) {
+                Status ds = steps.get(d).status;
+                if (d.equals(failedId) || ds == Status.SKIPPED || ds == Status.FAILED) {
+                    s.status = Status.SKIPPED;
+                    notify(listener, s);
+                    n++;
+                    break;
+                }
+            }
+        }
+        return n;
+    }
+
+    private static void notify(Listener listener, Step s) {
+        if (listener == null) return;
+        try { listener.onStep(s); } catch (Throwable t) { logger.debug("Step listener failed", t); }
+    }
+}
@@ -0,0 +1,76 @@
+package fx.shield.cs.WIN;
+
+import java.util.ArrayDeque;
+
+/**
+ * Bounded line capture for child-process output.
+ *
+ * <p>Keeps the first {@code headChars} characters and the most recent {@code tailChars}
+ * characters (whole lines); anything in between is dropped and replaced by a single
+ * "lines omitted" marker. Memory stays bounded no matter how chatty the script is
+ * (SFC/DISM print thousands of progress lines), while the start (banner, parameters) and
+ * the end (summary, errors) are kept. Thread-safe.
+ */
+final class OutputBuffer {
+
+    static final int DEFAULT_HEAD_CHARS = 16 * 1024;
+    static final int DEFAULT_TAIL_CHARS = 48 * 1024;
+
+    private final int headChars;
+    private final int tailChars;
+
+    private final StringBuilder head = new StringBuilder();
+    private final ArrayDeque<String> tail = new ArrayDeque<>();
+    private int tailLength = 0;     // chars in tail, including the '\n' of each line
+    private long omittedLines = 0;
+    private boolean headFull = false;
+
+    OutputBuffer() {
+        this(DEFAULT_HEAD_CHARS, DEFAULT_TAIL_CHARS);
+    }
+
+    OutputBuffer(int headChars, int tailChars) {
+        this.headChars = Math.max(0, headChars);
+        this.tailChars = Math.max(1, tailChars);
+    }
+
+    synchronized void appendLine(String line) {
+        String l = (line == null) ? "" : line;
+
+        if (!headFull) {
+            if (head.length() + l.length() + 1 <= headChars) {
+                head.append(l).append('\n');
+                return;
+            }
+            headFull = true;
+        }
+
+        // a single line longer than the whole tail is cut to its end
+        if (l.length() + 1 > tailChars) l = l.substring(l.length() - (tailChars - 1));
+
+        tail.addLast(l);
+        tailLength += l.length() + 1;
+        while (tailLength > tailChars) {
+            String dropped = tail.pollFirst();
+            tailLength -= dropped.length() + 1;
+            omittedLines++;
+        }
+    }
+
+    synchronized long omittedLines() {
+        return omittedLines;
+    }
+
+    @Override
+    public synchronized String toString() {
+        if (!headFull && tail.isEmpty()) return head.toString();
+
+        StringBuilder sb = new StringBuilder(head.length() + tailLength + 48);
+        sb.append(head);
+        if (omittedLines > 0) {
+            sb.append("... [").append(omittedLines).append(" lines omitted] ...\n");
+        }
+        for (String l : tail) sb.append(l).append('\n');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,321 @@
+package fx.shield.cs.WIN;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Drains the stdout/stderr pipes of every child process, each on its own virtual thread.
+ *
+ * <p>A reader blocks in a one-byte read until the child writes (so lines arrive as soon as
+ * they are written and an idle pipe costs no wakeups), then takes whatever else is already
+ * buffered into a pooled scratch buffer and decodes it. Only a small decoder and the current
+ * partial line are kept per pipe. A pipe ends at end of stream, or once its process has
+ * exited and the reader has been waiting on an empty pipe for {@link #EXIT_SETTLE_MS}: a
+ * grandchild still holding the pipe open must not keep the pipe (and its waiters) alive.
+ *
+ * <p>A pipe read blocked in the kernel pins its carrier, and the virtual-thread scheduler
+ * compensates with a new carrier each time. Only {@link #BLOCKING_READS} readers may block at
+ * once; the rest poll {@code available()} with a short sleep (which unmounts) until a slot frees
+ * up, so the carrier pool stays near the processor count however many pipes are open. A polling
+ * reader ends on its own once its process has exited and the pipe is empty.
+ *
+ * <p>Line callbacks run on the pipe's reader thread, one pipe at a time, and must not block.
+ * Lines are split on {@code \n}, {@code \r} or {@code \r\n}, like
+ * {@link java.io.BufferedReader#readLine()}; overlong lines are cut at {@link #MAX_LINE_CHARS}.
+ */
+public final class PipeReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(PipeReader.class);
+
+    static final int MAX_LINE_CHARS = 64 * 1024;
+
+    static final long EXIT_SETTLE_MS = 50;
+
+    // readers allowed to block in the kernel at once (each holds a carrier); at least enough for
+    // the steady state (two pooled hosts and typeperf, two pipes each) so idle pipes never poll
+    static final int BLOCKING_READS = Math.max(8, Runtime.getRuntime().availableProcessors());
+    // poll backoff cap for readers without a blocking slot
+    private static final long MAX_POLL_MS = 20;
+
+    private static final int BUFFER_BYTES = 8192;
+    private static final int POOLED_BUFFERS = 8;
+
+    /**
+     * A registered pipe; completes when the pipe is fully drained.
+     */
+    public static final class Pipe {
+        private final InputStream in;
+        private final Consumer<String> onLine;
+        private final Runnable onEof;
+        private final CharsetDecoder decoder;
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        // written by the reader (waiting is cleared under the lock), read by the exit watch
+        private volatile boolean waiting;
+        private volatile long reads;
+        private volatile boolean exited;
+
+        // guarded by this (reader thread vs. exit watch)
+        private final ByteBuffer carry = ByteBuffer.allocate(16); // incomplete multi-byte sequence
+        private final StringBuilder line = new StringBuilder();
+        private boolean lastWasCr;
+        private boolean truncating;
+        private boolean finished;
+
+        private Pipe(InputStream in, Charset cs, Consumer<String> onLine, Runnable onEof) {
+            this.in = in;
+            this.onLine = onLine;
+            this.onEof = onEof;
+            this.decoder = cs.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+
+        /**
+         * Waits until every line has been delivered (or the pipe failed).
+         *
+         * @return false on timeout
+         */
+        public boolean await(long timeoutMs) {
+            try {
+                return done.await(Math.max(0, timeoutMs), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        public boolean isDone() {
+            return done.getCount() == 0;
+        }
+    }
+
+    private static volatile PipeReader shared;
+
+    public static PipeReader shared() {
+        PipeReader r = shared;
+        if (r != null) return r;
+        synchronized (PipeReader.class) {
+            if (shared == null) shared = new PipeReader();
+            return shared;
+        }
+    }
+
+    /**
+     * Scratch space for one decode; pooled so idle pipes hold no buffers.
+     */
+    private static final class Scratch {
+        final byte[] bytes = new byte[BUFFER_BYTES + 16];
+        final CharBuffer chars = CharBuffer.allocate(BUFFER_BYTES + 16);
+    }
+
+    private final ThreadFactory readers = Thread.ofVirtual().name("fxShield-pipe-", 1).factory();
+    // exit watches run on virtual threads too (the common pool may be a thread per task)
+    private final Executor watches = task -> readers.newThread(task).start();
+    private final Semaphore blockingReads = new Semaphore(BLOCKING_READS);
+    private final ArrayBlockingQueue<Scratch> scratch = new ArrayBlockingQueue<>(POOLED_BUFFERS);
+
+    private PipeReader() {
+    }
+
+    /**
+     * Starts draining {@code in}, a pipe of {@code owner}.
+     *
+     * @param onLine called for each line (may be null: output is discarded)
+     * @param onEof  called once after the last line (may be null)
+     */
+    public Pipe register(InputStream in, Process owner, Charset cs, Consumer<String> onLine, Runnable onEof) {
+        Pipe p = new Pipe(in, cs, onLine, onEof);
+        readers.newThread(() -> drain(p)).start();
+        owner.onExit().thenRun(() -> {
+            p.exited = true;
+            watchExit(p, -1);
+        });
+        return p;
+    }
+
+    private void drain(Pipe p) {
+        byte[] first = new byte[1];
+        long pollMs = 0;
+        try {
+            while (true) {
+                boolean exited = p.exited; // before available(): all of its output is in the pipe
+                int ready = p.in.available();
+                boolean haveFirst = false;
+
+                if (ready <= 0) {
+                    if (!blockingReads.tryAcquire()) {
+                        if (exited) break; // empty, and nothing more will come from the process
+                        // every blocking slot is taken: sleep off the carrier and look again
+                        pollMs = Math.min(MAX_POLL_MS, Math.max(1, pollMs * 2));
+                        Thread.sleep(pollMs);
+                        continue;
+                    }
+                    int n;
+                    p.waiting = true;
+                    try {
+                        n = p.in.read(first, 0, 1);
+                    } finally {
+                        blockingReads.release();
+                    }
+                    if (!claim(p)) return; // given up on by the exit watch
+                    if (n < 0) break;
+                    haveFirst = true;
+                    ready = p.in.available();
+                }
+                pollMs = 0;
+
+                Scratch s = borrow();
+                try {
+                    int off = 0;
+                    if (haveFirst) s.bytes[off++] = first[0];
+                    int more = Math.min(ready, BUFFER_BYTES - off);
+                    if (more > 0) more = Math.max(0, p.in.read(s.bytes, off, more));
+                    synchronized (p) {
+                        if (p.finished) return;
+                        decode(p, s, off + more);
+                    }
+                } finally {
+                    release(s);
+                }
+                p.reads++;
+            }
+        } catch (Throwable t) {
+            // closed or failed: ends the pipe like end of stream
+        } finally {
+            p.waiting = false;
+            try { p.in.close(); } catch (Throwable ignored) {}
+        }
+        finish(p);
+    }
+
+    /**
+     * Takes the pipe back from the exit watch after a read. Both decide under the pipe's lock, so
+     * either the watch sees {@code waiting} cleared and keeps the pipe open, or it had already
+     * ended the pipe and the reader stops here.
+     */
+    private static boolean claim(Pipe p) {
+        synchronized (p) {
+            if (p.finished) return false;
+            p.waiting = false;
+            return true;
+        }
+    }
+
+    /**
+     * Ends a pipe whose process is gone but whose reader is still blocked in a read, i.e. the pipe
+     * is empty and held open by a descendant. Rechecked every {@link #EXIT_SETTLE_MS} while the reader makes
+     * progress; the stream itself is closed by the reader once its read returns.
+     */
+    private void watchExit(Pipe p, long lastReads) {
+        if (p.isDone()) return;
+        long r;
+        synchronized (p) {
+            r = p.reads;
+            if (p.waiting && r == lastReads) {
+                finish(p);
+                return;
+            }
+        }
+        CompletableFuture.delayedExecutor(EXIT_SETTLE_MS, TimeUnit.MILLISECONDS, watches)
+                .execute(() -> watchExit(p, r));
+    }
+
+    private Scratch borrow() {
+        Scratch s = scratch.poll();
+        return (s != null) ? s : new Scratch();
+    }
+
+    private void release(Scratch s) {
+        scratch.offer(s); // dropped when the pool is full
+    }
+
+    private static void decode(Pipe p, Scratch s, int n) {
+        byte[] bytes = s.bytes;
+        ByteBuffer src;
+        if (p.carry.position() > 0) {
+            p.carry.flip();
+            int c = p.carry.remaining();
+            System.arraycopy(bytes, 0, bytes, c, n);
+            p.carry.get(bytes, 0, c);
+            p.carry.clear();
+            src = ByteBuffer.wrap(bytes, 0, c + n);
+        } else {
+            src = ByteBuffer.wrap(bytes, 0, n);
+        }
+
+        CharBuffer chars = s.chars;
+        while (true) {
+            chars.clear();
+            boolean overflow = p.decoder.decode(src, chars, false).isOverflow();
+            chars.flip();
+            emit(p, chars);
+            if (!overflow) break;
+        }
+        if (src.hasRemaining()) p.carry.put(src); // at most a few bytes of one code point
+    }
+
+    private static void emit(Pipe p, CharBuffer cb) {
+        while (cb.hasRemaining()) {
+            char ch = cb.get();
+            if (ch == '\n' && p.lastWasCr) {
+                p.lastWasCr = false;
+                continue;
+            }
+            p.lastWasCr = (ch == '\r');
+            if (ch == '\n' || ch == '\r') {
+                deliver(p);
+                continue;
+            }
+            if (p.line.length() < MAX_LINE_CHARS) p.line.append(ch);
+            else p.truncating = true;
+        }
+    }
+
+    private static void deliver(Pipe p) {
+        String s = p.line.toString();
+        p.line.setLength(0);
+        p.truncating = false;
+        if (p.onLine != null) {
+            try { p.onLine.accept(s); } catch (Throwable t) { logger.debug("Pipe line consumer failed", t); }
+        }
+    }
+
+    private static void finish(Pipe p) {
+        synchronized (p) {
+            if (p.finished) return;
+            p.finished = true;
+            try {
+                if (p.carry.position() > 0) {
+                    p.carry.flip();
+                    CharBuffer chars = CharBuffer.allocate(16);
+                    p.decoder.decode(p.carry, chars, true);
+                    p.decoder.flush(chars);
+                    chars.flip();
+                    emit(p, chars);
+                }
+                if (p.line.length() > 0 || p.truncating) deliver(p);
+            } catch (Throwable ignored) {}
+        }
+
+        if (p.onEof != null) {
+            try { p.onEof.run(); } catch (Throwable ignored) {}
+        }
+        p.done.countDown();
+    }
+}
@@ -0,0 +1,388 @@
+package fx.shield.cs.WIN;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Single place where external work (PowerShell scripts, processes) is run.
+ *
+ * <ul>
+ *   <li>Global concurrency cap: at most {@code maxConcurrent} jobs run at once, the rest wait</li>
+ *   <li>Priority queue: {@link Priority#HIGH} (interactive queries) before NORMAL (user actions)
+ *       before LOW (background automation); FIFO within a priority</li>
+ *   <li>Single-flight: a job whose key is already queued or running is not started again;
+ *       the caller shares the running job's result</li>
+ *   <li>{@link #runProcess} drains stdout/stderr as UTF-8 and kills the whole process tree
+ *       ({@link ProcessHandle#descendants()}) on timeout</li>
+ *   <li>Per-job queue/run timings, plus totals in {@link #stats()}</li>
+ * </ul>
+ *
+ * <p>Jobs submitted from a worker thread run inline, so nested submissions cannot deadlock
+ * the cap.
+ */
+public final class ProcessExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessExecutor.class);
+
+    private static final int SHARED_MAX_CONCURRENT = 2;
+    private static final long WORKER_KEEP_ALIVE_SEC = 30;
+
+    public enum Priority { HIGH, NORMAL, LOW }
+
+    /**
+     * One submitted job. Shared by every caller that submitted the same key while it was in flight.
+     */
+    public static final class Job implements Runnable, Comparable<Job> {
+        private final ProcessExecutor owner;
+        private final String key;
+        private final Priority priority;
+        private final long seq;
+        private final Callable<WindowsUtils.PsResult> work;
+        private final CompletableFuture<WindowsUtils.PsResult> future = new CompletableFuture<>();
+
+        private final long submittedNs = System.nanoTime();
+        private volatile long startedNs;
+        private volatile long finishedNs;
+
+        private Job(ProcessExecutor owner, String key, Priority priority, long seq, Callable<WindowsUtils.PsResult> work) {
+            this.owner = owner;
+            this.key = key;
+            this.priority = priority;
+            this.seq = seq;
+            this.work = work;
+        }
+
+        public String key() { return key; }
+
+        public Priority priority() { return priority; }
+
+        public CompletableFuture<WindowsUtils.PsResult> future() { return future; }
+
+        /**
+         * Blocks until the job has finished.
+         */
+        public WindowsUtils.PsResult await() {
+            try {
+                return future.get();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return new WindowsUtils.PsResult(-1, "", "interrupted", false);
+            } catch (ExecutionException e) {
+                return new WindowsUtils.PsResult(-1, "", String.valueOf(e.getCause()), false);
+            }
+        }
+
+        /**
+         * @return time spent waiting for a slot (so far, if still queued)
+         */
+        public long queuedMs() {
+            long s = startedNs;
+            return ((s != 0 ? s : System.nanoTime()) - submittedNs) / 1_000_000L;
+        }
+
+        /**
+         * @return run time (so far, if still running); 0 while queued
+         */
+        public long runMs() {
+            long s = startedNs;
+            if (s == 0) return 0;
+            long f = finishedNs;
+            return ((f != 0 ? f : System.nanoTime()) - s) / 1_000_000L;
+        }
+
+        public boolean isDone() { return future.isDone(); }
+
+        @Override
+        public void run() {
+            startedNs = System.nanoTime();
+            WindowsUtils.PsResult r;
+            try {
+                r = work.call();
+                if (r == null) r = new WindowsUtils.PsResult(-1, "", "", false);
+            } catch (Throwable t) {
+                logger.error("Job failed: {}", key, t);
+                r = new WindowsUtils.PsResult(-1, "", String.valueOf(t), false);
+            }
+            finishedNs = System.nanoTime();
+            owner.finished(this, r);
+            future.complete(r);
+        }
+
+        @Override
+        public int compareTo(Job o) {
+            int c = priority.compareTo(o.priority);
+            return (c != 0) ? c : Long.compare(seq, o.seq);
+        }
+    }
+
+    /**
+     * Totals since start.
+     */
+    public static final class Stats {
+        public long submitted;
+        public long deduplicated;
+        public long completed;
+        public long failed;       // non-zero exit or error
+        public long timedOut;
+        public long totalQueueMs;
+        public long totalRunMs;
+        public long maxQueueMs;
+        public long maxRunMs;
+        public int running;
+        public int queued;
+    }
+
+    private static volatile ProcessExecutor shared;
+
+    /**
+     * App-wide executor ({@value #SHARED_MAX_CONCURRENT} concurrent jobs).
+     */
+    public static ProcessExecutor shared() {
+        ProcessExecutor e = shared;
+        if (e != null) return e;
+        synchronized (ProcessExecutor.class) {
+            if (shared == null) shared = new ProcessExecutor(SHARED_MAX_CONCURRENT);
+            return shared;
+        }
+    }
+
+    private final ThreadPoolExecutor pool;
+    private final ConcurrentHashMap<String, Job> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong seq = new AtomicLong();
+
+    private final Object statsLock = new Object();
+    private final Stats stats = new Stats(); // guarded by statsLock
+
+    public ProcessExecutor(int maxConcurrent) {
+        int n = Math.max(1, maxConcurrent);
+        AtomicInteger ids = new AtomicInteger();
+        pool = new ThreadPoolExecutor(n, n, WORKER_KEEP_ALIVE_SEC, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "fxShield-proc-" + ids.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        pool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queues a job.
+     *
+     * @param key  single-flight key (e.g. the script text); null disables deduplication
+     * @param work the job; returns the result (exceptions become exit code -1)
+     * @return the new job, or the in-flight job with the same key
+     */
+    public Job submit(String key, Priority priority, Callable<WindowsUtils.PsResult> work) {
+        Priority p = (priority == null) ? Priority.NORMAL : priority;
+        Job job = new Job(this, key, p, seq.incrementAndGet(), work);
+
+        if (key != null) {
+            Job existing = inFlight.putIfAbsent(key, job);
+            if (existing != null) {
+                synchronized (statsLock) { stats.deduplicated++; }
+                logger.debug("Job joined in-flight run: {}", shortKey(key));
+                return existing;
+            }
+        }
+
+        synchronized (statsLock) { stats.submitted++; }
+
+        if (Thread.currentThread().getName().startsWith("fxShield-proc-")) {
+            job.run(); // nested: a worker waiting for a queued job could starve the cap
+        } else {
+            pool.execute(job);
+        }
+        return job;
+    }
+
+    /**
+     * {@link #submit} and wait.
+     */
+    public WindowsUtils.PsResult run(String key, Priority priority, Callable<WindowsUtils.PsResult> work) {
+        return submit(key, priority, work).await();
+    }
+
+    private void finished(Job job, WindowsUtils.PsResult r) {
+        if (job.key != null) inFlight.remove(job.key, job);
+
+        long q = job.queuedMs();
+        long run = job.runMs();
+        synchronized (statsLock) {
+            stats.completed++;
+            if (!r.success) stats.failed++;
+            if (r.timedOut) stats.timedOut++;
+            stats.totalQueueMs += q;
+            stats.totalRunMs += run;
+            stats.maxQueueMs = Math.max(stats.maxQueueMs, q);
+            stats.maxRunMs = Math.max(stats.maxRunMs, run);
+        }
+
+        logger.debug("Job {} [{}] queued={}ms run={}ms exit={} timedOut={}",
+                shortKey(job.key), job.priority, q, run, r.exitCode, r.timedOut);
+    }
+
+    public Stats stats() {
+        Stats s = new Stats();
+        synchronized (statsLock) {
+            s.submitted = stats.submitted;
+            s.deduplicated = stats.deduplicated;
+            s.completed = stats.completed;
+            s.failed = stats.failed;
+            s.timedOut = stats.timedOut;
+            s.totalQueueMs = stats.totalQueueMs;
+            s.totalRunMs = stats.totalRunMs;
+            s.maxQueueMs = stats.maxQueueMs;
+            s.maxRunMs = stats.maxRunMs;
+        }
+        s.running = pool.getActiveCount();
+        s.queued = pool.getQueue().size();
+        return s;
+    }
+
+    private static String shortKey(String key) {
+        if (key == null) return "-";
+        String k = key.replace('\n', ' ').replace('\r', ' ');
+        return k.length() > 48 ? k.substring(0, 48) + "..." : k;
+    }
+
+    // =========================================================================
+    // Process execution
+    // =========================================================================
+
+    /**
+     * Starts {@code command}, drains stdout/stderr (UTF-8) on the shared {@link PipeReader} and waits.
+     * Captured output is bounded (head and tail kept, see {@link OutputBuffer}).
+     * On timeout the process and all of its descendants are killed.
+     *
+     * @param onOut optional sink for stdout lines as they arrive (called on the pipe's reader thread; must not block)
+     * @param onErr optional sink for stderr lines as they arrive (called on the pipe's reader thread; must not block)
+     */
+    public static WindowsUtils.PsResult runProcess(List<String> command, Duration timeout,
+                                                   Consumer<String> onOut, Consumer<String> onErr) {
+        return runProcess(command, timeout, onOut, onErr, null);
+    }
+
+    /**
+     * {@link #runProcess(List, Duration, Consumer, Consumer)} that {@code job} can cancel: the
+     * process tree is killed and the result has {@code cancelled} set.
+     */
+    public static WindowsUtils.PsResult runProcess(List<String> command, Duration timeout,
+                                                   Consumer<String> onOut, Consumer<String> onErr, ActionJob job) {
+        Process p = null;
+        Runnable unhook = null;
+        OutputBuffer out = new OutputBuffer();
+        OutputBuffer err = new OutputBuffer();
+        PipeReader.Pipe pOut = null;
+        PipeReader.Pipe pErr = null;
+
+        if (job != null && job.isCancelled()) return new WindowsUtils.PsResult(-1, "", "", false, true);
+
+        try {
+            ProcessBuilder pb = new ProcessBuilder(command);
+            pb.redirectErrorStream(false);
+            p = pb.start();
+
+            pOut = drain(p, p.getInputStream(), out, onOut);
+            pErr = drain(p, p.getErrorStream(), err, onErr);
+
+            if (job != null) {
+                Process proc = p;
+                unhook = job.onCancel(() -> destroyTree(proc));
+            }
+
+            boolean finished = p.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            if (!finished) {
+                destroyTree(p);
+                awaitQuiet(pOut, 1200);
+                awaitQuiet(pErr, 1200);
+                return new WindowsUtils.PsResult(-1, text(out), text(err), true);
+            }
+
+            awaitQuiet(pOut, 1200);
+            awaitQuiet(pErr, 1200);
+            boolean cancelled = job != null && job.isCancelled();
+            return new WindowsUtils.PsResult(p.exitValue(), text(out), text(err), false, cancelled);
+
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            if (p != null) destroyTree(p);
+            return new WindowsUtils.PsResult(-1, text(out), text(err), false);
+        } catch (Exception ex) {
+            logger.error("Process execution failed: {}", command.isEmpty() ? "" : command.get(0), ex);
+            if (p != null) destroyTree(p);
+            awaitQuiet(pOut, 800);
+            awaitQuiet(pErr, 800);
+            return new WindowsUtils.PsResult(-1, text(out), text(err), false);
+        } finally {
+            if (unhook != null) unhook.run();
+        }
+    }
+
+    /**
+     * Kills a process and everything it started.
+     *
+     * <p>Descendants go first, in a few rounds (a shell may start its next command when the
+     * current one dies), then the process itself. Descendants are collected while the parent is
+     * still alive, since they are re-parented (and no longer listed) once it is gone.
+     */
+    public static void destroyTree(Process p) {
+        if (p == null) return;
+
+        Set<ProcessHandle> seen = new LinkedHashSet<>();
+        for (int round = 0; round < 3 && p.isAlive(); round++) {
+            List<ProcessHandle> now = new ArrayList<>();
+            try { p.descendants().forEach(now::add); } catch (Throwable ignored) {}
+            if (now.isEmpty()) break;
+            for (ProcessHandle h : now) {
+                seen.add(h);
+                try { h.destroyForcibly(); } catch (Throwable ignored) {}
+            }
+        }
+        try { p.descendants().forEach(seen::add); } catch (Throwable ignored) {}
+
+        try { p.destroy(); } catch (Throwable ignored) {}
+        try {
+            if (!p.waitFor(400, TimeUnit.MILLISECONDS)) {
+                p.destroyForcibly();
+                p.waitFor(400, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            try { p.destroyForcibly(); } catch (Throwable ignored) {}
+        } catch (Throwable ignored) {
+            try { p.destroyForcibly(); } catch (Throwable ignored2) {}
+        }
+
+        for (ProcessHandle h : seen) {
+            try { h.descendants().forEach(ProcessHandle::destroyForcibly); } catch (Throwable ignored) {}
+            try { h.destroyForcibly(); } catch (Throwable ignored) {}
+        }
+    }
+
+    private static PipeReader.Pipe drain(Process p, InputStream is, OutputBuffer sink, Consumer<String> onLine) {
+        return PipeReader.shared().register(is, p, StandardCharsets.UTF_8, line -> {
+            sink.appendLine(line);
+            if (onLine != null) onLine.accept(line);
+        }, null);
+    }
+
+    private static String text(OutputBuffer b) {
+        return b.toString();
+    }
+
+    private static void awaitQuiet(PipeReader.Pipe pipe, long ms) {
+        if (pipe != null) pipe.await(ms);
+    }
+}
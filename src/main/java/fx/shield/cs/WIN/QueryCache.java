@@ -0,0 +1,112 @@
+package fx.shield.cs.WIN;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Memo for read-only system probes (registry values, admin check, disk inventory).
+ *
+ * <ul>
+ *   <li>Results keyed by query name, each with its own TTL</li>
+ *   <li>Single-flight: concurrent callers of a key that is being loaded wait for that one load
+ *       (one PowerShell process) instead of starting their own</li>
+ *   <li>A loader returning null means "failed": the callers get null and nothing is cached</li>
+ *   <li>Writers call {@link #invalidate}/{@link #invalidatePrefix} after changing the
+ *       underlying state</li>
+ * </ul>
+ */
+public final class QueryCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryCache.class);
+
+    private static final class Entry {
+        final CompletableFuture<Object> value = new CompletableFuture<>();
+        volatile long expiresAtNs; // set once the value is loaded
+    }
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Cached value of {@code key}, loading it with {@code loader} if absent or expired.
+     * Must not be called from inside a loader for the same key.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Duration ttl, Supplier<T> loader) {
+        while (true) {
+            Entry e = entries.get(key);
+            if (e != null) {
+                if (!e.value.isDone()) {
+                    hits.incrementAndGet(); // joins the in-flight load
+                    T v = (T) await(e);
+                    if (v != null || Thread.currentThread().isInterrupted()) return v;
+                    continue; // that load failed and was dropped; try our own
+                }
+                if (System.nanoTime() - e.expiresAtNs < 0) {
+                    hits.incrementAndGet();
+                    return (T) e.value.getNow(null);
+                }
+                entries.remove(key, e); // expired
+                continue;
+            }
+
+            Entry mine = new Entry();
+            if (entries.putIfAbsent(key, mine) != null) continue;
+
+            misses.incrementAndGet();
+            T v = null;
+            try {
+                v = loader.get();
+            } catch (Throwable t) {
+                logger.debug("Query failed: {}", key, t);
+            }
+
+            if (v == null) {
+                entries.remove(key, mine);
+            } else {
+                mine.expiresAtNs = System.nanoTime() + ttl.toNanos();
+            }
+            mine.value.complete(v);
+            return v;
+        }
+    }
+
+    private static Object await(Entry e) {
+        try {
+            return e.value.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException ex) {
+            return null;
+        }
+    }
+
+    public void invalidate(String key) {
+        entries.remove(key);
+    }
+
+    public void invalidatePrefix(String prefix) {
+        entries.keySet().removeIf(k -> k.startsWith(prefix));
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+}
@@ -0,0 +1,330 @@
+package fx.shield.cs.WIN;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * One long-lived interpreter process (PowerShell, or {@code /bin/sh} as a stand-in) that runs
+ * scripts sent over stdin, so each call does not pay process start + profile/module load.
+ *
+ * <p>Protocol (one request at a time, ids are random per request):
+ * <pre>
+ *   -&gt; FXS-REQ &lt;id&gt; &lt;base64(UTF-8 script)&gt;
+ *   &lt;- FXS-OUT &lt;id&gt;
+ *   &lt;- ...stdout lines...
+ *   &lt;- FXS-ERR &lt;id&gt;
+ *   &lt;- ...stderr lines...
+ *   &lt;- FXS-END &lt;id&gt; &lt;exitCode&gt;
+ * </pre>
+ * The script travels base64-encoded on a single line, so it can never break the request
+ * framing; response markers carry the request id, so script output cannot fake them.
+ *
+ * <p>Not thread-safe: one caller at a time ({@link ScriptHostPool} hands hosts out exclusively).
+ */
+final class ScriptHost implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScriptHost.class);
+
+    static final String REQ = "FXS-REQ";
+    static final String OUT = "FXS-OUT";
+    static final String ERR = "FXS-ERR";
+    static final String END = "FXS-END";
+
+    // pushed by the reader thread when stdout closes (compared by identity)
+    private static final String EOF = new String("<eof>");
+
+    private static final AtomicLong SEQ = new AtomicLong();
+
+    /**
+     * Host loop for PowerShell: every request runs in a child scope of one runspace, so
+     * variables do not leak between requests while loaded modules stay warm. Output is
+     * streamed while the script runs.
+     */
+    private static final String PS_HOST_LOOP = String.join("\n",
+            "$ProgressPreference='SilentlyContinue'",
+            "[Console]::OutputEncoding=[System.Text.Encoding]::UTF8",
+            "$OutputEncoding=[Console]::OutputEncoding",
+            "$rs=[runspacefactory]::CreateRunspace(); $rs.Open()",
+            "$rs.SessionStateProxy.SetVariable('ProgressPreference','SilentlyContinue')",
+            "$stdin=[Console]::In",
+            "while(($line=$stdin.ReadLine()) -ne $null){",
+            "  $p=$line.Split(' ')",
+            "  if($p.Length -lt 2 -or $p[0] -ne '" + REQ + "'){continue}",
+            "  $id=$p[1]",
+            "  $s=''; if($p.Length -gt 2 -and $p[2]){$s=[Text.Encoding]::UTF8.GetString([Convert]::FromBase64String($p[2]))}",
+            "  $err=New-Object System.Collections.Generic.List[string]",
+            "  $code=0",
+            "  [Console]::Out.WriteLine('" + OUT + " '+$id); [Console]::Out.Flush()",
+            "  $ps=[powershell]::Create(); $ps.Runspace=$rs",
+            "  try{",
+            "    $rs.SessionStateProxy.SetVariable('LASTEXITCODE',0)",
+            "    [void]$ps.AddScript($s,$true).AddCommand('Out-String').AddParameter('Stream')",
+            "    $oc=New-Object 'System.Management.Automation.PSDataCollection[psobject]'",
+            "    $h=$ps.BeginInvoke([System.Management.Automation.PSDataCollection[psobject]]$null,$oc)",
+            "    while(-not $h.IsCompleted){",
+            "      foreach($o in $oc.ReadAll()){[Console]::Out.WriteLine([string]$o)}",
+            "      foreach($i in $ps.Streams.Information.ReadAll()){[Console]::Out.WriteLine([string]$i)}",
+            "      [Console]::Out.Flush()",
+            "      [void]$h.AsyncWaitHandle.WaitOne(50)",
+            "    }",
+            "    try{ [void]$ps.EndInvoke($h) }catch{ $err.Add($_.Exception.Message); $code=1 }",
+            "    foreach($o in $oc.ReadAll()){[Console]::Out.WriteLine([string]$o)}",
+            "    foreach($i in $ps.Streams.Information.ReadAll()){[Console]::Out.WriteLine([string]$i)}",
+            "  }catch{ $err.Add($_.Exception.Message); $code=1 }",
+            "  foreach($e in $ps.Streams.Error){$err.Add($e.ToString())}",
+            "  $lec=$rs.SessionStateProxy.GetVariable('LASTEXITCODE')",
+            "  if($lec -is [int] -and $lec -ne 0){$code=$lec}",
+            "  $ps.Dispose()",
+            "  [Console]::Out.WriteLine('" + ERR + " '+$id)",
+            "  foreach($e in $err){[Console]::Out.WriteLine($e)}",
+            "  [Console]::Out.WriteLine('" + END + " '+$id+' '+$code)",
+            "  [Console]::Out.Flush()",
+            "}");
+
+    /**
+     * Same protocol in POSIX sh, for exercising the Java side on Linux.
+     */
+    private static final String SH_HOST_LOOP = String.join("\n",
+            "while IFS=' ' read -r tag id payload; do",
+            "  [ \"$tag\" = '" + REQ + "' ] || continue",
+            "  script=$(printf '%s' \"$payload\" | base64 -d)",
+            "  echo '" + OUT + " '\"$id\"",
+            "  errf=$(mktemp)",
+            "  ( eval \"$script\" ) </dev/null 2>\"$errf\"",
+            "  code=$?",
+            "  echo '" + ERR + " '\"$id\"",
+            "  cat \"$errf\"; rm -f \"$errf\"",
+            "  echo '" + END + " '\"$id $code\"",
+            "done");
+
+    /**
+     * Command line that starts a host speaking the protocol.
+     */
+    interface Launcher {
+        Process start() throws IOException;
+    }
+
+    static Launcher powershell(String exe) {
+        return () -> {
+            String encoded = Base64.getEncoder().encodeToString(PS_HOST_LOOP.getBytes(StandardCharsets.UTF_16LE));
+            ProcessBuilder pb = new ProcessBuilder(exe, "-NoProfile", "-NonInteractive",
+                    "-ExecutionPolicy", "Bypass", "-EncodedCommand", encoded);
+            pb.redirectErrorStream(false);
+            return pb.start();
+        };
+    }
+
+    static Launcher posixShell() {
+        return () -> {
+            ProcessBuilder pb = new ProcessBuilder("/bin/sh", "-c", SH_HOST_LOOP);
+            pb.redirectErrorStream(false);
+            return pb.start();
+        };
+    }
+
+    private final Process process;
+    private final Writer stdin;
+    private final LinkedBlockingQueue<String> lines = new LinkedBlockingQueue<>();
+    private final long startedAtMs = System.currentTimeMillis();
+
+    private volatile boolean broken = false;
+    private int requests = 0;
+    private long lastUsedMs = startedAtMs;
+
+    ScriptHost(Launcher launcher) throws IOException {
+        process = launcher.start();
+        stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.US_ASCII));
+
+        PipeReader reader = PipeReader.shared();
+        reader.register(process.getInputStream(), process, StandardCharsets.UTF_8, lines::add, () -> lines.add(EOF));
+        reader.register(process.getErrorStream(), process, StandardCharsets.UTF_8,
+                line -> logger.debug("[ps-host {}] {}", pid(), line), null);
+    }
+
+    /**
+     * Runs one script.
+     *
+     * @param onLine optional sink for stdout lines as they arrive (called on the caller's thread)
+     * @return result; {@code timedOut} when the deadline passed (the host is then broken)
+     * @throws IOException if the host could not accept the request (nothing was run)
+     */
+    WindowsUtils.PsResult exec(String script, Duration timeout, Consumer<String> onLine) throws IOException {
+        if (broken || !process.isAlive()) throw new IOException("script host is not running");
+
+        String id = Long.toHexString(ThreadLocalRandom.current().nextLong()) + "-" + SEQ.incrementAndGet();
+        String payload = Base64.getEncoder().encodeToString((script == null ? "" : script).getBytes(StandardCharsets.UTF_8));
+
+        // leftovers of an earlier request; an EOF among them means the host is gone
+        String stale;
+        while ((stale = lines.poll()) != null) {
+            if (stale == EOF) {
+                broken = true;
+                throw new IOException("script host exited");
+            }
+        }
+
+        try {
+            stdin.write(REQ + " " + id + " " + payload + "\n");
+            stdin.flush();
+        } catch (IOException e) {
+            broken = true;
+            throw e;
+        }
+
+        requests++;
+        lastUsedMs = System.currentTimeMillis();
+
+        OutputBuffer out = new OutputBuffer();
+        OutputBuffer err = new OutputBuffer();
+        long deadline = System.nanoTime() + timeout.toNanos();
+
+        String outMarker = OUT + " " + id;
+        String errMarker = ERR + " " + id;
+        String endMarker = END + " " + id + " ";
+
+        // 0 = before OUT marker, 1 = stdout, 2 = stderr
+        int state = 0;
+        try {
+            while (true) {
+                long left = deadline - System.nanoTime();
+                String line = (left > 0) ? lines.poll(left, TimeUnit.NANOSECONDS) : null;
+
+                if (line == null) {
+                    broken = true;
+                    return new WindowsUtils.PsResult(-1, out.toString(), err.toString(), true);
+                }
+                if (line == EOF) {
+                    broken = true;
+                    return new WindowsUtils.PsResult(-1, out.toString(), err.toString(), false);
+                }
+
+                if (state == 0) {
+                    if (line.endsWith(outMarker)) state = 1;
+                    continue;
+                }
+
+                // a marker may follow output that did not end with a newline
+                if (state == 1 && line.endsWith(errMarker)) {
+                    String rest = line.substring(0, line.length() - errMarker.length());
+                    if (!rest.isEmpty()) appendOut(out, rest, onLine);
+                    state = 2;
+                    continue;
+                }
+                int k = line.indexOf(endMarker);
+                if (k >= 0) {
+                    String rest = line.substring(0, k);
+                    if (!rest.isEmpty()) {
+                        if (state == 1) appendOut(out, rest, onLine);
+                        else err.appendLine(rest);
+                    }
+                    lastUsedMs = System.currentTimeMillis();
+                    return new WindowsUtils.PsResult(parseCode(line.substring(k + endMarker.length())),
+                            out.toString(), err.toString(), false);
+                }
+
+                if (state == 1) appendOut(out, line, onLine);
+                else err.appendLine(line);
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            broken = true;
+            return new WindowsUtils.PsResult(-1, out.toString(), err.toString(), false);
+        }
+    }
+
+    private static void appendOut(OutputBuffer out, String line, Consumer<String> onLine) {
+        out.appendLine(line);
+        if (onLine != null) {
+            try { onLine.accept(line); } catch (Throwable ignored) {}
+        }
+    }
+
+    private static int parseCode(String s) {
+        try {
+            return Integer.parseInt(s.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Round-trips an empty script.
+     */
+    boolean ping(Duration timeout) {
+        try {
+            WindowsUtils.PsResult r = exec("", timeout, null);
+            if (!r.success) broken = true;
+            return r.success;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    boolean isUsable() {
+        return !broken && process.isAlive();
+    }
+
+    int requests() {
+        return requests;
+    }
+
+    long lastUsedMs() {
+        return lastUsedMs;
+    }
+
+    long startedAtMs() {
+        return startedAtMs;
+    }
+
+    long pid() {
+        try {
+            return process.pid();
+        } catch (Throwable t) {
+            return -1;
+        }
+    }
+
+    /**
+     * Cancel: kills the host and every process the running script started, right away.
+     * A running {@link #exec} returns once the host's output ends.
+     */
+    void kill() {
+        broken = true;
+        ProcessExecutor.destroyTree(process);
+    }
+
+    /**
+     * Ends the host and anything the script started (stdin EOF ends the loop; the tree is killed
+     * in case a script is still running).
+     */
+    @Override
+    public void close() {
+        broken = true;
+        try { stdin.close(); } catch (IOException ignored) {}
+
+        List<ProcessHandle> tree = new ArrayList<>();
+        try { process.descendants().forEach(tree::add); } catch (Throwable ignored) {}
+
+        try {
+            if (!process.waitFor(300, TimeUnit.MILLISECONDS)) process.destroyForcibly();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+        }
+        for (ProcessHandle h : tree) {
+            try { h.destroyForcibly(); } catch (Throwable ignored) {}
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package fx.shield.cs.WIN;
+
+import fx.shield.cs.HW.HardwareContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import oshi.software.os.OSProcess;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.function.Consumer;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Small pool of {@link ScriptHost}s.
+ *
+ * <ul>
+ *   <li>At most {@code size} hosts; when all are busy the caller gets {@code null} and runs
+ *       the script the old way (one process per call) instead of waiting</li>
+ *   <li>A host idle for longer than {@link #HEALTH_IDLE_MS} is pinged before reuse</li>
+ *   <li>Hosts are recycled after {@code maxRequests} scripts, when their resident memory
+ *       exceeds {@code maxRssBytes}, and after any timeout or protocol error</li>
+ * </ul>
+ */
+final class ScriptHostPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScriptHostPool.class);
+
+    private static final long HEALTH_IDLE_MS = 30_000;
+    private static final Duration PING_TIMEOUT = Duration.ofSeconds(3);
+
+    private final ScriptHost.Launcher launcher;
+    private final int size;
+    private final int maxRequests;
+    private final long maxRssBytes;
+    private final LongUnaryOperator rssOfPid; // pid -> resident bytes, or <= 0 if unknown
+
+    private final Object lock = new Object();
+    private final ArrayDeque<ScriptHost> idle = new ArrayDeque<>(); // guarded by lock
+    private int total = 0;                                          // guarded by lock: idle + busy
+    private boolean closed = false;                                 // guarded by lock
+
+    ScriptHostPool(ScriptHost.Launcher launcher, int size, int maxRequests, long maxRssBytes,
+                   LongUnaryOperator rssOfPid) {
+        this.launcher = launcher;
+        this.size = Math.max(1, size);
+        this.maxRequests = Math.max(1, maxRequests);
+        this.maxRssBytes = maxRssBytes;
+        this.rssOfPid = rssOfPid;
+    }
+
+    /**
+     * Resident set size via OSHI, or 0 if the process cannot be read.
+     */
+    static long oshiRss(long pid) {
+        try {
+            OSProcess p = HardwareContext.get().os().getProcess((int) pid);
+            return (p == null) ? 0 : p.getResidentSetSize();
+        } catch (Throwable t) {
+            return 0;
+        }
+    }
+
+    /**
+     * Runs a script on a pooled host.
+     *
+     * @return the result, or null if no host was available (pool busy, host failed to start or
+     *         to accept the request); in that case nothing was run and the caller should fall back
+     */
+    WindowsUtils.PsResult run(String script, Duration timeout, Consumer<String> onLine) {
+        return run(script, timeout, onLine, null);
+    }
+
+    /**
+     * @param job optional; cancelling it kills the host running the script (and everything the
+     *            script started); the host is then discarded
+     */
+    WindowsUtils.PsResult run(String script, Duration timeout, Consumer<String> onLine, ActionJob job) {
+        ScriptHost h = acquire();
+        if (h == null) return null;
+
+        WindowsUtils.PsResult r;
+        Runnable unhook = (job == null) ? null : job.onCancel(h::kill);
+        try {
+            r = h.exec(script, timeout, onLine);
+        } catch (IOException e) {
+            discard(h);
+            return null;
+        } finally {
+            if (unhook != null) unhook.run();
+        }
+
+        release(h);
+        return r;
+    }
+
+    private ScriptHost acquire() {
+        while (true) {
+            ScriptHost h;
+            synchronized (lock) {
+                if (closed) return null;
+                h = idle.pollFirst();
+                if (h == null) {
+                    if (total >= size) return null;
+                    total++;
+                }
+            }
+
+            if (h == null) {
+                try {
+                    ScriptHost fresh = new ScriptHost(launcher);
+                    logger.debug("Script host started (pid {})", fresh.pid());
+                    return fresh;
+                } catch (IOException e) {
+                    synchronized (lock) { total--; }
+                    logger.debug("Script host failed to start", e);
+                    return null;
+                }
+            }
+
+            if (!h.isUsable()) {
+                discard(h);
+                continue;
+            }
+            if (System.currentTimeMillis() - h.lastUsedMs() > HEALTH_IDLE_MS && !h.ping(PING_TIMEOUT)) {
+                logger.debug("Script host failed health check (pid {})", h.pid());
+                discard(h);
+                continue;
+            }
+            return h;
+        }
+    }
+
+    private void release(ScriptHost h) {
+        String recycle = null;
+        if (!h.isUsable()) recycle = "broken";
+        else if (h.requests() >= maxRequests) recycle = "request limit";
+        else if (maxRssBytes > 0 && rssOfPid != null) {
+            long rss = rssOfPid.applyAsLong(h.pid());
+            if (rss > maxRssBytes) recycle = "memory " + (rss >> 20) + " MB";
+        }
+
+        if (recycle != null) {
+            logger.debug("Recycling script host (pid {}): {}", h.pid(), recycle);
+            discard(h);
+            return;
+        }
+
+        synchronized (lock) {
+            if (!closed) {
+                idle.addFirst(h); // most recently used first: keeps the others going idle
+                return;
+            }
+        }
+        discard(h);
+    }
+
+    private void discard(ScriptHost h) {
+        synchronized (lock) { total--; }
+        h.close();
+    }
+
+    void close() {
+        ScriptHost[] hosts;
+        synchronized (lock) {
+            if (closed) return;
+            closed = true;
+            hosts = idle.toArray(new ScriptHost[0]);
+            idle.clear();
+        }
+        for (ScriptHost h : hosts) discard(h);
+    }
+}
@@ -17,16 +17,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.swing.JOptionPane;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.Base64;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -45,6 +42,20 @@ public final class WindowsUtils {
     // PowerShell defaults
     private static final Duration DEFAULT_PS_TIMEOUT = Duration.ofSeconds(30);
 
+    // Pooled PowerShell hosts (see ScriptHostPool)
+    private static final int PS_POOL_SIZE = 2;
+    private static final int PS_HOST_MAX_REQUESTS = 100;
+    private static final long PS_HOST_MAX_RSS = 256L * 1024 * 1024;
+    private static final Object PS_POOL_LOCK = new Object();
+    private static ScriptHostPool psPool; // guarded by PS_POOL_LOCK
+
+    // Read-only probes (see QueryCache); writers invalidate their prefix
+    private static final QueryCache QUERIES = new QueryCache();
+    private static final String Q_ADMIN = "admin";
+    private static final String Q_STARTUP = "startup.value";
+    private static final Duration ADMIN_TTL = Duration.ofMinutes(30);
+    private static final Duration STARTUP_TTL = Duration.ofMinutes(5);
+
     // DWM Attributes for window styling
     private static final int DWMWA_USE_IMMERSIVE_DARK_MODE = 20;
     private static final int DWMWA_CAPTION_COLOR = 35;
@@ -77,14 +88,20 @@ public final class WindowsUtils {
         public final String stdout;
         public final String stderr;
         public final boolean timedOut;
+        public final boolean cancelled;
         public final boolean success;
 
         public PsResult(int exitCode, String stdout, String stderr, boolean timedOut) {
+            this(exitCode, stdout, stderr, timedOut, false);
+        }
+
+        public PsResult(int exitCode, String stdout, String stderr, boolean timedOut, boolean cancelled) {
             this.exitCode = exitCode;
             this.stdout = stdout != null ? stdout : "";
             this.stderr = stderr != null ? stderr : "";
             this.timedOut = timedOut;
-            this.success = !timedOut && exitCode == 0;
+            this.cancelled = cancelled;
+            this.success = !timedOut && !cancelled && exitCode == 0;
         }
     }
 
@@ -275,8 +292,8 @@ public final class WindowsUtils {
                 "[Security.Principal.WindowsIdentity]::GetCurrent())" +
                 ".IsInRole([Security.Principal.WindowsBuiltInRole]::Administrator)";
 
-        String out = runPowerShellCapture(ps, 3);
-        if (out == null) return false;
+        // elevation of a running process never changes
+        String out = runPowerShellCaptureCached(Q_ADMIN, ps, 3, ADMIN_TTL);
         return out.trim().equalsIgnoreCase("true");
     }
 
@@ -292,24 +309,70 @@ public final class WindowsUtils {
         if (!isWindows()) return new PsResult(-1, "", "", false);
         if (Platform.isFxApplicationThread()) return new PsResult(-1, "", "FX_THREAD_VIOLATION", false);
 
+        return runPowerShellLogged(script, logTag, DEFAULT_PS_TIMEOUT);
+    }
+
+    public static PsResult runPowerShellLogged(String script, String logTag, Duration timeout) {
+        return runPowerShellLogged(script, logTag, timeout, null);
+    }
+
+    /**
+     * Logged runner that also streams stdout lines to {@code onLine} as they arrive
+     * (possibly on a pipe reader thread; the consumer must not block).
+     */
+    public static PsResult runPowerShellLogged(String script, String logTag, Duration timeout, Consumer<String> onLine) {
+        return runPowerShellLogged(script, logTag, timeout, onLine, null);
+    }
+
+    /**
+     * Cancellable logged runner: {@link ActionJob#cancel()} kills the script's whole process
+     * tree and the result comes back with {@code cancelled} set.
+     */
+    public static PsResult runPowerShellLogged(String script, String logTag, Duration timeout,
+                                               Consumer<String> onLine, ActionJob job) {
+        if (!isWindows()) return new PsResult(-1, "", "", false);
+        if (Platform.isFxApplicationThread()) return new PsResult(-1, "", "FX_THREAD_VIOLATION", false);
+
         String tag = (logTag == null) ? "" : logTag;
-        return runPowerShellInternal(script, DEFAULT_PS_TIMEOUT, true, tag);
+        Duration t = (timeout == null || timeout.isNegative() || timeout.isZero()) ? DEFAULT_PS_TIMEOUT : timeout;
+        return runPowerShellInternal(script, t, true, tag, ProcessExecutor.Priority.NORMAL, onLine, job);
     }
 
     public static void runPowerShellSilent(String script, long timeoutSec) {
         if (!isWindows()) return;
         Duration t = Duration.ofSeconds(Math.max(1, timeoutSec));
-        runPowerShellInternal(script, t, false);
+        runPowerShellInternal(script, t, false, "", ProcessExecutor.Priority.LOW);
     }
 
     public static String runPowerShellCapture(String script, long timeoutSec) {
         if (!isWindows()) return "";
         Duration t = Duration.ofSeconds(Math.max(1, timeoutSec));
-        PsResult r = runPowerShellInternal(script, t, false);
+        PsResult r = runPowerShellInternal(script, t, false, "", ProcessExecutor.Priority.HIGH);
         if (r == null) return "";
         return (r.stdout + r.stderr);
     }
 
+    /**
+     * {@link #runPowerShellCapture} for read-only queries, memoized under {@code key} for
+     * {@code ttl} (see {@link QueryCache}). Failed runs are not cached and return "".
+     */
+    public static String runPowerShellCaptureCached(String key, String script, long timeoutSec, Duration ttl) {
+        if (!isWindows()) return "";
+        Duration t = Duration.ofSeconds(Math.max(1, timeoutSec));
+        String out = QUERIES.get(key, ttl, () -> {
+            PsResult r = runPowerShellInternal(script, t, false, "", ProcessExecutor.Priority.HIGH);
+            return (r != null && r.success) ? (r.stdout + r.stderr) : null;
+        });
+        return (out == null) ? "" : out;
+    }
+
+    /**
+     * Cache of {@link #runPowerShellCaptureCached}; for invalidation after writes and hit/miss counts.
+     */
+    public static QueryCache queryCache() {
+        return QUERIES;
+    }
+
     public static String escapeForPowerShell(String s) {
         if (s == null) return "";
         return s.replace("'", "''");
@@ -342,83 +405,88 @@ public final class WindowsUtils {
         return Base64.getEncoder().encodeToString(utf16);
     }
 
-    private static ProcessBuilder psEncoded(String script) {
-        String exe = getPowerShellExe();
-        String encoded = toEncodedCommand(script);
-
-        ProcessBuilder pb = new ProcessBuilder(
-                exe,
+    private static List<String> psEncoded(String script) {
+        return List.of(
+                getPowerShellExe(),
                 "-NoProfile",
                 "-NonInteractive",
                 "-ExecutionPolicy", "Bypass",
-                "-EncodedCommand", encoded
+                "-EncodedCommand", toEncodedCommand(script)
         );
-        pb.redirectErrorStream(false);
-        return pb;
-    }
-
-    private static PsResult runPowerShellInternal(String script, Duration timeout, boolean logLines) {
-        return runPowerShellInternal(script, timeout, logLines, "");
     }
 
-    private static PsResult runPowerShellInternal(String script, Duration timeout, boolean logLines, String tag) {
-        Process p = null;
-        StringBuilder out = new StringBuilder();
-        StringBuilder err = new StringBuilder();
-        Thread tOut = null;
-        Thread tErr = null;
-
-        try {
-            ProcessBuilder pb = psEncoded(script);
-            p = pb.start();
-            final Process proc = p;
-
-            tOut = new Thread(new Gobbler(proc.getInputStream(), out, logLines ? (tag + " ") : null), "fxShield-ps-out");
-            tErr = new Thread(new Gobbler(proc.getErrorStream(), err, logLines ? (tag + " [ERR] ") : null), "fxShield-ps-err");
-
-            tOut.setDaemon(true);
-            tErr.setDaemon(true);
-            tOut.start();
-            tErr.start();
-
-            boolean finished = proc.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS);
-            if (!finished) {
-                safeDestroy(proc);
-                joinQuiet(tOut, 1200);
-                joinQuiet(tErr, 1200);
-                return new PsResult(-1, out.toString(), err.toString(), true);
+    private static ScriptHostPool psPool() {
+        synchronized (PS_POOL_LOCK) {
+            if (psPool == null) {
+                psPool = new ScriptHostPool(ScriptHost.powershell(getPowerShellExe()),
+                        PS_POOL_SIZE, PS_HOST_MAX_REQUESTS, PS_HOST_MAX_RSS, ScriptHostPool::oshiRss);
             }
+            return psPool;
+        }
+    }
 
-            joinQuiet(tOut, 1200);
-            joinQuiet(tErr, 1200);
+    /**
+     * Ends the pooled PowerShell hosts (they also exit on their own when this process does).
+     */
+    public static void shutdownPowerShellHosts() {
+        ScriptHostPool p;
+        synchronized (PS_POOL_LOCK) {
+            p = psPool;
+            psPool = null;
+        }
+        if (p != null) p.close();
+    }
 
-            int code = proc.exitValue();
-            return new PsResult(code, out.toString(), err.toString(), false);
+    private static PsResult runPowerShellInternal(String script, Duration timeout, boolean logLines, String tag,
+                                                  ProcessExecutor.Priority priority) {
+        return runPowerShellInternal(script, timeout, logLines, tag, priority, null, null);
+    }
 
-        } catch (Exception ex) {
-            logger.error("PowerShell execution failed", ex);
-            if (p != null) safeDestroy(p);
-            joinQuiet(tOut, 800);
-            joinQuiet(tErr, 800);
-            return new PsResult(-1, out.toString(), err.toString(), false);
+    /**
+     * Runs through the shared {@link ProcessExecutor} (global cap, priority, identical scripts
+     * already in flight are joined instead of run twice). Pooled host first; falls back to a
+     * dedicated process when the pool is busy or its host could not take the request.
+     *
+     * @param onLine optional sink for stdout lines as they arrive (not called when the run
+     *               was joined to an identical one already in flight)
+     * @param job    optional cancel handle; cancellable runs are never joined to another caller's run
+     */
+    private static PsResult runPowerShellInternal(String script, Duration timeout, boolean logLines, String tag,
+                                                  ProcessExecutor.Priority priority, Consumer<String> onLine,
+                                                  ActionJob job) {
+        String s = (script == null) ? "" : script;
+
+        Consumer<String> onOut = null;
+        if (logLines || onLine != null) {
+            onOut = line -> {
+                if (logLines) logger.info("{} {}", tag, line);
+                if (onLine != null) onLine.accept(line);
+            };
         }
+        Consumer<String> onErr = logLines ? line -> logger.info("{} [ERR] {}", tag, line) : null;
+
+        Consumer<String> out = onOut;
+        String key = (job == null) ? "ps:" + s : null;
+        return ProcessExecutor.shared().run(key, priority, () -> runPowerShellNow(s, timeout, out, onErr, job));
     }
 
-    private static void safeDestroy(Process p) {
-        try { p.destroy(); } catch (Exception ignored) {}
-        try {
-            if (!p.waitFor(400, TimeUnit.MILLISECONDS)) {
-                p.destroyForcibly();
-                p.waitFor(400, TimeUnit.MILLISECONDS);
-            }
-        } catch (Exception ignored) {
-            try { p.destroyForcibly(); } catch (Exception ignored2) {}
+    private static PsResult runPowerShellNow(String script, Duration timeout,
+                                             Consumer<String> onOut, Consumer<String> onErr, ActionJob job) {
+        if (job != null && job.isCancelled()) return new PsResult(-1, "", "", false, true); // cancelled while queued
+
+        PsResult r = psPool().run(script, timeout, onOut, job);
+        if (r == null) {
+            if (job != null && job.isCancelled()) return new PsResult(-1, "", "", false, true);
+            r = ProcessExecutor.runProcess(psEncoded(script), timeout, onOut, onErr, job);
+        } else if (onErr != null && !r.stderr.isEmpty()) {
+            // pooled hosts hand stderr back in one piece at the end
+            for (String line : r.stderr.split("\n")) onErr.accept(line);
         }
-    }
 
-    private static void joinQuiet(Thread t, long ms) {
-        if (t == null) return;
-        try { t.join(ms); } catch (InterruptedException ie) { Thread.currentThread().interrupt(); }
+        if (job != null && job.isCancelled() && !r.cancelled) {
+            r = new PsResult(r.exitCode, r.stdout, r.stderr, r.timedOut, true);
+        }
+        return r;
     }
 
     // =========================================================================
@@ -436,7 +504,7 @@ public final class WindowsUtils {
             String elevatePs = buildElevationScript(parts);
             logger.info("Requesting elevation for: {}", parts.executable);
 
-            PsResult r = runPowerShellInternal(elevatePs, Duration.ofSeconds(8), false);
+            PsResult r = runPowerShellInternal(elevatePs, Duration.ofSeconds(8), false, "", ProcessExecutor.Priority.HIGH);
             if (!r.success) {
                 logger.error("Elevation failed. exit={} stdout={} stderr={}", r.exitCode, r.stdout, r.stderr);
                 showPermissionErrorDialog();
@@ -561,29 +629,36 @@ public final class WindowsUtils {
     // Startup Management
     // =========================================================================
 
+    /**
+     * Writes the Run key only when it differs from the wanted state (called on every settings apply).
+     */
     public static void applyStartup(boolean enable) {
         if (!isWindows()) return;
         String cmd = startupCommand();
         if (cmd == null || cmd.isBlank()) return;
 
+        String cur = currentStartupCommand();
+        if (enable ? cmd.equals(cur) : cur == null) return;
+
         if (enable) enableStartup(cmd);
         else disableStartup();
     }
 
     public static boolean isStartupEnabled() {
         if (!isWindows()) return false;
-        String ps = "$p='" + RUN_KEY + "';$n='" + APP_NAME + "';" +
-                "try{(Get-ItemProperty -Path $p -Name $n -ErrorAction Stop).$n}catch{''}";
-        String out = runPowerShellCapture(ps, 5);
-        return out != null && !out.trim().isEmpty();
+        return !readStartupValue().isEmpty();
     }
 
     public static String currentStartupCommand() {
         if (!isWindows()) return null;
+        String v = readStartupValue();
+        return v.isEmpty() ? null : v;
+    }
+
+    private static String readStartupValue() {
         String ps = "$p='" + RUN_KEY + "';$n='" + APP_NAME + "';" +
                 "try{(Get-ItemProperty -Path $p -Name $n -ErrorAction Stop).$n}catch{''}";
-        String out = runPowerShellCapture(ps, 5);
-        return (out == null || out.trim().isEmpty()) ? null : out.trim();
+        return runPowerShellCaptureCached(Q_STARTUP, ps, 5, STARTUP_TTL).trim();
     }
 
     private static void enableStartup(String cmd) {
@@ -594,12 +669,14 @@ public final class WindowsUtils {
                         "$cur=(Get-ItemProperty -Path $p -Name $n -ErrorAction SilentlyContinue).$n;" +
                         "if($cur -ne $v){New-ItemProperty -Path $p -Name $n -Value $v -PropertyType String -Force | Out-Null}";
         runPowerShellSilent(ps, 6);
+        QUERIES.invalidatePrefix("startup.");
     }
 
     private static void disableStartup() {
         String ps = "$p='" + RUN_KEY + "';$n='" + APP_NAME + "';" +
                 "Remove-ItemProperty -Path $p -Name $n -ErrorAction SilentlyContinue;";
         runPowerShellSilent(ps, 6);
+        QUERIES.invalidatePrefix("startup.");
     }
 
     private static String startupCommand() {
@@ -632,33 +709,6 @@ public final class WindowsUtils {
     // Private Helpers
     // =========================================================================
 
-    private static final class Gobbler implements Runnable {
-        private final InputStream is;
-        private final StringBuilder sink;
-        private final String prefix;
-
-        Gobbler(InputStream is, StringBuilder sink, String prefix) {
-            this.is = is;
-            this.sink = sink;
-            this.prefix = prefix;
-        }
-
-        @Override
-        public void run() {
-            try (BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
-                String line;
-                while ((line = br.readLine()) != null) {
-                    synchronized (sink) {
-                        sink.append(line).append('\n');
-                    }
-                    if (prefix != null) {
-                        logger.info("{}{}", prefix, line);
-                    }
-                }
-            } catch (Exception ignored) {}
-        }
-    }
-
     private static final class CommandParts {
         String executable;
         String[] arguments;
@@ -0,0 +1,120 @@
+package fx.shield.cs.DB;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Body framings the streaming field reader accepts, and what it keeps from a document.
+ */
+class FirestoreFieldsTest {
+
+    private static final String DOC = "{\"name\":\"projects/p/databases/(default)/documents/app/config\","
+            + "\"fields\":{"
+            + "\"appStatus\":{\"stringValue\":\"online\"},"
+            + "\"forceUpdate\":{\"booleanValue\":true}"
+            + "},"
+            + "\"createTime\":\"2025-06-01T00:00:00Z\","
+            + "\"updateTime\":\"2026-01-01T00:00:00Z\"}";
+
+    private static final Set<String> WANTED = Set.of("appStatus", "forceUpdate");
+
+    private static FirestoreFields.Doc read(byte[] body, Set<String> wanted) throws IOException {
+        return FirestoreFields.read(new ByteArrayInputStream(body), wanted);
+    }
+
+    private static FirestoreFields.Doc read(String body) throws IOException {
+        return read(body.getBytes(StandardCharsets.UTF_8), WANTED);
+    }
+
+    private static void assertStatusDoc(FirestoreFields.Doc doc) {
+        assertNotNull(doc);
+        assertEquals("online", doc.fields.get("appStatus"));
+        assertEquals("true", doc.fields.get("forceUpdate"));
+        assertEquals(2, doc.fields.size());
+        assertEquals("2026-01-01T00:00:00Z", doc.updateTime);
+    }
+
+    @Test
+    void plainBody() throws IOException {
+        assertStatusDoc(read(DOC));
+    }
+
+    @Test
+    void gzippedBodyIsDetectedByItsMagicBytes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gz = new GZIPOutputStream(bytes)) {
+            gz.write(DOC.getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertStatusDoc(read(bytes.toByteArray(), WANTED));
+    }
+
+    @Test
+    void byteOrderMarkIsSkipped() throws IOException {
+        byte[] doc = DOC.getBytes(StandardCharsets.UTF_8);
+        byte[] body = new byte[doc.length + 3];
+        body[0] = (byte) 0xEF;
+        body[1] = (byte) 0xBB;
+        body[2] = (byte) 0xBF;
+        System.arraycopy(doc, 0, body, 3, doc.length);
+
+        assertStatusDoc(read(body, WANTED));
+    }
+
+    @Test
+    void xssiPrefixIsSkipped() throws IOException {
+        assertStatusDoc(read(")]}'\n" + DOC));
+        assertStatusDoc(read("  \r\n)]}',\n" + DOC));
+    }
+
+    @Test
+    void unwantedFieldsWithNestedValuesAreSkipped() throws IOException {
+        String body = "{\"fields\":{"
+                + "\"limits\":{\"mapValue\":{\"fields\":{"
+                + "\"appStatus\":{\"stringValue\":\"not me\"},"
+                + "\"inner\":{\"arrayValue\":{\"values\":[{\"stringValue\":\"a\"},{\"mapValue\":{}}]}}"
+                + "}}},"
+                + "\"appStatus\":{\"stringValue\":\"online\"},"
+                + "\"mirrors\":{\"arrayValue\":{\"values\":[{\"stringValue\":\"x\"},{\"integerValue\":\"3\"}]}},"
+                + "\"forceUpdate\":{\"booleanValue\":false}"
+                + "},\"updateTime\":\"2026-01-01T00:00:00Z\"}";
+
+        FirestoreFields.Doc doc = read(body);
+
+        assertNotNull(doc);
+        assertEquals(2, doc.fields.size());
+        assertEquals("online", doc.fields.get("appStatus"));
+        assertEquals("false", doc.fields.get("forceUpdate"));
+        assertEquals("2026-01-01T00:00:00Z", doc.updateTime);
+    }
+
+    @Test
+    void wantedFieldOfAnotherTypeIsAbsent() throws IOException {
+        String body = "{\"fields\":{"
+                + "\"appStatus\":{\"mapValue\":{\"fields\":{\"stringValue\":{\"stringValue\":\"x\"}}}},"
+                + "\"forceUpdate\":{\"nullValue\":null}"
+                + "}}";
+
+        FirestoreFields.Doc doc = read(body);
+
+        assertNotNull(doc);
+        assertTrue(doc.fields.isEmpty());
+        assertNull(doc.updateTime);
+    }
+
+    @Test
+    void documentWithoutFieldsIsNull() throws IOException {
+        // what a masked read returns when none of the masked fields exist
+        assertNull(read("{\"name\":\"doc\",\"updateTime\":\"2026-01-01T00:00:00Z\"}"));
+        assertNull(read("{\"fields\":\"oops\"}"));
+        assertNull(read("[]"));
+    }
+}
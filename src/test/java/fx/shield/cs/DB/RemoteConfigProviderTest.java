@@ -0,0 +1,175 @@
+package fx.shield.cs.DB;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Single-flight and the soft/hard staleness rules of {@link RemoteConfigProvider#get()}, against
+ * a local stand-in for the Firestore document endpoint that can hold its responses.
+ */
+class RemoteConfigProviderTest {
+
+    @TempDir
+    Path dir;
+
+    private HttpServer server;
+    private ExecutorService handlers;
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private String url;
+
+    private final AtomicInteger requests = new AtomicInteger();
+    /** Responses wait for this; replace it with a fresh latch to hold them. */
+    private volatile CountDownLatch gate = new CountDownLatch(0);
+    private volatile String appStatus = "online";
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/doc", this::serve);
+        // held responses must not stop later requests from being seen
+        handlers = Executors.newCachedThreadPool();
+        server.setExecutor(handlers);
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/doc";
+    }
+
+    @AfterEach
+    void tearDown() {
+        gate.countDown();
+        if (server != null) server.stop(0);
+        if (handlers != null) handlers.shutdownNow();
+        callers.shutdownNow();
+    }
+
+    private void serve(HttpExchange ex) throws IOException {
+        requests.incrementAndGet();
+        try {
+            gate.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+
+        String json = "{\"name\":\"doc\",\"fields\":{"
+                + "\"" + RemoteConfigService.F_APP_STATUS + "\":{\"stringValue\":\"" + appStatus + "\"},"
+                + "\"" + RemoteConfigService.F_LATEST_VER + "\":{\"stringValue\":\"2.1.0\"}"
+                + "},\"updateTime\":\"2026-01-01T00:00:00Z\"}";
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json");
+        ex.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private RemoteConfigProvider provider(long refreshMs, long maxAgeMs) {
+        RemoteConfigService svc = new RemoteConfigService(null, url, dir.resolve("remote-config.properties"));
+        return new RemoteConfigProvider(svc, Duration.ofMillis(refreshMs), Duration.ofMillis(maxAgeMs));
+    }
+
+    private void awaitRequests(int n) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (requests.get() < n && System.currentTimeMillis() < deadline) Thread.sleep(5);
+        assertEquals(n, requests.get());
+    }
+
+    @Test
+    void concurrentColdGetsShareOneRequest() throws Exception {
+        RemoteConfigProvider provider = provider(60_000, 120_000);
+        gate = new CountDownLatch(1);
+
+        int n = 8;
+        CountDownLatch go = new CountDownLatch(1);
+        List<CompletableFuture<RemoteConfig>> results = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            results.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+                return provider.get();
+            }, callers));
+        }
+        go.countDown();
+
+        awaitRequests(1);
+        Thread.sleep(200); // let every caller reach get() while the one request is held
+        for (CompletableFuture<RemoteConfig> r : results) assertFalse(r.isDone(), "answered before the fetch");
+        gate.countDown();
+
+        RemoteConfig first = results.get(0).get(5, TimeUnit.SECONDS);
+        assertNotNull(first);
+        assertEquals("online", first.getAppStatus());
+        for (CompletableFuture<RemoteConfig> r : results) assertSame(first, r.get(5, TimeUnit.SECONDS));
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void softStaleGetAnswersAtOnceAndRefreshesOnce() throws Exception {
+        RemoteConfigProvider provider = provider(200, 60_000);
+        RemoteConfig old = provider.get();
+        assertEquals(1, requests.get());
+
+        Thread.sleep(300); // older than the refresh interval, younger than the hard maximum
+        appStatus = "maintenance";
+        gate = new CountDownLatch(1);
+
+        for (int i = 0; i < 5; i++) {
+            long t0 = System.nanoTime();
+            RemoteConfig cfg = provider.get();
+            long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+            assertSame(old, cfg);
+            assertTrue(ms < 500, "soft-stale get() waited " + ms + " ms");
+        }
+        awaitRequests(2);
+        Thread.sleep(100);
+        assertEquals(2, requests.get(), "more than one background refresh");
+
+        gate.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (provider.cached() == old && System.currentTimeMillis() < deadline) Thread.sleep(5);
+        assertEquals("maintenance", provider.cached().getAppStatus());
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    void hardStaleGetWaitsForTheRefresh() throws Exception {
+        RemoteConfigProvider provider = provider(100, 300);
+        assertEquals("online", provider.get().getAppStatus());
+
+        Thread.sleep(400); // older than the hard maximum age
+        appStatus = "maintenance";
+        gate = new CountDownLatch(1);
+
+        CompletableFuture<RemoteConfig> waiting = CompletableFuture.supplyAsync(provider::get, callers);
+        awaitRequests(2);
+        Thread.sleep(200);
+        assertFalse(waiting.isDone(), "hard-stale get() answered from the old copy");
+
+        gate.countDown();
+        assertEquals("maintenance", waiting.get(5, TimeUnit.SECONDS).getAppStatus());
+        assertEquals(2, requests.get());
+    }
+}
@@ -0,0 +1,359 @@
+package fx.shield.cs.DB;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Status fetch and on-disk copy against a local stand-in for the Firestore document endpoint.
+ */
+class RemoteConfigServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private HttpServer server;
+    private String url;
+    private Path cacheFile;
+
+    /** Document fields (all string values) and its updateTime; edit between requests. */
+    private final Map<String, String> fields = new LinkedHashMap<>();
+    private volatile String updateTime = "2026-01-01T00:00:00Z";
+
+    /** One entry per request: the decoded mask fields, in order. */
+    private final List<List<String>> masks = new CopyOnWriteArrayList<>();
+    /** One entry per request: the If-None-Match header ("" if absent) and the status sent. */
+    private final List<String> conditions = new CopyOnWriteArrayList<>();
+    private final List<Integer> codes = new CopyOnWriteArrayList<>();
+    private final List<String> etags = new CopyOnWriteArrayList<>();
+    /** Statuses to answer the next requests with, before serving the document again. */
+    private final Queue<Integer> failures = new ConcurrentLinkedQueue<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        fields.put(RemoteConfigService.F_APP_STATUS, "online");
+        fields.put(RemoteConfigService.F_LATEST_VER, "2.1.0");
+        fields.put(RemoteConfigService.F_MIN_VER, "1.0.0");
+        fields.put(RemoteConfigService.F_DL_URL, "https://example.invalid/fxshield.exe");
+        fields.put(RemoteConfigService.F_UPD_MSG, "hello");
+        fields.put(RemoteScript.FREE_RAM.field(), "Clear-Host # free-ram v1");
+        fields.put(RemoteScript.OPTIMIZE_DISK.field(), "Optimize-Volume # disk v1");
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/doc", this::serve);
+        server.createContext("/other", this::serve);
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/doc";
+        cacheFile = dir.resolve("remote-config.properties");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) server.stop(0);
+    }
+
+    private RemoteConfigService service() {
+        return new RemoteConfigService(null, url, cacheFile);
+    }
+
+    private void serve(HttpExchange ex) throws IOException {
+        List<String> mask = new ArrayList<>();
+        String query = ex.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String kv : query.split("&")) {
+                if (kv.startsWith("mask.fieldPaths=")) {
+                    mask.add(URLDecoder.decode(kv.substring("mask.fieldPaths=".length()), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        masks.add(mask);
+
+        Integer failure = failures.poll();
+        if (failure != null) {
+            conditions.add("");
+            codes.add(failure);
+            respond(ex, failure, "");
+            return;
+        }
+
+        StringBuilder json = new StringBuilder("{\"name\":\"doc\",\"fields\":{");
+        String sep = "";
+        List<String> served = new ArrayList<>();
+        for (Map.Entry<String, String> e : fields.entrySet()) {
+            if (!mask.isEmpty() && !mask.contains(e.getKey())) continue;
+            served.add(e.getKey() + "=" + e.getValue());
+            json.append(sep).append('"').append(e.getKey()).append("\":{\"stringValue\":\"")
+                    .append(e.getValue().replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+                    .append("\"}");
+            sep = ",";
+        }
+        json.append("},\"updateTime\":\"").append(updateTime).append("\"}");
+
+        // ETag of the served fields, so a script the last edit did not touch still matches
+        String etag = "\"" + Integer.toHexString(served.hashCode()) + "\"";
+        String ifNoneMatch = ex.getRequestHeaders().getFirst("If-None-Match");
+        conditions.add(ifNoneMatch == null ? "" : ifNoneMatch);
+        etags.add(etag);
+        ex.getResponseHeaders().set("ETag", etag);
+        if (etag.equals(ifNoneMatch)) {
+            codes.add(304);
+            respond(ex, 304, "");
+            return;
+        }
+        codes.add(200);
+        respond(ex, 200, json.toString());
+    }
+
+    private static void respond(HttpExchange ex, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json");
+        ex.sendResponseHeaders(code, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Test
+    void coldStartFetchesAndStoresTheStatus() {
+        RemoteConfigService svc = service();
+        assertNull(svc.cachedConfig());
+        assertEquals(-1, svc.cachedAgeMs());
+
+        RemoteConfig cfg = svc.fetchConfig();
+
+        assertNotNull(cfg);
+        assertEquals("online", cfg.getAppStatus());
+        assertEquals("2.1.0", cfg.getLatestVersion());
+        assertEquals("https://example.invalid/fxshield.exe", cfg.getDownloadUrl());
+        assertSame(cfg, svc.cachedConfig());
+        assertTrue(svc.cachedAgeMs() >= 0);
+        assertTrue(Files.exists(cacheFile));
+    }
+
+    @Test
+    void warmStartServesTheStoredCopyWithoutARequest() {
+        service().fetchConfig();
+        int requests = masks.size();
+
+        RemoteConfigService warm = service();
+        RemoteConfig cfg = warm.cachedConfig();
+
+        assertNotNull(cfg);
+        assertEquals("online", cfg.getAppStatus());
+        assertEquals("2.1.0", cfg.getLatestVersion());
+        assertEquals("hello", cfg.getUpdateMessage());
+        assertTrue(warm.cachedAgeMs() >= 0);
+        assertEquals(requests, masks.size());
+    }
+
+    @Test
+    void copyStampedWithAnotherUrlIsIgnored() {
+        service().fetchConfig();
+
+        String otherUrl = url.replace("/doc", "/other");
+        RemoteConfigService other = new RemoteConfigService(null, otherUrl, cacheFile);
+
+        assertNull(other.cachedConfig());
+        assertEquals(-1, other.cachedAgeMs());
+    }
+
+    @Test
+    void corruptCopyIsIgnoredAndReplaced() throws IOException {
+        Files.writeString(cacheFile, "_url=" + url + "\nappStatus=\\u12zz\n", StandardCharsets.ISO_8859_1);
+
+        RemoteConfigService svc = service();
+        assertNull(svc.cachedConfig());
+
+        assertEquals("online", svc.fetchConfig().getAppStatus());
+        assertEquals("online", service().cachedConfig().getAppStatus());
+    }
+
+    @Test
+    void offlineFallsBackToTheLastGoodCopy() {
+        RemoteConfigService svc = service();
+        RemoteConfig online = svc.fetchConfig();
+        server.stop(0);
+        server = null;
+
+        assertSame(online, svc.fetchConfig());
+
+        RemoteConfigService restarted = service();
+        RemoteConfig offline = restarted.fetchConfig();
+        assertNotNull(offline);
+        assertEquals("online", offline.getAppStatus());
+        assertEquals("2.1.0", offline.getLatestVersion());
+    }
+
+    @Test
+    void statusFetchAsksOnlyForStatusFields() {
+        RemoteConfig cfg = service().fetchConfig();
+
+        assertEquals(List.of(RemoteConfigService.F_APP_STATUS, RemoteConfigService.F_LATEST_VER,
+                RemoteConfigService.F_MIN_VER, RemoteConfigService.F_DL_URL, RemoteConfigService.F_UPD_MSG,
+                RemoteConfigService.F_FORCE_UPD), masks.get(0));
+        assertEquals("", conditions.get(0)); // unconditional
+        assertEquals("online", cfg.getAppStatus());
+    }
+
+    @Test
+    void transientStatusesAreRetried() {
+        failures.add(408);
+        failures.add(503);
+
+        RemoteConfig cfg = service().fetchConfig();
+
+        assertEquals(List.of(408, 503, 200), codes);
+        assertEquals("online", cfg.getAppStatus());
+    }
+
+    @Test
+    void otherErrorsFallBackWithoutRetrying() {
+        failures.add(404);
+
+        assertNull(service().fetchConfig());
+        assertEquals(List.of(404), codes);
+    }
+
+    @Test
+    void scriptAtTheSameDocumentVersionIsServedWithoutARequest() {
+        RemoteConfigService svc = service();
+        svc.fetchConfig();
+
+        assertEquals("Clear-Host # free-ram v1", svc.fetchScripts(RemoteScript.FREE_RAM).get(RemoteScript.FREE_RAM));
+        assertEquals(List.of(RemoteScript.FREE_RAM.field()), masks.get(1));
+        int requests = masks.size();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("Clear-Host # free-ram v1", svc.fetchScripts(RemoteScript.FREE_RAM).get(RemoteScript.FREE_RAM));
+        }
+        assertEquals(requests, masks.size());
+    }
+
+    @Test
+    void scriptRevalidatesWithItsETagAfterAnotherScriptChanged() {
+        RemoteConfigService svc = service();
+        svc.fetchConfig();
+        svc.fetchScripts(RemoteScript.FREE_RAM);
+        String etag = etags.get(etags.size() - 1);
+
+        // an edit to another script moves the document's updateTime
+        fields.put(RemoteScript.OPTIMIZE_DISK.field(), "Optimize-Volume # disk v2");
+        updateTime = "2026-02-01T00:00:00Z";
+        svc.fetchConfig();
+
+        Map<RemoteScript, String> out = svc.fetchScripts(RemoteScript.FREE_RAM);
+        assertEquals(etag, conditions.get(conditions.size() - 1));
+        assertEquals(304, (int) codes.get(codes.size() - 1));
+        assertEquals("Clear-Host # free-ram v1", out.get(RemoteScript.FREE_RAM));
+
+        // current again at the new updateTime
+        int requests = codes.size();
+        svc.fetchScripts(RemoteScript.FREE_RAM);
+        assertEquals(requests, codes.size());
+
+        // an edit to the script itself comes back as a 200 with the new text
+        fields.put(RemoteScript.FREE_RAM.field(), "Clear-Host # free-ram v2");
+        updateTime = "2026-03-01T00:00:00Z";
+        svc.fetchConfig();
+        out = svc.fetchScripts(RemoteScript.FREE_RAM);
+        assertEquals(200, (int) codes.get(codes.size() - 1));
+        assertEquals("Clear-Host # free-ram v2", out.get(RemoteScript.FREE_RAM));
+    }
+
+    @Test
+    void offlineServesTheScriptHeldInMemory() {
+        RemoteConfigService svc = service();
+        svc.fetchConfig();
+        svc.fetchScripts(RemoteScript.FREE_RAM);
+        updateTime = "2026-02-01T00:00:00Z";
+        svc.fetchConfig(); // the cached script is now stale
+        server.stop(0);
+        server = null;
+
+        assertEquals("Clear-Host # free-ram v1", svc.fetchScripts(RemoteScript.FREE_RAM).get(RemoteScript.FREE_RAM));
+        assertFalse(svc.fetchScripts(RemoteScript.OPTIMIZE_DISK).containsKey(RemoteScript.OPTIMIZE_DISK));
+    }
+
+    @Test
+    void nothingAboutScriptsIsWrittenToDisk() throws IOException {
+        RemoteConfigService svc = service();
+        svc.fetchConfig();
+        svc.fetchScripts(RemoteScript.FREE_RAM, RemoteScript.OPTIMIZE_DISK);
+
+        String onDisk = Files.readString(cacheFile, StandardCharsets.ISO_8859_1);
+        assertFalse(onDisk.contains("free-ram v1"));
+        assertFalse(onDisk.contains("disk v1"));
+        for (String k : load().stringPropertyNames()) assertFalse(k.startsWith("script."), k);
+
+        // a restart knows the status but must download the text again, unconditionally
+        RemoteConfigService restarted = service();
+        assertNotNull(restarted.cachedConfig());
+        restarted.fetchConfig();
+        int before = masks.size();
+
+        assertEquals("Clear-Host # free-ram v1",
+                restarted.fetchScripts(RemoteScript.FREE_RAM).get(RemoteScript.FREE_RAM));
+        assertEquals(before + 1, masks.size());
+        assertEquals("", conditions.get(conditions.size() - 1));
+    }
+
+    @Test
+    void scriptTextLeftByAnOlderVersionIsNeverServedAndIsRemoved() throws Exception {
+        service().fetchConfig();
+
+        // the old format, written by anyone who can write the file: text plus a matching hash
+        String evil = "Start-Process evil.exe";
+        Properties p = load();
+        String k = "script." + RemoteScript.FREE_RAM.field();
+        p.setProperty(k, evil);
+        p.setProperty(k + ".sha256", HexFormat.of().formatHex(
+                MessageDigest.getInstance("SHA-256").digest(evil.getBytes(StandardCharsets.UTF_8))));
+        p.setProperty(k + ".version", p.getProperty("_version"));
+        try (Writer w = Files.newBufferedWriter(cacheFile, StandardCharsets.UTF_8)) {
+            p.store(w, null);
+        }
+        server.stop(0);
+        server = null;
+
+        RemoteConfigService svc = service();
+
+        assertFalse(svc.fetchScripts(RemoteScript.FREE_RAM).containsKey(RemoteScript.FREE_RAM));
+        assertFalse(Files.readString(cacheFile, StandardCharsets.ISO_8859_1).contains("evil"));
+        for (String key : load().stringPropertyNames()) assertFalse(key.startsWith("script."), key);
+        assertNotNull(svc.cachedConfig());
+    }
+
+    private Properties load() throws IOException {
+        Properties p = new Properties();
+        try (Reader r = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)) {
+            p.load(r);
+        }
+        return p;
+    }
+}
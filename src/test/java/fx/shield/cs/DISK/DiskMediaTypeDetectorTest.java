@@ -0,0 +1,137 @@
+package fx.shield.cs.DISK;
+
+import fx.shield.cs.DISK.DiskMediaTypeDetector.Answer;
+import fx.shield.cs.DISK.DiskMediaTypeDetector.Disk;
+import fx.shield.cs.DISK.DiskMediaTypeDetector.SysfsBackend;
+import fx.shield.cs.DISK.DiskMediaTypeDetector.WindowsBackend;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiskMediaTypeDetectorTest {
+
+    @TempDir
+    Path sys;
+
+    private void rotational(String dev, String value) throws IOException {
+        Path q = sys.resolve("block").resolve(dev).resolve("queue");
+        Files.createDirectories(q);
+        Files.writeString(q.resolve("rotational"), value);
+    }
+
+    private static Disk disk(int index, String name, String model, String serial, long size) {
+        return new Disk(index, name, model, serial, size);
+    }
+
+    @Test
+    void sysfsReadsRotationalFlagPerDevice() throws IOException {
+        rotational("nvme0n1", "0\n");
+        rotational("sda", "1\n");
+
+        Map<Integer, Answer> r = new SysfsBackend(sys).query(List.of(
+                disk(0, "/dev/nvme0n1", "Samsung SSD 980", "S1", 1L << 40),
+                disk(1, "/dev/sda", "WDC WD40EFRX", "W1", 4L << 40)));
+
+        assertEquals(DiskMediaTypeDetector.SSD, r.get(0).label);
+        assertEquals(DiskMediaTypeDetector.HDD, r.get(1).label);
+        assertTrue(r.get(0).exact && r.get(1).exact);
+    }
+
+    @Test
+    void sysfsLeavesMissingOrGarbledDevicesUndecided() throws IOException {
+        rotational("sdb", "maybe");
+
+        Map<Integer, Answer> r = new SysfsBackend(sys).query(List.of(
+                disk(0, "/dev/sdb", "", "", 0),
+                disk(1, "/dev/sdz", "", "", 0),
+                disk(2, "/dev/..", "", "", 0)));
+
+        assertTrue(r.isEmpty());
+    }
+
+    @Test
+    void detectKeepsInputOrderAndDefaultsToUnknown() throws IOException {
+        rotational("sda", "1");
+        rotational("sdb", "0");
+
+        String[] labels = new DiskMediaTypeDetector(new SysfsBackend(sys), null).detect(List.of(
+                disk(0, "/dev/sdb", "", "", 0),
+                disk(1, "/dev/sdc", "", "", 0),
+                disk(2, "/dev/sda", "", "", 0)));
+
+        assertArrayEquals(new String[]{"SSD", "Disk", "HDD"}, labels);
+    }
+
+    @Test
+    void detectSurvivesFailingBackend() {
+        DiskMediaTypeDetector d = new DiskMediaTypeDetector(disks -> {
+            throw new IllegalStateException("boom");
+        }, null);
+
+        assertArrayEquals(new String[]{"Disk"}, d.detect(List.of(disk(0, "/dev/sda", "", "X", 0))));
+    }
+
+    @Test
+    void windowsSerialMatchIsExact() {
+        List<WindowsBackend.WinDisk> win = WindowsBackend.parse(
+                "S3EVNX0K123456|Samsung SSD 860 EVO 500GB|SSD|0|500107862016\n" +
+                "WD-WCC4E1234567|WDC WD10EZEX-08WN4A0|HDD|7200|1000204886016\n");
+
+        Map<Integer, Answer> r = WindowsBackend.match(List.of(
+                disk(0, "\\\\.\\PHYSICALDRIVE0", "Samsung SSD 860 EVO 500GB", "S3EVNX0K123456", 500107862016L),
+                disk(1, "\\\\.\\PHYSICALDRIVE1", "WDC WD10EZEX-08WN4A0", "wd-wcc4e1234567", 1000204886016L)), win);
+
+        assertEquals("SSD", r.get(0).label);
+        assertEquals("HDD", r.get(1).label);
+        assertTrue(r.get(0).exact && r.get(1).exact);
+    }
+
+    @Test
+    void windowsModelAndSizeMatchesAreGuesses() {
+        // OSHI serials that differ in format from Get-PhysicalDisk (byte-swapped, padded, ...)
+        List<WindowsBackend.WinDisk> win = WindowsBackend.parse(
+                "S3EVNX0K123456|Samsung SSD 860 EVO 500GB|4|0|500107862016\n" +
+                "WD-WCC4E1234567|WDC WD10EZEX|3|7200|1000204886016\n");
+
+        Map<Integer, Answer> r = WindowsBackend.match(List.of(
+                disk(0, "\\\\.\\PHYSICALDRIVE0", "Samsung SSD 860 EVO 500GB", "3SVENX0K214365", 500107862016L),
+                disk(1, "\\\\.\\PHYSICALDRIVE1", "", "", 1000000000000L)), win);
+
+        assertEquals("SSD", r.get(0).label);
+        assertEquals("HDD", r.get(1).label);
+        assertFalse(r.get(0).exact);
+        assertFalse(r.get(1).exact);
+    }
+
+    @Test
+    void windowsSizeFurtherThanTenPercentIsNotMatched() {
+        List<WindowsBackend.WinDisk> win = WindowsBackend.parse("|Some Disk|SSD|0|500107862016");
+
+        assertTrue(WindowsBackend.match(List.of(disk(0, "d", "", "", 2_000_000_000_000L)), win).isEmpty());
+    }
+
+    @Test
+    void windowsUnknownMediaFallsBackToSpindleSpeed() {
+        List<WindowsBackend.WinDisk> win = WindowsBackend.parse(
+                "A|x|Unspecified|0|1\n" +
+                "B|y|Unspecified|5400|1\n" +
+                "C|z|Unspecified|4294967295|1\n");
+
+        assertEquals("SSD", win.get(0).label());
+        assertEquals("HDD", win.get(1).label());
+        assertEquals("Disk", win.get(2).label());
+    }
+
+    @Test
+    void serialsAreNormalizedForPropertiesKeys() {
+        assertEquals("", DiskMediaTypeDetector.normalizeSerial(" Unknown "));
+        assertEquals("ABC123", DiskMediaTypeDetector.normalizeSerial(" AB C:1=2#3 "));
+    }
+}
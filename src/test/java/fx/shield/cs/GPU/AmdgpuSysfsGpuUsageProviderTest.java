@@ -0,0 +1,97 @@
+package fx.shield.cs.GPU;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@code gpu_busy_percent} parsing against a fake {@code /sys} tree.
+ */
+class AmdgpuSysfsGpuUsageProviderTest {
+
+    @TempDir
+    Path sys;
+
+    private Path busy(String card, String contents) throws IOException {
+        Path dir = Files.createDirectories(sys.resolve("class/drm").resolve(card).resolve("device"));
+        return Files.writeString(dir.resolve("gpu_busy_percent"), contents);
+    }
+
+    @Test
+    void readsTheBusyPercentOfACard() throws IOException {
+        Path f = busy("card0", "42\n");
+
+        try (AmdgpuSysfsGpuUsageProvider p = new AmdgpuSysfsGpuUsageProvider(sys)) {
+            assertTrue(p.isAvailable());
+            assertEquals(42, p.readGpuUsagePercent());
+
+            // the file stays open and is re-read in place
+            Files.writeString(f, "7\n");
+            assertEquals(7, p.readGpuUsagePercent());
+        }
+    }
+
+    @Test
+    void highestCardWinsAndConnectorsAreSkipped() throws IOException {
+        busy("card0", "12\n");
+        busy("card1", "  88\n");
+        busy("card1-DP-1", "99\n");
+
+        try (AmdgpuSysfsGpuUsageProvider p = new AmdgpuSysfsGpuUsageProvider(sys)) {
+            assertEquals(88, p.readGpuUsagePercent());
+        }
+    }
+
+    @Test
+    void valuesAboveOneHundredAreClamped() throws IOException {
+        busy("card0", "140\n");
+
+        try (AmdgpuSysfsGpuUsageProvider p = new AmdgpuSysfsGpuUsageProvider(sys)) {
+            assertEquals(100, p.readGpuUsagePercent());
+        }
+    }
+
+    @Test
+    void cardWithoutTheNodeIsIgnored() throws IOException {
+        Files.createDirectories(sys.resolve("class/drm/card0/device"));
+        busy("card1", "25\n");
+
+        try (AmdgpuSysfsGpuUsageProvider p = new AmdgpuSysfsGpuUsageProvider(sys)) {
+            assertTrue(p.isAvailable());
+            assertEquals(25, p.readGpuUsagePercent());
+        }
+    }
+
+    @Test
+    void noNodeMeansUnavailable() throws IOException {
+        Files.createDirectories(sys.resolve("class/drm/card0/device"));
+        busy("card1", "n/a\n");
+
+        try (AmdgpuSysfsGpuUsageProvider p = new AmdgpuSysfsGpuUsageProvider(sys)) {
+            assertFalse(p.isAvailable());
+            assertEquals(-1, p.readGpuUsagePercent());
+        }
+        try (AmdgpuSysfsGpuUsageProvider p = new AmdgpuSysfsGpuUsageProvider(sys.resolve("missing"))) {
+            assertFalse(p.isAvailable());
+        }
+    }
+
+    @Test
+    void unreadableValueAndCloseReportMinusOne() throws IOException {
+        Path f = busy("card0", "30\n");
+
+        AmdgpuSysfsGpuUsageProvider p = new AmdgpuSysfsGpuUsageProvider(sys);
+        Files.writeString(f, "\n");
+        assertEquals(-1, p.readGpuUsagePercent());
+
+        Files.writeString(f, "30\n");
+        p.close();
+        assertFalse(p.isAvailable());
+        assertEquals(-1, p.readGpuUsagePercent());
+    }
+}
@@ -0,0 +1,125 @@
+package fx.shield.cs.GPU;
+
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.IntByReference;
+import com.sun.jna.ptr.PointerByReference;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scripted NVML binding with any number of devices, installed through
+ * {@link NvmlGpuUsageProvider#useBinding}. Public so monitor tests in other packages can use it.
+ */
+public final class FakeNvml implements NvmlGpuUsageProvider.Nvml {
+
+    private static final int NVML_SUCCESS = 0;
+    private static final int NVML_ERROR_INVALID_ARGUMENT = 2;
+    private static final int NVML_ERROR_UNKNOWN = 999;
+
+    // handles are fake addresses; PointerByReference maps 0 to null
+    private static final long HANDLE_BASE = 0x1000;
+
+    private final String[] names;
+    private final int[] gpu;
+    private final int[] memory;
+    private final boolean[] noHandle;
+
+    private final AtomicInteger inits = new AtomicInteger();
+    private final AtomicInteger shutdowns = new AtomicInteger();
+    private volatile int initResult = NVML_SUCCESS;
+
+    public FakeNvml(String... deviceNames) {
+        names = deviceNames.clone();
+        gpu = new int[names.length];
+        memory = new int[names.length];
+        noHandle = new boolean[names.length];
+    }
+
+    /** Makes this binding the one every provider uses, with fresh refcount state. */
+    public FakeNvml install() {
+        NvmlGpuUsageProvider.useBinding(this);
+        return this;
+    }
+
+    /** Goes back to lazy native loading. */
+    public static void uninstall() {
+        NvmlGpuUsageProvider.useBinding(null);
+    }
+
+    public synchronized FakeNvml set(int device, int gpuPercent, int memoryPercent) {
+        gpu[device] = gpuPercent;
+        memory[device] = memoryPercent;
+        return this;
+    }
+
+    /** {@code nvmlInit_v2} returns {@code code} (0 = success). */
+    public FakeNvml initResult(int code) {
+        initResult = code;
+        return this;
+    }
+
+    /** The device is counted but its handle cannot be obtained. */
+    public synchronized FakeNvml withoutHandle(int device) {
+        noHandle[device] = true;
+        return this;
+    }
+
+    public int inits() {
+        return inits.get();
+    }
+
+    public int shutdowns() {
+        return shutdowns.get();
+    }
+
+    private int index(Pointer device) {
+        long i = Pointer.nativeValue(device) - HANDLE_BASE;
+        return (device != null && i >= 0 && i < names.length) ? (int) i : -1;
+    }
+
+    @Override
+    public int nvmlInit_v2() {
+        inits.incrementAndGet();
+        return initResult;
+    }
+
+    @Override
+    public int nvmlShutdown() {
+        shutdowns.incrementAndGet();
+        return NVML_SUCCESS;
+    }
+
+    @Override
+    public int nvmlDeviceGetCount_v2(IntByReference count) {
+        count.setValue(names.length);
+        return NVML_SUCCESS;
+    }
+
+    @Override
+    public synchronized int nvmlDeviceGetHandleByIndex_v2(int index, PointerByReference device) {
+        if (index < 0 || index >= names.length) return NVML_ERROR_INVALID_ARGUMENT;
+        if (noHandle[index]) return NVML_ERROR_UNKNOWN;
+        device.setValue(new Pointer(HANDLE_BASE + index));
+        return NVML_SUCCESS;
+    }
+
+    @Override
+    public int nvmlDeviceGetName(Pointer device, byte[] name, int length) {
+        int i = index(device);
+        if (i < 0) return NVML_ERROR_INVALID_ARGUMENT;
+        byte[] b = names[i].getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(b, 0, name, 0, Math.min(b.length, length - 1));
+        return NVML_SUCCESS;
+    }
+
+    @Override
+    public synchronized int nvmlDeviceGetUtilizationRates(Pointer device, NvmlGpuUsageProvider.NvmlUtilization utilization) {
+        int i = index(device);
+        if (i < 0) return NVML_ERROR_INVALID_ARGUMENT;
+        utilization.gpu = gpu[i];
+        utilization.memory = memory[i];
+        utilization.write(); // the provider reads the native copy back, as after a real call
+        return NVML_SUCCESS;
+    }
+}
@@ -0,0 +1,68 @@
+package fx.shield.cs.GPU;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GpuAsyncTest {
+
+    private static final long PERIOD_MS = 50;
+
+    @Test
+    void slowReadSkipsMissedTicksInsteadOfBursting() throws InterruptedException {
+        List<Long> starts = new CopyOnWriteArrayList<>();
+        long t0 = System.nanoTime();
+        GpuUsageProvider slowThird = () -> {
+            starts.add((System.nanoTime() - t0) / 1_000_000);
+            if (starts.size() == 3) {
+                try { Thread.sleep(PERIOD_MS * 7 / 2); } catch (InterruptedException ignored) {}
+            }
+            return 10;
+        };
+
+        try (GpuUsageSubscription sub = GpuAsync.poll(slowThird, PERIOD_MS, r -> {})) {
+            Thread.sleep(PERIOD_MS * 10);
+            assertTrue(sub.isActive());
+        }
+
+        // a fixed-rate schedule starts the missed reads back to back right after the slow one
+        for (int i = 1; i < starts.size(); i++) {
+            long gap = starts.get(i) - starts.get(i - 1);
+            assertTrue(gap >= PERIOD_MS / 2, "burst: reads started at " + starts);
+        }
+        // ticks 3..5 were missed, the rest kept the grid
+        assertTrue(starts.size() >= 5 && starts.size() <= 8, "reads started at " + starts);
+    }
+
+    @Test
+    void cadenceDoesNotDriftWithReadLatency() throws InterruptedException {
+        GpuUsageProvider slowish = () -> {
+            try { Thread.sleep(PERIOD_MS / 2); } catch (InterruptedException ignored) {}
+            return 10;
+        };
+
+        AtomicInteger reads = new AtomicInteger();
+        try (GpuUsageSubscription ignored = GpuAsync.poll(slowish, PERIOD_MS, r -> reads.incrementAndGet())) {
+            Thread.sleep(PERIOD_MS * 20 + PERIOD_MS / 4);
+        }
+        // fixed delay would give ~14 (period + latency); the grid gives ~21
+        assertTrue(reads.get() >= 18, "reads: " + reads.get());
+    }
+
+    @Test
+    void closeStopsPolling() throws InterruptedException {
+        AtomicInteger reads = new AtomicInteger();
+        GpuUsageSubscription sub = GpuAsync.poll(() -> 10, PERIOD_MS, r -> reads.incrementAndGet());
+        Thread.sleep(PERIOD_MS * 2);
+        sub.close();
+        assertFalse(sub.isActive());
+
+        int after = reads.get();
+        Thread.sleep(PERIOD_MS * 3);
+        assertEquals(after, reads.get());
+    }
+}
@@ -0,0 +1,118 @@
+package fx.shield.cs.GPU;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Instance names as Windows reports them, captured from PDH and typeperf.
+ */
+class GpuInstanceNameParserTest {
+
+    /** {@code \GPU Engine(*)} instances from a laptop with an iGPU and a dGPU. */
+    private static final List<String> CAPTURED = List.of(
+            "pid_4312_luid_0x00000000_0x0000C2B1_phys_0_eng_0_engtype_3D",
+            "pid_4312_luid_0x00000000_0x0000C2B1_phys_0_eng_1_engtype_Copy",
+            "pid_1088_luid_0x00000000_0x0000C2B1_phys_0_eng_0_engtype_3D",
+            "pid_1088_luid_0x00000000_0x0000C2B1_phys_0_eng_5_engtype_VideoDecode",
+            "pid_1088_luid_0x00000000_0x0000C2B1_phys_0_eng_7_engtype_Legacy Overlay",
+            "pid_7720_luid_0x00000001_0x0000A3F2_phys_0_eng_0_engtype_3D",
+            "pid_7720_luid_0x00000001_0x0000A3F2_phys_1_eng_0_engtype_3D",
+            "pid_7720_luid_0x00000001_0x0000A3F2_phys_0_eng_3_engtype_High Priority Compute");
+
+    @Test
+    void parsesPidEngineAndType() {
+        GpuInstanceNameParser parser = new GpuInstanceNameParser();
+
+        GpuInstanceNameParser.Instance i = parser.parse(CAPTURED.get(3));
+
+        assertNotNull(i);
+        assertEquals(1088, i.pid);
+        assertEquals("VideoDecode", parser.typeName(i.type));
+        assertEquals(i.type, parser.engineTypeOf(i.engine));
+    }
+
+    @Test
+    void engineTypesMayContainSpaces() {
+        GpuInstanceNameParser parser = new GpuInstanceNameParser();
+
+        assertEquals("Legacy Overlay", parser.typeName(parser.parse(CAPTURED.get(4)).type));
+        assertEquals("High Priority Compute", parser.typeName(parser.parse(CAPTURED.get(7)).type));
+    }
+
+    @Test
+    void processesOnTheSameEngineShareItsId() {
+        GpuInstanceNameParser parser = new GpuInstanceNameParser();
+        for (String name : CAPTURED) assertNotNull(parser.parse(name), name);
+
+        GpuInstanceNameParser.Instance a = parser.parse(CAPTURED.get(0));
+        GpuInstanceNameParser.Instance b = parser.parse(CAPTURED.get(2));
+        assertNotEquals(a.pid, b.pid);
+        assertEquals(a.engine, b.engine);
+        assertEquals(a.type, b.type);
+
+        // same engine number and type on another adapter (LUID) or another node (phys)
+        GpuInstanceNameParser.Instance otherLuid = parser.parse(CAPTURED.get(5));
+        GpuInstanceNameParser.Instance otherPhys = parser.parse(CAPTURED.get(6));
+        assertNotEquals(a.engine, otherLuid.engine);
+        assertNotEquals(otherLuid.engine, otherPhys.engine);
+        assertEquals(a.type, otherLuid.type);
+
+        assertEquals(7, parser.engineCount());
+        assertEquals(5, parser.typeCount());
+    }
+
+    @Test
+    void luidCaseDoesNotSplitAnEngine() {
+        GpuInstanceNameParser parser = new GpuInstanceNameParser();
+
+        GpuInstanceNameParser.Instance upper = parser.parse("pid_1_luid_0x00000000_0x0000C2B1_phys_0_eng_0_engtype_3D");
+        GpuInstanceNameParser.Instance lower = parser.parse("pid_2_luid_0x00000000_0x0000c2b1_phys_0_eng_0_engtype_3D");
+
+        assertEquals(upper.engine, lower.engine);
+    }
+
+    @Test
+    void namesInsideTypeperfCounterPaths() {
+        GpuInstanceNameParser parser = new GpuInstanceNameParser();
+
+        GpuInstanceNameParser.Instance i = parser.parse(
+                "\\\\DESKTOP-7Q2\\GPU Engine(pid_1088_luid_0x00000000_0x0000C2B1_phys_0_eng_7_engtype_Legacy Overlay)\\Utilization Percentage");
+
+        assertNotNull(i);
+        assertEquals(1088, i.pid);
+        assertEquals("Legacy Overlay", parser.typeName(i.type));
+        assertEquals(i.engine, parser.parse(CAPTURED.get(4)).engine);
+    }
+
+    @Test
+    void emptyEngineTypeBecomesOther() {
+        GpuInstanceNameParser parser = new GpuInstanceNameParser();
+
+        GpuInstanceNameParser.Instance i = parser.parse("pid_5_luid_0x00000000_0x0000C2B1_phys_0_eng_9_engtype_");
+
+        assertNotNull(i);
+        assertEquals(GpuInstanceNameParser.OTHER_TYPE, parser.typeName(i.type));
+    }
+
+    @Test
+    void malformedNamesAreRejected() {
+        GpuInstanceNameParser parser = new GpuInstanceNameParser();
+
+        assertNull(parser.parse(null));
+        assertNull(parser.parse(""));
+        assertNull(parser.parse("_Total"));
+        assertNull(parser.parse("pid_abc_luid_0x00000000_0x0000C2B1_phys_0_eng_0_engtype_3D"));
+        assertNull(parser.parse("pid_99999999999_luid_0x00000000_0x0000C2B1_phys_0_eng_0_engtype_3D"));
+        assertNull(parser.parse("pid_12_luid_0x00000000_0x0000C2B1_phys_0_eng_0"));
+        assertNull(parser.parse("pid_12_luid_0xZZ_0x0000C2B1_phys_0_eng_0_engtype_3D"));
+        assertNull(parser.parse("pid_12_luid_0x00000000_0x0000C2B1_eng_0_engtype_3D"));
+
+        // a rejected name is remembered, and interns nothing
+        assertNull(parser.parse("_Total"));
+        assertEquals(0, parser.engineCount());
+        assertEquals(0, parser.typeCount());
+    }
+}
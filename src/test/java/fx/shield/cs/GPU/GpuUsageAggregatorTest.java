@@ -0,0 +1,113 @@
+package fx.shield.cs.GPU;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Headline and breakdown semantics: an engine is the sum of the processes on it, everything
+ * else reports its busiest engine.
+ */
+class GpuUsageAggregatorTest {
+
+    private static String name(int pid, int eng, String type) {
+        return "pid_" + pid + "_luid_0x00000000_0x0000C2B1_phys_0_eng_" + eng + "_engtype_" + type;
+    }
+
+    private final GpuUsageAggregator agg = new GpuUsageAggregator(new GpuInstanceNameParser());
+
+    @Test
+    void headlineIsTheBusiestEngineSummedAcrossProcesses() {
+        agg.reset();
+        agg.add(name(100, 0, "3D"), 30.0);
+        agg.add(name(200, 0, "3D"), 25.0);
+        agg.add(name(300, 1, "Copy"), 40.0);
+
+        GpuUsageBreakdown b = agg.finish();
+
+        // no single instance is above 40, but engine 0 is 55 % busy
+        assertEquals(55, b.overallPercent());
+        assertEquals(55, b.percentFor("3D"));
+        assertEquals(40, b.percentFor("Copy"));
+    }
+
+    @Test
+    void typeReportsItsBusiestEngineNotTheirSum() {
+        agg.reset();
+        agg.add(name(100, 0, "3D"), 30.0);
+        agg.add(name(100, 4, "3D"), 20.0);
+
+        GpuUsageBreakdown b = agg.finish();
+
+        assertEquals(30, b.overallPercent());
+        assertEquals(30, b.percentFor("3D"));
+    }
+
+    @Test
+    void processReportsItsBusiestEngine() {
+        agg.reset();
+        agg.add(name(100, 0, "3D"), 10.0);
+        agg.add(name(100, 1, "Copy"), 35.0);
+        agg.add(name(200, 0, "3D"), 50.0);
+        agg.add(name(300, 0, "3D"), 0.2); // rounds to 0: idle, omitted
+
+        GpuUsageBreakdown b = agg.finish();
+
+        assertEquals(2, b.processCount());
+        assertEquals(200, b.pid(0));
+        assertEquals(50, b.processPercent(0));
+        assertEquals(100, b.pid(1));
+        assertEquals(35, b.processPercent(1));
+    }
+
+    @Test
+    void sharedEngineIsClampedAtOneHundred() {
+        agg.reset();
+        agg.add(name(100, 0, "3D"), 70.0);
+        agg.add(name(200, 0, "3D"), 60.0);
+
+        assertEquals(100, agg.finish().overallPercent());
+    }
+
+    @Test
+    void unparsedNamesOnlyCountTowardTheHeadline() {
+        agg.reset();
+        agg.add(name(100, 0, "3D"), 20.0);
+        agg.add("_Total", 45.0);
+
+        GpuUsageBreakdown b = agg.finish();
+
+        assertEquals(45, b.overallPercent());
+        assertEquals(20, b.percentFor("3D"));
+        assertEquals(1, b.processCount());
+    }
+
+    @Test
+    void invalidValuesAreIgnored() {
+        agg.reset();
+        agg.add(name(100, 0, "3D"), -1.0);
+        agg.add(name(100, 0, "3D"), Double.NaN);
+        agg.add(name(100, 0, "3D"), Double.POSITIVE_INFINITY);
+        assertNull(agg.finish());
+
+        agg.add(name(100, 0, "3D"), 12.0);
+        assertEquals(12, agg.finish().overallPercent());
+    }
+
+    @Test
+    void resetStartsAFreshSampleButKeepsKnownTypes() {
+        agg.reset();
+        agg.add(name(100, 0, "3D"), 80.0);
+        agg.add(name(100, 5, "VideoDecode"), 10.0);
+        agg.finish();
+
+        agg.reset();
+        agg.add(name(100, 0, "3D"), 5.0);
+        GpuUsageBreakdown b = agg.finish();
+
+        assertEquals(5, b.overallPercent());
+        assertEquals(5, b.percentFor("3D"));
+        assertEquals(0, b.percentFor("VideoDecode")); // known engine, idle this sample
+        assertEquals(2, b.engineTypeCount());
+    }
+}
@@ -0,0 +1,264 @@
+package fx.shield.cs.GPU;
+
+import fx.shield.cs.GPU.HybridGpuUsageProvider.Candidate;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HybridGpuUsageProviderTest {
+
+    /**
+     * Scripted provider; {@code streaming} ones behave like a typeperf session: the first read
+     * after creation is a miss, and every instance counts as a running child until closed.
+     * Each read takes {@link #delay} ms; outcomes queued with {@link #then} are used first
+     * (true = the read fails), after that {@code up} decides.
+     */
+    private static final class Fake {
+        final boolean streaming;
+        final int value;
+        final AtomicBoolean up = new AtomicBoolean(true);
+        final AtomicInteger created = new AtomicInteger();
+        final AtomicInteger open = new AtomicInteger();
+        final AtomicInteger reads = new AtomicInteger();
+        final ConcurrentLinkedQueue<Boolean> failures = new ConcurrentLinkedQueue<>();
+        volatile long delayMs;
+
+        Fake(boolean streaming, int value) {
+            this.streaming = streaming;
+            this.value = value;
+        }
+
+        Fake delay(long ms) {
+            delayMs = ms;
+            return this;
+        }
+
+        Fake then(boolean... fail) {
+            for (boolean f : fail) failures.add(f);
+            return this;
+        }
+
+        GpuUsageProvider create() {
+            created.incrementAndGet();
+            open.incrementAndGet();
+            return new GpuUsageProvider() {
+                private boolean first = true;
+                private boolean closed;
+
+                @Override
+                public synchronized int readGpuUsagePercent() {
+                    reads.incrementAndGet();
+                    if (delayMs > 0) {
+                        try {
+                            Thread.sleep(delayMs);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    if (streaming && first) {
+                        first = false;
+                        return -1;
+                    }
+                    Boolean fail = failures.poll();
+                    if (fail != null) return fail ? -1 : value;
+                    return up.get() ? value : -1;
+                }
+
+                @Override
+                public synchronized void close() {
+                    if (!closed) {
+                        closed = true;
+                        open.decrementAndGet();
+                    }
+                }
+            };
+        }
+
+        Candidate candidate(String name, int priority) {
+            return new Candidate(name, priority, streaming, () -> true, this::create);
+        }
+    }
+
+    @Test
+    void streamingLoserIsClosedAfterProbe() {
+        Fake pdh = new Fake(false, 40);
+        Fake typeperf = new Fake(true, 41);
+
+        try (HybridGpuUsageProvider p = new HybridGpuUsageProvider(
+                List.of(pdh.candidate("pdh", 2), typeperf.candidate("typeperf", 0)), null)) {
+            assertEquals(40, p.readGpuUsagePercent());
+            assertEquals(1, typeperf.created.get());
+            assertEquals(0, typeperf.open.get(), "typeperf session left running");
+            assertEquals(1, pdh.open.get());
+        }
+    }
+
+    @Test
+    void shadowReadsSkipStreamingCandidates() throws InterruptedException {
+        Fake pdh = new Fake(false, 40);
+        Fake typeperf = new Fake(true, 41);
+
+        try (HybridGpuUsageProvider p = new HybridGpuUsageProvider(
+                List.of(pdh.candidate("pdh", 2), typeperf.candidate("typeperf", 0)), null, 1)) {
+            for (int i = 0; i < 30; i++) {
+                assertEquals(40, p.readGpuUsagePercent());
+                Thread.sleep(2);
+            }
+            assertEquals(1, typeperf.created.get(), "typeperf started again by a shadow read");
+            assertEquals(0, typeperf.open.get());
+        }
+    }
+
+    @Test
+    void nonStreamingCandidatesAreStillShadowRead() throws InterruptedException {
+        Fake nvml = new Fake(false, 30);
+        Fake pdh = new Fake(false, 40);
+
+        try (HybridGpuUsageProvider p = new HybridGpuUsageProvider(
+                List.of(nvml.candidate("nvml", 3), pdh.candidate("pdh", 2)), null, 1)) {
+            assertEquals(30, p.readGpuUsagePercent());
+            int before = pdh.reads.get();
+            for (int i = 0; i < 10; i++) {
+                p.readGpuUsagePercent();
+                Thread.sleep(2);
+            }
+            assertTrue(pdh.reads.get() > before);
+        }
+    }
+
+    @Test
+    void demotedStreamingProviderIsClosed() throws InterruptedException {
+        Fake pdh = new Fake(false, 40);
+        Fake typeperf = new Fake(true, 41);
+        pdh.up.set(false);
+
+        try (HybridGpuUsageProvider p = new HybridGpuUsageProvider(
+                List.of(pdh.candidate("pdh", 2), typeperf.candidate("typeperf", 0)), null)) {
+            assertEquals(41, p.readGpuUsagePercent());
+            assertEquals(1, typeperf.open.get());
+
+            pdh.up.set(true);
+            typeperf.up.set(false);
+
+            long deadline = System.currentTimeMillis() + 5000;
+            int v = -1;
+            while (v != 40 && System.currentTimeMillis() < deadline) {
+                v = p.readGpuUsagePercent();
+                if (v != 40) Thread.sleep(50);
+            }
+            assertEquals(40, v);
+            assertEquals(0, typeperf.open.get(), "typeperf session left running after demotion");
+        }
+    }
+
+    @Test
+    void scoreIsTheEwmaOfSuccessAndLatency() {
+        Candidate c = new Fake(false, 1).candidate("c", 1);
+        assertEquals(-99.0, c.score(), 1e-9); // never sampled: priority only
+
+        c.record(true, 10, 0);  // first sample seeds both averages
+        c.record(true, 60, 0);  // latency 10 + 0.2 * (60 - 10)
+        assertEquals(20.0, c.latencyMs(), 1e-9);
+        assertEquals(100.0 - 20.0 / 200.0 * 50.0 + 1, c.score(), 1e-9);
+
+        c.record(false, 500, 0); // success 1.0 -> 0.8, a failure's latency is not averaged in
+        assertEquals(20.0, c.latencyMs(), 1e-9);
+        assertEquals(80.0 - 5.0 + 1, c.score(), 1e-9);
+
+        Candidate slow = new Fake(false, 1).candidate("slow", 0);
+        slow.record(true, 5000, 0); // penalty is capped at 50
+        assertEquals(50.0, slow.score(), 1e-9);
+    }
+
+    @Test
+    void measuredLatencyFollowsTheReadTime() {
+        Candidate c = new Fake(false, 20).delay(40).candidate("c", 0);
+
+        assertEquals(20, c.timedRead());
+        assertTrue(c.latencyMs() >= 40.0, "latency " + c.latencyMs());
+        c.close();
+    }
+
+    @Test
+    void fastestHealthyCandidateWins() {
+        Fake broken = new Fake(false, 50);
+        broken.up.set(false);
+        Fake slow = new Fake(false, 30).delay(80);
+        Fake fast = new Fake(false, 40);
+        Candidate slowC = slow.candidate("nvml", 3);
+        Candidate fastC = fast.candidate("pdh", 2);
+
+        try (HybridGpuUsageProvider p = new HybridGpuUsageProvider(
+                List.of(broken.candidate("broken", 4), slowC, fastC), null)) {
+            // priority only breaks ties: the failing and the slow candidate both lose
+            assertEquals(40, p.readGpuUsagePercent());
+            assertTrue(slowC.isHealthy());
+            assertTrue(fastC.score() > slowC.score());
+        }
+    }
+
+    @Test
+    void backoffDoublesPerFailureUpToTheCap() {
+        Candidate c = new Fake(false, 1).candidate("c", 0);
+        long t = 1_000_000;
+
+        long[] expected = {1500, 3000, 6000, 12_000, 24_000, 30_000, 30_000};
+        for (long wait : expected) {
+            c.record(false, 0, t);
+            assertFalse(c.canTry(t + wait - 1), "retried before " + wait + " ms");
+            assertTrue(c.canTry(t + wait));
+        }
+
+        c.record(true, 1, t);
+        assertTrue(c.canTry(t));
+    }
+
+    @Test
+    void activeIsKeptThroughATransientFailureAndDemotedByScore() {
+        // three probe reads and one more succeed, then three misses in a row
+        Fake nvml = new Fake(false, 30).then(false, false, false, false, true, true, true);
+        Fake pdh = new Fake(false, 40);
+
+        try (HybridGpuUsageProvider p = new HybridGpuUsageProvider(
+                List.of(nvml.candidate("nvml", 3), pdh.candidate("pdh", 2)), null)) {
+            assertEquals(30, p.readGpuUsagePercent());
+            int pdhReads = pdh.reads.get();
+
+            // success 0.8, then 0.64: still healthy, so the miss is reported and nvml kept
+            assertEquals(-1, p.readGpuUsagePercent());
+            assertEquals(-1, p.readGpuUsagePercent());
+            assertEquals(pdhReads, pdh.reads.get());
+
+            // 0.512 is below the healthy threshold: demoted, pdh answers the same read
+            assertEquals(40, p.readGpuUsagePercent());
+            assertEquals(40, p.readGpuUsagePercent());
+        }
+    }
+
+    @Test
+    void clearlyBetterCandidateIsPromoted() throws InterruptedException {
+        Fake nvml = new Fake(false, 30);
+        nvml.up.set(false);
+        Fake pdh = new Fake(false, 40).delay(60);
+
+        try (HybridGpuUsageProvider p = new HybridGpuUsageProvider(
+                List.of(nvml.candidate("nvml", 3), pdh.candidate("pdh", 2)), null, 1)) {
+            assertEquals(40, p.readGpuUsagePercent());
+
+            // nvml recovers; shadow reads rebuild its score until it beats pdh by the margin
+            nvml.up.set(true);
+            long deadline = System.currentTimeMillis() + 10_000;
+            int v = 40;
+            while (v != 30 && System.currentTimeMillis() < deadline) {
+                v = p.readGpuUsagePercent();
+                Thread.sleep(5);
+            }
+            assertEquals(30, v);
+        }
+    }
+}
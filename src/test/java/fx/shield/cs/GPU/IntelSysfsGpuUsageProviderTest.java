@@ -0,0 +1,110 @@
+package fx.shield.cs.GPU;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Busy derived from idle-residency deltas, against a fake {@code /sys} tree.
+ */
+class IntelSysfsGpuUsageProviderTest {
+
+    @TempDir
+    Path sys;
+
+    private Path counter(String relative, long ms) throws IOException {
+        Path f = sys.resolve("class/drm").resolve(relative);
+        Files.createDirectories(f.getParent());
+        return Files.writeString(f, ms + "\n");
+    }
+
+    private static void set(Path f, long ms) throws IOException {
+        Files.writeString(f, ms + "\n");
+    }
+
+    /** Sleeps past the provider's minimum sampling interval. */
+    private static long waitMs(long ms) throws InterruptedException {
+        long t0 = System.nanoTime();
+        Thread.sleep(ms);
+        return (System.nanoTime() - t0) / 1_000_000L;
+    }
+
+    @Test
+    void idleDeltaBecomesBusyPercent() throws Exception {
+        Path rc6 = counter("card0/gt/gt0/rc6_residency_ms", 1_000_000);
+
+        try (IntelSysfsGpuUsageProvider p = new IntelSysfsGpuUsageProvider(sys)) {
+            assertTrue(p.isAvailable());
+
+            // idle for 100 ms of a window of at least 200 ms: busy lands in [50, 100)
+            waitMs(200);
+            set(rc6, 1_000_100);
+            int busy = p.readGpuUsagePercent();
+            assertTrue(busy >= 50 && busy < 100, "busy=" + busy);
+
+            // no idle time at all: fully busy
+            waitMs(150);
+            assertEquals(100, p.readGpuUsagePercent());
+
+            // idle ahead of the wall clock: clamped to 0
+            waitMs(150);
+            set(rc6, 1_100_100);
+            assertEquals(0, p.readGpuUsagePercent());
+        }
+    }
+
+    @Test
+    void readsInsideTheMinimumIntervalRepeatTheLastValue() throws Exception {
+        Path rc6 = counter("card0/power/rc6_residency_ms", 500);
+
+        try (IntelSysfsGpuUsageProvider p = new IntelSysfsGpuUsageProvider(sys)) {
+            waitMs(150);
+            assertEquals(100, p.readGpuUsagePercent());
+
+            set(rc6, 100_000);
+            assertEquals(100, p.readGpuUsagePercent());
+        }
+    }
+
+    @Test
+    void busiestGtWinsAcrossI915AndXe() throws Exception {
+        Path idle = counter("card0/gt/gt0/rc6_residency_ms", 0);
+        counter("card1/device/tile0/gt0/gtidle/idle_residency_ms", 0);
+
+        try (IntelSysfsGpuUsageProvider p = new IntelSysfsGpuUsageProvider(sys)) {
+            long wall = waitMs(150);
+            set(idle, wall * 10); // card0 fully idle, card1 fully busy
+            assertEquals(100, p.readGpuUsagePercent());
+        }
+    }
+
+    @Test
+    void counterResetKeepsTheLastValue() throws Exception {
+        Path rc6 = counter("card0/gt/gt0/rc6_residency_ms", 1_000);
+
+        try (IntelSysfsGpuUsageProvider p = new IntelSysfsGpuUsageProvider(sys)) {
+            waitMs(150);
+            assertEquals(100, p.readGpuUsagePercent());
+
+            waitMs(150);
+            set(rc6, 10);
+            assertEquals(100, p.readGpuUsagePercent());
+        }
+    }
+
+    @Test
+    void missingCountersMeanUnavailable() throws Exception {
+        Files.createDirectories(sys.resolve("class/drm/card0/gt/gt0"));
+        counter("card0/power/rc6_residency_ms", -1); // "-1" does not parse as a counter
+
+        try (IntelSysfsGpuUsageProvider p = new IntelSysfsGpuUsageProvider(sys)) {
+            assertFalse(p.isAvailable());
+            assertEquals(-1, p.readGpuUsagePercent());
+        }
+    }
+}
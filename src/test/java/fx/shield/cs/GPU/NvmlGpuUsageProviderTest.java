@@ -0,0 +1,146 @@
+package fx.shield.cs.GPU;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Multi-device enumeration and the shared init/shutdown refcount, against {@link FakeNvml}.
+ */
+class NvmlGpuUsageProviderTest {
+
+    private final List<NvmlGpuUsageProvider> opened = new ArrayList<>();
+
+    @AfterEach
+    void restoreBinding() {
+        for (NvmlGpuUsageProvider p : opened) p.close();
+        FakeNvml.uninstall();
+    }
+
+    private List<NvmlGpuUsageProvider> openAll() {
+        List<NvmlGpuUsageProvider> all = NvmlGpuUsageProvider.openAll();
+        opened.addAll(all);
+        return all;
+    }
+
+    @Test
+    void openAllEnumeratesEveryDevice() {
+        new FakeNvml("NVIDIA GeForce RTX 4090", "NVIDIA RTX A2000", "Tesla T4").install();
+
+        List<NvmlGpuUsageProvider> all = openAll();
+
+        assertEquals(3, all.size());
+        for (int i = 0; i < 3; i++) assertEquals(i, all.get(i).getDeviceIndex());
+        assertEquals("NVIDIA GeForce RTX 4090", all.get(0).getName());
+        assertEquals("Tesla T4", all.get(2).getName());
+    }
+
+    @Test
+    void deviceWithoutAHandleIsSkipped() {
+        FakeNvml nvml = new FakeNvml("a", "b", "c").withoutHandle(1).install();
+
+        List<NvmlGpuUsageProvider> all = openAll();
+
+        assertEquals(2, all.size());
+        assertEquals(0, all.get(0).getDeviceIndex());
+        assertEquals(2, all.get(1).getDeviceIndex());
+
+        for (NvmlGpuUsageProvider p : all) p.close();
+        assertEquals(1, nvml.shutdowns());
+    }
+
+    @Test
+    void eachProviderReadsItsOwnDevice() {
+        FakeNvml nvml = new FakeNvml("a", "b", "c")
+                .set(0, 12, 3)
+                .set(1, 87, 40)
+                .set(2, 150, -5) // unsigned in NVML; clamped
+                .install();
+
+        List<NvmlGpuUsageProvider> all = openAll();
+
+        assertEquals(12, all.get(0).readGpuUsagePercent());
+        assertEquals(3, all.get(0).readMemoryUtilPercent());
+        assertEquals(87, all.get(1).readGpuUsagePercent());
+        assertEquals(40, all.get(1).readMemoryUtilPercent());
+        assertEquals(100, all.get(2).readGpuUsagePercent());
+        assertEquals(0, all.get(2).readMemoryUtilPercent());
+
+        nvml.set(1, 5, 60);
+        assertEquals(5, all.get(1).readGpuUsagePercent());
+        assertEquals(60, all.get(1).readMemoryUtilPercent());
+        assertEquals(12, all.get(0).readGpuUsagePercent());
+    }
+
+    @Test
+    void subscriptionCarriesUtilizationAndMemory() throws InterruptedException {
+        new FakeNvml("a", "b").set(0, 10, 1).set(1, 64, 22).install();
+        NvmlGpuUsageProvider second = openAll().get(1);
+
+        AtomicReference<GpuReading> got = new AtomicReference<>();
+        CountDownLatch delivered = new CountDownLatch(1);
+        try (GpuUsageSubscription s = second.subscribe(20, r -> {
+            got.compareAndSet(null, r);
+            delivered.countDown();
+        })) {
+            assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        }
+
+        assertEquals(64, got.get().percent());
+        assertEquals(22, got.get().memoryPercent());
+    }
+
+    @Test
+    void nvmlShutsDownOnlyWhenTheLastProviderCloses() {
+        FakeNvml nvml = new FakeNvml("a", "b", "c").install();
+
+        List<NvmlGpuUsageProvider> all = openAll();
+        assertEquals(1, nvml.inits(), "enumeration initialized NVML more than once");
+        assertEquals(0, nvml.shutdowns());
+
+        all.get(0).close();
+        all.get(0).close(); // a second close must not release another reference
+        all.get(2).close();
+        assertEquals(0, nvml.shutdowns());
+        assertEquals(-1, all.get(0).readGpuUsagePercent());
+        assertTrue(all.get(1).readGpuUsagePercent() >= 0);
+
+        all.get(1).close();
+        assertEquals(1, nvml.shutdowns());
+
+        // the next user starts from a clean count
+        NvmlGpuUsageProvider again = new NvmlGpuUsageProvider(0);
+        opened.add(again);
+        assertEquals(2, nvml.inits());
+        again.close();
+        assertEquals(2, nvml.shutdowns());
+    }
+
+    @Test
+    void initFailureFallsBackCleanly() {
+        FakeNvml nvml = new FakeNvml("a", "b").initResult(9).install(); // NVML_ERROR_DRIVER_NOT_LOADED
+
+        assertTrue(openAll().isEmpty());
+        assertEquals(0, NvmlGpuUsageProvider.deviceCount());
+
+        NvmlGpuUsageProvider single = new NvmlGpuUsageProvider();
+        assertEquals(-1, single.readGpuUsagePercent());
+        assertEquals(-1, single.readMemoryUtilPercent());
+        single.close();
+        assertEquals(0, nvml.shutdowns(), "shut down an NVML that never initialized");
+
+        // driver comes back: no reference was leaked by the failed attempts
+        nvml.initResult(0);
+        List<NvmlGpuUsageProvider> all = openAll();
+        assertEquals(2, all.size());
+        for (NvmlGpuUsageProvider p : all) p.close();
+        assertEquals(1, nvml.shutdowns());
+    }
+}
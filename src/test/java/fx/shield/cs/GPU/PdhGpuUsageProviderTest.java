@@ -0,0 +1,232 @@
+package fx.shield.cs.GPU;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Warm-up, status filtering, name reuse and re-expansion, with recorded counter arrays
+ * standing in for PDH.
+ */
+class PdhGpuUsageProviderTest {
+
+    private static final int VALID = 0x00000000;
+    private static final int NEW_DATA = 0x00000001;
+    private static final int INVALID_DATA = 0xC0000BBA; // PDH_CSTATUS_INVALID_DATA
+    private static final int NO_INSTANCE = 0x800007D1;  // PDH_CSTATUS_NO_INSTANCE
+
+    // a little over the provider's 220 ms warm-up interval
+    private static final long WARMUP_MS = 250;
+
+    private static String engine(int pid, int eng, String type) {
+        return "pid_" + pid + "_luid_0x00000000_0x0000C2B1_phys_0_eng_" + eng + "_engtype_" + type;
+    }
+
+    /** One recorded {@code PdhGetFormattedCounterArrayW} result. */
+    private record Frame(String[] names, double[] values, int[] status) {
+        static Frame of(Object... nameValueStatus) {
+            int n = nameValueStatus.length / 3;
+            String[] names = new String[n];
+            double[] values = new double[n];
+            int[] status = new int[n];
+            for (int i = 0; i < n; i++) {
+                names[i] = (String) nameValueStatus[3 * i];
+                values[i] = ((Number) nameValueStatus[3 * i + 1]).doubleValue();
+                status[i] = (Integer) nameValueStatus[3 * i + 2];
+            }
+            return new Frame(names, values, status);
+        }
+    }
+
+    /**
+     * Replays frames: every collect after the warm-up sample advances to the next one (the last
+     * one repeats). Reads without names leave the name slots null, so a provider that relied on
+     * them would see no instances at all.
+     */
+    private static class Replay implements PdhCounterSource {
+        final List<Frame> frames = new ArrayList<>();
+        final List<Boolean> namedReads = new ArrayList<>();
+        int opens;
+        int collects;
+        int frame = -1;
+        boolean closed;
+
+        Replay(Frame... frames) {
+            this.frames.addAll(List.of(frames));
+        }
+
+        @Override
+        public boolean open(String wildcardPath) {
+            assertEquals("\\GPU Engine(*)\\Utilization Percentage", wildcardPath);
+            opens++;
+            closed = false;
+            return true;
+        }
+
+        @Override
+        public boolean collect() {
+            collects++;
+            frame = Math.min(frame + 1, frames.size() - 1);
+            return true;
+        }
+
+        @Override
+        public boolean readArray(CounterArray out, boolean withNames) {
+            namedReads.add(withNames);
+            Frame f = frames.get(frame);
+            int n = f.names.length;
+            out.ensureCapacity(n);
+            for (int i = 0; i < n; i++) {
+                out.names[i] = withNames ? f.names[i] : null;
+                out.values[i] = f.values[i];
+                out.status[i] = f.status[i];
+            }
+            out.count = n;
+            return true;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    @Test
+    void firstReadOnlyWarmsUp() throws InterruptedException {
+        Replay src = new Replay(
+                Frame.of(engine(10, 0, "3D"), 0.0, VALID),
+                Frame.of(engine(10, 0, "3D"), 37.0, NEW_DATA));
+
+        try (PdhGpuUsageProvider p = new PdhGpuUsageProvider(src)) {
+            assertEquals(-1, p.readGpuUsagePercent());
+            assertEquals(1, src.opens);
+            assertEquals(1, src.collects);
+            assertTrue(src.namedReads.isEmpty(), "array read before the second sample");
+            assertNull(p.readBreakdown());
+
+            Thread.sleep(WARMUP_MS);
+            assertEquals(37, p.readGpuUsagePercent());
+            assertEquals(2, src.collects);
+        }
+        assertTrue(src.closed);
+    }
+
+    @Test
+    void itemsWithInvalidStatusAreDropped() throws InterruptedException {
+        Replay src = new Replay(
+                Frame.of(engine(10, 0, "3D"), 0.0, VALID),
+                Frame.of(
+                        engine(10, 0, "3D"), 20.0, VALID,
+                        engine(11, 1, "Copy"), 99.0, INVALID_DATA,
+                        engine(12, 2, "VideoDecode"), 95.0, NO_INSTANCE,
+                        engine(13, 0, "3D"), 5.0, NEW_DATA));
+
+        try (PdhGpuUsageProvider p = new PdhGpuUsageProvider(src)) {
+            p.readGpuUsagePercent();
+            Thread.sleep(WARMUP_MS);
+
+            assertEquals(25, p.readGpuUsagePercent());
+            GpuUsageBreakdown b = p.readBreakdown();
+            // the engines are known from their names, but the invalid values count for nothing
+            assertEquals(0, b.percentFor("Copy"));
+            assertEquals(0, b.percentFor("VideoDecode"));
+            assertEquals(2, b.processCount());
+        }
+    }
+
+    @Test
+    void namesAreReadOnceAndReusedByIndex() throws InterruptedException {
+        String a = engine(10, 0, "3D");
+        String b = engine(20, 3, "VideoDecode");
+        Replay src = new Replay(
+                Frame.of(a, 0.0, VALID, b, 0.0, VALID),
+                Frame.of(a, 30.0, VALID, b, 10.0, VALID),
+                Frame.of(a, 5.0, VALID, b, 60.0, VALID),
+                Frame.of(a, 8.0, VALID, b, 12.0, VALID));
+
+        try (PdhGpuUsageProvider p = new PdhGpuUsageProvider(src)) {
+            p.readGpuUsagePercent();
+            Thread.sleep(WARMUP_MS);
+
+            assertEquals(30, p.readGpuUsagePercent());
+            assertEquals(60, p.readGpuUsagePercent());
+            assertEquals(60, p.readBreakdown().percentFor("VideoDecode"));
+            assertEquals(12, p.readGpuUsagePercent());
+
+            assertEquals(List.of(true, false, false), src.namedReads);
+        }
+    }
+
+    @Test
+    void instanceCountChangeRereadsTheNames() throws InterruptedException {
+        String a = engine(10, 0, "3D");
+        String b = engine(20, 3, "VideoDecode");
+        Replay src = new Replay(
+                Frame.of(a, 0.0, VALID),
+                Frame.of(a, 30.0, VALID),
+                Frame.of(b, 70.0, VALID, a, 10.0, VALID));
+
+        try (PdhGpuUsageProvider p = new PdhGpuUsageProvider(src)) {
+            p.readGpuUsagePercent();
+            Thread.sleep(WARMUP_MS);
+
+            assertEquals(30, p.readGpuUsagePercent());
+            assertEquals(70, p.readGpuUsagePercent());
+            assertEquals(70, p.readBreakdown().percentFor("VideoDecode"));
+            assertEquals(10, p.readBreakdown().percentFor("3D"));
+
+            assertEquals(List.of(true, false, true), src.namedReads);
+        }
+    }
+
+    @Test
+    void queryIsRebuiltAfterTheReexpandInterval() throws InterruptedException {
+        String a = engine(10, 0, "3D");
+        String c = engine(30, 1, "Copy");
+        Replay src = new Replay(
+                Frame.of(a, 0.0, VALID),
+                Frame.of(a, 40.0, VALID),
+                Frame.of(a, 40.0, VALID),
+                Frame.of(c, 15.0, VALID));
+
+        try (PdhGpuUsageProvider p = new PdhGpuUsageProvider(src, 400)) {
+            p.readGpuUsagePercent();
+            Thread.sleep(WARMUP_MS);
+            assertEquals(40, p.readGpuUsagePercent());
+            assertEquals(1, src.opens);
+
+            // past the interval: rebuilt, and the last value is served while it warms up
+            Thread.sleep(400);
+            assertEquals(40, p.readGpuUsagePercent());
+            assertEquals(2, src.opens);
+
+            // same instance count as before, but names are fetched again after the rebuild
+            Thread.sleep(WARMUP_MS);
+            assertEquals(15, p.readGpuUsagePercent());
+            assertEquals(15, p.readBreakdown().percentFor("Copy"));
+            assertEquals(List.of(true, true), src.namedReads);
+        }
+    }
+
+    @Test
+    void failedOpenReportsMinusOne() {
+        Replay src = new Replay(Frame.of(engine(10, 0, "3D"), 50.0, VALID)) {
+            @Override
+            public boolean open(String wildcardPath) {
+                opens++;
+                return false;
+            }
+        };
+
+        PdhGpuUsageProvider p = new PdhGpuUsageProvider(src);
+        assertEquals(-1, p.readGpuUsagePercent());
+        assertEquals(-1, p.readGpuUsagePercent());
+        assertEquals(2, src.opens);
+        assertEquals(0, src.collects);
+        assertTrue(src.closed);
+        p.close();
+    }
+}
@@ -0,0 +1,175 @@
+package fx.shield.cs.GPU;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Session handling and CSV parsing, with {@code /bin/sh} replaying recorded typeperf output.
+ */
+@EnabledOnOs({OS.LINUX, OS.MAC})
+class TypeperfGpuUsageProviderTest {
+
+    private static final String ENGINE = "\\\\DESKTOP\\GPU Engine(pid_%d_luid_0x00000000_0x%s_phys_0_eng_%d_engtype_%s)\\Utilization Percentage";
+
+    /** One adapter: two 3D users on the same engine, one Copy user. */
+    private static final String ONE_ADAPTER = "\"(PDH-CSV 4.0)\","
+            + q(ENGINE.formatted(1234, "0000C2B1", 0, "3D")) + ","
+            + q(ENGINE.formatted(1234, "0000C2B1", 2, "Copy")) + ","
+            + q(ENGINE.formatted(5678, "0000C2B1", 0, "3D"));
+
+    /** The same plus an engine on a second adapter that appeared later. */
+    private static final String TWO_ADAPTERS = ONE_ADAPTER + ","
+            + q(ENGINE.formatted(9012, "0001D3C4", 0, "VideoDecode"));
+
+    @TempDir
+    Path dir;
+
+    private final List<Process> started = new CopyOnWriteArrayList<>();
+
+    private static String q(String s) {
+        return "\"" + s + "\"";
+    }
+
+    private static String row(String... values) {
+        StringBuilder sb = new StringBuilder("\"10/18/2026 12:00:01.123\"");
+        for (String v : values) sb.append(",\"").append(v).append('"');
+        return sb.toString();
+    }
+
+    /**
+     * Launches {@code recordings[i]} on the i-th start (the last one from then on). Each replays
+     * its lines the way typeperf prints them; with {@code stayAlive} the last row then repeats
+     * every 100 ms until the process is killed.
+     */
+    private TypeperfGpuUsageProvider.Launcher replay(boolean[] stayAlive, String... recordings) throws IOException {
+        Path[] files = new Path[recordings.length];
+        for (int i = 0; i < recordings.length; i++) {
+            files[i] = Files.writeString(dir.resolve("rec" + i + ".csv"), recordings[i]);
+        }
+        return () -> {
+            int i = Math.min(started.size(), files.length - 1);
+            String script = stayAlive[i]
+                    ? "cat \"$0\"; while :; do tail -n 1 \"$0\"; sleep 0.1; done"
+                    : "cat \"$0\"";
+            Process p = new ProcessBuilder("/bin/sh", "-c", script, files[i].toString()).start();
+            started.add(p);
+            return p;
+        };
+    }
+
+    private static String recording(String header, String... rows) {
+        StringBuilder sb = new StringBuilder("\n").append(header).append('\n');
+        for (String r : rows) sb.append(r).append('\n');
+        return sb.toString();
+    }
+
+    private static int awaitValue(TypeperfGpuUsageProvider p, int want) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        int v = p.readGpuUsagePercent();
+        while (v != want && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            v = p.readGpuUsagePercent();
+        }
+        return v;
+    }
+
+    @Test
+    void parsesHeaderAndRows() throws Exception {
+        String rec = recording(ONE_ADAPTER,
+                row("0.000000", "0.000000", "0.000000"),
+                row("12.250000", "3.000000", "30.000000"));
+
+        try (TypeperfGpuUsageProvider p = new TypeperfGpuUsageProvider(replay(new boolean[]{true}, rec), false)) {
+            // the two 3D users share engine 0
+            assertEquals(42, awaitValue(p, 42));
+
+            GpuUsageBreakdown b = p.readBreakdown();
+            assertNotNull(b);
+            assertEquals(42, b.percentFor("3D"));
+            assertEquals(3, b.percentFor("Copy"));
+            assertEquals(2, b.processCount());
+            assertEquals(5678, b.pid(0));
+            assertEquals(30, b.processPercent(0));
+            assertEquals(1234, b.pid(1));
+            assertEquals(12, b.processPercent(1));
+            assertEquals(1, started.size());
+        }
+    }
+
+    @Test
+    void headerChangeRebuildsTheColumns() {
+        TypeperfGpuUsageProvider.CsvState csv = new TypeperfGpuUsageProvider.CsvState();
+
+        assertEquals(-1, csv.accept(ONE_ADAPTER));
+        assertEquals(3, csv.valueColumns().length);
+        assertEquals(10, csv.accept(row("10", "0", "0")));
+        assertEquals(-1, csv.lastBreakdown().percentFor("VideoDecode"));
+
+        assertEquals(-1, csv.accept(TWO_ADAPTERS));
+        assertEquals(4, csv.valueColumns().length);
+        assertEquals(55, csv.accept(row("10", "0", "0", "55")));
+        assertEquals(55, csv.lastBreakdown().percentFor("VideoDecode"));
+
+        // values that do not parse are skipped, not read as zero
+        assertEquals(7, csv.accept(row("N/A", " ", "7", "")));
+        assertEquals(-1, csv.accept(row("N/A", "N/A", "N/A", "N/A")));
+        assertEquals(-1, csv.accept("Exiting, please wait..."));
+    }
+
+    @Test
+    void exitedSessionIsRestartedAfterTheBackoff() throws Exception {
+        String first = recording(ONE_ADAPTER, row("20", "0", "0"));
+        String second = recording(ONE_ADAPTER, row("0", "0", "65"));
+
+        try (TypeperfGpuUsageProvider p = new TypeperfGpuUsageProvider(
+                replay(new boolean[]{false, true}, first, second), false, 60_000, 100)) {
+            assertEquals(65, awaitValue(p, 65));
+            assertEquals(2, started.size());
+            assertFalse(started.get(0).isAlive());
+        }
+    }
+
+    @Test
+    void recycledSessionPicksUpNewAdaptersAndStopsTheOldOne() throws Exception {
+        String before = recording(ONE_ADAPTER, row("20", "0", "0"));
+        String after = recording(TWO_ADAPTERS, row("0", "0", "0", "70"));
+
+        try (TypeperfGpuUsageProvider p = new TypeperfGpuUsageProvider(
+                replay(new boolean[]{true, true}, before, after), false, 300, 60_000)) {
+            assertEquals(20, awaitValue(p, 20));
+            assertEquals(1, started.size());
+
+            assertEquals(70, awaitValue(p, 70));
+            assertEquals(70, p.readBreakdown().percentFor("VideoDecode"));
+
+            Process old = started.get(0);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (old.isAlive() && System.currentTimeMillis() < deadline) Thread.sleep(20);
+            assertFalse(old.isAlive(), "replaced session left running");
+        }
+    }
+
+    @Test
+    void closeStopsTheSession() throws Exception {
+        String rec = recording(ONE_ADAPTER, row("20", "0", "0"));
+        TypeperfGpuUsageProvider p = new TypeperfGpuUsageProvider(replay(new boolean[]{true}, rec), false);
+
+        assertEquals(20, awaitValue(p, 20));
+        p.close();
+
+        assertTrue(started.get(0).waitFor(5, TimeUnit.SECONDS));
+        assertEquals(-1, p.readGpuUsagePercent());
+        assertEquals(1, started.size());
+    }
+}
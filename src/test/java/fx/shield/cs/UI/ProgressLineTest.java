@@ -0,0 +1,45 @@
+package fx.shield.cs.UI;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Which script lines drive {@link LoadingDialog}'s progress bar.
+ */
+class ProgressLineTest {
+
+    @Test
+    void acceptsZeroToOneHundred() {
+        assertEquals(0, ProgressLine.parse("PROGRESS:0"));
+        assertEquals(42, ProgressLine.parse("PROGRESS:42"));
+        assertEquals(100, ProgressLine.parse("PROGRESS:100"));
+        assertEquals(7, ProgressLine.parse("PROGRESS:007"));
+    }
+
+    @Test
+    void toleratesWhitespaceAndTrailingText() {
+        assertEquals(35, ProgressLine.parse("  PROGRESS : 35"));
+        assertEquals(60, ProgressLine.parse("PROGRESS:60 (defrag C:)"));
+        assertEquals(60, ProgressLine.parse("PROGRESS:60%"));
+    }
+
+    @Test
+    void outOfRangeIsRejectedNotShownAsOutput() {
+        assertEquals(ProgressLine.REJECTED, ProgressLine.parse("PROGRESS:101"));
+        assertEquals(ProgressLine.REJECTED, ProgressLine.parse("PROGRESS:999"));
+        assertEquals(ProgressLine.REJECTED, ProgressLine.parse("PROGRESS:1000"));
+        assertEquals(ProgressLine.REJECTED, ProgressLine.parse("PROGRESS:99999999999999999999"));
+    }
+
+    @Test
+    void otherLinesAreOutput() {
+        assertEquals(ProgressLine.NONE, ProgressLine.parse("Verification 35% complete."));
+        assertEquals(ProgressLine.NONE, ProgressLine.parse("progress:50"));
+        assertEquals(ProgressLine.NONE, ProgressLine.parse("PROGRESS:"));
+        assertEquals(ProgressLine.NONE, ProgressLine.parse("PROGRESS:12abc"));
+        assertEquals(ProgressLine.NONE, ProgressLine.parse("step PROGRESS:50"));
+        assertEquals(ProgressLine.NONE, ProgressLine.parse(""));
+        assertEquals(ProgressLine.NONE, ProgressLine.parse(null));
+    }
+}
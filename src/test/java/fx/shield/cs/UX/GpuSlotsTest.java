@@ -0,0 +1,97 @@
+package fx.shield.cs.UX;
+
+import fx.shield.cs.GPU.FakeNvml;
+import fx.shield.cs.GPU.GpuUsageProvider;
+import fx.shield.cs.GPU.NvmlGpuUsageProvider;
+import fx.shield.cs.UX.SystemMonitorService.GpuSnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Per-device NVML readings travel through the monitor's GPU slots into {@link GpuSnapshot}s.
+ */
+class GpuSlotsTest {
+
+    @AfterEach
+    void restoreBinding() {
+        FakeNvml.uninstall();
+    }
+
+    private static GpuSnapshot[] awaitSnapshots(GpuSlots slots, int[] usage, int[] memory) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        GpuSnapshot[] snaps = slots.consume(System.currentTimeMillis());
+        while (!matches(snaps, usage, memory) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            snaps = slots.consume(System.currentTimeMillis());
+        }
+        return snaps;
+    }
+
+    private static boolean matches(GpuSnapshot[] snaps, int[] usage, int[] memory) {
+        for (int i = 0; i < snaps.length; i++) {
+            if (snaps[i].usagePercent != usage[i] || snaps[i].memoryPercent != memory[i]) return false;
+        }
+        return true;
+    }
+
+    @Test
+    void everyNvmlDeviceGetsItsOwnSnapshot() throws InterruptedException {
+        FakeNvml nvml = new FakeNvml("RTX 4090", "RTX A2000")
+                .set(0, 40, 10)
+                .set(1, 75, 30)
+                .install();
+        List<NvmlGpuUsageProvider> devices = NvmlGpuUsageProvider.openAll();
+        assertEquals(2, devices.size());
+
+        GpuSlots slots = new GpuSlots(devices.toArray(new GpuUsageProvider[0]),
+                new String[]{devices.get(0).getName(), devices.get(1).getName()});
+        slots.start();
+        try {
+            GpuSnapshot[] snaps = awaitSnapshots(slots, new int[]{40, 75}, new int[]{10, 30});
+
+            assertEquals(2, snaps.length);
+            assertEquals(0, snaps[0].index);
+            assertEquals("RTX 4090", snaps[0].name);
+            assertEquals(40, snaps[0].usagePercent);
+            assertEquals(10, snaps[0].memoryPercent);
+            assertTrue(snaps[0].supported);
+            assertEquals(1, snaps[1].index);
+            assertEquals("RTX A2000", snaps[1].name);
+            assertEquals(75, snaps[1].usagePercent);
+            assertEquals(30, snaps[1].memoryPercent);
+
+            // raw stats come from the same pushed readings, per slot
+            Thread.sleep(500);
+            snaps = slots.consume(System.currentTimeMillis());
+            assertTrue(snaps[1].usageStats.count > 0);
+            assertEquals(75.0, snaps[1].usageStats.max, 1e-9);
+            assertEquals(40.0, snaps[0].usageStats.min, 1e-9);
+        } finally {
+            slots.stop();
+        }
+
+        // stop closed every provider: NVML was released by the last one
+        assertEquals(1, nvml.shutdowns());
+    }
+
+    @Test
+    void noReadingMeansUnsupported() {
+        GpuSlots slots = new GpuSlots(new GpuUsageProvider[]{new GpuUsageProvider() {
+            @Override
+            public int readGpuUsagePercent() {
+                return -1;
+            }
+        }}, new String[]{"Unknown"});
+
+        GpuSnapshot[] snaps = slots.consume(System.currentTimeMillis());
+
+        assertEquals(1, snaps.length);
+        assertEquals(-1, snaps[0].usagePercent);
+        assertFalse(snaps[0].supported);
+        assertEquals(0, snaps[0].usageStats.count);
+    }
+}
@@ -0,0 +1,129 @@
+package fx.shield.cs.WIN;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cancelling an action kills the whole tree its script started.
+ */
+@EnabledOnOs({OS.LINUX, OS.MAC})
+class ActionJobTest {
+
+    private static final Duration T = Duration.ofSeconds(30);
+
+    /** Two background sleeps, one of them a grandchild; prints every pid it starts, then its own. */
+    private static final String TREE =
+            "sleep 30 & echo $!; (sleep 30 & echo $!; wait) & echo $!; echo $$; wait";
+    private static final int TREE_PIDS = 4;
+
+    @Test
+    void cancelKillsAOneShotProcessTree() throws Exception {
+        ActionJob job = ActionJob.start("test");
+        List<Long> pids = new CopyOnWriteArrayList<>();
+        CountDownLatch started = new CountDownLatch(TREE_PIDS);
+        Thread canceller = cancelWhenStarted(job, started);
+
+        long t0 = System.nanoTime();
+        WindowsUtils.PsResult r = ProcessExecutor.runProcess(List.of("/bin/sh", "-c", TREE), T,
+                line -> { pids.add(Long.parseLong(line.strip())); started.countDown(); }, null, job);
+        long ms = (System.nanoTime() - t0) / 1_000_000L;
+        canceller.join();
+        job.finish();
+
+        assertTrue(r.cancelled);
+        assertFalse(r.success);
+        assertFalse(r.timedOut);
+        assertTrue(ms < 5000, "returned after " + ms + " ms");
+        assertEquals(TREE_PIDS, pids.size());
+        assertAllDead(pids);
+        assertEquals(ActionJob.State.CANCELLED, job.state());
+    }
+
+    @Test
+    void cancelKillsAPooledHostAndItsTree() throws Exception {
+        ScriptHostPool pool = new ScriptHostPool(ScriptHost.posixShell(), 1, 100, 0, null);
+        try {
+            ActionJob job = ActionJob.start("test");
+            List<Long> pids = new CopyOnWriteArrayList<>();
+            CountDownLatch started = new CountDownLatch(TREE_PIDS);
+            Thread canceller = cancelWhenStarted(job, started);
+
+            WindowsUtils.PsResult r = pool.run(TREE, T,
+                    line -> { pids.add(Long.parseLong(line.strip())); started.countDown(); }, job);
+            canceller.join();
+            job.finish();
+
+            assertNotNull(r);
+            assertFalse(r.success);
+            assertFalse(r.timedOut);
+            assertEquals(TREE_PIDS, pids.size());
+            assertAllDead(pids);
+
+            // the killed host was discarded; the next script gets a fresh one
+            assertEquals("ok", pool.run("echo ok", T, null).stdout.strip());
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    void cancelBeforeStartRunsNothing() {
+        ActionJob job = ActionJob.start("test");
+        job.cancel();
+        AtomicInteger lines = new AtomicInteger();
+
+        WindowsUtils.PsResult r = ProcessExecutor.runProcess(List.of("/bin/sh", "-c", "echo ran"), T,
+                line -> lines.incrementAndGet(), null, job);
+
+        assertTrue(r.cancelled);
+        assertEquals(0, lines.get());
+    }
+
+    @Test
+    void hooksRegisteredAfterCancelRunAtOnce() {
+        ActionJob job = ActionJob.start("test");
+        AtomicInteger runs = new AtomicInteger();
+        job.onCancel(runs::incrementAndGet);
+
+        job.cancel();
+        job.cancel();
+        assertEquals(1, runs.get());
+
+        job.onCancel(runs::incrementAndGet);
+        assertEquals(2, runs.get());
+        assertFalse(ActionJob.active().contains(job));
+    }
+
+    private static Thread cancelWhenStarted(ActionJob job, CountDownLatch started) {
+        Thread t = new Thread(() -> {
+            try {
+                started.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+            }
+            job.cancel();
+        });
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+
+    private static void assertAllDead(List<Long> pids) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5); // killed orphans are reaped by init
+        for (long pid : pids) {
+            while (ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false)) {
+                if (System.nanoTime() > deadline) fail("pid " + pid + " survived the cancel");
+                Thread.sleep(20);
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package fx.shield.cs.WIN;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Scheduling rules, with {@code /bin/sh} commands standing in for the One Click scripts.
+ */
+@EnabledOnOs({OS.LINUX, OS.MAC})
+class JobGraphTest {
+
+    private static final Duration T = Duration.ofSeconds(10);
+
+    /** Step id to {start, end} in ms since the test began. */
+    private final Map<String, long[]> spans = new ConcurrentHashMap<>();
+    private final long t0 = System.nanoTime();
+
+    private BooleanSupplier sh(String id, String script) {
+        return sh(id, script, null);
+    }
+
+    private BooleanSupplier sh(String id, String script, ActionJob job) {
+        return () -> {
+            long start = nowMs();
+            WindowsUtils.PsResult r = ProcessExecutor.runProcess(List.of("/bin/sh", "-c", script), T, null, null, job);
+            spans.put(id, new long[]{start, nowMs()});
+            return r.success;
+        };
+    }
+
+    private long nowMs() {
+        return (System.nanoTime() - t0) / 1_000_000L;
+    }
+
+    private boolean overlap(String a, String b) {
+        long[] x = spans.get(a);
+        long[] y = spans.get(b);
+        return x[0] < y[1] && y[0] < x[1];
+    }
+
+    private static Map<String, JobGraph.Status> statuses(JobGraph g) {
+        Map<String, JobGraph.Status> m = new ConcurrentHashMap<>();
+        for (JobGraph.Step s : g.steps()) m.put(s.id, s.status());
+        return m;
+    }
+
+    @Test
+    void independentStepsStartTogether() {
+        JobGraph g = new JobGraph(3)
+                .add("a", "A", JobGraph.Resource.CPU, sh("a", "sleep 0.4"))
+                .add("b", "B", JobGraph.Resource.DISK, sh("b", "sleep 0.4"))
+                .add("c", "C", JobGraph.Resource.NETWORK, sh("c", "sleep 0.4"));
+
+        assertTrue(g.run(null));
+
+        assertTrue(overlap("a", "b"));
+        assertTrue(overlap("a", "c"));
+        assertTrue(overlap("b", "c"));
+    }
+
+    @Test
+    void dependentStepWaitsForItsDependency() {
+        JobGraph g = new JobGraph(3)
+                .add("fetch", "Fetch", JobGraph.Resource.NETWORK, sh("fetch", "sleep 0.3"))
+                .add("apply", "Apply", JobGraph.Resource.CPU, sh("apply", "true"), "fetch")
+                .add("other", "Other", JobGraph.Resource.DISK, sh("other", "sleep 0.3"));
+
+        assertTrue(g.run(null));
+
+        assertTrue(spans.get("apply")[0] >= spans.get("fetch")[1]);
+        assertTrue(overlap("fetch", "other"));
+        for (JobGraph.Step s : g.steps()) assertEquals(JobGraph.Status.OK, s.status());
+    }
+
+    @Test
+    void failureSkipsDependentsTransitively() {
+        JobGraph g = new JobGraph(2)
+                .add("a", "A", JobGraph.Resource.CPU, sh("a", "exit 1"))
+                .add("b", "B", JobGraph.Resource.CPU, sh("b", "true"), "a")
+                .add("c", "C", JobGraph.Resource.DISK, sh("c", "true"), "b")
+                .add("d", "D", JobGraph.Resource.DISK, sh("d", "true"));
+
+        assertFalse(g.run(null));
+
+        Map<String, JobGraph.Status> st = statuses(g);
+        assertEquals(JobGraph.Status.FAILED, st.get("a"));
+        assertEquals(JobGraph.Status.SKIPPED, st.get("b"));
+        assertEquals(JobGraph.Status.SKIPPED, st.get("c"));
+        assertEquals(JobGraph.Status.OK, st.get("d"));
+        assertFalse(spans.containsKey("b"));
+        assertFalse(spans.containsKey("c"));
+    }
+
+    @Test
+    void oneStepPerResourceClassAtATime() {
+        JobGraph g = new JobGraph(4)
+                .add("disk-1", "Disk 1", JobGraph.Resource.DISK, sh("disk-1", "sleep 0.3"))
+                .add("disk-2", "Disk 2", JobGraph.Resource.DISK, sh("disk-2", "sleep 0.3"))
+                .add("cpu", "CPU", JobGraph.Resource.CPU, sh("cpu", "sleep 0.3"));
+
+        assertTrue(g.run(null));
+
+        assertFalse(overlap("disk-1", "disk-2"));
+        assertTrue(spans.get("disk-2")[0] >= spans.get("disk-1")[1]); // add() order
+        assertTrue(overlap("disk-1", "cpu"));
+    }
+
+    @Test
+    void cancelStopsTheGraphAndKillsTheRunningStep() throws Exception {
+        ActionJob job = ActionJob.start("test");
+        CountDownLatch longStarted = new CountDownLatch(1);
+        JobGraph g = new JobGraph(2)
+                .add("long", "Long", JobGraph.Resource.DISK, () -> {
+                    longStarted.countDown();
+                    return sh("long", "sleep 30", job).getAsBoolean();
+                })
+                .add("after", "After", JobGraph.Resource.CPU, sh("after", "true"), "long")
+                .add("queued", "Queued", JobGraph.Resource.DISK, sh("queued", "true"));
+        job.onCancel(g::cancel);
+
+        Thread canceller = new Thread(() -> {
+            try {
+                if (longStarted.await(5, TimeUnit.SECONDS)) Thread.sleep(200);
+            } catch (InterruptedException ignored) {
+            }
+            job.cancel();
+        });
+        canceller.start();
+
+        long start = nowMs();
+        assertFalse(g.run(null));
+        canceller.join();
+        job.finish();
+
+        assertTrue(nowMs() - start < 5000, "run() waited for the cancelled step");
+        Map<String, JobGraph.Status> st = statuses(g);
+        assertEquals(JobGraph.Status.CANCELLED, st.get("long"));
+        assertEquals(JobGraph.Status.CANCELLED, st.get("after"));
+        assertEquals(JobGraph.Status.CANCELLED, st.get("queued"));
+        assertFalse(spans.containsKey("queued"));
+    }
+}
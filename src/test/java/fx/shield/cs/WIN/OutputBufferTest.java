@@ -0,0 +1,73 @@
+package fx.shield.cs.WIN;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Head/tail truncation of captured script output and the omitted-lines marker.
+ */
+class OutputBufferTest {
+
+    @Test
+    void shortOutputIsKeptVerbatim() {
+        OutputBuffer b = new OutputBuffer(64, 64);
+        b.appendLine("one");
+        b.appendLine("two");
+
+        assertEquals("one\ntwo\n", b.toString());
+        assertEquals(0, b.omittedLines());
+    }
+
+    @Test
+    void keepsHeadAndTailAndMarksTheGap() {
+        OutputBuffer b = new OutputBuffer(15, 15); // three 5-char lines fit in each part
+        for (int i = 0; i < 10; i++) b.appendLine("ln" + i + "x");
+
+        // head: ln0x..ln2x; tail: the last three; ln3x..ln6x dropped
+        assertEquals(4, b.omittedLines());
+        assertEquals("ln0x\nln1x\nln2x\n... [4 lines omitted] ...\nln7x\nln8x\nln9x\n", b.toString());
+    }
+
+    @Test
+    void noMarkerWhileTheTailHoldsEverythingAfterTheHead() {
+        OutputBuffer b = new OutputBuffer(5, 64);
+        b.appendLine("head");
+        b.appendLine("tail-1");
+        b.appendLine("tail-2");
+
+        assertEquals(0, b.omittedLines());
+        assertEquals("head\ntail-1\ntail-2\n", b.toString());
+    }
+
+    @Test
+    void overlongLineKeepsItsEnd() {
+        OutputBuffer b = new OutputBuffer(0, 6);
+        b.appendLine("0123456789");
+
+        assertEquals("56789\n", b.toString());
+        assertEquals(0, b.omittedLines());
+    }
+
+    @Test
+    void nullIsAnEmptyLine() {
+        OutputBuffer b = new OutputBuffer(64, 64);
+        b.appendLine(null);
+        b.appendLine("x");
+
+        assertEquals("\nx\n", b.toString());
+    }
+
+    @Test
+    void memoryStaysBoundedForChattyOutput() {
+        OutputBuffer b = new OutputBuffer(100, 200);
+        for (int i = 0; i < 100_000; i++) b.appendLine("Verification " + (i % 100) + "% complete.");
+
+        String s = b.toString();
+        assertTrue(s.length() <= 100 + 200 + 48, "length " + s.length());
+        assertTrue(s.startsWith("Verification 0% complete.\n"));
+        assertTrue(s.endsWith("Verification 99% complete.\n"));
+        assertTrue(s.contains(" lines omitted] ..."));
+        assertTrue(b.omittedLines() > 99_000);
+    }
+}
@@ -0,0 +1,153 @@
+package fx.shield.cs.WIN;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Line splitting, latency, exit handling and a 200-process stress run against {@code /bin/sh}.
+ */
+@EnabledOnOs({OS.LINUX, OS.MAC})
+class PipeReaderTest {
+
+    private static Process sh(String script) throws IOException {
+        return new ProcessBuilder("/bin/sh", "-c", script).start();
+    }
+
+    private static List<String> lines(String script) throws Exception {
+        Process p = sh(script);
+        List<String> out = new CopyOnWriteArrayList<>();
+        PipeReader.Pipe pipe = PipeReader.shared().register(p.getInputStream(), p, StandardCharsets.UTF_8, out::add, null);
+        PipeReader.shared().register(p.getErrorStream(), p, StandardCharsets.UTF_8, null, null);
+        assertTrue(pipe.await(5000));
+        return out;
+    }
+
+    @Test
+    void splitsOnEveryLineEnding() throws Exception {
+        assertEquals(List.of("a", "b", "c", "", "d"), lines("printf 'a\\nb\\r\\nc\\r\\rd'"));
+    }
+
+    @Test
+    void multiByteCharactersSurviveSplitWrites() throws Exception {
+        // "é" (c3 a9) and "€" (e2 82 ac) written a byte at a time
+        assertEquals(List.of("é€"), lines("printf '\\303'; sleep 0.05; printf '\\251\\342'; sleep 0.05; printf '\\202\\254\\n'"));
+    }
+
+    @Test
+    void overlongLinesAreCut() throws Exception {
+        List<String> out = lines("head -c " + (PipeReader.MAX_LINE_CHARS + 1000) + " /dev/zero | tr '\\0' x; echo; echo next");
+
+        assertEquals(2, out.size());
+        assertEquals(PipeReader.MAX_LINE_CHARS, out.get(0).length());
+        assertEquals("next", out.get(1));
+    }
+
+    @Test
+    void linesArriveAsTheyAreWritten() throws Exception {
+        Process p = sh("echo first; sleep 1; echo second");
+        long t0 = System.nanoTime();
+        AtomicLong firstAtMs = new AtomicLong(-1);
+        PipeReader.Pipe pipe = PipeReader.shared().register(p.getInputStream(), p, StandardCharsets.UTF_8,
+                line -> { if (line.equals("first")) firstAtMs.set((System.nanoTime() - t0) / 1_000_000L); }, null);
+
+        assertTrue(pipe.await(5000));
+        assertTrue(firstAtMs.get() >= 0 && firstAtMs.get() < 500, "first line after " + firstAtMs.get() + " ms");
+    }
+
+    @Test
+    void pipeHeldOpenByAGrandchildEndsWithTheProcess() throws Exception {
+        Process p = sh("sleep 5 & echo $!");
+        List<String> out = new CopyOnWriteArrayList<>();
+        AtomicInteger eof = new AtomicInteger();
+        PipeReader.Pipe pipe = PipeReader.shared().register(p.getInputStream(), p, StandardCharsets.UTF_8,
+                out::add, eof::incrementAndGet);
+        PipeReader.shared().register(p.getErrorStream(), p, StandardCharsets.UTF_8, null, null);
+        try {
+            assertTrue(pipe.await(2000), "pipe waited for the grandchild");
+            assertEquals(1, out.size());
+            assertEquals(1, eof.get());
+        } finally {
+            for (String pid : out) ProcessHandle.of(Long.parseLong(pid.strip())).ifPresent(ProcessHandle::destroy);
+        }
+    }
+
+    @Test
+    void twoHundredProcessesNeedNoThreadPerPipe() throws Exception {
+        final int processes = 200;
+        final int linesEach = 20;
+        String script = "i=0; while [ $i -lt " + linesEach + " ]; do echo line $i; i=$((i+1)); done; sleep 1; echo end";
+
+        MemoryMXBean mem = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long heapBefore = mem.getHeapMemoryUsage().getUsed();
+        int threadsBefore = platformThreads();
+
+        AtomicInteger peakThreads = new AtomicInteger();
+        Thread sampler = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                peakThreads.accumulateAndGet(platformThreads(), Math::max);
+                try { Thread.sleep(10); } catch (InterruptedException e) { return; }
+            }
+        });
+        sampler.setDaemon(true);
+        sampler.start();
+
+        List<Process> procs = new ArrayList<>();
+        List<PipeReader.Pipe> pipes = new ArrayList<>();
+        AtomicInteger delivered = new AtomicInteger();
+        long heapLoaded;
+        try {
+            for (int i = 0; i < processes; i++) {
+                Process p = sh(script);
+                procs.add(p);
+                pipes.add(PipeReader.shared().register(p.getInputStream(), p, StandardCharsets.UTF_8,
+                        line -> delivered.incrementAndGet(), null));
+                pipes.add(PipeReader.shared().register(p.getErrorStream(), p, StandardCharsets.UTF_8, null, null));
+            }
+            Thread.sleep(300); // every process started, printed and now sleeping
+            System.gc();
+            heapLoaded = mem.getHeapMemoryUsage().getUsed();
+
+            for (PipeReader.Pipe pipe : pipes) assertTrue(pipe.await(30_000));
+        } finally {
+            sampler.interrupt();
+            for (Process p : procs) p.destroyForcibly();
+        }
+
+        assertEquals(processes * (linesEach + 1), delivered.get());
+
+        // The JDK keeps one reaper thread per child regardless (excluded). Only BLOCKING_READS
+        // reads may block in the kernel and pin a carrier. On top of those come the scheduler's
+        // own carriers plus the ones it adds while quick reads run (about one per processor
+        // each), and a few JDK helpers (delay scheduler, unparker, common pool) and the sampler.
+        int cpus = Runtime.getRuntime().availableProcessors();
+        int bound = PipeReader.BLOCKING_READS + 2 * cpus + 8;
+        int extra = peakThreads.get() - threadsBefore;
+        assertTrue(extra <= bound, "platform threads grew by " + extra + " for " + pipes.size()
+                + " pipes (bound " + bound + ")");
+
+        long heapGrowth = heapLoaded - heapBefore;
+        assertTrue(heapGrowth < 32L * 1024 * 1024, "heap grew by " + (heapGrowth >> 10) + " KB");
+    }
+
+    private static int platformThreads() {
+        int n = 0;
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if (!t.getName().startsWith("process reaper")) n++;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,184 @@
+package fx.shield.cs.WIN;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cap, priority, single-flight and tree kill, with {@code /bin/sh -c} as the job.
+ */
+@EnabledOnOs({OS.LINUX, OS.MAC})
+class ProcessExecutorTest {
+
+    private static final Duration T = Duration.ofSeconds(10);
+
+    private static WindowsUtils.PsResult sh(String script, Duration timeout) {
+        return ProcessExecutor.runProcess(List.of("/bin/sh", "-c", script), timeout, null, null);
+    }
+
+    @Test
+    void runProcessCapturesOutputAndExitCode() {
+        WindowsUtils.PsResult r = sh("echo out; echo err >&2; exit 3", T);
+
+        assertEquals(3, r.exitCode);
+        assertFalse(r.success);
+        assertFalse(r.timedOut);
+        assertEquals("out", r.stdout.strip());
+        assertEquals("err", r.stderr.strip());
+    }
+
+    @Test
+    void noMoreThanMaxConcurrentJobsRunAtOnce() {
+        ProcessExecutor ex = new ProcessExecutor(2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+
+        List<ProcessExecutor.Job> jobs = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            jobs.add(ex.submit(null, ProcessExecutor.Priority.NORMAL, () -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    return sh("sleep 0.2", T);
+                } finally {
+                    running.decrementAndGet();
+                }
+            }));
+        }
+        for (ProcessExecutor.Job j : jobs) assertTrue(j.await().success);
+
+        assertEquals(2, peak.get());
+    }
+
+    @Test
+    void queuedJobsRunByPriorityThenFifo() throws Exception {
+        ProcessExecutor ex = new ProcessExecutor(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        ProcessExecutor.Job blocker = ex.submit(null, ProcessExecutor.Priority.HIGH, () -> {
+            started.countDown();
+            release.await();
+            return sh("true", T);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        List<ProcessExecutor.Job> jobs = new ArrayList<>();
+        String[][] queued = {{"low", "LOW"}, {"normal-1", "NORMAL"}, {"high", "HIGH"}, {"normal-2", "NORMAL"}};
+        for (String[] q : queued) {
+            jobs.add(ex.submit(null, ProcessExecutor.Priority.valueOf(q[1]), () -> {
+                order.add(q[0]);
+                return sh("echo " + q[0], T);
+            }));
+        }
+        assertEquals(4, ex.stats().queued);
+
+        release.countDown();
+        blocker.await();
+        for (ProcessExecutor.Job j : jobs) assertTrue(j.await().success);
+
+        assertEquals(List.of("high", "normal-1", "normal-2", "low"), order);
+    }
+
+    @Test
+    void sameKeyJoinsTheInFlightJob() throws Exception {
+        ProcessExecutor ex = new ProcessExecutor(2);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        ProcessExecutor.Job first = ex.submit("k", ProcessExecutor.Priority.NORMAL, () -> {
+            calls.incrementAndGet();
+            release.await();
+            return sh("echo shared", T);
+        });
+        ProcessExecutor.Job second = ex.submit("k", ProcessExecutor.Priority.HIGH, () -> {
+            calls.incrementAndGet();
+            return sh("echo other", T);
+        });
+
+        assertSame(first, second);
+        release.countDown();
+        assertEquals("shared", second.await().stdout.strip());
+        assertEquals(1, calls.get());
+
+        // Once finished, the key is free again.
+        ProcessExecutor.Job third = ex.submit("k", ProcessExecutor.Priority.NORMAL, () -> {
+            calls.incrementAndGet();
+            return sh("echo again", T);
+        });
+        assertNotSame(first, third);
+        assertEquals("again", third.await().stdout.strip());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void timeoutKillsTheWholeTree() throws Exception {
+        AtomicLong child = new AtomicLong();
+
+        WindowsUtils.PsResult r = ProcessExecutor.runProcess(
+                List.of("/bin/sh", "-c", "sleep 30 & echo $!; sleep 30"),
+                Duration.ofMillis(500), line -> child.compareAndSet(0, Long.parseLong(line.strip())), null);
+
+        assertTrue(r.timedOut);
+        assertFalse(r.success);
+        assertTrue(child.get() > 0);
+        assertFalse(aliveAfter(child.get(), 2000), "background child survived the timeout");
+    }
+
+    @Test
+    void nestedSubmissionRunsInline() {
+        ProcessExecutor ex = new ProcessExecutor(1);
+
+        WindowsUtils.PsResult r = ex.run(null, ProcessExecutor.Priority.NORMAL,
+                () -> ex.run(null, ProcessExecutor.Priority.NORMAL, () -> sh("echo inner", T)));
+
+        assertEquals("inner", r.stdout.strip());
+    }
+
+    @Test
+    void statsCountOutcomes() throws Exception {
+        ProcessExecutor ex = new ProcessExecutor(2);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ProcessExecutor.Job held = ex.submit("held", ProcessExecutor.Priority.NORMAL, () -> {
+            release.await();
+            return sh("true", T);
+        });
+        ex.submit("held", ProcessExecutor.Priority.NORMAL, () -> sh("true", T));
+        ex.run(null, ProcessExecutor.Priority.NORMAL, () -> sh("exit 1", T));
+        ex.run(null, ProcessExecutor.Priority.NORMAL, () -> sh("sleep 5", Duration.ofMillis(200)));
+        ex.run(null, ProcessExecutor.Priority.NORMAL, () -> { throw new IllegalStateException("boom"); });
+        release.countDown();
+        held.await();
+
+        ProcessExecutor.Stats s = ex.stats();
+        assertEquals(4, s.submitted);
+        assertEquals(1, s.deduplicated);
+        assertEquals(4, s.completed);
+        assertEquals(3, s.failed);
+        assertEquals(1, s.timedOut);
+        assertTrue(s.maxRunMs >= 200, "maxRunMs=" + s.maxRunMs);
+        assertTrue(s.totalRunMs >= s.maxRunMs);
+        assertEquals(0, s.queued);
+    }
+
+    private static boolean aliveAfter(long pid, long ms) throws InterruptedException {
+        long deadline = System.nanoTime() + ms * 1_000_000L;
+        while (System.nanoTime() < deadline) {
+            if (!ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false)) return false;
+            Thread.sleep(20);
+        }
+        return true;
+    }
+}
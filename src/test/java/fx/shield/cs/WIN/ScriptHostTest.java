@@ -0,0 +1,203 @@
+package fx.shield.cs.WIN;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Protocol and pool behaviour against the {@code /bin/sh} host loop.
+ */
+@EnabledOnOs({OS.LINUX, OS.MAC})
+class ScriptHostTest {
+
+    private static final Duration T = Duration.ofSeconds(10);
+
+    private final List<AutoCloseable> cleanup = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (AutoCloseable c : cleanup) c.close();
+    }
+
+    private ScriptHost host() throws IOException {
+        ScriptHost h = new ScriptHost(ScriptHost.posixShell());
+        cleanup.add(h);
+        return h;
+    }
+
+    private ScriptHostPool pool(int size, int maxRequests) {
+        ScriptHostPool p = new ScriptHostPool(ScriptHost.posixShell(), size, maxRequests, 0, null);
+        cleanup.add(p::close);
+        return p;
+    }
+
+    @Test
+    void framesMultiLineOutputPerRequest() throws IOException {
+        ScriptHost h = host();
+
+        WindowsUtils.PsResult r = h.exec("echo one; echo two; echo three", T, null);
+
+        assertTrue(r.success);
+        assertEquals("one\ntwo\nthree", r.stdout.strip());
+        assertEquals("", r.stderr.strip());
+    }
+
+    @Test
+    void outputCannotFakeTheEndMarker() throws IOException {
+        ScriptHost h = host();
+
+        WindowsUtils.PsResult r = h.exec("echo 'FXS-END 1234 0'; echo 'FXS-ERR 1234'; echo after", T, null);
+
+        assertTrue(r.success);
+        assertEquals("FXS-END 1234 0\nFXS-ERR 1234\nafter", r.stdout.strip());
+    }
+
+    @Test
+    void outputWithoutTrailingNewlineIsKept() throws IOException {
+        ScriptHost h = host();
+
+        WindowsUtils.PsResult r = h.exec("printf 'no newline'", T, null);
+
+        assertTrue(r.success);
+        assertEquals("no newline", r.stdout.strip());
+    }
+
+    @Test
+    void scriptsWithQuotesAndNewlinesSurviveTheRequestLine() throws IOException {
+        ScriptHost h = host();
+
+        WindowsUtils.PsResult r = h.exec("x='a \"b\" c'\nfor i in 1 2; do\n  echo \"$x $i\"\ndone", T, null);
+
+        assertEquals("a \"b\" c 1\na \"b\" c 2", r.stdout.strip());
+    }
+
+    @Test
+    void reportsExitCodeAndStderr() throws IOException {
+        ScriptHost h = host();
+
+        WindowsUtils.PsResult r = h.exec("echo out; echo oops >&2; exit 3", T, null);
+
+        assertFalse(r.success);
+        assertEquals(3, r.exitCode);
+        assertEquals("out", r.stdout.strip());
+        assertEquals("oops", r.stderr.strip());
+        assertFalse(r.timedOut);
+    }
+
+    @Test
+    void oneHostServesSequentialRequests() throws IOException {
+        ScriptHost h = host();
+
+        String pid1 = h.exec("echo $$", T, null).stdout.strip();
+        assertEquals(2, h.exec("exit 2", T, null).exitCode);
+        String pid2 = h.exec("echo $$", T, null).stdout.strip();
+
+        assertEquals(pid1, pid2);
+        assertEquals(Long.toString(h.pid()), pid1);
+        assertEquals(3, h.requests());
+        assertTrue(h.isUsable());
+    }
+
+    @Test
+    void streamsStdoutLinesToTheCallback() throws IOException {
+        ScriptHost h = host();
+        List<String> seen = new CopyOnWriteArrayList<>();
+
+        h.exec("echo a; echo b >&2; echo c", T, seen::add);
+
+        assertEquals(List.of("a", "c"), seen);
+    }
+
+    @Test
+    void timeoutMarksHostBroken() throws IOException {
+        ScriptHost h = host();
+
+        long t0 = System.nanoTime();
+        WindowsUtils.PsResult r = h.exec("echo started; sleep 5", Duration.ofMillis(300), null);
+        long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+
+        assertTrue(r.timedOut);
+        assertFalse(r.success);
+        assertTrue(ms < 2000, "took " + ms + " ms");
+        assertEquals("started", r.stdout.strip());
+        assertFalse(h.isUsable());
+        assertThrows(IOException.class, () -> h.exec("echo again", T, null));
+    }
+
+    @Test
+    void pingRoundTripsAnEmptyScript() throws IOException {
+        assertTrue(host().ping(T));
+    }
+
+    @Test
+    void poolReusesHostUntilRequestLimit() {
+        ScriptHostPool p = pool(1, 2);
+
+        String a = p.run("echo $$", T, null).stdout.strip();
+        String b = p.run("echo $$", T, null).stdout.strip();
+        String c = p.run("echo $$", T, null).stdout.strip();
+
+        assertEquals(a, b);
+        assertNotEquals(b, c, "host not recycled after maxRequests");
+    }
+
+    @Test
+    void poolRecyclesHostOverMemoryCap() {
+        ScriptHostPool p = new ScriptHostPool(ScriptHost.posixShell(), 1, 100, 1L << 20, pid -> 2L << 20);
+        cleanup.add(p::close);
+
+        String a = p.run("echo $$", T, null).stdout.strip();
+        String b = p.run("echo $$", T, null).stdout.strip();
+
+        assertNotEquals(a, b);
+    }
+
+    @Test
+    void poolReplacesHostAfterTimeout() {
+        ScriptHostPool p = pool(1, 100);
+
+        String a = p.run("echo $$", T, null).stdout.strip();
+        assertTrue(p.run("sleep 5", Duration.ofMillis(200), null).timedOut);
+        WindowsUtils.PsResult r = p.run("echo $$", T, null);
+
+        assertNotNull(r);
+        assertTrue(r.success);
+        assertNotEquals(a, r.stdout.strip());
+    }
+
+    @Test
+    void busyPoolReturnsNullInsteadOfWaiting() throws Exception {
+        ScriptHostPool p = pool(1, 100);
+
+        CompletableFuture<WindowsUtils.PsResult> slow =
+                CompletableFuture.supplyAsync(() -> p.run("sleep 1; echo done", T, null));
+        Thread.sleep(300);
+
+        long t0 = System.nanoTime();
+        assertNull(p.run("echo hi", T, null));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0) < 200);
+
+        assertEquals("done", slow.get(5, TimeUnit.SECONDS).stdout.strip());
+        assertEquals("hi", p.run("echo hi", T, null).stdout.strip());
+    }
+
+    @Test
+    void closedPoolRunsNothing() {
+        ScriptHostPool p = pool(1, 100);
+        p.run("true", T, null);
+        p.close();
+
+        assertNull(p.run("echo hi", T, null));
+    }
+}